@@ -0,0 +1,61 @@
+package com.study.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Login hashing throughput and CPU per login, legacy SHA-256 vs calibrated
+ * PBKDF2 behind the bounded hashing pool. Only built with the
+ * {@code benchmark} profile, so it stays out of the CLI jar; run with
+ * {@code mvn -Pbenchmark compile exec:java -Dexec.args="[callers] [logins]"}.
+ */
+public class PasswordHashBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int callers = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int logins = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Sha256PasswordEncoder legacy = new Sha256PasswordEncoder();
+        String legacySalt = legacy.generateSalt();
+        String legacyHash = legacy.encode("admin123", legacySalt);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            legacy.matches("admin123", legacyHash, legacySalt);
+        }
+        System.out.printf("sha256: %.0f checks/s on one thread%n",
+                100_000 * 1e9 / (System.nanoTime() - startedAt));
+
+        Pbkdf2PasswordEncoder encoder = Pbkdf2PasswordEncoder.getInstance();
+        PasswordHashingExecutor pool = PasswordHashingExecutor.getInstance();
+        String salt = encoder.generateSalt();
+        String hash = encoder.encode("admin123", salt);
+
+        ExecutorService clients = Executors.newFixedThreadPool(callers);
+        List<Future<Boolean>> results = new ArrayList<>();
+        startedAt = System.nanoTime();
+        for (int i = 0; i < logins; i++) {
+            results.add(clients.submit(() -> {
+                try {
+                    return pool.call(() -> encoder.matches("admin123", hash, salt));
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }));
+        }
+        int ok = 0;
+        for (Future<Boolean> result : results) {
+            ok += result.get() ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        clients.shutdown();
+
+        PasswordHashingExecutor.Stats stats = pool.stats();
+        System.out.printf("pbkdf2 (%d iterations): %d/%d logins in %d ms, %.1f logins/s, %d rejected%n",
+                encoder.getIterations(), ok, logins, elapsed / 1_000_000, ok * 1e9 / elapsed, stats.rejected());
+        System.out.printf("per login: %.1f ms wall, %.1f ms CPU%n",
+                stats.averageWallMillis(), stats.averageCpuMillis());
+    }
+}
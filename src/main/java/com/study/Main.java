@@ -2,6 +2,7 @@ package com.study;
 
 import com.study.cli.CliApplication;
 import com.study.facade.RbacFacade;
+import com.study.job.AuditRetentionJob;
 import com.study.repository.DatabaseConnection;
 
 /**
@@ -12,10 +13,14 @@ public class Main {
         // Initialize database and facade
         DatabaseConnection dbConnection = DatabaseConnection.getInstance();
         dbConnection.initializeDefaults();
+        if (Boolean.parseBoolean(System.getProperty("rbac.audit.retention.enabled", "true"))) {
+            new AuditRetentionJob(dbConnection).start();
+        }
         RbacFacade facade = new RbacFacade(dbConnection);
 
         // Start CLI application
         CliApplication cliApp = new CliApplication(facade);
         cliApp.start();
+        facade.close();
     }
 }
@@ -59,15 +59,17 @@ public class CliApplication {
     private boolean handleLoginMenu() {
         System.out.println("====== Login Menu ======");
         System.out.println("1. Login");
+        System.out.println("2. Resume session");
         System.out.println("0. Exit");
         String input = InputUtils.readInput("guest> ").trim();
         switch (input) {
             case "1" -> router.handle("login", facade);
+            case "2" -> router.handle("resume-session", facade);
             case "0" -> {
                 System.out.println("Bye.");
                 return false;
             }
-            default -> System.out.println("Invalid choice. Please select 0 or 1.");
+            default -> System.out.println("Invalid choice. Please select 0, 1 or 2.");
         }
         return true;
     }
@@ -76,6 +78,10 @@ public class CliApplication {
         List<MenuCategory> categories = buildCategories();
         boolean inMain = true;
         while (inMain) {
+            if (!facade.isLoggedIn()) {
+                System.out.println("Session expired, please login again.");
+                return true;
+            }
             printMainMenu(categories);
             String input = InputUtils.readInput(facade.getCurrentUser().getUsername() + "> ").trim();
             if (input.isEmpty()) {
@@ -155,24 +161,36 @@ public class CliApplication {
                 "assign-role", "remove-role", "change-profile"
         )));
         list.add(new MenuCategory("Role", List.of(
-                "create-role", "list-roles", "update-role", "delete-role"
+                "create-role", "list-roles", "update-role", "delete-role", "analyze-roles"
+        )));
+        list.add(new MenuCategory("Group", List.of(
+                "create-group", "list-groups", "view-group", "move-group", "delete-group",
+                "add-group-member", "remove-group-member", "assign-group-role", "remove-group-role"
         )));
         list.add(new MenuCategory("Permission", List.of(
                 "create-permission", "list-permissions", "list-my-permissions",
                 "update-permission", "delete-permission",
                 "assign-permission", "remove-permission",
-                "assign-resource-permission", "remove-resource-permission"
+                "assign-resource-permission", "remove-resource-permission", "explain-access"
         )));
         list.add(new MenuCategory("Resource", List.of(
                 "create-resource", "list-resources", "list-my-resources",
-                "view-resource", "update-resource", "delete-resource"
+                "view-resource", "update-resource", "delete-resource", "move-resource"
         )));
         list.add(new MenuCategory("Audit", List.of(
                 "view-audit", "view-all-audit", "view-user-audit",
-                "view-action-audit", "view-resource-audit"
+                "view-action-audit", "view-resource-audit", "view-audit-detail",
+                "search-audit", "view-archived-audit", "view-audit-stats", "export-audit",
+                "backfill-audit", "export-access-review"
+        )));
+        list.add(new MenuCategory("Tenant", List.of(
+                "create-tenant", "list-tenants"
+        )));
+        list.add(new MenuCategory("Separation of duties", List.of(
+                "create-sod-constraint", "list-sod-constraints", "delete-sod-constraint", "sod-report"
         )));
         list.add(new MenuCategory("Account", List.of(
-                "view-profile", "change-password"
+                "view-profile", "change-password", "session-info"
         )));
         return list;
     }
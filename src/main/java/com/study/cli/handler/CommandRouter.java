@@ -2,20 +2,44 @@ package com.study.cli.handler;
 
 import com.study.common.util.InputUtils;
 import com.study.config.CommandSpec;
+import com.study.context.AccessTrace;
+import com.study.context.SessionStore;
 import com.study.domain.AuditLog;
+import com.study.domain.Group;
 import com.study.domain.Permission;
 import com.study.domain.Resource;
+import com.study.service.dto.AuditCountPoint;
 import com.study.service.dto.ResourceAccessView;
+import com.study.service.dto.SodViolation;
+import com.study.service.analysis.RoleMiner;
+import com.study.service.export.AccessReviewExporter;
+import com.study.service.export.AuditExporter;
 import com.study.service.dto.ResourceRoleScope;
 import com.study.service.dto.ResourceUserScope;
 import com.study.domain.Role;
+import com.study.domain.SodConstraint;
+import com.study.domain.Tenant;
 import com.study.domain.User;
 import com.study.facade.RbacFacade;
-
+import com.study.job.AuditLogBackfill;
+import com.study.repository.AuditRollupRepository.Granularity;
+import com.study.repository.AuditSearchQuery;
+import com.study.repository.archive.ArchiveQuery;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -33,7 +57,9 @@ public class CommandRouter {
         register("exit", "Exit application", false, true, facade -> System.out.println("Bye."));
 
         register("login", "Login", false, false, this::handleLogin);
+        register("resume-session", "Resume a session by token", false, false, this::handleResumeSession);
         register("logout", "Logout", true, false, this::handleLogout);
+        register("session-info", "Show my session", true, false, this::handleSessionInfo);
         register("change-password", "Change my password", true, false, this::handleChangePassword);
         register("view-profile", "View my profile", true, false, this::handleViewProfile);
         register("change-profile", "Update my profile info", true, false, this::handleChangeProfile);
@@ -50,6 +76,17 @@ public class CommandRouter {
         register("list-roles", "List roles", true, false, this::handleListRoles);
         register("update-role", "Update role", true, false, this::handleUpdateRole);
         register("delete-role", "Delete role", true, false, this::handleDeleteRole);
+        register("analyze-roles", "Find similar roles to merge", true, false, this::handleAnalyzeRoles);
+
+        register("create-group", "Create group", true, false, this::handleCreateGroup);
+        register("list-groups", "List groups", true, false, this::handleListGroups);
+        register("view-group", "View group members and roles", true, false, this::handleViewGroup);
+        register("move-group", "Move group under another group", true, false, this::handleMoveGroup);
+        register("delete-group", "Delete group", true, false, this::handleDeleteGroup);
+        register("add-group-member", "Add user to group", true, false, this::handleAddGroupMember);
+        register("remove-group-member", "Remove user from group", true, false, this::handleRemoveGroupMember);
+        register("assign-group-role", "Assign role to group", true, false, this::handleAssignGroupRole);
+        register("remove-group-role", "Remove role from group", true, false, this::handleRemoveGroupRole);
 
         register("create-permission", "Create permission", true, false, this::handleCreatePermission);
         register("list-permissions", "List permissions", true, false, this::handleListPermissions);
@@ -60,6 +97,7 @@ public class CommandRouter {
         register("delete-permission", "Delete permission", true, false, this::handleDeletePermission);
         register("assign-resource-permission", "Grant scoped permission to role", true, false, this::handleAssignScopedPermission);
         register("remove-resource-permission", "Revoke scoped permission from role", true, false, this::handleRemoveScopedPermission);
+        register("explain-access", "Explain an access decision", true, false, this::handleExplainAccess);
 
         register("create-resource", "Create resource", true, false, this::handleCreateResource);
         register("list-resources", "List resources", true, false, this::handleListResources);
@@ -67,12 +105,28 @@ public class CommandRouter {
         register("view-resource", "View resource detail", true, false, this::handleViewResource);
         register("update-resource", "Update resource", true, false, this::handleUpdateResource);
         register("delete-resource", "Delete resource", true, false, this::handleDeleteResource);
+        register("move-resource", "Move resource under another parent", true, false, this::handleMoveResource);
 
         register("view-audit", "View my audit logs", true, false, this::handleViewAudit);
         register("view-all-audit", "View all audit logs", true, false, this::handleViewAllAudit);
         register("view-user-audit", "View audit logs by user", true, false, this::handleViewUserAudit);
         register("view-action-audit", "View audit logs by action", true, false, this::handleViewActionAudit);
         register("view-resource-audit", "View audit logs by resource", true, false, this::handleViewResourceAudit);
+        register("view-audit-detail", "View full audit record", true, false, this::handleViewAuditDetail);
+        register("search-audit", "Search audit logs on several fields", true, false, this::handleSearchAudit);
+        register("view-archived-audit", "Search archived audit logs", true, false, this::handleViewArchivedAudit);
+        register("view-audit-stats", "Audit event counts over time", true, false, this::handleViewAuditStats);
+        register("export-audit", "Export audit logs to a gzip file", true, false, this::handleExportAudit);
+        register("backfill-audit", "Backfill audit logs from rolled log files", true, false, this::handleBackfillAudit);
+        register("export-access-review", "Export every user's effective grants for review", true, false, this::handleExportAccessReview);
+
+        register("create-tenant", "Create tenant", true, false, this::handleCreateTenant);
+        register("list-tenants", "List tenants", true, false, this::handleListTenants);
+
+        register("create-sod-constraint", "Forbid holding two permissions together", true, false, this::handleCreateSodConstraint);
+        register("list-sod-constraints", "List separation of duties constraints", true, false, this::handleListSodConstraints);
+        register("delete-sod-constraint", "Delete separation of duties constraint", true, false, this::handleDeleteSodConstraint);
+        register("sod-report", "Report users violating separation of duties", true, false, this::handleSodReport);
     }
 
     public boolean handle(String input, RbacFacade facade) {
@@ -125,10 +179,39 @@ public class CommandRouter {
     // ---- Auth ----
 
     private void handleLogin(RbacFacade facade) {
+        String tenant = InputUtils.readInput("Tenant (blank for default): ");
         String username = InputUtils.readInput("Username: ");
         String password = InputUtils.readPassword("Password: ");
-        User user = facade.login(username, password);
+        User user = facade.login(tenant, username, password);
         System.out.println("[SUCCESS] Logged in as " + user.getUsername());
+        SessionStore.Session session = facade.getCurrentSession();
+        if (session != null) {
+            System.out.println("Session token: " + session.getToken());
+        }
+    }
+
+    private void handleResumeSession(RbacFacade facade) {
+        String token = InputUtils.readInput("Session token: ");
+        User user = facade.resumeSession(token);
+        System.out.println("[SUCCESS] Resumed session of " + user.getUsername());
+    }
+
+    private void handleSessionInfo(RbacFacade facade) {
+        SessionStore.Session session = facade.getCurrentSession();
+        if (session == null) {
+            System.out.println("No session token for this login.");
+            return;
+        }
+        System.out.println("\n== Session ==");
+        System.out.println("Token      : " + session.getToken());
+        System.out.println("Tenant     : " + session.getTenantId());
+        System.out.println("Created    : " + formatMillis(session.getCreatedAt()));
+        System.out.println("Last used  : " + formatMillis(session.getLastAccessAt()));
+        System.out.println("Active sessions: " + facade.getActiveSessionCount());
+    }
+
+    private String formatMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(FORMATTER);
     }
 
     private void handleLogout(RbacFacade facade) {
@@ -226,6 +309,12 @@ public class CommandRouter {
         System.out.println("Roles: " + (roles.isEmpty()
                 ? "-"
                 : roles.stream().map(Role::getName).toList()));
+        if (facade.canExecuteCommand("view-group")) {
+            List<Group> groups = facade.getUserGroups(username);
+            System.out.println("Groups: " + (groups.isEmpty()
+                    ? "-"
+                    : groups.stream().map(Group::getCode).toList()));
+        }
     }
 
     private void handleDeleteUser(RbacFacade facade) {
@@ -268,9 +357,13 @@ public class CommandRouter {
     private void handleAssignRole(RbacFacade facade) {
         String username = InputUtils.readInput("Username: ");
         String roleCode = InputUtils.readInput("Role code: ");
+        LocalDateTime validFrom = readDateTime("Valid from (yyyy-MM-dd HH:mm:ss, blank for now): ");
+        LocalDateTime validUntil = readDateTime("Valid until (yyyy-MM-dd HH:mm:ss, blank for permanent): ");
 
-        facade.assignRoleToUser(username, roleCode);
-        System.out.println("[SUCCESS] Role assigned to user.");
+        facade.assignRoleToUser(username, roleCode, validFrom, validUntil);
+        System.out.println(validUntil != null
+                ? "[SUCCESS] Role assigned to user until " + validUntil.format(FORMATTER) + "."
+                : "[SUCCESS] Role assigned to user.");
     }
 
     private void handleRemoveRole(RbacFacade facade) {
@@ -320,6 +413,124 @@ public class CommandRouter {
         }
     }
 
+    private void handleAnalyzeRoles(RbacFacade facade) {
+        int percent = InputUtils.readIntOrDefault("Similarity threshold in percent (blank for 80): ", 80);
+        RoleMiner.Result result = facade.analyzeRoleSimilarity(percent / 100.0);
+        System.out.println("\n== Merge candidates (" + result.candidates().size() + ") ==");
+        result.candidates().stream().limit(50).forEach(c -> System.out.printf("%s <- %s | min %.0f%% | -%d rows%n",
+                c.keepRole(), String.join(", ", c.mergedRoles()), c.minSimilarity() * 100, c.rowsRemoved()));
+        if (result.candidates().size() > 50) {
+            System.out.println("... " + (result.candidates().size() - 50) + " more");
+        }
+        System.out.println("Roles: " + result.roles() + " (" + result.emptyRoles() + " without grants), grants: "
+                + result.grants() + ", pairs compared: " + result.comparedPairs()
+                + (result.approximate() ? " (LSH)" : "") + ", " + result.elapsedNanos() / 1_000_000 + " ms");
+        System.out.println("Merging all candidates would remove " + result.rowsRemoved() + " grant rows");
+    }
+
+    // ---- Group ----
+
+    private void handleCreateGroup(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        String name = InputUtils.readInput("Group name: ");
+        String description = InputUtils.readInput("Description (optional): ");
+        String parentCode = InputUtils.readInput("Parent group code (blank for top level): ");
+
+        Group group = facade.createGroup(code, name, description.isBlank() ? null : description, parentCode);
+        System.out.println("[SUCCESS] Group created: " + group.getCode());
+    }
+
+    private void handleListGroups(RbacFacade facade) {
+        List<Group> groups = facade.listGroups();
+        System.out.println("\n== Groups (" + groups.size() + ") ==");
+        Map<Long, List<Group>> children = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        groups.forEach(group -> ids.add(group.getId()));
+        List<Group> roots = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.getParentId() == null || !ids.contains(group.getParentId())) {
+                roots.add(group);
+            } else {
+                children.computeIfAbsent(group.getParentId(), id -> new ArrayList<>()).add(group);
+            }
+        }
+        roots.forEach(group -> printGroupTree(group, children, 0));
+    }
+
+    private void printGroupTree(Group group, Map<Long, List<Group>> children, int depth) {
+        System.out.printf("%s[%d] %s - %s%n", "  ".repeat(depth), group.getId(), group.getCode(), group.getName());
+        for (Group child : children.getOrDefault(group.getId(), List.of())) {
+            printGroupTree(child, children, depth + 1);
+        }
+    }
+
+    private void handleViewGroup(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        Group group = facade.getGroupByCode(code);
+        System.out.println("\n== Group " + group.getCode() + " ==");
+        System.out.println("Name: " + group.getName());
+        if (group.getDescription() != null) {
+            System.out.println("Description: " + group.getDescription());
+        }
+        System.out.println("Parent ID: " + (group.getParentId() != null ? group.getParentId() : "(top level)"));
+        List<Role> roles = facade.getGroupRoles(code);
+        System.out.println("Roles (" + roles.size() + "): "
+                + (roles.isEmpty() ? "-" : String.join(", ", roles.stream().map(Role::getCode).toList())));
+        List<String> members = facade.getGroupMembers(code);
+        System.out.println("Members (" + members.size() + "): " + (members.isEmpty() ? "-" : String.join(", ", members)));
+    }
+
+    private void handleMoveGroup(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        String parentCode = InputUtils.readInput("New parent group code (blank for top level): ");
+
+        facade.moveGroup(code, parentCode);
+        System.out.println("[SUCCESS] Group moved.");
+    }
+
+    private void handleDeleteGroup(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        String confirm = InputUtils.readInput("Confirm delete? Subgroups move up one level. (yes/no): ");
+        if ("yes".equalsIgnoreCase(confirm)) {
+            facade.deleteGroup(code);
+            System.out.println("[SUCCESS] Group deleted.");
+        } else {
+            System.out.println("Delete cancelled.");
+        }
+    }
+
+    private void handleAddGroupMember(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        String username = InputUtils.readInput("Username: ");
+
+        facade.addGroupMember(code, username);
+        System.out.println("[SUCCESS] User added to group.");
+    }
+
+    private void handleRemoveGroupMember(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        String username = InputUtils.readInput("Username: ");
+
+        facade.removeGroupMember(code, username);
+        System.out.println("[SUCCESS] User removed from group.");
+    }
+
+    private void handleAssignGroupRole(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        String roleCode = InputUtils.readInput("Role code: ");
+
+        facade.assignRoleToGroup(code, roleCode);
+        System.out.println("[SUCCESS] Role assigned to group.");
+    }
+
+    private void handleRemoveGroupRole(RbacFacade facade) {
+        String code = InputUtils.readInput("Group code: ");
+        String roleCode = InputUtils.readInput("Role code: ");
+
+        facade.removeRoleFromGroup(code, roleCode);
+        System.out.println("[SUCCESS] Role removed from group.");
+    }
+
     // ---- Permission ----
 
     private void handleCreatePermission(RbacFacade facade) {
@@ -400,7 +611,7 @@ public class CommandRouter {
         String roleCode = InputUtils.readInput("Role code: ");
         String permissionCode = InputUtils.readInput("Permission code: ");
         String resourceType = InputUtils.readInput("Resource type: ");
-        String resourceId = InputUtils.readInput("Resource ID (blank for all within type): ");
+        String resourceId = InputUtils.readInput("Resource ID (blank for all within type, * and ? wildcards allowed): ");
 
         facade.assignScopedPermission(roleCode, permissionCode, resourceType, resourceId.isBlank() ? null : resourceId);
         System.out.println("[SUCCESS] Scoped permission assigned.");
@@ -416,6 +627,23 @@ public class CommandRouter {
         System.out.println("[SUCCESS] Scoped permission removed.");
     }
 
+    private void handleExplainAccess(RbacFacade facade) {
+        String username = InputUtils.readInput("Username (blank for yourself): ");
+        String permissionCode = InputUtils.readInput("Permission code: ");
+        String resourceType = InputUtils.readInput("Resource type (blank for none): ");
+        String resourceId = InputUtils.readInput("Resource ID (blank for none): ");
+
+        AccessTrace trace = facade.explainAccess(username, permissionCode, resourceType, resourceId);
+        System.out.printf("%n== %s: %s %s on %s/%s ==%n", trace.isGranted() ? "ALLOWED" : "DENIED",
+                trace.getUsername(), trace.getPermissionCode(),
+                trace.getResourceType() != null ? trace.getResourceType() : "-",
+                trace.getResourceId() != null ? trace.getResourceId() : "-");
+        for (AccessTrace.Stage stage : trace.getStages()) {
+            System.out.printf("  %-10s %-8s %,9d ns  %s%n", stage.name(), stage.outcome(), stage.nanos(), stage.detail());
+        }
+        System.out.printf("  total %,d ns%n", trace.getTotalNanos());
+    }
+
     // ---- Resource ----
 
     private void handleCreateResource(RbacFacade facade) {
@@ -423,11 +651,38 @@ public class CommandRouter {
         String name = InputUtils.readInput("Resource name: ");
         String type = InputUtils.readInput("Resource type: ");
         String url = InputUtils.readInput("Resource url (optional): ");
+        String parentIdStr = InputUtils.readInput("Parent resource ID (blank for top level): ");
+        Long parentId = null;
+        if (!parentIdStr.isBlank()) {
+            try {
+                parentId = Long.parseLong(parentIdStr);
+            } catch (NumberFormatException ex) {
+                System.out.println("Invalid parent ID, create cancelled.");
+                return;
+            }
+        }
 
-        Resource resource = facade.createResource(code, name, type, url.isBlank() ? null : url);
+        Resource resource = facade.createResource(code, name, type, url.isBlank() ? null : url, parentId);
         System.out.println("[SUCCESS] Resource created: " + resource.getCode());
     }
 
+    private void handleMoveResource(RbacFacade facade) {
+        long resourceId = InputUtils.readLong("Resource ID: ");
+        String parentIdStr = InputUtils.readInput("New parent resource ID (blank for top level): ");
+        Long parentId = null;
+        if (!parentIdStr.isBlank()) {
+            try {
+                parentId = Long.parseLong(parentIdStr);
+            } catch (NumberFormatException ex) {
+                System.out.println("Invalid parent ID, move cancelled.");
+                return;
+            }
+        }
+
+        Resource resource = facade.moveResource(resourceId, parentId);
+        System.out.println("[SUCCESS] Resource moved: " + resource.getCode() + " " + resource.getPath());
+    }
+
     private void handleListResources(RbacFacade facade) {
         List<Resource> resources = facade.listResources();
         System.out.println("\n== Resources (" + resources.size() + ") ==");
@@ -459,6 +714,7 @@ public class CommandRouter {
         System.out.printf("Name: %s%n", r.getName());
         System.out.printf("Type: %s%n", r.getType());
         System.out.printf("URL: %s%n", (r.getUrl() != null ? r.getUrl() : "-"));
+        System.out.printf("Parent: %s%n", (r.getParentId() != null ? r.getParentId() : "-"));
 
         System.out.println();
         System.out.println("-- Roles with scoped permissions --");
@@ -476,9 +732,21 @@ public class CommandRouter {
         if (access.getUserScopes() == null || access.getUserScopes().isEmpty()) {
             System.out.println("(no users)");
         } else {
-            for (ResourceUserScope us : access.getUserScopes()) {
-                System.out.printf("  User=%s, Role=%s, Perm=%s%n",
-                        us.getUsername(), us.getRoleCode(), us.getPermissionCode());
+            while (true) {
+                for (ResourceUserScope us : access.getUserScopes()) {
+                    System.out.printf("  User=%s, Role=%s, Perm=%s%n",
+                            us.getUsername(), us.getRoleCode(), us.getPermissionCode());
+                }
+                int shown = access.getUserOffset() + access.getUserScopes().size();
+                if (shown >= access.getTotalUsers() || access.getUserScopes().isEmpty()) {
+                    break;
+                }
+                String more = InputUtils.readInput(String.format("Showing %d of %d. More? (y/N): ",
+                        shown, access.getTotalUsers()));
+                if (!more.trim().equalsIgnoreCase("y")) {
+                    break;
+                }
+                access = facade.getResourceAccess(resourceId, shown, DEFAULT_LIMIT);
             }
         }
     }
@@ -533,6 +801,252 @@ public class CommandRouter {
         displayLogs(facade.viewAuditLogsByResource(resourceType, resourceId.isBlank() ? null : resourceId, readLimit()));
     }
 
+    private void handleViewAuditDetail(RbacFacade facade) {
+        long auditLogId = InputUtils.readLong("Audit log ID: ");
+        AuditLog log = facade.viewAuditLogDetail(auditLogId);
+
+        System.out.println("\n== Audit Record #" + log.getId() + " ==");
+        System.out.println("Time: " + log.getCreatedAt().format(FORMATTER));
+        System.out.println("User: " + orDash(log.getUsername()));
+        System.out.println("Action: " + log.getAction());
+        System.out.println("Resource: " + orDash(log.getResourceType()) + " / " + orDash(log.getResourceId()));
+        System.out.println("Result: " + (log.isSuccess() ? "SUCCESS" : "FAILED"));
+        System.out.println("IP: " + orDash(log.getIpAddress()));
+        System.out.println("Detail: " + orDash(log.getDetail()));
+        System.out.println("Error: " + orDash(log.getErrorMessage()));
+    }
+
+    private void handleSearchAudit(RbacFacade facade) {
+        String userIdStr = InputUtils.readInput("User ID (blank for any): ");
+        Long userId = null;
+        if (!userIdStr.isBlank()) {
+            try {
+                userId = Long.parseLong(userIdStr);
+            } catch (NumberFormatException ex) {
+                System.out.println("Invalid user ID, search cancelled.");
+                return;
+            }
+        }
+        String action = InputUtils.readInput("Action prefix (blank for any): ");
+        String resourceType = InputUtils.readInput("Resource type (blank for any): ");
+        String result = InputUtils.readInput("Result SUCCESS/FAILED (blank for any): ");
+        LocalDate from = readDate("From date yyyy-MM-dd (blank for no limit): ");
+        LocalDate to = readDate("To date yyyy-MM-dd, inclusive (blank for no limit): ");
+        String text = InputUtils.readInput("Words in detail/error (blank for any): ");
+
+        AuditSearchQuery query = new AuditSearchQuery(
+                userId,
+                action.isBlank() ? null : action,
+                resourceType.isBlank() ? null : resourceType,
+                result.isBlank() ? null : "SUCCESS".equalsIgnoreCase(result),
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                text.isBlank() ? null : text);
+        int limit = readLimit();
+        long startedAt = System.nanoTime();
+        List<AuditLog> logs = facade.searchAuditLogs(query, limit);
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        displayLogs(logs);
+        System.out.println("(" + elapsedMillis + " ms)");
+    }
+
+    private void handleViewArchivedAudit(RbacFacade facade) {
+        String userIdStr = InputUtils.readInput("User ID (blank for any): ");
+        Long userId = null;
+        if (!userIdStr.isBlank()) {
+            try {
+                userId = Long.parseLong(userIdStr);
+            } catch (NumberFormatException ex) {
+                System.out.println("Invalid user ID, search cancelled.");
+                return;
+            }
+        }
+        String action = InputUtils.readInput("Action (blank for any): ");
+        String resourceType = InputUtils.readInput("Resource type (blank for any): ");
+        String resourceId = resourceType.isBlank() ? "" : InputUtils.readInput("Resource ID (blank for any): ");
+        LocalDate from = readDate("From date yyyy-MM-dd (blank for no limit): ");
+        LocalDate to = readDate("To date yyyy-MM-dd, inclusive (blank for no limit): ");
+
+        ArchiveQuery query = new ArchiveQuery(
+                userId,
+                action.isBlank() ? null : action,
+                resourceType.isBlank() ? null : resourceType,
+                resourceId.isBlank() ? null : resourceId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null);
+        displayLogs(facade.viewArchivedAuditLogs(query, readLimit()));
+    }
+
+    private void handleViewAuditStats(RbacFacade facade) {
+        Granularity granularity = InputUtils.readEnum("Granularity (MINUTE/HOUR/DAY): ", Granularity.class);
+        LocalDate from = readDate("From date yyyy-MM-dd (blank for today): ");
+        LocalDate to = readDate("To date yyyy-MM-dd, inclusive (blank for same day): ");
+        String action = InputUtils.readInput("Action (blank for any): ");
+        String result = InputUtils.readInput("Result SUCCESS/FAILED (blank for any): ");
+        String resourceType = InputUtils.readInput("Resource type (blank for any): ");
+        String username = InputUtils.readInput("Username (blank for any): ");
+
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start;
+        Boolean success = result.isBlank() ? null : "SUCCESS".equalsIgnoreCase(result);
+        long startedAt = System.nanoTime();
+        List<AuditCountPoint> series = facade.viewAuditStats(granularity,
+                start.atStartOfDay(), end.plusDays(1).atStartOfDay(),
+                action.isBlank() ? null : action,
+                success,
+                resourceType.isBlank() ? null : resourceType,
+                username.isBlank() ? null : username);
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        long total = 0;
+        System.out.println("\n== Audit Counts (" + granularity + ") ==");
+        for (AuditCountPoint point : series) {
+            System.out.printf("%s | %d%n", point.getBucketStart().format(FORMATTER), point.getCount());
+            total += point.getCount();
+        }
+        System.out.printf("Total: %d in %d buckets (%d ms)%n", total, series.size(), elapsedMillis);
+    }
+
+    private void handleExportAudit(RbacFacade facade) {
+        AuditExporter.Format format = InputUtils.readEnum("Format (NDJSON/CSV): ", AuditExporter.Format.class);
+        LocalDate from = readDate("From date yyyy-MM-dd: ");
+        LocalDate to = readDate("To date yyyy-MM-dd, inclusive (blank for today): ");
+        if (from == null) {
+            System.out.println("A start date is required, export cancelled.");
+            return;
+        }
+        String action = InputUtils.readInput("Action (blank for any): ");
+        String resourceType = InputUtils.readInput("Resource type (blank for any): ");
+        String defaultName = "export/audit-" + from + "-" + (to != null ? to : LocalDate.now()) + format.getExtension();
+        String file = InputUtils.readInput("Output file (blank for " + defaultName + "): ");
+
+        AuditExporter.Result result = facade.exportAuditLogs(format,
+                Paths.get(file.isBlank() ? defaultName : file),
+                from.atStartOfDay(),
+                (to != null ? to : LocalDate.now()).plusDays(1).atStartOfDay(),
+                null,
+                action.isBlank() ? null : action,
+                resourceType.isBlank() ? null : resourceType);
+        System.out.println("[SUCCESS] Exported " + result.rows() + " rows to " + result.file());
+        System.out.println("Size: " + result.bytes() / 1024 + " KB, time: " + result.elapsedNanos() / 1_000_000
+                + " ms, throughput: " + Math.round(result.rowsPerSecond()) + " rows/s");
+    }
+
+    private void handleBackfillAudit(RbacFacade facade) {
+        String dir = InputUtils.readInput("Log directory (blank for logs): ");
+        AuditLogBackfill.Result result = facade.backfillAuditLogs(Paths.get(dir.isBlank() ? "logs" : dir),
+                (file, done, total, lines, elapsedNanos) -> System.out.println("[" + done + "/" + total + "] "
+                        + file.file().getFileName() + ": " + file.inserted() + " inserted, "
+                        + file.duplicates() + " already present, " + file.malformed() + " malformed, "
+                        + file.collisions() + " id collisions ("
+                        + Math.round(lines * 1_000_000_000.0 / Math.max(1, elapsedNanos)) + " lines/s)"));
+        System.out.println("[SUCCESS] Backfill finished: " + result.inserted() + " inserted from "
+                + result.lines() + " lines in " + result.files() + " files, "
+                + result.elapsedNanos() / 1_000_000 + " ms (" + Math.round(result.linesPerSecond()) + " lines/s)");
+        if (result.collisions() > 0) {
+            System.out.println("[WARNING] " + result.collisions() + " lines were not inserted because their "
+                    + "derived id is already taken; see the application log");
+        }
+    }
+
+    private void handleExportAccessReview(RbacFacade facade) {
+        AuditExporter.Format format = InputUtils.readEnum("Format (NDJSON/CSV): ", AuditExporter.Format.class);
+        String defaultName = "export/access-review-" + LocalDate.now() + format.getExtension();
+        String file = InputUtils.readInput("Output file (blank for " + defaultName + "): ");
+
+        AccessReviewExporter.Result result = facade.exportAccessReview(format,
+                Paths.get(file.isBlank() ? defaultName : file),
+                (done, total, users, rows, elapsedNanos) -> System.out.println("[" + done + "/" + total + "] "
+                        + users + " users, " + rows + " rows, " + elapsedNanos / 1_000_000 + " ms"));
+        System.out.println("[SUCCESS] Exported " + result.rows() + " rows for " + result.users() + " users to "
+                + result.file());
+        System.out.println("Size: " + result.bytes() / 1024 + " KB, time: " + result.elapsedNanos() / 1_000_000
+                + " ms, throughput: " + Math.round(result.rowsPerSecond()) + " rows/s");
+    }
+
+    // ---- Tenant ----
+
+    private void handleCreateTenant(RbacFacade facade) {
+        String code = InputUtils.readInput("Tenant code: ");
+        String name = InputUtils.readInput("Tenant name: ");
+        String password = InputUtils.readPassword("Password for the tenant's admin user: ");
+        Tenant tenant = facade.createTenant(code, name, password);
+        System.out.println("[SUCCESS] Tenant created: " + tenant.getCode() + " (id " + tenant.getId()
+                + "), log in to it as admin");
+    }
+
+    private void handleListTenants(RbacFacade facade) {
+        List<Tenant> tenants = facade.listTenants();
+        System.out.println("\n== Tenants (" + tenants.size() + ") ==");
+        tenants.forEach(t -> System.out.printf("#%d | %s | %s | %s%n",
+                t.getId(), t.getCode(), t.getName(), t.getCreatedAt().format(FORMATTER)));
+    }
+
+    // ---- Separation of duties ----
+
+    private void handleCreateSodConstraint(RbacFacade facade) {
+        String permissionA = InputUtils.readInput("First permission code: ");
+        String permissionB = InputUtils.readInput("Second permission code: ");
+        String description = InputUtils.readInput("Description (optional): ");
+        SodConstraint constraint = facade.createSodConstraint(permissionA, permissionB,
+                description.isBlank() ? null : description);
+        System.out.println("[SUCCESS] Constraint created: " + constraint);
+    }
+
+    private void handleListSodConstraints(RbacFacade facade) {
+        List<SodConstraint> constraints = facade.listSodConstraints();
+        System.out.println("\n== Separation of duties constraints (" + constraints.size() + ") ==");
+        constraints.forEach(c -> System.out.printf("#%d | %s / %s | %s%n",
+                c.getId(), c.getPermissionA(), c.getPermissionB(),
+                c.getDescription() != null ? c.getDescription() : ""));
+    }
+
+    private void handleDeleteSodConstraint(RbacFacade facade) {
+        long constraintId = InputUtils.readLong("Constraint ID: ");
+        String confirm = InputUtils.readInput("Confirm delete? (yes/no): ");
+        if ("yes".equalsIgnoreCase(confirm)) {
+            facade.deleteSodConstraint(constraintId);
+            System.out.println("[SUCCESS] Constraint deleted.");
+        } else {
+            System.out.println("Delete cancelled.");
+        }
+    }
+
+    private void handleSodReport(RbacFacade facade) {
+        List<SodViolation> violations = facade.findSodViolations();
+        System.out.println("\n== Separation of duties violations (" + violations.size() + ") ==");
+        violations.forEach(v -> System.out.printf("%s | %s / %s%n",
+                v.getUsername(), v.getPermissionA(), v.getPermissionB()));
+    }
+
+    private LocalDate readDate(String prompt) {
+        while (true) {
+            String input = InputUtils.readInput(prompt);
+            if (input.isBlank()) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(input);
+            } catch (DateTimeParseException ex) {
+                System.out.println("Invalid date, please try again.");
+            }
+        }
+    }
+
+    private LocalDateTime readDateTime(String prompt) {
+        while (true) {
+            String input = InputUtils.readInput(prompt);
+            if (input.isBlank()) {
+                return null;
+            }
+            try {
+                return LocalDateTime.parse(input.trim(), FORMATTER);
+            } catch (DateTimeParseException ex) {
+                System.out.println("Invalid date and time, please try again.");
+            }
+        }
+    }
+
     private void displayLogs(List<AuditLog> logs) {
         System.out.println("\n== Audit Logs (" + logs.size() + ") ==");
         if (logs.isEmpty()) {
@@ -544,7 +1058,8 @@ public class CommandRouter {
             String username = log.getUsername() != null ? log.getUsername() : "N/A";
             String result = log.isSuccess() ? "SUCCESS" : "FAILED";
             String detail = log.isSuccess() ? log.getDetail() : log.getErrorMessage();
-            System.out.printf("%s | %s | %s | %s | %s | %s%n",
+            System.out.printf("#%d | %s | %s | %s | %s | %s | %s%n",
+                    log.getId(),
                     timestamp,
                     username,
                     log.getAction(),
@@ -0,0 +1,232 @@
+package com.study.common.util;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Radix trie of resource-id patterns, matched case-insensitively.
+ * <p>
+ * A pattern is a literal id in which {@code *} stands for any run of
+ * characters (including none) and {@code ?} for exactly one. Literal runs
+ * share compressed edges, so literal and prefix patterns ({@code proj-pay-*})
+ * match in O(length of id) however many are stored. Each interior {@code *}
+ * is a branch point, which only costs more for ids that reach it; a match
+ * remembers the (node, position) pairs that failed, so it is at worst
+ * O(nodes × length²) rather than exponential in the number of {@code *}.
+ * <p>
+ * Not thread-safe while patterns are added; safe to share once built.
+ */
+public class ResourceIdTrie {
+    public static final char ANY_RUN = '*';
+    public static final char ANY_CHAR = '?';
+    /** Most {@code *} a stored pattern may contain. */
+    public static final int MAX_ANY_RUNS = 4;
+
+    private final Node root = new Node();
+    private int size;
+
+    public static boolean isPattern(String resourceId) {
+        return resourceId != null && (resourceId.indexOf(ANY_RUN) >= 0 || resourceId.indexOf(ANY_CHAR) >= 0);
+    }
+
+    /**
+     * Trimmed pattern with repeated {@code *} collapsed; {@code a**b} and
+     * {@code a*b} match the same ids.
+     */
+    public static String normalize(String pattern) {
+        String trimmed = pattern.trim();
+        StringBuilder out = new StringBuilder(trimmed.length());
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c != ANY_RUN || out.length() == 0 || out.charAt(out.length() - 1) != ANY_RUN) {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    public static int countAnyRuns(String pattern) {
+        int count = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == ANY_RUN) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Match one pattern without building a trie, for one-off checks.
+     */
+    public static boolean matches(String pattern, String resourceId) {
+        String p = lower(pattern);
+        String s = lower(resourceId);
+        int pi = 0;
+        int si = 0;
+        int starAt = -1;
+        int resumeAt = 0;
+        while (si < s.length()) {
+            if (pi < p.length() && (p.charAt(pi) == ANY_CHAR || p.charAt(pi) == s.charAt(si))) {
+                pi++;
+                si++;
+            } else if (pi < p.length() && p.charAt(pi) == ANY_RUN) {
+                starAt = pi++;
+                resumeAt = si;
+            } else if (starAt >= 0) {
+                pi = starAt + 1;
+                si = ++resumeAt;
+            } else {
+                return false;
+            }
+        }
+        while (pi < p.length() && p.charAt(pi) == ANY_RUN) {
+            pi++;
+        }
+        return pi == p.length();
+    }
+
+    public void add(String pattern) {
+        String p = lower(normalize(pattern));
+        Node node = root;
+        int pos = 0;
+        while (pos < p.length()) {
+            char c = p.charAt(pos);
+            if (c == ANY_RUN) {
+                node = node.anyRun != null ? node.anyRun : (node.anyRun = new Node());
+                pos++;
+            } else if (c == ANY_CHAR) {
+                node = node.anyChar != null ? node.anyChar : (node.anyChar = new Node());
+                pos++;
+            } else {
+                int end = pos;
+                while (end < p.length() && p.charAt(end) != ANY_RUN && p.charAt(end) != ANY_CHAR) {
+                    end++;
+                }
+                node = addLiteral(node, p, pos, end);
+                pos = end;
+            }
+        }
+        if (!node.terminal) {
+            node.terminal = true;
+            size++;
+        }
+    }
+
+    public boolean matches(String resourceId) {
+        return resourceId != null && size > 0 && new Matcher(lower(resourceId)).match(root, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static Node addLiteral(Node node, String p, int pos, int end) {
+        while (pos < end) {
+            Edge edge = node.edges.get(p.charAt(pos));
+            if (edge == null) {
+                Node child = new Node();
+                node.edges.put(p.charAt(pos), new Edge(p.substring(pos, end), child));
+                return child;
+            }
+            int common = 0;
+            int max = Math.min(edge.label.length(), end - pos);
+            while (common < max && edge.label.charAt(common) == p.charAt(pos + common)) {
+                common++;
+            }
+            if (common < edge.label.length()) {
+                // Split the edge where the new literal diverges.
+                Node mid = new Node();
+                mid.edges.put(edge.label.charAt(common), new Edge(edge.label.substring(common), edge.child));
+                edge.label = edge.label.substring(0, common);
+                edge.child = mid;
+            }
+            node = edge.child;
+            pos += common;
+        }
+        return node;
+    }
+
+    /**
+     * One match of an id against the trie.
+     */
+    private static final class Matcher {
+        private final String id;
+        /** Positions each node is known not to match from; created on first failure. */
+        private Map<Node, BitSet> failed;
+
+        Matcher(String id) {
+            this.id = id;
+        }
+
+        boolean match(Node node, int pos) {
+            if (failed != null) {
+                BitSet positions = failed.get(node);
+                if (positions != null && positions.get(pos)) {
+                    return false;
+                }
+            }
+            if (tryMatch(node, pos)) {
+                return true;
+            }
+            if (failed == null) {
+                failed = new IdentityHashMap<>();
+            }
+            failed.computeIfAbsent(node, n -> new BitSet(id.length() + 1)).set(pos);
+            return false;
+        }
+
+        private boolean tryMatch(Node node, int pos) {
+            if (pos == id.length() && node.terminal) {
+                return true;
+            }
+            if (node.anyRun != null) {
+                if (node.anyRun.terminal) {
+                    return true;
+                }
+                for (int next = pos; next <= id.length(); next++) {
+                    if (match(node.anyRun, next)) {
+                        return true;
+                    }
+                }
+            }
+            if (pos == id.length()) {
+                return false;
+            }
+            if (node.anyChar != null && match(node.anyChar, pos + 1)) {
+                return true;
+            }
+            Edge edge = node.edges.get(id.charAt(pos));
+            return edge != null
+                    && id.regionMatches(pos, edge.label, 0, edge.label.length())
+                    && match(edge.child, pos + edge.label.length());
+        }
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Node {
+        final Map<Character, Edge> edges = new HashMap<>(4);
+        Node anyRun;
+        Node anyChar;
+        boolean terminal;
+    }
+
+    private static final class Edge {
+        String label;
+        Node child;
+
+        Edge(String label, Node child) {
+            this.label = label;
+            this.child = child;
+        }
+    }
+}
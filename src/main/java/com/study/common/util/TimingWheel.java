@@ -0,0 +1,123 @@
+package com.study.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: many deadlines, one thread advancing them.
+ * <p>
+ * Level {@code l} has 64 slots of {@code 64^l} ticks each, so four levels
+ * cover 64^4 ticks (194 days at one-second ticks); later deadlines wait in
+ * the last slot and are placed again when it comes round. Scheduling is
+ * lock-free from any thread: timers are queued and only put into slots by
+ * the thread calling {@link #advance}. Entries cascade to a lower level when
+ * the wheel reaches their slot, so each costs O(levels) moves in total.
+ * Timers cannot be cancelled; the expiry callback is expected to re-check
+ * its item and {@link #schedule} it again if the deadline has moved.
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<List<Timer<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private final ConcurrentLinkedQueue<Timer<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    /** Last tick processed; only touched by the advancing thread. */
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Fire {@code item} at the first tick at or after {@code deadlineMillis}.
+     */
+    public void schedule(T item, long deadlineMillis) {
+        incoming.add(new Timer<>(item, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis)));
+        size.incrementAndGet();
+    }
+
+    /**
+     * Number of pending timers.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Process every tick up to {@code nowMillis}, handing due items to
+     * {@code onExpire}. Must only be called from one thread at a time.
+     */
+    public void advance(long nowMillis, Consumer<T> onExpire) {
+        List<T> due = new ArrayList<>();
+        Timer<T> timer;
+        while ((timer = incoming.poll()) != null) {
+            place(timer, due);
+        }
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, due);
+                }
+            }
+            List<Timer<T>> slot = slot(0, (int) (currentTick & SLOT_MASK));
+            if (!slot.isEmpty()) {
+                List<Timer<T>> timers = new ArrayList<>(slot);
+                slot.clear();
+                for (Timer<T> t : timers) {
+                    place(t, due);
+                }
+            }
+        }
+        size.addAndGet(-due.size());
+        due.forEach(onExpire);
+    }
+
+    private void cascade(int level, List<T> due) {
+        List<Timer<T>> slot = slot(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Timer<T>> timers = new ArrayList<>(slot);
+        slot.clear();
+        for (Timer<T> t : timers) {
+            place(t, due);
+        }
+    }
+
+    private void place(Timer<T> timer, List<T> due) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(timer.item);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                slot(level, (int) ((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK)).add(timer);
+                return;
+            }
+        }
+        // Beyond the top level: park in the slot one full turn away and re-place from there.
+        int top = LEVELS - 1;
+        slot(top, (int) (((currentTick >>> (SLOT_BITS * top)) - 1) & SLOT_MASK)).add(timer);
+    }
+
+    private List<Timer<T>> slot(int level, int index) {
+        return slots.get(level * SLOTS + index);
+    }
+
+    private record Timer<T>(T item, long deadlineTick) {
+    }
+}
@@ -6,6 +6,7 @@ package com.study.config;
 public enum CommandSpec {
     // Guest commands (no permission required)
     LOGIN("login", "User login", null),
+    RESUME_SESSION("resume-session", "Resume a session by token", null),
     EXIT("exit", "Exit application", null),
 
     // User management commands
@@ -22,6 +23,18 @@ public enum CommandSpec {
     REMOVE_ROLE("remove-role", "Remove role from user", PermissionCodes.ROLE_ASSIGN),
     UPDATE_ROLE("update-role", "Update role", PermissionCodes.ROLE_UPDATE),
     DELETE_ROLE("delete-role", "Delete role", PermissionCodes.ROLE_DELETE),
+    ANALYZE_ROLES("analyze-roles", "Find similar roles to merge", PermissionCodes.ROLE_VIEW),
+
+    // Group management commands
+    CREATE_GROUP("create-group", "Create group", PermissionCodes.GROUP_CREATE),
+    LIST_GROUPS("list-groups", "List groups", PermissionCodes.GROUP_VIEW),
+    VIEW_GROUP("view-group", "View group members and roles", PermissionCodes.GROUP_VIEW),
+    MOVE_GROUP("move-group", "Move group under another group", PermissionCodes.GROUP_UPDATE),
+    DELETE_GROUP("delete-group", "Delete group", PermissionCodes.GROUP_DELETE),
+    ADD_GROUP_MEMBER("add-group-member", "Add user to group", PermissionCodes.GROUP_ASSIGN),
+    REMOVE_GROUP_MEMBER("remove-group-member", "Remove user from group", PermissionCodes.GROUP_ASSIGN),
+    ASSIGN_GROUP_ROLE("assign-group-role", "Assign role to group", PermissionCodes.ROLE_ASSIGN),
+    REMOVE_GROUP_ROLE("remove-group-role", "Remove role from group", PermissionCodes.ROLE_ASSIGN),
 
     // Permission management commands
     CREATE_PERMISSION("create-permission", "Create permission", PermissionCodes.PERMISSION_CREATE),
@@ -33,6 +46,7 @@ public enum CommandSpec {
     DELETE_PERMISSION("delete-permission", "Delete permission", PermissionCodes.PERMISSION_DELETE),
     ASSIGN_RESOURCE_PERMISSION("assign-resource-permission", "Grant scoped permission to role", PermissionCodes.RESOURCE_GRANT),
     REMOVE_RESOURCE_PERMISSION("remove-resource-permission", "Revoke scoped permission", PermissionCodes.RESOURCE_GRANT),
+    EXPLAIN_ACCESS("explain-access", "Explain an access decision", null),
 
     // Resource commands
     CREATE_RESOURCE("create-resource", "Create resource", PermissionCodes.RESOURCE_CREATE),
@@ -41,6 +55,7 @@ public enum CommandSpec {
     VIEW_RESOURCE("view-resource", "View resource detail", PermissionCodes.RESOURCE_VIEW),
     UPDATE_RESOURCE("update-resource", "Update resource", PermissionCodes.RESOURCE_UPDATE),
     DELETE_RESOURCE("delete-resource", "Delete resource", PermissionCodes.RESOURCE_DELETE),
+    MOVE_RESOURCE("move-resource", "Move resource under another parent", PermissionCodes.RESOURCE_UPDATE),
 
     // Audit commands
     VIEW_AUDIT_LOGS("view-audit", "View my audit logs", PermissionCodes.AUDIT_VIEW),
@@ -48,10 +63,28 @@ public enum CommandSpec {
     VIEW_USER_AUDIT_LOGS("view-user-audit", "View audit logs by user", PermissionCodes.AUDIT_VIEW_ALL),
     VIEW_ACTION_AUDIT_LOGS("view-action-audit", "View audit logs by action", PermissionCodes.AUDIT_VIEW_ALL),
     VIEW_RESOURCE_AUDIT_LOGS("view-resource-audit", "View audit logs by resource", PermissionCodes.AUDIT_VIEW_ALL),
+    VIEW_AUDIT_DETAIL("view-audit-detail", "View full audit record", PermissionCodes.AUDIT_VIEW_ALL),
+    SEARCH_AUDIT("search-audit", "Search audit logs on several fields", PermissionCodes.AUDIT_VIEW_ALL),
+    VIEW_ARCHIVED_AUDIT("view-archived-audit", "Search archived audit logs", PermissionCodes.AUDIT_VIEW_ALL),
+    VIEW_AUDIT_STATS("view-audit-stats", "Audit event counts over time", PermissionCodes.AUDIT_VIEW_ALL),
+    EXPORT_AUDIT("export-audit", "Export audit logs to a gzip file", PermissionCodes.AUDIT_VIEW_ALL),
+    BACKFILL_AUDIT("backfill-audit", "Backfill audit logs from rolled log files", PermissionCodes.AUDIT_MANAGE),
+    EXPORT_ACCESS_REVIEW("export-access-review", "Export every user's effective grants for review", PermissionCodes.AUDIT_VIEW_ALL),
+
+    // Tenant commands
+    CREATE_TENANT("create-tenant", "Create tenant", PermissionCodes.TENANT_MANAGE),
+    LIST_TENANTS("list-tenants", "List tenants", PermissionCodes.TENANT_MANAGE),
+
+    // Separation of duties commands
+    CREATE_SOD_CONSTRAINT("create-sod-constraint", "Forbid holding two permissions together", PermissionCodes.SOD_MANAGE),
+    LIST_SOD_CONSTRAINTS("list-sod-constraints", "List separation of duties constraints", PermissionCodes.SOD_MANAGE),
+    DELETE_SOD_CONSTRAINT("delete-sod-constraint", "Delete separation of duties constraint", PermissionCodes.SOD_MANAGE),
+    SOD_REPORT("sod-report", "Report users violating separation of duties", PermissionCodes.AUDIT_VIEW_ALL),
 
     // User self-service
     CHANGE_PASSWORD("change-password", "Change my password", null),
     VIEW_PROFILE("view-profile", "View my profile", null),
+    SESSION_INFO("session-info", "Show my session", null),
     CHANGE_PROFILE("change-profile", "Change my profile info", PermissionCodes.CHANGE_PROFILE),
     LOGOUT("logout", "Logout", null);
 
@@ -19,6 +19,13 @@ public class PermissionCodes {
     public static final String ROLE_VIEW = "ROLE_VIEW";
     public static final String ROLE_ASSIGN = "ROLE_ASSIGN";
     
+    // Group management
+    public static final String GROUP_CREATE = "GROUP_CREATE";
+    public static final String GROUP_UPDATE = "GROUP_UPDATE";
+    public static final String GROUP_DELETE = "GROUP_DELETE";
+    public static final String GROUP_VIEW = "GROUP_VIEW";
+    public static final String GROUP_ASSIGN = "GROUP_ASSIGN";
+    
     // Permission management
     public static final String PERMISSION_CREATE = "PERMISSION_CREATE";
     public static final String PERMISSION_UPDATE = "PERMISSION_UPDATE";
@@ -37,6 +44,13 @@ public class PermissionCodes {
     // Audit management
     public static final String AUDIT_VIEW = "AUDIT_VIEW";
     public static final String AUDIT_VIEW_ALL = "AUDIT_VIEW_ALL";
+    public static final String AUDIT_MANAGE = "AUDIT_MANAGE";
+    
+    // Separation of duties
+    public static final String SOD_MANAGE = "SOD_MANAGE";
+    
+    // Tenant management
+    public static final String TENANT_MANAGE = "TENANT_MANAGE";
     
     private PermissionCodes() {}
 }
@@ -0,0 +1,102 @@
+package com.study.context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Step-by-step record of one authorization decision: each stage that was
+ * evaluated, whether it matched, what it looked at and how long it took.
+ * Only built when a decision is explained or sampled for tracing; normal
+ * checks never allocate one.
+ */
+public class AccessTrace {
+    /**
+     * {@code MATCHED} grants the decision; {@code INFO} records a step that
+     * neither grants nor denies, such as loading the user's roles.
+     */
+    public enum Outcome {
+        MATCHED, REJECTED, SKIPPED, INFO
+    }
+
+    public record Stage(String name, Outcome outcome, String detail, long nanos) {
+    }
+
+    private final String username;
+    private final String permissionCode;
+    private final String resourceType;
+    private final String resourceId;
+    private final List<Stage> stages = new ArrayList<>();
+    private boolean granted;
+
+    public AccessTrace(String username, String permissionCode, String resourceType, String resourceId) {
+        this.username = username;
+        this.permissionCode = permissionCode;
+        this.resourceType = resourceType;
+        this.resourceId = resourceId;
+    }
+
+    /**
+     * Record a stage that started at {@code startNanos} ({@link System#nanoTime()});
+     * a matching stage grants the decision.
+     */
+    public void stage(String name, Outcome outcome, String detail, long startNanos) {
+        stages.add(new Stage(name, outcome, detail, System.nanoTime() - startNanos));
+        if (outcome == Outcome.MATCHED) {
+            granted = true;
+        }
+    }
+
+    public boolean isGranted() {
+        return granted;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPermissionCode() {
+        return permissionCode;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public String getResourceId() {
+        return resourceId;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (Stage stage : stages) {
+            total += stage.nanos;
+        }
+        return total;
+    }
+
+    /**
+     * One line for logs: {@code DENY user=.. perm=.. on=type/id [stage=OUTCOME 120ns: detail; ...]}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(granted ? "ALLOW" : "DENY")
+                .append(" user=").append(username)
+                .append(" perm=").append(permissionCode)
+                .append(" on=").append(resourceType != null ? resourceType : "-")
+                .append('/').append(resourceId != null ? resourceId : "-")
+                .append(" [");
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            if (i > 0) {
+                out.append("; ");
+            }
+            out.append(stage.name).append('=').append(stage.outcome)
+                    .append(' ').append(stage.nanos).append("ns: ").append(stage.detail);
+        }
+        return out.append(']').toString();
+    }
+}
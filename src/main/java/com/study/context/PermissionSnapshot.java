@@ -0,0 +1,190 @@
+package com.study.context;
+
+import com.study.common.util.ResourceIdTrie;
+import com.study.domain.Permission;
+import com.study.domain.ScopedPermission;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, pre-compiled view of one user's permissions.
+ * <p>
+ * Built once per login or refresh and then only read, so it can be shared
+ * between threads without locking. Scoped grants are indexed by permission
+ * code and lower-cased resource type, which turns a scoped check into two
+ * hash lookups instead of a scan over every grant. Exact ids sit in a hash
+ * set; wildcard ids ({@code proj-pay-*}) in a {@link ResourceIdTrie} per
+ * code and type.
+ */
+public final class PermissionSnapshot {
+    public static final PermissionSnapshot EMPTY = new PermissionSnapshot(List.of(), List.of());
+
+    private final Set<String> globalCodes;
+    private final List<ScopedPermission> scopedPermissions;
+    /** permission code -> resource type -> grant */
+    private final Map<String, Map<String, TypeGrant>> scopedIndex;
+
+    private PermissionSnapshot(List<Permission> permissions, List<ScopedPermission> scoped) {
+        Set<String> codes = new HashSet<>();
+        for (Permission permission : permissions) {
+            codes.add(permission.getCode());
+        }
+        Map<String, Map<String, Set<String>>> ids = new HashMap<>();
+        Map<String, Set<String>> wholeTypes = new HashMap<>();
+        Map<String, Map<String, ResourceIdTrie>> patterns = new HashMap<>();
+        for (ScopedPermission scope : scoped) {
+            if (scope.getPermissionCode() == null || scope.getResourceType() == null) {
+                continue;
+            }
+            String type = lower(scope.getResourceType());
+            if (scope.getResourceId() == null || scope.getResourceId().isBlank()) {
+                wholeTypes.computeIfAbsent(scope.getPermissionCode(), c -> new HashSet<>()).add(type);
+            } else if (ResourceIdTrie.isPattern(scope.getResourceId())) {
+                patterns.computeIfAbsent(scope.getPermissionCode(), c -> new HashMap<>())
+                        .computeIfAbsent(type, t -> new ResourceIdTrie())
+                        .add(scope.getResourceId());
+            } else {
+                ids.computeIfAbsent(scope.getPermissionCode(), c -> new HashMap<>())
+                        .computeIfAbsent(type, t -> new HashSet<>())
+                        .add(lower(scope.getResourceId()));
+            }
+        }
+        Map<String, Map<String, TypeGrant>> index = new HashMap<>();
+        Set<String> scopedCodes = new HashSet<>(ids.keySet());
+        scopedCodes.addAll(wholeTypes.keySet());
+        scopedCodes.addAll(patterns.keySet());
+        for (String code : scopedCodes) {
+            Map<String, Set<String>> byType = ids.getOrDefault(code, Map.of());
+            Set<String> allOfType = wholeTypes.getOrDefault(code, Set.of());
+            Map<String, ResourceIdTrie> patternsByType = patterns.getOrDefault(code, Map.of());
+            Set<String> types = new HashSet<>(byType.keySet());
+            types.addAll(allOfType);
+            types.addAll(patternsByType.keySet());
+            Map<String, TypeGrant> grants = new HashMap<>();
+            for (String type : types) {
+                grants.put(type, new TypeGrant(allOfType.contains(type),
+                        Set.copyOf(byType.getOrDefault(type, Set.of())), patternsByType.get(type)));
+            }
+            index.put(code, Map.copyOf(grants));
+        }
+        this.globalCodes = Set.copyOf(codes);
+        this.scopedPermissions = List.copyOf(scoped);
+        this.scopedIndex = Map.copyOf(index);
+    }
+
+    public static PermissionSnapshot of(List<Permission> permissions, List<ScopedPermission> scoped) {
+        return new PermissionSnapshot(permissions, scoped != null ? scoped : List.of());
+    }
+
+    public boolean hasPermission(String permissionCode) {
+        return globalCodes.contains(permissionCode);
+    }
+
+    /**
+     * Global grant, or a scoped grant for the whole type, this resource id or
+     * a pattern matching it (type and id compared case-insensitively).
+     */
+    public boolean hasPermission(String permissionCode, String resourceType, String resourceId) {
+        if (permissionCode == null || globalCodes.contains(permissionCode)) {
+            return true;
+        }
+        if (resourceType == null) {
+            return false;
+        }
+        Map<String, TypeGrant> byType = scopedIndex.get(permissionCode);
+        if (byType == null) {
+            return false;
+        }
+        TypeGrant grant = byType.get(lower(resourceType));
+        if (grant == null) {
+            return false;
+        }
+        if (grant.allOfType) {
+            return true;
+        }
+        return resourceId != null
+                && (grant.ids.contains(lower(resourceId)) || (grant.patterns != null && grant.patterns.matches(resourceId)));
+    }
+
+    /**
+     * Evaluate like {@link #hasPermission(String, String, String)} but record
+     * each stage, and the grants that were considered, in {@code trace}.
+     */
+    public void explain(String permissionCode, String resourceType, String resourceId, AccessTrace trace) {
+        long start = System.nanoTime();
+        if (permissionCode == null) {
+            trace.stage("session-global", AccessTrace.Outcome.MATCHED, "no permission required", start);
+            return;
+        }
+        if (globalCodes.contains(permissionCode)) {
+            trace.stage("session-global", AccessTrace.Outcome.MATCHED, "global grant " + permissionCode, start);
+            return;
+        }
+        trace.stage("session-global", AccessTrace.Outcome.REJECTED,
+                globalCodes.size() + " global codes, none is " + permissionCode, start);
+
+        start = System.nanoTime();
+        if (resourceType == null) {
+            trace.stage("session-scoped", AccessTrace.Outcome.SKIPPED, "no resource given", start);
+            return;
+        }
+        Map<String, TypeGrant> byType = scopedIndex.get(permissionCode);
+        TypeGrant grant = byType != null ? byType.get(lower(resourceType)) : null;
+        String matched = null;
+        if (grant != null && grant.allOfType) {
+            matched = "all of type " + resourceType;
+        } else if (grant != null && resourceId != null && grant.ids.contains(lower(resourceId))) {
+            matched = resourceType + "/" + resourceId;
+        } else if (grant != null && resourceId != null && grant.patterns != null && grant.patterns.matches(resourceId)) {
+            matched = "pattern on " + resourceType + " matching " + resourceId;
+        }
+        if (matched != null) {
+            trace.stage("session-scoped", AccessTrace.Outcome.MATCHED, matched, start);
+            return;
+        }
+        List<String> considered = new ArrayList<>();
+        for (ScopedPermission scope : scopedPermissions) {
+            if (permissionCode.equals(scope.getPermissionCode())) {
+                considered.add(scope.getResourceType() + "/"
+                        + (scope.getResourceId() == null || scope.getResourceId().isBlank() ? "*all*" : scope.getResourceId()));
+            }
+        }
+        trace.stage("session-scoped", AccessTrace.Outcome.REJECTED,
+                considered.isEmpty() ? "no scoped grants for " + permissionCode : "considered " + summarize(considered),
+                start);
+    }
+
+    public Set<String> getGlobalCodes() {
+        return globalCodes;
+    }
+
+    public List<ScopedPermission> getScopedPermissions() {
+        return scopedPermissions;
+    }
+
+    /**
+     * At most five entries, then a count of the rest.
+     */
+    private static String summarize(List<String> items) {
+        if (items.size() <= 5) {
+            return String.join(", ", items);
+        }
+        return String.join(", ", items.subList(0, 5)) + " and " + (items.size() - 5) + " more";
+    }
+
+    private static String lower(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * {@code patterns} is null when the type has no wildcard grants.
+     */
+    private record TypeGrant(boolean allOfType, Set<String> ids, ResourceIdTrie patterns) {
+    }
+}
@@ -4,22 +4,58 @@ import com.study.domain.Permission;
 import com.study.domain.ScopedPermission;
 import com.study.domain.User;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.net.InetAddress;
 import java.util.List;
 import java.util.Set;
 
 /**
- * Session context holding current user information and cached permissions
+ * Session context holding current user information and cached permissions.
+ * Permissions are an immutable {@link PermissionSnapshot} replaced as a
+ * whole through a volatile field, so checks never lock and never see a
+ * half-refreshed set, even while another thread refreshes them.
  */
 public class SessionContext {
-    private User currentUser;
-    private final Set<String> globalPermissions;
-    private final List<ScopedPermission> scopedPermissions;
+    private volatile User currentUser;
+    private volatile PermissionSnapshot permissions = PermissionSnapshot.EMPTY;
+    private volatile String clientAddress = defaultClientAddress();
+    private volatile String sessionToken;
     
     public SessionContext() {
-        this.globalPermissions = new HashSet<>();
-        this.scopedPermissions = new ArrayList<>();
+    }
+
+    /**
+     * Address the session is used from: {@code rbac.client.address}, else the
+     * SSH client of this terminal, else loopback.
+     */
+    private static String defaultClientAddress() {
+        String configured = System.getProperty("rbac.client.address");
+        if (configured != null && !configured.isBlank()) {
+            return configured.trim();
+        }
+        String sshClient = System.getenv("SSH_CLIENT");
+        if (sshClient != null && !sshClient.isBlank()) {
+            return sshClient.trim().split(" ")[0];
+        }
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    /**
+     * Token of the {@link SessionStore} session backing this login, or null.
+     */
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+
+    public String getClientAddress() {
+        return clientAddress;
+    }
+
+    public void setClientAddress(String clientAddress) {
+        this.clientAddress = clientAddress;
     }
     
     public User getCurrentUser() {
@@ -31,18 +67,19 @@ public class SessionContext {
     }
     
     public Set<String> getEffectivePermissions() {
-        return globalPermissions;
+        return permissions.getGlobalCodes();
+    }
+
+    public PermissionSnapshot getPermissionSnapshot() {
+        return permissions;
     }
     
+    /**
+     * Compile a new snapshot and swap it in; readers keep using the previous
+     * one until the swap.
+     */
     public void setPermissions(List<Permission> permissions, List<ScopedPermission> scoped) {
-        this.globalPermissions.clear();
-        for (Permission permission : permissions) {
-            this.globalPermissions.add(permission.getCode());
-        }
-        this.scopedPermissions.clear();
-        if (scoped != null) {
-            this.scopedPermissions.addAll(scoped);
-        }
+        this.permissions = PermissionSnapshot.of(permissions, scoped);
     }
     
     public void refreshPermissions(List<Permission> permissions, List<ScopedPermission> scoped) {
@@ -50,35 +87,27 @@ public class SessionContext {
     }
     
     public boolean hasPermission(String permissionCode) {
-        return globalPermissions.contains(permissionCode);
+        return permissions.hasPermission(permissionCode);
     }
     
     public boolean hasPermission(String permissionCode, String resourceType, String resourceId) {
-        if (permissionCode == null) {
-            return true;
-        }
-        if (globalPermissions.contains(permissionCode)) {
-            return true;
-        }
-        if (resourceType == null) {
-            return false;
-        }
-        return scopedPermissions.stream()
-                .filter(scope -> permissionCode.equals(scope.getPermissionCode()))
-                .anyMatch(scope -> scope.matches(resourceType, resourceId));
+        return permissions.hasPermission(permissionCode, resourceType, resourceId);
     }
     
     public boolean isLoggedIn() {
         return currentUser != null;
     }
     
+    /**
+     * Scoped grants of the current snapshot; the list is immutable.
+     */
     public List<ScopedPermission> getScopedPermissions() {
-        return new ArrayList<>(scopedPermissions);
+        return permissions.getScopedPermissions();
     }
     
     public void clear() {
         this.currentUser = null;
-        this.globalPermissions.clear();
-        this.scopedPermissions.clear();
+        this.sessionToken = null;
+        this.permissions = PermissionSnapshot.EMPTY;
     }
 }
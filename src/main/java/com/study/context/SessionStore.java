@@ -0,0 +1,307 @@
+package com.study.context;
+
+import com.study.common.util.TimingWheel;
+import com.study.exception.RbacException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opaque session tokens mapped to the user and tenant they authenticate.
+ * <p>
+ * A session ends {@code rbac.session.idleMinutes} after its last use
+ * (sliding) and at the latest {@code rbac.session.maxHours} after it was
+ * created (absolute). {@link #touch} is a lock-free hash lookup plus one
+ * volatile write and checks both limits itself, so an expired token is never
+ * accepted. Memory is reclaimed by one {@link TimingWheel} advanced every
+ * second: when an entry comes due it is removed if it really expired, or
+ * scheduled again at its new deadline if it was used in the meantime.
+ * <p>
+ * Each tenant may hold at most {@code rbac.session.maxPerTenant} live
+ * sessions, so one tenant cannot fill the store for the others.
+ * <p>
+ * If {@code rbac.session.file} is set, live sessions are written there at
+ * shutdown (64 bytes each) and loaded again at startup.
+ */
+public class SessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
+    private static final int TOKEN_BYTES = 32;
+    private static final int FILE_MAGIC = 0x52425354; // "RBST"
+    /** Files written before sessions carried a tenant; they load into the default one. */
+    private static final int LEGACY_FILE_MAGIC = 0x52425353; // "RBSS"
+    private static final long TICK_MILLIS = 1000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static SessionStore instance;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicInteger> perTenant = new ConcurrentHashMap<>();
+    private final TimingWheel<Session> expiry = new TimingWheel<>(TICK_MILLIS, System.currentTimeMillis());
+    private final long idleMillis;
+    private final long absoluteMillis;
+    private final int maxPerTenant;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * One authenticated session. Only {@code lastAccessAt} changes.
+     */
+    public static final class Session {
+        private final String token;
+        private final long tenantId;
+        private final long userId;
+        private final long createdAt;
+        private volatile long lastAccessAt;
+
+        Session(String token, long tenantId, long userId, long createdAt, long lastAccessAt) {
+            this.token = token;
+            this.tenantId = tenantId;
+            this.userId = userId;
+            this.createdAt = createdAt;
+            this.lastAccessAt = lastAccessAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public long getTenantId() {
+            return tenantId;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getLastAccessAt() {
+            return lastAccessAt;
+        }
+    }
+
+    public SessionStore(long idleMillis, long absoluteMillis, int maxPerTenant) {
+        this.idleMillis = idleMillis;
+        this.absoluteMillis = absoluteMillis;
+        this.maxPerTenant = maxPerTenant;
+    }
+
+    public static synchronized SessionStore getInstance() {
+        if (instance == null) {
+            SessionStore store = new SessionStore(
+                    Long.getLong("rbac.session.idleMinutes", 30) * 60_000,
+                    Long.getLong("rbac.session.maxHours", 12) * 3_600_000,
+                    Integer.getInteger("rbac.session.maxPerTenant", 10_000));
+            String file = System.getProperty("rbac.session.file");
+            if (file != null && !file.isBlank()) {
+                Path path = Paths.get(file);
+                store.load(path);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> store.save(path), "session-store-save"));
+            }
+            store.start();
+            instance = store;
+        }
+        return instance;
+    }
+
+    /**
+     * Start advancing the expiry wheel. Only the first call does anything.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> expiry.advance(System.currentTimeMillis(), this::onDue),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open a session; refused once the tenant holds {@code maxPerTenant}
+     * live sessions.
+     */
+    public Session create(long tenantId, long userId) {
+        byte[] raw = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(raw);
+        long now = System.currentTimeMillis();
+        Session session = new Session(encode(raw), tenantId, userId, now, now);
+        if (!add(session, true)) {
+            throw new RbacException("Too many active sessions for this tenant, please try again later");
+        }
+        return session;
+    }
+
+    /**
+     * The live session for {@code token}, with its idle timer restarted, or
+     * null if the token is unknown or expired.
+     */
+    public Session touch(String token) {
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= deadline(session)) {
+            remove(session);
+            return null;
+        }
+        session.lastAccessAt = now;
+        return session;
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            Session session = sessions.get(token);
+            if (session != null) {
+                remove(session);
+            }
+        }
+    }
+
+    public int activeCount() {
+        return sessions.size();
+    }
+
+    public int activeCount(long tenantId) {
+        AtomicInteger count = perTenant.get(tenantId);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * When the session expires if it is not used again.
+     */
+    public long deadline(Session session) {
+        return Math.min(session.lastAccessAt + idleMillis, session.createdAt + absoluteMillis);
+    }
+
+    private void onDue(Session session) {
+        if (sessions.get(session.token) != session) {
+            return;
+        }
+        long deadline = deadline(session);
+        if (System.currentTimeMillis() >= deadline) {
+            if (remove(session)) {
+                logger.info("Session of user {} expired", session.userId);
+            }
+        } else {
+            expiry.schedule(session, deadline);
+        }
+    }
+
+    /**
+     * Register a session unless {@code enforceLimit} is set and its tenant
+     * is full. Restored sessions are always kept.
+     */
+    private boolean add(Session session, boolean enforceLimit) {
+        AtomicInteger count = perTenant.computeIfAbsent(session.tenantId, id -> new AtomicInteger());
+        if (count.incrementAndGet() > maxPerTenant && enforceLimit) {
+            count.decrementAndGet();
+            return false;
+        }
+        sessions.put(session.token, session);
+        expiry.schedule(session, deadline(session));
+        return true;
+    }
+
+    private boolean remove(Session session) {
+        if (!sessions.remove(session.token, session)) {
+            return false;
+        }
+        perTenant.get(session.tenantId).decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Write live sessions as fixed 64-byte records: token, tenant id,
+     * user id, created and last-access millis.
+     */
+    void save(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            long now = System.currentTimeMillis();
+            int written = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                for (Session session : sessions.values()) {
+                    if (now < deadline(session)) {
+                        out.write(Base64.getUrlDecoder().decode(session.token));
+                        out.writeLong(session.tenantId);
+                        out.writeLong(session.userId);
+                        out.writeLong(session.createdAt);
+                        out.writeLong(session.lastAccessAt);
+                        written++;
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved {} sessions to {}", written, file);
+        } catch (IOException e) {
+            logger.warn("Failed to save sessions to {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Load sessions saved by {@link #save}, skipping expired ones. The file
+     * is deleted afterwards so a token cannot be replayed from it.
+     */
+    void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != FILE_MAGIC && magic != LEGACY_FILE_MAGIC) {
+                throw new IOException("not a session file");
+            }
+            byte[] raw = new byte[TOKEN_BYTES];
+            while (in.available() > 0) {
+                in.readFully(raw);
+                long tenantId = magic == FILE_MAGIC ? in.readLong() : TenantContext.DEFAULT_TENANT_ID;
+                Session session = new Session(encode(raw), tenantId, in.readLong(), in.readLong(), in.readLong());
+                if (now < deadline(session)) {
+                    add(session, false);
+                    loaded++;
+                }
+            }
+            logger.info("Restored {} sessions from {}", loaded, file);
+        } catch (IOException e) {
+            logger.warn("Failed to restore sessions from {}: {}", file, e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete session file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String encode(byte[] raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+}
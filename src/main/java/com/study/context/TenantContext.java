@@ -0,0 +1,60 @@
+package com.study.context;
+
+import java.util.function.Supplier;
+
+/**
+ * Tenant the current thread works for. Every repository query is qualified
+ * with it.
+ * <p>
+ * A CLI session runs on one thread, so login binds the tenant there and
+ * logout clears it; threads that never bind one work for the default
+ * tenant. Background threads acting for a specific tenant use
+ * {@link #callAs} or {@link #runAs}.
+ */
+public final class TenantContext {
+    /** Tenant created with the schema; databases from before tenants belong to it. */
+    public static final long DEFAULT_TENANT_ID = 1;
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static long current() {
+        Long tenantId = CURRENT.get();
+        return tenantId != null ? tenantId : DEFAULT_TENANT_ID;
+    }
+
+    public static void bind(long tenantId) {
+        CURRENT.set(tenantId);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Run {@code action} for {@code tenantId}, then restore the previous
+     * binding.
+     */
+    public static <T> T callAs(long tenantId, Supplier<T> action) {
+        Long previous = CURRENT.get();
+        CURRENT.set(tenantId);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public static void runAs(long tenantId, Runnable action) {
+        callAs(tenantId, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
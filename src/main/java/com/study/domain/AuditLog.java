@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 public class AuditLog {
     private Long id;
+    private Long tenantId;
     private Long userId;
     private String username;
     private String action;
@@ -39,6 +40,14 @@ public class AuditLog {
         this.id = id;
     }
 
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+
     public Long getUserId() {
         return userId;
     }
@@ -1,6 +1,8 @@
 package com.study.domain;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class Resource {
@@ -9,6 +11,9 @@ public class Resource {
     private String name;
     private String type;
     private String url;
+    private Long parentId;
+    /** Ids from the root down to this resource, e.g. {@code /1/5/12/}. */
+    private String path;
     private LocalDateTime createdAt;
 
     public Resource() {
@@ -63,6 +68,37 @@ public class Resource {
         this.url = url;
     }
 
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Ancestor ids read from {@link #getPath()}, nearest parent first.
+     */
+    public List<Long> getAncestorIds() {
+        List<Long> ancestors = new ArrayList<>();
+        if (path == null || path.length() < 2) {
+            return ancestors;
+        }
+        String[] segments = path.substring(1, path.length() - 1).split("/");
+        for (int i = segments.length - 2; i >= 0; i--) {
+            ancestors.add(Long.parseLong(segments[i]));
+        }
+        return ancestors;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -91,6 +127,7 @@ public class Resource {
                 ", code='" + code + '\'' +
                 ", name='" + name + '\'' +
                 ", type='" + type + '\'' +
+                ", parentId=" + parentId +
                 '}';
     }
 }
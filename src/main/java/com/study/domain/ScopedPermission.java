@@ -1,5 +1,7 @@
 package com.study.domain;
 
+import com.study.common.util.ResourceIdTrie;
+
 import java.util.Objects;
 
 /**
@@ -9,7 +11,7 @@ public class ScopedPermission {
     private Long roleId;
     private String permissionCode;
     private String resourceType;
-    private String resourceId; // null means all resources of the given type
+    private String resourceId; // null means all resources of the given type; may contain * and ? wildcards
 
     public ScopedPermission() {}
 
@@ -59,9 +61,16 @@ public class ScopedPermission {
         if (resourceId == null || resourceId.isBlank()) {
             return true;
         }
+        if (ResourceIdTrie.isPattern(resourceId)) {
+            return targetId != null && ResourceIdTrie.matches(resourceId, targetId);
+        }
         return resourceId.equalsIgnoreCase(targetId);
     }
 
+    public boolean isPattern() {
+        return ResourceIdTrie.isPattern(resourceId);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,67 @@
+package com.study.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Static separation-of-duties constraint: no user may hold both
+ * permissions, through any combination of roles.
+ */
+public class SodConstraint {
+    private Long id;
+    private String permissionA;
+    private String permissionB;
+    private String description;
+    private LocalDateTime createdAt;
+
+    public SodConstraint() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPermissionA() {
+        return permissionA;
+    }
+
+    public void setPermissionA(String permissionA) {
+        this.permissionA = permissionA;
+    }
+
+    public String getPermissionB() {
+        return permissionB;
+    }
+
+    public void setPermissionB(String permissionB) {
+        this.permissionB = permissionB;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SodConstraint{" +
+                "id=" + id +
+                ", permissionA='" + permissionA + '\'' +
+                ", permissionB='" + permissionB + '\'' +
+                '}';
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Objects;
 
 public class User {
     private Long id;
+    private long tenantId;
     private String username;
     private String passwordHash;
     private String salt;
@@ -12,6 +13,7 @@ public class User {
     private String email;
     private String phone;
     private String realName;
+    private LocalDateTime lockedUntil;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -41,6 +43,14 @@ public class User {
         this.id = id;
     }
 
+    public long getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -73,6 +83,14 @@ public class User {
         this.enabled = enabled;
     }
 
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
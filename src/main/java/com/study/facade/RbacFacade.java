@@ -1,18 +1,32 @@
 package com.study.facade;
 
 import com.study.config.CommandSpec;
+import com.study.context.AccessTrace;
 import com.study.context.SessionContext;
+import com.study.context.SessionStore;
 import com.study.domain.AuditLog;
+import com.study.domain.Group;
 import com.study.domain.Permission;
 import com.study.domain.Resource;
 import com.study.domain.Role;
 import com.study.domain.ScopedPermission;
+import com.study.domain.SodConstraint;
+import com.study.domain.Tenant;
 import com.study.domain.User;
+import com.study.service.dto.AuditCountPoint;
 import com.study.service.dto.ResourceAccessView;
+import com.study.service.dto.SodViolation;
+import com.study.service.analysis.RoleMiner;
+import com.study.service.export.AccessReviewExporter;
+import com.study.service.export.AuditExporter;
 import com.study.exception.ValidationException;
+import com.study.job.AuditLogBackfill;
 import com.study.repository.*;
+import com.study.repository.archive.ArchiveQuery;
 import com.study.service.*;
 
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -24,9 +38,14 @@ public class RbacFacade {
     private final AuthService authService;
     private final UserService userService;
     private final RoleService roleService;
+    private final GroupService groupService;
     private final PermissionService permissionService;
     private final AuditService auditService;
     private final ResourceService resourceService;
+    private final AccessExplainService accessExplainService;
+    private final AccessReviewService accessReviewService;
+    private final TenantService tenantService;
+    private final SodService sodService;
     private final AuditLogRepository auditLogRepository;
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
@@ -37,7 +56,13 @@ public class RbacFacade {
         RoleRepository roleRepository = new RoleRepository(dbConnection);
         PermissionRepository permissionRepository = new PermissionRepository(dbConnection);
         ResourceRepository resourceRepository = new ResourceRepository(dbConnection);
+        GroupRepository groupRepository = new GroupRepository(dbConnection);
+        GroupMembershipIndex.register(groupRepository);
+        SodConstraintRepository sodConstraintRepository = new SodConstraintRepository(dbConnection);
+        SodConflictIndex.register(sodConstraintRepository);
         AuditLogRepository auditLogRepository = new AuditLogRepository(dbConnection);
+        auditLogRepository.start();
+        AuditPolicy.getInstance().start(auditLogRepository);
         
         // Initialize session context
         this.sessionContext = new SessionContext();
@@ -49,11 +74,20 @@ public class RbacFacade {
                                           roleRepository, auditLogRepository);
         this.roleService = new RoleService(sessionContext, roleRepository, 
                                           permissionRepository, auditLogRepository);
+        this.groupService = new GroupService(sessionContext, groupRepository, auditLogRepository);
         this.permissionService = new PermissionService(sessionContext, 
                                           permissionRepository, auditLogRepository);
         this.resourceService = new ResourceService(sessionContext, resourceRepository, 
                                           permissionRepository, auditLogRepository);
         this.auditService = new AuditService(sessionContext, auditLogRepository);
+        this.accessExplainService = new AccessExplainService(sessionContext, userRepository, roleRepository,
+                                          permissionRepository, resourceRepository, auditLogRepository);
+        this.accessReviewService = new AccessReviewService(sessionContext, userRepository, roleRepository,
+                                          auditLogRepository);
+        this.tenantService = new TenantService(sessionContext, new TenantRepository(dbConnection),
+                                          dbConnection, auditLogRepository);
+        this.sodService = new SodService(sessionContext, sodConstraintRepository,
+                                          permissionRepository, auditLogRepository);
         
         this.auditLogRepository = auditLogRepository;
         this.roleRepository = roleRepository;
@@ -66,16 +100,48 @@ public class RbacFacade {
         return authService.login(username, password);
     }
     
+    /**
+     * Log in to the tenant with {@code tenantCode}, or the default tenant if
+     * blank.
+     */
+    public User login(String tenantCode, String username, String password) {
+        return authService.login(tenantService.resolveTenantId(tenantCode), username, password);
+    }
+    
     public void logout() {
         authService.logout();
     }
+
+    /**
+     * Detach this facade from the process-wide schedulers; call when the
+     * application is done with it.
+     */
+    public void close() {
+        authService.close();
+    }
     
     public void changePassword(String oldPassword, String newPassword) {
         authService.changePassword(oldPassword, newPassword);
     }
     
+    /**
+     * True while the login's session is valid; each call counts as activity
+     * for the session's idle timeout.
+     */
     public boolean isLoggedIn() {
-        return sessionContext.isLoggedIn();
+        return authService.checkSession();
+    }
+
+    public User resumeSession(String token) {
+        return authService.resumeSession(token);
+    }
+
+    public SessionStore.Session getCurrentSession() {
+        return authService.currentSession();
+    }
+
+    public int getActiveSessionCount() {
+        return authService.activeSessionCount();
     }
     
     public User getCurrentUser() {
@@ -153,11 +219,22 @@ public class RbacFacade {
     public void deleteRole(Long roleId) {
         roleService.deleteRole(roleId);
     }
+
+    public RoleMiner.Result analyzeRoleSimilarity(double threshold) {
+        return roleService.analyzeRoleSimilarity(threshold);
+    }
     
     public void assignRoleToUser(String username, String roleCode) {
+        assignRoleToUser(username, roleCode, null, null);
+    }
+
+    /**
+     * Assign a role for a period; the scheduler starts and ends it on time.
+     */
+    public void assignRoleToUser(String username, String roleCode, LocalDateTime validFrom, LocalDateTime validUntil) {
         User user = userService.getUserByUsername(username);
         Role role = roleService.getRoleByCode(roleCode);
-        roleService.assignRoleToUser(user.getId(), role.getId());
+        roleService.assignRoleToUser(user.getId(), role.getId(), validFrom, validUntil);
         
         // Refresh permissions if current user
         if (sessionContext.isLoggedIn() && 
@@ -188,6 +265,83 @@ public class RbacFacade {
         return roleService.getPermissionsByRoleId(role.getId());
     }
     
+    // Group operations
+    public Group createGroup(String code, String name, String description, String parentCode) {
+        Long parentId = parentCode == null || parentCode.isBlank() ? null : groupService.getGroupByCode(parentCode).getId();
+        return groupService.createGroup(code, name, description, parentId);
+    }
+
+    public List<Group> listGroups() {
+        return groupService.listGroups();
+    }
+
+    public Group getGroupByCode(String code) {
+        return groupService.getGroupByCode(code);
+    }
+
+    public List<String> getGroupMembers(String groupCode) {
+        return groupService.getMemberUsernames(groupService.getGroupByCode(groupCode).getId());
+    }
+
+    public List<Role> getGroupRoles(String groupCode) {
+        return groupService.getGroupRoles(groupService.getGroupByCode(groupCode).getId());
+    }
+
+    public List<Group> getUserGroups(String username) {
+        User user = userService.getUserByUsername(username);
+        return groupService.getGroupsByUserId(user.getId());
+    }
+
+    /**
+     * Move a group under {@code parentCode}, or to the top level if blank.
+     */
+    public void moveGroup(String groupCode, String parentCode) {
+        Group group = groupService.getGroupByCode(groupCode);
+        Long parentId = parentCode == null || parentCode.isBlank() ? null : groupService.getGroupByCode(parentCode).getId();
+        groupService.moveGroup(group.getId(), parentId);
+        authService.refreshCurrentUserPermissions();
+    }
+
+    public void deleteGroup(String groupCode) {
+        groupService.deleteGroup(groupService.getGroupByCode(groupCode).getId());
+        authService.refreshCurrentUserPermissions();
+    }
+
+    public void addGroupMember(String groupCode, String username) {
+        Group group = groupService.getGroupByCode(groupCode);
+        User user = userService.getUserByUsername(username);
+        groupService.addMember(group.getId(), user.getId());
+        refreshIfCurrentUser(user);
+    }
+
+    public void removeGroupMember(String groupCode, String username) {
+        Group group = groupService.getGroupByCode(groupCode);
+        User user = userService.getUserByUsername(username);
+        groupService.removeMember(group.getId(), user.getId());
+        refreshIfCurrentUser(user);
+    }
+
+    public void assignRoleToGroup(String groupCode, String roleCode) {
+        Group group = groupService.getGroupByCode(groupCode);
+        Role role = roleService.getRoleByCode(roleCode);
+        groupService.assignRole(group.getId(), role.getId());
+        authService.refreshCurrentUserPermissions();
+    }
+
+    public void removeRoleFromGroup(String groupCode, String roleCode) {
+        Group group = groupService.getGroupByCode(groupCode);
+        Role role = roleService.getRoleByCode(roleCode);
+        groupService.removeRole(group.getId(), role.getId());
+        authService.refreshCurrentUserPermissions();
+    }
+
+    private void refreshIfCurrentUser(User user) {
+        if (sessionContext.isLoggedIn() &&
+            sessionContext.getCurrentUser().getId().equals(user.getId())) {
+            authService.refreshCurrentUserPermissions();
+        }
+    }
+
     // Permission operations
     public Permission createPermission(String code, String name, String description) {
         return permissionService.createPermission(code, name, description);
@@ -238,7 +392,8 @@ public class RbacFacade {
             User current = sessionContext.getCurrentUser();
             java.util.List<Role> userRoles = roleRepository.findByUserId(current.getId());
             boolean currentHasRole = userRoles.stream()
-                    .anyMatch(r -> r.getId().equals(role.getId()));
+                    .anyMatch(r -> r.getId().equals(role.getId()))
+                    || GroupMembershipIndex.current().hasRole(current.getId(), role.getId());
             if (currentHasRole) {
                 authService.refreshCurrentUserPermissions();
             }
@@ -253,7 +408,8 @@ public class RbacFacade {
             User current = sessionContext.getCurrentUser();
             java.util.List<Role> userRoles = roleRepository.findByUserId(current.getId());
             boolean currentHasRole = userRoles.stream()
-                    .anyMatch(r -> r.getId().equals(role.getId()));
+                    .anyMatch(r -> r.getId().equals(role.getId()))
+                    || GroupMembershipIndex.current().hasRole(current.getId(), role.getId());
             if (currentHasRole) {
                 authService.refreshCurrentUserPermissions();
             }
@@ -265,11 +421,23 @@ public class RbacFacade {
         return permissionService.getScopedPermissionsByRole(role.getId());
     }
 
+    public AccessTrace explainAccess(String username, String permissionCode, String resourceType, String resourceId) {
+        return accessExplainService.explainAccess(username, permissionCode, resourceType, resourceId);
+    }
+
     // Resource operations
     public Resource createResource(String code, String name, String type, String url) {
         return resourceService.createResource(code, name, type, url);
     }
 
+    public Resource createResource(String code, String name, String type, String url, Long parentId) {
+        return resourceService.createResource(code, name, type, url, parentId);
+    }
+
+    public Resource moveResource(Long resourceId, Long newParentId) {
+        return resourceService.moveResource(resourceId, newParentId);
+    }
+    
     public Resource updateResource(Long resourceId, String name, String type, String url) {
         return resourceService.updateResource(resourceId, name, type, url);
     }
@@ -294,6 +462,10 @@ public class RbacFacade {
         return resourceService.getResourceAccess(resourceId);
     }
     
+    public ResourceAccessView getResourceAccess(Long resourceId, int offset, int limit) {
+        return resourceService.getResourceAccess(resourceId, offset, limit);
+    }
+    
     // Audit operations
     public List<AuditLog> viewMyAuditLogs(int limit) {
         return auditService.viewMyAuditLogs(limit);
@@ -314,6 +486,66 @@ public class RbacFacade {
     public List<AuditLog> viewAuditLogsByResource(String resourceType, String resourceId, int limit) {
         return auditService.viewAuditLogsByResource(resourceType, resourceId, limit);
     }
+
+    public AuditLog viewAuditLogDetail(Long auditLogId) {
+        return auditService.viewAuditLogDetail(auditLogId);
+    }
+
+    public List<AuditLog> searchAuditLogs(AuditSearchQuery query, int limit) {
+        return auditService.searchAuditLogs(query, limit);
+    }
+
+    public List<AuditLog> viewArchivedAuditLogs(ArchiveQuery query, int limit) {
+        return auditService.viewArchivedAuditLogs(query, limit);
+    }
+
+    public List<AuditCountPoint> viewAuditStats(AuditRollupRepository.Granularity granularity,
+                                                LocalDateTime from, LocalDateTime to, String action,
+                                                Boolean success, String resourceType, String username) {
+        return auditService.viewAuditStats(granularity, from, to, action, success, resourceType, username);
+    }
+
+    public AuditExporter.Result exportAuditLogs(AuditExporter.Format format, Path target,
+                                                LocalDateTime from, LocalDateTime to,
+                                                Long userId, String action, String resourceType) {
+        return auditService.exportAuditLogs(format, target, from, to, userId, action, resourceType);
+    }
+
+    public AuditLogBackfill.Result backfillAuditLogs(Path logDir, AuditLogBackfill.ProgressListener listener) {
+        return auditService.backfillAuditLogs(logDir,
+                dir -> new AuditLogBackfill(auditLogRepository).run(dir, listener));
+    }
+
+    public AccessReviewExporter.Result exportAccessReview(AuditExporter.Format format, Path target,
+                                                          AccessReviewExporter.ProgressListener listener) {
+        return accessReviewService.exportAccessReview(format, target, listener);
+    }
+    
+    // Tenant operations
+    public Tenant createTenant(String code, String name, String adminPassword) {
+        return tenantService.createTenant(code, name, adminPassword);
+    }
+
+    public List<Tenant> listTenants() {
+        return tenantService.listTenants();
+    }
+    
+    // Separation of duties operations
+    public SodConstraint createSodConstraint(String permissionA, String permissionB, String description) {
+        return sodService.createConstraint(permissionA, permissionB, description);
+    }
+
+    public List<SodConstraint> listSodConstraints() {
+        return sodService.listConstraints();
+    }
+
+    public void deleteSodConstraint(Long constraintId) {
+        sodService.deleteConstraint(constraintId);
+    }
+
+    public List<SodViolation> findSodViolations() {
+        return sodService.findViolations();
+    }
     
     // Command permission check
     public boolean canExecuteCommand(String commandName) {
@@ -0,0 +1,496 @@
+package com.study.job;
+
+import com.study.domain.AuditLog;
+import com.study.repository.AuditIdGenerator;
+import com.study.repository.AuditLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds missing {@code audit_logs} rows from the rolled
+ * {@code logs/audit.*.log} files written by the {@code com.study.audit}
+ * logger.
+ * <p>
+ * Files are processed in parallel. Each one is memory-mapped and split into
+ * lines by scanning bytes; fields are located by their fixed
+ * {@code KEY=} prefixes and {@code " | "} separators, without regex.
+ * <p>
+ * Lines carrying an {@code ID} are inserted under that id, so a row that is
+ * already there is skipped exactly. Older lines without one are paired with
+ * the rows of the file's time span (same action, user, resource, result and
+ * second, allowing one second of skew) and only the unpaired ones are
+ * inserted, under an id derived from the file name and the line's position
+ * within its millisecond; such an id that is already taken is reported as a
+ * collision. The write-ahead log has to be empty first, or queued records
+ * would be inserted twice. Inserts go through the normal batch path, so
+ * rollups are updated as well.
+ */
+public class AuditLogBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogBackfill.class);
+    private static final int INSERT_BATCH = 1000;
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+    private static final byte[] SEPARATOR = " | ".getBytes(StandardCharsets.US_ASCII);
+    /** {@code yyyy-MM-dd HH:mm:ss.SSS - } */
+    private static final int PREFIX_LENGTH = 26;
+    private static final long DRAIN_WAIT_MILLIS = Long.getLong("rbac.audit.backfill.drainWaitMillis", 30_000);
+
+    private final AuditLogRepository auditLogRepository;
+    private final int threads;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Outcome for one file.
+     */
+    public record FileResult(Path file, long lines, long malformed, long duplicates, long collisions,
+                             long inserted) {
+    }
+
+    /**
+     * Outcome for the whole run.
+     */
+    public record Result(int files, long lines, long malformed, long duplicates, long collisions, long inserted,
+                         long elapsedNanos) {
+        public double linesPerSecond() {
+            return elapsedNanos == 0 ? lines : lines * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    /**
+     * Called from worker threads after each file.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onFileDone(FileResult file, int filesDone, int filesTotal, long linesSoFar, long elapsedNanos);
+    }
+
+    public AuditLogBackfill(AuditLogRepository auditLogRepository) {
+        this(auditLogRepository,
+                Integer.getInteger("rbac.audit.backfill.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public AuditLogBackfill(AuditLogRepository auditLogRepository, int threads) {
+        this.auditLogRepository = auditLogRepository;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Rolled audit files in {@code logDir}, oldest first. The live
+     * {@code audit.log} is skipped because it is still being written.
+     */
+    public static List<Path> findRolledFiles(Path logDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDir, "audit.*.log")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Backfill every rolled file in {@code logDir}.
+     */
+    public Result run(Path logDir, ProgressListener listener) {
+        try {
+            return run(findRolledFiles(logDir), listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list audit log files in " + logDir, e);
+        }
+    }
+
+    public Result run(List<Path> files, ProgressListener listener) {
+        long startedAt = System.nanoTime();
+        if (!auditLogRepository.awaitDrained(DRAIN_WAIT_MILLIS)) {
+            throw new IllegalStateException("Audit records are still queued for the database; "
+                    + "run the backfill again once they are written");
+        }
+        AtomicInteger done = new AtomicInteger();
+        AtomicLong lines = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, files.size())), r -> {
+            Thread t = new Thread(r, "audit-backfill");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>();
+            for (Path file : files) {
+                futures.add(pool.submit(() -> {
+                    FileResult result = backfill(file);
+                    long total = lines.addAndGet(result.lines());
+                    if (listener != null) {
+                        listener.onFileDone(result, done.incrementAndGet(), files.size(), total,
+                                System.nanoTime() - startedAt);
+                    }
+                    return result;
+                }));
+            }
+            long malformed = 0;
+            long duplicates = 0;
+            long collisions = 0;
+            long inserted = 0;
+            for (Future<FileResult> future : futures) {
+                FileResult result = future.get();
+                malformed += result.malformed();
+                duplicates += result.duplicates();
+                collisions += result.collisions();
+                inserted += result.inserted();
+            }
+            Result result = new Result(files.size(), lines.get(), malformed, duplicates, collisions, inserted,
+                    System.nanoTime() - startedAt);
+            logger.info("Audit backfill: {} files, {} lines, {} inserted, {} already present, {} malformed, "
+                            + "{} id collisions", result.files(), result.lines(), result.inserted(),
+                    result.duplicates(), result.malformed(), result.collisions());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Audit backfill interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Audit backfill failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private FileResult backfill(Path file) {
+        List<AuditLog> withIds = new ArrayList<>();
+        List<AuditLog> withoutIds = new ArrayList<>();
+        long[] counters = new long[2]; // lines, malformed
+        String detail = "Backfilled from " + file.getFileName();
+        try {
+            forEachLine(file, (bytes, length) -> {
+                counters[0]++;
+                AuditLog log = parseLine(bytes, length);
+                if (log == null) {
+                    counters[1]++;
+                } else {
+                    log.setDetail(detail);
+                    (log.getId() != null ? withIds : withoutIds).add(log);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+
+        long[] totals = new long[3]; // duplicates, collisions, inserted
+        Batch exact = new Batch(totals, 0);
+        for (AuditLog log : withIds) {
+            exact.add(log);
+        }
+        exact.flush();
+        if (!withoutIds.isEmpty()) {
+            Set<Long> ownIds = new HashSet<>();
+            withIds.forEach(log -> ownIds.add(log.getId()));
+            Map<String, Integer> existing = loadExistingKeys(withoutIds, ownIds);
+            int salt = file.getFileName().toString().hashCode();
+            Map<Long, Integer> ordinals = new HashMap<>();
+            Batch derived = new Batch(totals, 1);
+            for (AuditLog log : withoutIds) {
+                if (claim(existing, log)) {
+                    totals[0]++;
+                    continue;
+                }
+                long millis = log.getCreatedAt().atZone(zone).toInstant().toEpochMilli();
+                int ordinal = ordinals.merge(millis, 1, Integer::sum) - 1;
+                log.setId(AuditIdGenerator.backfillId(millis, salt + ordinal));
+                derived.add(log);
+            }
+            derived.flush();
+        }
+        if (totals[1] > 0) {
+            logger.warn("Audit backfill: {} lines of {} got an id that is already taken and were not inserted",
+                    totals[1], file);
+        }
+        return new FileResult(file, counters[0], counters[1], totals[0], totals[1], totals[2]);
+    }
+
+    /**
+     * Insert batch that counts rows the database skipped because their id
+     * was already present under {@code totals[skippedSlot]}.
+     */
+    private final class Batch {
+        private final List<AuditLog> logs = new ArrayList<>(INSERT_BATCH);
+        private final long[] totals;
+        private final int skippedSlot;
+
+        Batch(long[] totals, int skippedSlot) {
+            this.totals = totals;
+            this.skippedSlot = skippedSlot;
+        }
+
+        void add(AuditLog log) {
+            logs.add(log);
+            if (logs.size() == INSERT_BATCH) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (logs.isEmpty()) {
+                return;
+            }
+            int inserted = auditLogRepository.insertAll(logs);
+            totals[2] += inserted;
+            totals[skippedSlot] += logs.size() - inserted;
+            logs.clear();
+        }
+    }
+
+    /**
+     * Count rows already in the database per (key, second) over the time
+     * span of the parsed lines, padded for clock skew. Rows whose id one of
+     * the file's own lines carries are left out; those lines pair by id.
+     */
+    private Map<String, Integer> loadExistingKeys(List<AuditLog> parsed, Set<Long> ownIds) {
+        LocalDateTime min = parsed.get(0).getCreatedAt();
+        LocalDateTime max = min;
+        for (AuditLog log : parsed) {
+            if (log.getCreatedAt().isBefore(min)) {
+                min = log.getCreatedAt();
+            }
+            if (log.getCreatedAt().isAfter(max)) {
+                max = log.getCreatedAt();
+            }
+        }
+        Map<String, Integer> keys = new HashMap<>();
+        auditLogRepository.streamByTimeRange(min.minusSeconds(2), max.plusSeconds(2), log -> {
+            if (!ownIds.contains(log.getId())) {
+                keys.merge(key(log, log.getCreatedAt().withNano(0)), 1, Integer::sum);
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Pair a log line with an unclaimed database row. The row may be stamped
+     * up to a second earlier (created before the log line was written) or a
+     * second later (MySQL rounds fractional seconds).
+     */
+    private static boolean claim(Map<String, Integer> existing, AuditLog log) {
+        LocalDateTime second = log.getCreatedAt().withNano(0);
+        for (LocalDateTime candidate : new LocalDateTime[]{second, second.minusSeconds(1), second.plusSeconds(1)}) {
+            String key = key(log, candidate);
+            Integer count = existing.get(key);
+            if (count != null) {
+                if (count == 1) {
+                    existing.remove(key);
+                } else {
+                    existing.put(key, count - 1);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(AuditLog log, LocalDateTime second) {
+        return second + "|" + log.getAction() + "|" + log.getUserId() + "|" + log.getUsername()
+                + "|" + log.getResourceType() + "|" + log.getResourceId() + "|" + log.isSuccess();
+    }
+
+    // ---- file scanning ----
+
+    @FunctionalInterface
+    private interface LineHandler {
+        void handle(byte[] bytes, int length);
+    }
+
+    /**
+     * Map the file window by window and hand each line (without its line
+     * terminator) to the handler. A window always ends on a line boundary.
+     */
+    private static void forEachLine(Path file, LineHandler handler) throws IOException {
+        byte[] line = new byte[1024];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long windowSize = Math.min(MAP_WINDOW, size - position);
+                boolean last = position + windowSize == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int limit = (int) windowSize;
+                int start = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (window.get(i) == '\n') {
+                        line = emit(window, start, i, line, handler);
+                        start = i + 1;
+                    }
+                }
+                if (last) {
+                    if (start < limit) {
+                        emit(window, start, limit, line, handler);
+                    }
+                    break;
+                }
+                if (start == 0) {
+                    throw new IOException("Line longer than " + MAP_WINDOW + " bytes in " + file);
+                }
+                position += start;
+            }
+        }
+    }
+
+    private static byte[] emit(MappedByteBuffer window, int start, int end, byte[] line, LineHandler handler) {
+        if (end > start && window.get(end - 1) == '\r') {
+            end--;
+        }
+        int length = end - start;
+        if (line.length < length) {
+            line = new byte[Math.max(length, line.length * 2)];
+        }
+        window.get(start, line, 0, length);
+        handler.handle(line, length);
+        return line;
+    }
+
+    // ---- line parsing ----
+
+    /**
+     * Parse {@code yyyy-MM-dd HH:mm:ss.SSS - [ID=.. | ]ACTION=.. |
+     * RESOURCE_TYPE=.. | RESOURCE_ID=.. | USER=.. | USER_ID=.. |
+     * RESULT=..[ | ERROR=..]}.
+     *
+     * @return the record, or null if the line does not have that shape
+     */
+    static AuditLog parseLine(byte[] b, int length) {
+        if (length < PREFIX_LENGTH || b[4] != '-' || b[10] != ' ' || b[23] != ' ' || b[24] != '-') {
+            return null;
+        }
+        int year = digits(b, 0, 4);
+        int month = digits(b, 5, 2);
+        int day = digits(b, 8, 2);
+        int hour = digits(b, 11, 2);
+        int minute = digits(b, 14, 2);
+        int second = digits(b, 17, 2);
+        int millis = digits(b, 20, 3);
+        if ((year | month | day | hour | minute | second | millis) < 0) {
+            return null;
+        }
+
+        AuditLog log = new AuditLog();
+        try {
+            log.setCreatedAt(LocalDateTime.of(year, month, day, hour, minute, second, millis * 1_000_000));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        boolean hasResult = false;
+        int position = PREFIX_LENGTH;
+        while (position < length) {
+            int equals = indexOf(b, (byte) '=', position, length);
+            if (equals < 0) {
+                return null;
+            }
+            int keyStart = position;
+            int keyLength = equals - keyStart;
+            boolean error = is(b, keyStart, keyLength, "ERROR");
+            int end = error ? length : indexOf(b, SEPARATOR, equals + 1, length);
+            if (end < 0) {
+                end = length;
+            }
+            String value = new String(b, equals + 1, end - equals - 1, StandardCharsets.UTF_8);
+            if (is(b, keyStart, keyLength, "ID")) {
+                log.setId("null".equals(value) ? null : parseLongOrNull(value));
+            } else if (is(b, keyStart, keyLength, "ACTION")) {
+                log.setAction(value);
+            } else if (is(b, keyStart, keyLength, "RESOURCE_TYPE")) {
+                log.setResourceType(nullIf(value, "null"));
+            } else if (is(b, keyStart, keyLength, "RESOURCE_ID")) {
+                log.setResourceId(nullIf(value, "N/A"));
+            } else if (is(b, keyStart, keyLength, "USER")) {
+                log.setUsername(nullIf(value, "null"));
+            } else if (is(b, keyStart, keyLength, "USER_ID")) {
+                log.setUserId("null".equals(value) ? null : parseLongOrNull(value));
+            } else if (is(b, keyStart, keyLength, "RESULT")) {
+                log.setSuccess("SUCCESS".equals(value));
+                hasResult = true;
+            } else if (error) {
+                log.setErrorMessage(nullIf(value, "null"));
+            }
+            position = end + SEPARATOR.length;
+        }
+        return log.getAction() != null && hasResult ? log : null;
+    }
+
+    private static int digits(byte[] b, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(byte[] b, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] b, byte[] target, int from, int to) {
+        outer:
+        for (int i = from; i <= to - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (b[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean is(byte[] b, int offset, int length, String key) {
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (b[offset + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String nullIf(String value, String marker) {
+        return marker.equals(value) ? null : value;
+    }
+
+    private static Long parseLongOrNull(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.study.job;
+
+import com.study.repository.AuditLogRepository;
+import com.study.repository.AuditPartitionManager;
+import com.study.repository.AuditPartitionManager.Partition;
+import com.study.repository.AuditRollupRepository;
+import com.study.repository.AuditRollupRepository.Granularity;
+import com.study.repository.DatabaseConnection;
+import com.study.repository.archive.AuditArchive;
+import com.study.repository.archive.AuditArchiveWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled retention for {@code audit_logs}.
+ * <p>
+ * Every month older than the retention window is first written to the
+ * columnar {@link AuditArchive} under {@code rbac.audit.archive.dir}, then removed: on MySQL by
+ * dropping its partition, elsewhere by batched deletes. A month is only
+ * removed after its archive file has been completely written.
+ */
+public class AuditRetentionJob implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AuditRetentionJob.class);
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final int PARTITIONS_AHEAD = 3;
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditPartitionManager partitionManager;
+    private final AuditRollupRepository rollupRepository;
+    private final int retentionMonths;
+    private final AuditArchive archive;
+    private final long intervalHours;
+    private final boolean migrateExisting;
+    private final int minuteRollupDays;
+    private final int hourRollupDays;
+    private ScheduledExecutorService scheduler;
+
+    public AuditRetentionJob(DatabaseConnection dbConnection) {
+        this.auditLogRepository = new AuditLogRepository(dbConnection);
+        this.partitionManager = new AuditPartitionManager(dbConnection);
+        this.rollupRepository = auditLogRepository.getRollupRepository();
+        this.minuteRollupDays = Integer.getInteger("rbac.audit.rollup.minuteRetentionDays", 7);
+        this.hourRollupDays = Integer.getInteger("rbac.audit.rollup.hourRetentionDays", 180);
+        this.retentionMonths = Integer.getInteger("rbac.audit.retention.months", 12);
+        this.archive = AuditArchive.fromSystemProperties();
+        this.intervalHours = Long.getLong("rbac.audit.retention.intervalHours", 24);
+        this.migrateExisting = Boolean.getBoolean("rbac.audit.partition.migrate");
+    }
+
+    /**
+     * Prepare partitions and schedule the job on a daemon thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "audit-retention");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, 0, intervalHours, TimeUnit.HOURS);
+        logger.info("Audit retention scheduled: keep {} months, archive to {}", retentionMonths, archive.getDirectory());
+    }
+
+    /**
+     * Run one retention pass.
+     */
+    public void runOnce() throws IOException {
+        partitionManager.ensurePartitions(PARTITIONS_AHEAD, migrateExisting);
+        purgeRollups();
+        YearMonth firstKept = YearMonth.now().minusMonths(retentionMonths);
+
+        if (partitionManager.isSupported() && !partitionManager.listPartitions().isEmpty()) {
+            for (Partition partition : partitionManager.listPartitions()) {
+                if (!partition.month().isBefore(firstKept)) {
+                    break;
+                }
+                archiveMonth(partition.month());
+                partitionManager.dropPartition(partition);
+            }
+            return;
+        }
+
+        Optional<YearMonth> oldest = partitionManager.oldestMonth();
+        if (oldest.isEmpty() || !oldest.get().isBefore(firstKept)) {
+            return;
+        }
+        for (YearMonth month = oldest.get(); month.isBefore(firstKept); month = month.plusMonths(1)) {
+            archiveMonth(month);
+        }
+        long deleted = partitionManager.deleteOlderThan(firstKept.atDay(1).atStartOfDay(), DELETE_BATCH_SIZE);
+        logger.info("Purged {} audit rows older than {}", deleted, firstKept);
+    }
+
+    /**
+     * Fine-grained rollups are only useful for recent dashboards; day
+     * buckets are kept for good.
+     */
+    private void purgeRollups() {
+        LocalDateTime now = LocalDateTime.now();
+        int minutes = rollupRepository.deleteOlderThan(Granularity.MINUTE, now.minusDays(minuteRollupDays));
+        int hours = rollupRepository.deleteOlderThan(Granularity.HOUR, now.minusDays(hourRollupDays));
+        if (minutes + hours > 0) {
+            logger.info("Purged {} minute and {} hour audit rollup rows", minutes, hours);
+        }
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            logger.error("Audit retention run failed", e);
+        }
+    }
+
+    /**
+     * Write one month to the columnar archive. The file is built under a
+     * temporary name and moved into place once complete.
+     */
+    private void archiveMonth(YearMonth month) throws IOException {
+        Files.createDirectories(archive.getDirectory());
+        Path target = archive.fileFor(month);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+        long rows;
+        try (AuditArchiveWriter writer = new AuditArchiveWriter(temp)) {
+            rows = auditLogRepository.streamByTimeRange(from, to, writer::append);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Archived {} audit rows for {} to {}", rows, month, target);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -1,69 +1,216 @@
 package com.study.repository;
 
+import com.study.context.TenantContext;
 import com.study.domain.AuditLog;
 import com.study.exception.DataAccessException;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class AuditLogRepository extends BaseRepository {
+    /** Characters of detail/error_message carried by list projections. */
+    static final int TEXT_PREVIEW_LENGTH = 120;
+
+    /**
+     * Scalar columns shared by every projection. The two text columns always
+     * follow at positions 10 and 11 and the tenant at 12, so one index-based
+     * mapper serves both.
+     */
+    private static final String BASE_COLUMNS =
+            "id, user_id, username, action, resource_type, resource_id, success, ip_address, created_at";
+    /** List projection: TEXT blobs are cut down to a short preview on the server. */
+    private static final String SUMMARY_COLUMNS = BASE_COLUMNS
+            + ", LEFT(detail, " + TEXT_PREVIEW_LENGTH + "), LEFT(error_message, " + TEXT_PREVIEW_LENGTH + ")"
+            + ", tenant_id";
+    /** Detail projection: full text, used when a single record is opened. */
+    private static final String DETAIL_COLUMNS = BASE_COLUMNS + ", detail, error_message, tenant_id";
+    /** Look-back of the first, partition-pruned pass of newest-first finders. */
+    private static final int RECENT_WINDOW_DAYS = Integer.getInteger("rbac.audit.recentWindowDays", 31);
+
+    /** How long a reader waits for audit records still in the write-ahead log. */
+    private static final long READ_WAIT_MILLIS = Long.getLong("rbac.audit.readWaitMillis", 1_000);
+
+    private static final boolean SEARCH_INDEX_ENABLED =
+            Boolean.parseBoolean(System.getProperty("rbac.audit.search.enabled", "true"));
+    /** Candidate ids fetched per {@code IN (...)} round trip of an indexed search. */
+    private static final int SEARCH_FETCH_SIZE = 500;
+
+    private final RecentAuditBuffer recentEvents = new RecentAuditBuffer();
+    private final AuditIdGenerator idGenerator = AuditIdGenerator.getInstance();
+    private final AuditWriteAheadLog writeAheadLog;
+    private final AuditRollupRepository rollupRepository;
+    private final AuditSearchIndex searchIndex = AuditSearchIndex.getInstance();
     
     public AuditLogRepository(DatabaseConnection dbConnection) {
         super(dbConnection);
+        this.rollupRepository = new AuditRollupRepository(dbConnection);
+        this.writeAheadLog = AuditWriteAheadLog.getInstance();
+    }
+
+    /**
+     * Start moving recorded events into the database through this
+     * repository and load the search index. Call once it is built; until
+     * then {@link #save} only queues. A repository built later, e.g. after
+     * {@link DatabaseConnection#reset()}, takes over when started.
+     */
+    public void start() {
+        writeAheadLog.start(batch -> insertBatch(batch));
+        if (SEARCH_INDEX_ENABLED) {
+            searchIndex.bootstrap(this);
+        }
+    }
+
+    /**
+     * In-memory view of the newest events recorded through this repository.
+     */
+    public RecentAuditBuffer getRecentEvents() {
+        return recentEvents;
+    }
+
+    /**
+     * Per-minute/hour/day counts maintained by {@link #save}.
+     */
+    public AuditRollupRepository getRollupRepository() {
+        return rollupRepository;
     }
     
+    /**
+     * Record an audit event. The id and timestamp are fixed here and the
+     * record is queued on the write-ahead log, whose drainer inserts it, so
+     * the caller never waits on the database. Records without a tenant are
+     * stamped with the current one.
+     *
+     * @throws DataAccessException if the log stayed full or is closed; the
+     *         audited call must fail rather than go unrecorded
+     */
     public void save(AuditLog auditLog) {
-        String sql = """
-            INSERT INTO audit_logs 
-            (user_id, username, action, resource_type, resource_id, detail, success, error_message, ip_address)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            if (auditLog.getUserId() != null) {
-                pstmt.setLong(1, auditLog.getUserId());
-            } else {
-                pstmt.setNull(1, Types.BIGINT);
-            }
-            pstmt.setString(2, auditLog.getUsername());
-            pstmt.setString(3, auditLog.getAction());
-            pstmt.setString(4, auditLog.getResourceType());
-            pstmt.setString(5, auditLog.getResourceId());
-            pstmt.setString(6, auditLog.getDetail());
-            pstmt.setBoolean(7, auditLog.isSuccess());
-            pstmt.setString(8, auditLog.getErrorMessage());
-            pstmt.setString(9, auditLog.getIpAddress());
-            
-            pstmt.executeUpdate();
+        if (auditLog.getId() == null) {
+            auditLog.setId(idGenerator.nextId());
+        }
+        if (auditLog.getTenantId() == null) {
+            auditLog.setTenantId(tenantId());
+        }
+        if (auditLog.getCreatedAt() == null) {
+            auditLog.setCreatedAt(LocalDateTime.now());
+        }
+        if (!writeAheadLog.append(auditLog)) {
+            logger.error("Audit write-ahead log did not accept audit record {} ({})",
+                    auditLog.getId(), auditLog.getAction());
+            throw new DataAccessException("Audit log is unavailable, action " + auditLog.getAction()
+                    + " was not recorded");
+        }
+    }
+
+    /**
+     * Bulk insert of records that already carry ids, e.g. from a backfill.
+     * Ids already present are skipped.
+     *
+     * @return number of rows actually inserted
+     */
+    public int insertAll(List<AuditLog> logs) {
+        try {
+            return insertBatch(logs).size();
         } catch (SQLException e) {
-            // Don't throw exception for audit log failure - just log it
-            logger.error("Failed to save audit log", e);
+            logger.error("Failed to insert audit logs", e);
+            throw new DataAccessException("Failed to insert audit logs", e);
         }
     }
-    
-    public List<AuditLog> findByUserId(Long userId, int limit) {
+
+    /**
+     * Insert records with their own ids in one transaction, together with
+     * their rollup counts. Ids already present are found and locked first,
+     * then skipped and not counted, so replaying a batch is harmless; a
+     * rewritten batch reports no per-row counts to tell them apart. Inserted
+     * rows are added to the search index after the commit.
+     *
+     * @return the records that were inserted
+     */
+    private List<AuditLog> insertBatch(List<AuditLog> logs) throws SQLException {
         String sql = """
-            SELECT * FROM audit_logs 
-            WHERE user_id = ? 
-            ORDER BY created_at DESC 
-            LIMIT ?
+            INSERT INTO audit_logs
+            (id, user_id, username, action, resource_type, resource_id, detail, success, error_message,
+             ip_address, created_at, tenant_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
-        List<AuditLog> logs = new ArrayList<>();
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setLong(1, userId);
-            pstmt.setInt(2, limit);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                logs.add(mapResultSetToAuditLog(rs));
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                List<AuditLog> inserted = withoutExisting(conn, logs);
+                for (AuditLog log : inserted) {
+                    pstmt.setLong(1, log.getId());
+                    if (log.getUserId() != null) {
+                        pstmt.setLong(2, log.getUserId());
+                    } else {
+                        pstmt.setNull(2, Types.BIGINT);
+                    }
+                    pstmt.setString(3, log.getUsername());
+                    pstmt.setString(4, log.getAction());
+                    pstmt.setString(5, log.getResourceType());
+                    pstmt.setString(6, log.getResourceId());
+                    pstmt.setString(7, log.getDetail());
+                    pstmt.setBoolean(8, log.isSuccess());
+                    pstmt.setString(9, log.getErrorMessage());
+                    pstmt.setString(10, log.getIpAddress());
+                    pstmt.setTimestamp(11, Timestamp.valueOf(log.getCreatedAt()));
+                    pstmt.setLong(12, log.getTenantId() != null ? log.getTenantId() : TenantContext.DEFAULT_TENANT_ID);
+                    pstmt.addBatch();
+                }
+                if (!inserted.isEmpty()) {
+                    pstmt.executeBatch();
+                }
+                rollupRepository.accumulate(conn, inserted);
+                conn.commit();
+                if (SEARCH_INDEX_ENABLED) {
+                    inserted.forEach(searchIndex::add);
+                }
+                return inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
-            return logs;
+        }
+    }
+    
+    /**
+     * The records of {@code logs} whose id is not in the table yet, once
+     * each. The ids are locked until the transaction ends, so a concurrent
+     * replay of the same records waits and then finds them.
+     */
+    private List<AuditLog> withoutExisting(Connection conn, List<AuditLog> logs) throws SQLException {
+        Map<Long, AuditLog> pending = new LinkedHashMap<>();
+        for (AuditLog log : logs) {
+            pending.putIfAbsent(log.getId(), log);
+        }
+        List<Long> ids = new ArrayList<>(pending.keySet());
+        for (int start = 0; start < ids.size(); start += SEARCH_FETCH_SIZE) {
+            List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + SEARCH_FETCH_SIZE));
+            String sql = "SELECT id FROM audit_logs WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setLong(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    pending.remove(rs.getLong(1));
+                }
+            }
+        }
+        return new ArrayList<>(pending.values());
+    }
+    
+    public List<AuditLog> findByUserId(Long userId, int limit) {
+        try {
+            return findNewest("user_id = ?", pstmt -> {
+                pstmt.setLong(1, userId);
+                return 2;
+            }, limit);
         } catch (SQLException e) {
             logger.error("Failed to find audit logs", e);
             throw new DataAccessException("Failed to find audit logs", e);
@@ -71,19 +218,8 @@ public class AuditLogRepository extends BaseRepository {
     }
     
     public List<AuditLog> findAll(int limit) {
-        String sql = "SELECT * FROM audit_logs ORDER BY created_at DESC LIMIT ?";
-        List<AuditLog> logs = new ArrayList<>();
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, limit);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                logs.add(mapResultSetToAuditLog(rs));
-            }
-            return logs;
+        try {
+            return findNewest(null, pstmt -> 1, limit);
         } catch (SQLException e) {
             logger.error("Failed to find audit logs", e);
             throw new DataAccessException("Failed to find audit logs", e);
@@ -91,20 +227,11 @@ public class AuditLogRepository extends BaseRepository {
     }
     
     public List<AuditLog> findByAction(String action, int limit) {
-        String sql = "SELECT * FROM audit_logs WHERE action = ? ORDER BY created_at DESC LIMIT ?";
-        List<AuditLog> logs = new ArrayList<>();
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, action);
-            pstmt.setInt(2, limit);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                logs.add(mapResultSetToAuditLog(rs));
-            }
-            return logs;
+        try {
+            return findNewest("action = ?", pstmt -> {
+                pstmt.setString(1, action);
+                return 2;
+            }, limit);
         } catch (SQLException e) {
             logger.error("Failed to find audit logs by action", e);
             throw new DataAccessException("Failed to find audit logs", e);
@@ -112,59 +239,351 @@ public class AuditLogRepository extends BaseRepository {
     }
 
     public List<AuditLog> findByResource(String resourceType, String resourceId, int limit) {
-        String sql = resourceId == null || resourceId.isBlank()
-                ? """
-                    SELECT * FROM audit_logs
-                    WHERE resource_type = ? AND resource_id IS NULL
-                    ORDER BY created_at DESC
-                    LIMIT ?
-                  """
-                : """
-                    SELECT * FROM audit_logs
-                    WHERE resource_type = ? AND resource_id = ?
-                    ORDER BY created_at DESC
-                    LIMIT ?
-                  """;
+        boolean typeOnly = resourceId == null || resourceId.isBlank();
+        try {
+            return findNewest(typeOnly
+                            ? "resource_type = ? AND resource_id IS NULL"
+                            : "resource_type = ? AND resource_id = ?",
+                    pstmt -> {
+                        pstmt.setString(1, resourceType);
+                        if (typeOnly) {
+                            return 2;
+                        }
+                        pstmt.setString(2, resourceId);
+                        return 3;
+                    }, limit);
+        } catch (SQLException e) {
+            logger.error("Failed to find audit logs by resource", e);
+            throw new DataAccessException("Failed to find audit logs", e);
+        }
+    }
+
+    /**
+     * Stream every record of every tenant with {@code from <= created_at < to},
+     * oldest first, over a forward-only cursor. The range predicate lets a
+     * partitioned table read only the months involved. The same
+     * {@link AuditLog} instance is refilled for every row, so handlers must
+     * copy anything they keep.
+     *
+     * @return number of rows streamed
+     */
+    public long streamByTimeRange(LocalDateTime from, LocalDateTime to, AuditLogHandler handler) {
+        return stream(from, to, null, null, null, null, handler);
+    }
+
+    /**
+     * {@link #streamByTimeRange(LocalDateTime, LocalDateTime, AuditLogHandler)}
+     * limited to the current tenant, with optional user, action and resource
+     * type filters (null matches all).
+     */
+    public long streamByTimeRange(LocalDateTime from, LocalDateTime to, Long userId, String action,
+                                  String resourceType, AuditLogHandler handler) {
+        return stream(from, to, tenantId(), userId, action, resourceType, handler);
+    }
+
+    private long stream(LocalDateTime from, LocalDateTime to, Long tenantId, Long userId, String action,
+                        String resourceType, AuditLogHandler handler) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(DETAIL_COLUMNS).append(" FROM audit_logs WHERE ");
+        if (tenantId != null) {
+            sql.append("tenant_id = ? AND ");
+        }
+        sql.append("created_at >= ? AND created_at < ?");
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+        }
+        if (action != null) {
+            sql.append(" AND action = ?");
+        }
+        if (resourceType != null) {
+            sql.append(" AND resource_type = ?");
+        }
+        sql.append(" ORDER BY created_at");
+
+        long rows = 0;
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            enableStreaming(conn, pstmt);
+            int index = 1;
+            if (tenantId != null) {
+                pstmt.setLong(index++, tenantId);
+            }
+            pstmt.setTimestamp(index++, Timestamp.valueOf(from));
+            pstmt.setTimestamp(index++, Timestamp.valueOf(to));
+            if (userId != null) {
+                pstmt.setLong(index++, userId);
+            }
+            if (action != null) {
+                pstmt.setString(index++, action);
+            }
+            if (resourceType != null) {
+                pstmt.setString(index, resourceType);
+            }
+            AuditLog reused = new AuditLog();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    mapInto(rs, reused);
+                    handler.handle(reused);
+                    rows++;
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            logger.error("Failed to stream audit logs", e);
+            throw new DataAccessException("Failed to stream audit logs", e);
+        } catch (Exception e) {
+            throw new DataAccessException("Audit log stream aborted after " + rows + " rows", e);
+        }
+    }
+
+    /**
+     * Newest-first search over several fields. The search index narrows the
+     * part of the range it covers to candidate ids, which are then fetched
+     * and re-checked by id; only the part older than the index, or a query
+     * with nothing the index can answer, is scanned with SQL (words are then
+     * matched with {@code LIKE}).
+     */
+    public List<AuditLog> search(AuditSearchQuery query, int limit) {
+        awaitQueuedWrites();
+        LocalDateTime coveredFrom = SEARCH_INDEX_ENABLED ? searchIndex.coveredFrom() : null;
+        long[] candidates = coveredFrom != null ? searchIndex.candidates(query) : null;
+        try {
+            if (candidates == null) {
+                return scanSearch(query, query.from(), query.to(), limit);
+            }
+            LocalDateTime indexedFrom = query.from() != null && query.from().isAfter(coveredFrom)
+                    ? query.from() : coveredFrom;
+            List<AuditLog> logs = fetchCandidates(query, candidates, indexedFrom, limit);
+            if (logs.size() < limit && (query.from() == null || query.from().isBefore(coveredFrom))) {
+                LocalDateTime scanTo = query.to() != null && query.to().isBefore(coveredFrom)
+                        ? query.to() : coveredFrom;
+                logs.addAll(scanSearch(query, query.from(), scanTo, limit - logs.size()));
+            }
+            return logs;
+        } catch (SQLException e) {
+            logger.error("Failed to search audit logs", e);
+            throw new DataAccessException("Failed to search audit logs", e);
+        }
+    }
+
+    private List<AuditLog> fetchCandidates(AuditSearchQuery query, long[] candidates, LocalDateTime from,
+                                           int limit) throws SQLException {
         List<AuditLog> logs = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection()) {
+            // Newest ids first, a chunk at a time, until the limit is met.
+            for (int end = candidates.length; end > 0 && logs.size() < limit; end -= SEARCH_FETCH_SIZE) {
+                int start = Math.max(0, end - SEARCH_FETCH_SIZE);
+                StringBuilder sql = new StringBuilder("SELECT ").append(SUMMARY_COLUMNS)
+                        .append(" FROM audit_logs WHERE id IN (");
+                List<Object> params = new ArrayList<>(end - start + 8);
+                for (int i = start; i < end; i++) {
+                    sql.append(i == start ? "?" : ", ?");
+                    params.add(candidates[i]);
+                }
+                sql.append(')');
+                appendSearchFilters(sql, params, query, from, query.to(), false);
+                sql.append(" ORDER BY created_at DESC LIMIT ?");
+                params.add(limit - logs.size());
+                query(conn, sql.toString(), params, logs);
+            }
+        }
+        return logs;
+    }
 
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private List<AuditLog> scanSearch(AuditSearchQuery query, LocalDateTime from, LocalDateTime to,
+                                      int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(SUMMARY_COLUMNS)
+                .append(" FROM audit_logs WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendSearchFilters(sql, params, query, from, to, true);
+        sql.append(" ORDER BY created_at DESC LIMIT ?");
+        params.add(limit);
+        List<AuditLog> logs = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection()) {
+            query(conn, sql.toString(), params, logs);
+        }
+        return logs;
+    }
 
-            pstmt.setString(1, resourceType);
-            if (resourceId == null || resourceId.isBlank()) {
-                pstmt.setInt(2, limit);
-            } else {
-                pstmt.setString(2, resourceId);
-                pstmt.setInt(3, limit);
+    private static void appendSearchFilters(StringBuilder sql, List<Object> params, AuditSearchQuery query,
+                                            LocalDateTime from, LocalDateTime to, boolean matchText) {
+        // The search index spans all tenants; candidates are narrowed to the current one here.
+        sql.append(" AND tenant_id = ?");
+        params.add(tenantId());
+        if (query.userId() != null) {
+            sql.append(" AND user_id = ?");
+            params.add(query.userId());
+        }
+        if (query.actionPrefix() != null) {
+            sql.append(" AND action LIKE ?");
+            params.add(escapeLike(query.actionPrefix()) + "%");
+        }
+        if (query.resourceType() != null) {
+            sql.append(" AND resource_type = ?");
+            params.add(query.resourceType());
+        }
+        if (query.success() != null) {
+            sql.append(" AND success = ?");
+            params.add(query.success());
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        if (matchText) {
+            for (String word : AuditSearchIndex.tokenize(query.text())) {
+                sql.append(" AND (detail LIKE ? OR error_message LIKE ?)");
+                String pattern = "%" + escapeLike(word) + "%";
+                params.add(pattern);
+                params.add(pattern);
             }
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 
+    private void query(Connection conn, String sql, List<Object> params, List<AuditLog> into)
+            throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Object param : params) {
+                pstmt.setObject(index++, param);
+            }
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                logs.add(mapResultSetToAuditLog(rs));
+                into.add(mapResultSetToAuditLog(rs));
             }
-            return logs;
+        }
+    }
+
+    /**
+     * Wait up to {@code timeoutMillis} until every queued record, including
+     * those left by a previous run, is in the table.
+     *
+     * @return false if records are still queued
+     */
+    public boolean awaitDrained(long timeoutMillis) {
+        return writeAheadLog.awaitDrained(timeoutMillis);
+    }
+
+    /**
+     * Give the drainer a moment to insert records queued before this read,
+     * so a user sees the events they just caused. Returns at once when no
+     * such record is pending or the drainer is not running.
+     */
+    private void awaitQueuedWrites() {
+        if (!writeAheadLog.awaitSettled(READ_WAIT_MILLIS)) {
+            logger.debug("Reading audit logs while records are still queued");
+        }
+    }
+
+    /**
+     * Newest-first query over a filtered slice of the current tenant. The
+     * first pass only looks at the recent window, so on a partitioned table
+     * the common "latest N" request touches the newest months only; older
+     * partitions are read just when the window cannot fill the limit.
+     */
+    private List<AuditLog> findNewest(String filter, ParameterBinder binder, int limit) throws SQLException {
+        awaitQueuedWrites();
+        String where = filter == null ? "WHERE tenant_id = ? AND " : "WHERE " + filter + " AND tenant_id = ? AND ";
+        String recentSql = "SELECT " + SUMMARY_COLUMNS + " FROM audit_logs " + where
+                + "created_at >= ? ORDER BY created_at DESC LIMIT ?";
+        String olderSql = "SELECT " + SUMMARY_COLUMNS + " FROM audit_logs " + where
+                + "created_at < ? ORDER BY created_at DESC LIMIT ?";
+        Timestamp windowStart = Timestamp.valueOf(LocalDateTime.now().minusDays(RECENT_WINDOW_DAYS));
+
+        List<AuditLog> logs = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection()) {
+            collect(conn, recentSql, binder, windowStart, limit, logs);
+            if (logs.size() < limit) {
+                collect(conn, olderSql, binder, windowStart, limit - logs.size(), logs);
+            }
+        }
+        return logs;
+    }
+
+    private void collect(Connection conn, String sql, ParameterBinder binder, Timestamp bound,
+                         int limit, List<AuditLog> into) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = binder.bind(pstmt);
+            pstmt.setLong(index, tenantId());
+            pstmt.setTimestamp(index + 1, bound);
+            pstmt.setInt(index + 2, limit);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                into.add(mapResultSetToAuditLog(rs));
+            }
+        }
+    }
+
+    /**
+     * Load a single audit record including its full detail and error text.
+     * List finders only return a {@value #TEXT_PREVIEW_LENGTH}-character preview.
+     */
+    public Optional<AuditLog> findById(Long id) {
+        awaitQueuedWrites();
+        String sql = "SELECT " + DETAIL_COLUMNS + " FROM audit_logs WHERE id = ? AND tenant_id = ?";
+
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(mapResultSetToAuditLog(rs));
+            }
+            return Optional.empty();
         } catch (SQLException e) {
-            logger.error("Failed to find audit logs by resource", e);
-            throw new DataAccessException("Failed to find audit logs", e);
+            logger.error("Failed to find audit log by id", e);
+            throw new DataAccessException("Failed to find audit log", e);
         }
     }
-    
+
     private AuditLog mapResultSetToAuditLog(ResultSet rs) throws SQLException {
         AuditLog log = new AuditLog();
-        log.setId(rs.getLong("id"));
-        long userId = rs.getLong("user_id");
-        if (!rs.wasNull()) {
-            log.setUserId(userId);
-        }
-        log.setUsername(rs.getString("username"));
-        log.setAction(rs.getString("action"));
-        log.setResourceType(rs.getString("resource_type"));
-        log.setResourceId(rs.getString("resource_id"));
-        log.setDetail(rs.getString("detail"));
-        log.setSuccess(rs.getBoolean("success"));
-        log.setErrorMessage(rs.getString("error_message"));
-        log.setIpAddress(rs.getString("ip_address"));
-        log.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        mapInto(rs, log);
         return log;
     }
+
+    private void mapInto(ResultSet rs, AuditLog log) throws SQLException {
+        log.setId(rs.getLong(1));
+        long userId = rs.getLong(2);
+        log.setUserId(rs.wasNull() ? null : userId);
+        log.setUsername(rs.getString(3));
+        log.setAction(rs.getString(4));
+        log.setResourceType(rs.getString(5));
+        log.setResourceId(rs.getString(6));
+        log.setSuccess(rs.getBoolean(7));
+        log.setIpAddress(rs.getString(8));
+        log.setCreatedAt(rs.getTimestamp(9).toLocalDateTime());
+        log.setDetail(rs.getString(10));
+        log.setErrorMessage(rs.getString(11));
+        log.setTenantId(rs.getLong(12));
+    }
+
+    /**
+     * Binds a finder's filter parameters.
+     */
+    @FunctionalInterface
+    private interface ParameterBinder {
+        /**
+         * @return the next free parameter index
+         */
+        int bind(PreparedStatement pstmt) throws SQLException;
+    }
+
+    /**
+     * Receives streamed audit rows.
+     */
+    @FunctionalInterface
+    public interface AuditLogHandler {
+        void handle(AuditLog log) throws Exception;
+    }
 }
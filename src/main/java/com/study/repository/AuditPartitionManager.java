@@ -0,0 +1,238 @@
+package com.study.repository;
+
+import com.study.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Maintains monthly RANGE partitions on {@code audit_logs} (MySQL only).
+ * <p>
+ * Partitions are named {@code pYYYYMM} and bounded by
+ * {@code UNIX_TIMESTAMP(created_at)}; a trailing {@code pmax} catches anything
+ * beyond the last month created. Queries with a {@code created_at} range are
+ * pruned by MySQL to the matching months, and dropping a month is a metadata
+ * operation instead of a long DELETE.
+ */
+public class AuditPartitionManager {
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+    private static final String TABLE = "audit_logs";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DatabaseConnection dbConnection;
+
+    public AuditPartitionManager(DatabaseConnection dbConnection) {
+        this.dbConnection = dbConnection;
+    }
+
+    /**
+     * A month partition of the audit table.
+     */
+    public record Partition(String name, YearMonth month, long approximateRows) {
+    }
+
+    /**
+     * Native partitioning is only used on MySQL; other databases (H2 in tests)
+     * keep a plain table and fall back to batched deletes for retention.
+     */
+    public boolean isSupported() {
+        try (Connection conn = dbConnection.getConnection()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            return metaData.getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to detect database type", e);
+        }
+    }
+
+    /**
+     * Convert the table to monthly partitions if it is not partitioned yet, and
+     * make sure partitions exist for the next {@code monthsAhead} months.
+     * Converting rewrites the table, so a non-empty table is only converted
+     * when {@code migrateExisting} is set.
+     */
+    public void ensurePartitions(int monthsAhead, boolean migrateExisting) {
+        if (!isSupported()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        YearMonth last = current.plusMonths(monthsAhead);
+        List<Partition> partitions = listPartitions();
+        if (partitions.isEmpty()) {
+            createInitialPartitions(current, last, migrateExisting);
+            return;
+        }
+        YearMonth newest = partitions.get(partitions.size() - 1).month();
+        for (YearMonth month = newest.plusMonths(1); !month.isAfter(last); month = month.plusMonths(1)) {
+            splitMaxPartition(month);
+        }
+    }
+
+    /**
+     * Month partitions ordered oldest first ({@code pmax} excluded).
+     */
+    public List<Partition> listPartitions() {
+        String sql = """
+            SELECT partition_name, table_rows
+            FROM information_schema.partitions
+            WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL
+            ORDER BY partition_ordinal_position
+        """;
+        List<Partition> partitions = new ArrayList<>();
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, TABLE);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (MAX_PARTITION.equals(name)) {
+                    continue;
+                }
+                partitions.add(new Partition(name, YearMonth.parse(name, NAME_FORMAT), rs.getLong(2)));
+            }
+            return partitions;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to list audit partitions", e);
+        }
+    }
+
+    /**
+     * Drop a month partition. Only metadata is touched, so the table is not
+     * locked for the time it would take to delete the rows.
+     */
+    public void dropPartition(Partition partition) {
+        execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition.name());
+        logger.info("Dropped audit partition {}", partition.name());
+    }
+
+    /**
+     * Fallback retention for unpartitioned tables: delete in small batches so
+     * no single statement holds locks for long.
+     *
+     * @return number of rows deleted
+     */
+    public long deleteOlderThan(LocalDateTime cutoff, int batchSize) {
+        String sql = "DELETE FROM " + TABLE + " WHERE created_at < ? LIMIT ?";
+        long total = 0;
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int deleted;
+            do {
+                pstmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+                pstmt.setInt(2, batchSize);
+                deleted = pstmt.executeUpdate();
+                total += deleted;
+            } while (deleted == batchSize);
+            return total;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to purge audit logs", e);
+        }
+    }
+
+    private void createInitialPartitions(YearMonth current, YearMonth last, boolean migrateExisting) {
+        YearMonth first = oldestMonth().orElse(current);
+        long rows = countRows();
+        if (rows > 0 && !migrateExisting) {
+            logger.warn("audit_logs holds {} rows and is not partitioned; "
+                    + "start with -Drbac.audit.partition.migrate=true to convert it", rows);
+            return;
+        }
+        ensureCompositeKey();
+        StringBuilder ddl = new StringBuilder("ALTER TABLE ").append(TABLE)
+                .append(" PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) (");
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            ddl.append(partitionDefinition(month)).append(", ");
+        }
+        ddl.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN MAXVALUE)");
+        execute(ddl.toString());
+        logger.info("Partitioned audit_logs by month from {} to {}", first, last);
+    }
+
+    /**
+     * Tables created before partitioning keyed on {@code id} alone; MySQL
+     * requires the partitioning column in every unique key.
+     */
+    private void ensureCompositeKey() {
+        boolean hasCreatedAt = false;
+        try (Connection conn = dbConnection.getConnection();
+             ResultSet rs = conn.getMetaData().getPrimaryKeys(conn.getCatalog(), null, TABLE)) {
+            while (rs.next()) {
+                hasCreatedAt |= "created_at".equalsIgnoreCase(rs.getString("COLUMN_NAME"));
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read audit_logs primary key", e);
+        }
+        if (!hasCreatedAt) {
+            execute("ALTER TABLE " + TABLE
+                    + " MODIFY created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+                    + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)");
+        }
+    }
+
+    /**
+     * Carve the next month out of {@code pmax}. Because partitions are kept
+     * ahead of the clock, {@code pmax} is empty and this is instant.
+     */
+    private void splitMaxPartition(YearMonth month) {
+        execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                + partitionDefinition(month) + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+        logger.info("Added audit partition {}", month.format(NAME_FORMAT));
+    }
+
+    private String partitionDefinition(YearMonth month) {
+        String upperBound = month.plusMonths(1).atDay(1).atStartOfDay().format(BOUND_FORMAT);
+        return "PARTITION " + month.format(NAME_FORMAT)
+                + " VALUES LESS THAN (UNIX_TIMESTAMP('" + upperBound + "'))";
+    }
+
+    /**
+     * Month of the oldest audit row still in the table.
+     */
+    public Optional<YearMonth> oldestMonth() {
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(created_at) FROM " + TABLE)) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                return Optional.of(YearMonth.from(rs.getTimestamp(1).toLocalDateTime()));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to read oldest audit log", e);
+        }
+    }
+
+    private long countRows() {
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + TABLE)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to count audit logs", e);
+        }
+    }
+
+    private void execute(String ddl) {
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(ddl);
+        } catch (SQLException e) {
+            logger.error("Audit partition DDL failed: {}", ddl, e);
+            throw new DataAccessException("Audit partition maintenance failed", e);
+        }
+    }
+}
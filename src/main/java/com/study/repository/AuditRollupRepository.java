@@ -0,0 +1,177 @@
+package com.study.repository;
+
+import com.study.context.TenantContext;
+import com.study.domain.AuditLog;
+import com.study.exception.DataAccessException;
+import com.study.service.dto.AuditCountPoint;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Incremental per-minute/hour/day audit counts in {@code audit_rollups}.
+ * <p>
+ * Counts are added in the same transaction that inserts the audit rows, and
+ * only for rows the insert actually created, so a replayed batch is not
+ * counted twice. Counts are kept per tenant; dimensions are action, result,
+ * resource type and username, and a missing resource type or username is
+ * stored as an empty string.
+ */
+public class AuditRollupRepository extends BaseRepository {
+
+    public enum Granularity {
+        MINUTE("M", ChronoUnit.MINUTES),
+        HOUR("H", ChronoUnit.HOURS),
+        DAY("D", ChronoUnit.DAYS);
+
+        private final String code;
+        private final ChronoUnit unit;
+
+        Granularity(String code, ChronoUnit unit) {
+            this.code = code;
+            this.unit = unit;
+        }
+
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        public static Granularity parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public AuditRollupRepository(DatabaseConnection dbConnection) {
+        super(dbConnection);
+    }
+
+    /**
+     * Add freshly inserted audit rows to every granularity. Rows are grouped
+     * in memory first, so a batch costs one upsert per distinct bucket.
+     */
+    void accumulate(Connection conn, List<AuditLog> inserted) throws SQLException {
+        if (inserted.isEmpty()) {
+            return;
+        }
+        Map<Key, Long> counts = new HashMap<>();
+        for (AuditLog log : inserted) {
+            for (Granularity granularity : Granularity.values()) {
+                Key key = new Key(granularity,
+                        log.getTenantId() != null ? log.getTenantId() : TenantContext.DEFAULT_TENANT_ID,
+                        granularity.truncate(log.getCreatedAt()), log.getAction(),
+                        log.isSuccess(), orEmpty(log.getResourceType()), orEmpty(log.getUsername()));
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+        String sql = """
+            INSERT INTO audit_rollups
+            (granularity, tenant_id, bucket_start, action, success, resource_type, username, event_count)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE event_count = event_count + VALUES(event_count)
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Key, Long> entry : counts.entrySet()) {
+                Key key = entry.getKey();
+                pstmt.setString(1, key.granularity.code);
+                pstmt.setLong(2, key.tenantId);
+                pstmt.setTimestamp(3, Timestamp.valueOf(key.bucketStart));
+                pstmt.setString(4, key.action);
+                pstmt.setBoolean(5, key.success);
+                pstmt.setString(6, key.resourceType);
+                pstmt.setString(7, key.username);
+                pstmt.setLong(8, entry.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Count series of the current tenant for {@code from <= bucket < to},
+     * oldest bucket first. Null filters match everything; empty buckets are
+     * omitted.
+     */
+    public List<AuditCountPoint> findSeries(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                            String action, Boolean success, String resourceType,
+                                            String username) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT bucket_start, SUM(event_count) FROM audit_rollups
+            WHERE granularity = ? AND tenant_id = ? AND bucket_start >= ? AND bucket_start < ?
+        """);
+        List<Object> params = new ArrayList<>();
+        if (action != null) {
+            sql.append(" AND action = ?");
+            params.add(action);
+        }
+        if (success != null) {
+            sql.append(" AND success = ?");
+            params.add(success);
+        }
+        if (resourceType != null) {
+            sql.append(" AND resource_type = ?");
+            params.add(resourceType);
+        }
+        if (username != null) {
+            sql.append(" AND username = ?");
+            params.add(username);
+        }
+        sql.append(" GROUP BY bucket_start ORDER BY bucket_start");
+
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            pstmt.setString(1, granularity.code);
+            pstmt.setLong(2, tenantId());
+            pstmt.setTimestamp(3, Timestamp.valueOf(granularity.truncate(from)));
+            pstmt.setTimestamp(4, Timestamp.valueOf(to));
+            int index = 5;
+            for (Object param : params) {
+                pstmt.setObject(index++, param);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            List<AuditCountPoint> points = new ArrayList<>();
+            while (rs.next()) {
+                points.add(new AuditCountPoint(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2)));
+            }
+            return points;
+        } catch (SQLException e) {
+            logger.error("Failed to query audit rollups", e);
+            throw new DataAccessException("Failed to query audit rollups", e);
+        }
+    }
+
+    /**
+     * Drop buckets of one granularity older than {@code cutoff}.
+     *
+     * @return number of rows deleted
+     */
+    public int deleteOlderThan(Granularity granularity, LocalDateTime cutoff) {
+        String sql = "DELETE FROM audit_rollups WHERE granularity = ? AND bucket_start < ?";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, granularity.code);
+            pstmt.setTimestamp(2, Timestamp.valueOf(cutoff));
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to purge audit rollups", e);
+            throw new DataAccessException("Failed to purge audit rollups", e);
+        }
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private record Key(Granularity granularity, long tenantId, LocalDateTime bucketStart, String action,
+                       boolean success, String resourceType, String username) {
+    }
+}
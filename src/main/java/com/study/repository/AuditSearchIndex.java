@@ -0,0 +1,363 @@
+package com.study.repository;
+
+import com.study.domain.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over recent audit records: term to
+ * {@link PostingList} of audit ids.
+ * <p>
+ * Terms are {@code u:<userId>}, {@code a:<ACTION>}, {@code r:<resource type>},
+ * {@code f:} for failures and {@code t:<word>} for every word of the detail
+ * and error message. Records are added once they are committed, and the
+ * last {@code rbac.audit.search.days} days are loaded at startup. Until that
+ * load completes {@link #coveredFrom()} is null and searches go to SQL.
+ * <p>
+ * Audit ids are time-ordered, so a time range becomes an id range and whole
+ * posting blocks outside it are skipped; older blocks are pruned as the
+ * window moves. A record whose id does not carry its time (e.g. a
+ * pre-snowflake row) is kept out of the posting lists, in a side list
+ * ordered by created_at whose entries are matched one by one.
+ */
+public class AuditSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AuditSearchIndex.class);
+    private static final int MIN_WORD_LENGTH = 2;
+    private static final int MAX_WORD_LENGTH = 40;
+    private static final int MAX_WORDS_PER_RECORD = 64;
+    private static final int PRUNE_INTERVAL = 1 << 16;
+    private static final long MAX_CLOCK_SKEW_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long[] NONE = new long[0];
+
+    private static AuditSearchIndex instance;
+
+    private final ConcurrentSkipListMap<String, PostingList> terms = new ConcurrentSkipListMap<>();
+    /** Adds share the read side; pruning takes the write side to drop empty terms. */
+    private final ReadWriteLock pruneLock = new ReentrantReadWriteLock();
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final int windowDays;
+    private final AtomicBoolean bootstrapStarted = new AtomicBoolean();
+    private final AtomicLong additions = new AtomicLong();
+    private volatile LocalDateTime coveredFrom;
+    /** Records whose id timestamp disagrees with created_at, with their terms. */
+    private final ConcurrentSkipListMap<TimedId, Set<String>> unordered = new ConcurrentSkipListMap<>();
+
+    public AuditSearchIndex(int windowDays) {
+        this.windowDays = windowDays;
+    }
+
+    public static synchronized AuditSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new AuditSearchIndex(Integer.getInteger("rbac.audit.search.days", 7));
+        }
+        return instance;
+    }
+
+    /**
+     * Index a committed record. Only reads the record, so a reused instance
+     * may be passed.
+     */
+    public void add(AuditLog log) {
+        long id = log.getId();
+        Set<String> recordTerms = new HashSet<>();
+        if (log.getUserId() != null) {
+            recordTerms.add("u:" + log.getUserId());
+        }
+        recordTerms.add(actionTerm(log.getAction()));
+        if (log.getResourceType() != null) {
+            recordTerms.add(resourceTerm(log.getResourceType()));
+        }
+        if (!log.isSuccess()) {
+            recordTerms.add("f:");
+        }
+        List<String> words = tokenize(log.getDetail());
+        words.addAll(tokenize(log.getErrorMessage()));
+        for (int i = 0; i < words.size() && i < MAX_WORDS_PER_RECORD; i++) {
+            recordTerms.add("t:" + words.get(i));
+        }
+
+        long createdAt = toEpochMillis(log.getCreatedAt());
+        if (Math.abs(AuditIdGenerator.timestampOf(id) - createdAt) > MAX_CLOCK_SKEW_MILLIS) {
+            unordered.put(new TimedId(createdAt, id), recordTerms);
+            return;
+        }
+        pruneLock.readLock().lock();
+        try {
+            for (String term : recordTerms) {
+                terms.computeIfAbsent(term, t -> new PostingList()).add(id);
+            }
+        } finally {
+            pruneLock.readLock().unlock();
+        }
+        if (additions.incrementAndGet() % PRUNE_INTERVAL == 0) {
+            prune();
+        }
+    }
+
+    /**
+     * Load the last {@code rbac.audit.search.days} days in the background.
+     * Only the first call does anything.
+     */
+    public void bootstrap(AuditLogRepository repository) {
+        if (!bootstrapStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            LocalDateTime from = LocalDateTime.now().minusDays(windowDays);
+            long startedAt = System.nanoTime();
+            try {
+                long rows = repository.streamByTimeRange(from, LocalDateTime.now().plusMinutes(1), this::add);
+                coveredFrom = from;
+                logger.info("Audit search index loaded {} records, {} terms in {} ms",
+                        rows, terms.size(), (System.nanoTime() - startedAt) / 1_000_000);
+            } catch (RuntimeException e) {
+                logger.warn("Audit search index not loaded, searches will use SQL: {}", e.getMessage());
+            }
+        }, "audit-search-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Start of the period this index is complete for, or null if it cannot
+     * answer searches yet.
+     */
+    public LocalDateTime coveredFrom() {
+        return coveredFrom;
+    }
+
+    /**
+     * Ids that match every indexed predicate of {@code query}, oldest first.
+     * Lists are intersected smallest first, and each intersection narrows
+     * the id range the next list is read over; matching side-list records
+     * are merged in by their time. Returns null if the query has no
+     * predicate the index can answer (only time or {@code success=true}).
+     * Candidates still have to be checked against the database.
+     */
+    public long[] candidates(AuditSearchQuery query) {
+        List<Term> predicates = new ArrayList<>();
+        if (query.userId() != null) {
+            predicates.add(term("u:" + query.userId()));
+        }
+        if (query.actionPrefix() != null) {
+            String prefix = actionTerm(query.actionPrefix());
+            predicates.add(new Term(terms.subMap(prefix, prefix + Character.MAX_VALUE).values(),
+                    recordTerms -> recordTerms.stream().anyMatch(t -> t.startsWith(prefix))));
+        }
+        if (query.resourceType() != null) {
+            predicates.add(term(resourceTerm(query.resourceType())));
+        }
+        if (Boolean.FALSE.equals(query.success())) {
+            predicates.add(term("f:"));
+        }
+        for (String word : tokenize(query.text())) {
+            predicates.add(term("t:" + word));
+        }
+        if (predicates.isEmpty()) {
+            return null;
+        }
+        long fromMillis = query.from() != null ? toEpochMillis(query.from()) : Long.MIN_VALUE;
+        long toMillis = query.to() != null ? toEpochMillis(query.to()) : Long.MAX_VALUE;
+        return mergeByTime(orderedCandidates(predicates, fromMillis, toMillis),
+                unorderedCandidates(predicates, fromMillis, toMillis));
+    }
+
+    private static long[] orderedCandidates(List<Term> predicates, long fromMillis, long toMillis) {
+        long minId = fromMillis != Long.MIN_VALUE ? AuditIdGenerator.firstIdAt(fromMillis) : 0;
+        long maxId = toMillis != Long.MAX_VALUE ? AuditIdGenerator.firstIdAt(toMillis) - 1 : Long.MAX_VALUE;
+        List<Term> sorted = new ArrayList<>(predicates);
+        sorted.sort(Comparator.comparingLong(Term::size));
+        long[] result = null;
+        for (Term predicate : sorted) {
+            long[] ids = predicate.collect(minId, maxId);
+            result = result == null ? ids : intersect(result, ids);
+            if (result.length == 0) {
+                return NONE;
+            }
+            minId = result[0];
+            maxId = result[result.length - 1];
+        }
+        return result;
+    }
+
+    private List<TimedId> unorderedCandidates(List<Term> predicates, long fromMillis, long toMillis) {
+        if (unordered.isEmpty()) {
+            return List.of();
+        }
+        List<TimedId> matches = new ArrayList<>();
+        for (var entry : unordered.subMap(new TimedId(fromMillis, Long.MIN_VALUE),
+                new TimedId(toMillis, Long.MIN_VALUE)).entrySet()) {
+            if (predicates.stream().allMatch(predicate -> predicate.matches().test(entry.getValue()))) {
+                matches.add(entry.getKey());
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Interleave time-ordered ids with side-list records, both oldest first.
+     */
+    private static long[] mergeByTime(long[] ordered, List<TimedId> side) {
+        if (side.isEmpty()) {
+            return ordered;
+        }
+        long[] merged = new long[ordered.length + side.size()];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (j == side.size() || i < ordered.length
+                    && AuditIdGenerator.timestampOf(ordered[i]) <= side.get(j).millis()) {
+                merged[k] = ordered[i++];
+            } else {
+                merged[k] = side.get(j++).id();
+            }
+        }
+        return merged;
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    /**
+     * Lower-case words of letters and digits, in order of appearance.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_WORD_LENGTH && length <= MAX_WORD_LENGTH) {
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void prune() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(windowDays);
+        long cutoffMillis = toEpochMillis(cutoff);
+        long minId = AuditIdGenerator.firstIdAt(cutoffMillis);
+        unordered.headMap(new TimedId(cutoffMillis, Long.MIN_VALUE)).clear();
+        pruneLock.writeLock().lock();
+        try {
+            terms.values().removeIf(list -> list.pruneBelow(minId));
+        } finally {
+            pruneLock.writeLock().unlock();
+        }
+        if (coveredFrom != null && coveredFrom.isBefore(cutoff)) {
+            coveredFrom = cutoff;
+        }
+    }
+
+    private Term term(String key) {
+        PostingList list = terms.get(key);
+        return new Term(list != null ? List.of(list) : List.of(), recordTerms -> recordTerms.contains(key));
+    }
+
+    private static String actionTerm(String action) {
+        return "a:" + action.toUpperCase(Locale.ROOT);
+    }
+
+    private static String resourceTerm(String resourceType) {
+        return "r:" + resourceType.toLowerCase(Locale.ROOT);
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Sorted intersection; walks the shorter array and binary-searches the
+     * longer one from the last match onwards.
+     */
+    static long[] intersect(long[] a, long[] b) {
+        long[] small = a.length <= b.length ? a : b;
+        long[] large = small == a ? b : a;
+        long[] out = new long[small.length];
+        int count = 0;
+        int from = 0;
+        for (long id : small) {
+            int index = Arrays.binarySearch(large, from, large.length, id);
+            if (index >= 0) {
+                out[count++] = id;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+            if (from == large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    /**
+     * Side-list key: created_at in epoch milliseconds, then id.
+     */
+    private record TimedId(long millis, long id) implements Comparable<TimedId> {
+        @Override
+        public int compareTo(TimedId other) {
+            int byTime = Long.compare(millis, other.millis);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * One predicate: the union of one or more posting lists, and the same
+     * test for a side-list record's terms.
+     */
+    private record Term(Collection<PostingList> lists, Predicate<Set<String>> matches) {
+
+        long size() {
+            long size = 0;
+            for (PostingList list : lists) {
+                size += list.size();
+            }
+            return size;
+        }
+
+        long[] collect(long minId, long maxId) {
+            if (lists.size() == 1) {
+                return lists.iterator().next().collect(minId, maxId);
+            }
+            long[] union = NONE;
+            int count = 0;
+            for (PostingList list : lists) {
+                long[] ids = list.collect(minId, maxId);
+                if (union.length - count < ids.length) {
+                    union = Arrays.copyOf(union, count + ids.length);
+                }
+                System.arraycopy(ids, 0, union, count, ids.length);
+                count += ids.length;
+            }
+            return PostingList.sortDistinct(union, count);
+        }
+    }
+}
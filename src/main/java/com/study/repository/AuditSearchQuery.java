@@ -0,0 +1,13 @@
+package com.study.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Combined audit search. Null fields match anything; all given fields must
+ * match. {@code actionPrefix} matches the start of the action, {@code text}
+ * is a list of words that must all appear in the detail or error message,
+ * and the time range is {@code from <= created_at < to}.
+ */
+public record AuditSearchQuery(Long userId, String actionPrefix, String resourceType, Boolean success,
+                               LocalDateTime from, LocalDateTime to, String text) {
+}
@@ -0,0 +1,570 @@
+package com.study.repository;
+
+import com.study.context.TenantContext;
+import com.study.domain.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Durable queue in front of {@code audit_logs}; every audit record goes
+ * through it.
+ * <p>
+ * {@link #append(AuditLog)} only enqueues, so request threads never wait on
+ * disk or the database unless the queue is full. A writer thread appends
+ * queued records to segment files ({@code segment-N.wal}) and fsyncs once per
+ * batch, retrying a failed write until it succeeds, then wakes the drainer
+ * thread, which replays segments into {@code audit_logs} through a
+ * {@link BatchWriter}, backing off while the database stays unreachable, and
+ * deletes a segment once it is sealed and fully replayed. Records carry their
+ * final id, so a segment replayed twice (for example after a crash) inserts
+ * nothing new. Neither thread runs before {@link #start}.
+ * <p>
+ * Record layout: {@code int length, int crc32, payload}.
+ */
+public class AuditWriteAheadLog implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AuditWriteAheadLog.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int RECORD_HEADER = 8;
+    private static final int WRITE_BATCH = 512;
+    private static final int REPLAY_BATCH = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static AuditWriteAheadLog instance;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long drainIntervalMillis;
+    private final long appendTimeoutMillis;
+    private final BlockingQueue<AuditLog> queue;
+    private final Object segmentLock = new Object();
+
+    /** Records accepted by {@link #append} in this run. */
+    private final AtomicLong appended = new AtomicLong();
+    /** Records of this run that reached the database, or were lost on a write error or to corruption. */
+    private final AtomicLong settled = new AtomicLong();
+    /** Segments left by a previous run; the backlog is not empty until they are replayed. */
+    private final long firstSegmentOfRun;
+    private volatile boolean recovering;
+    /** Notified whenever {@link #settled} grows or recovery ends. */
+    private final Object progress = new Object();
+    /** Released by the writer after each durable batch so the drainer replays it without waiting out its interval. */
+    private final Semaphore written = new Semaphore(0);
+
+    // guarded by segmentLock
+    private long activeSegment;
+    private FileChannel activeChannel;
+    private long durableSize;
+
+    // drainer position, only touched by the drainer thread
+    private long replaySegment;
+    private long replayOffset;
+
+    private volatile BatchWriter batchWriter;
+    private volatile boolean running = true;
+    /** Set while the drainer backs off after a failed replay. */
+    private volatile boolean failing;
+    private Thread writerThread;
+    private Thread drainerThread;
+
+    /**
+     * Inserts a batch of replayed records; must ignore ids already present.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(List<AuditLog> batch) throws SQLException;
+    }
+
+    AuditWriteAheadLog(Path directory, long segmentBytes, int queueCapacity, long drainIntervalMillis,
+                       long appendTimeoutMillis) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.drainIntervalMillis = drainIntervalMillis;
+        this.appendTimeoutMillis = appendTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        try {
+            Files.createDirectories(directory);
+            List<Long> existing = listSegments();
+            this.recovering = !existing.isEmpty();
+            this.firstSegmentOfRun = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+            openSegment(firstSegmentOfRun);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open audit write-ahead log in " + directory, e);
+        }
+        if (recovering) {
+            logger.warn("Found {} unreplayed audit segment(s) in {}", firstSegmentOfRun - 1, directory);
+        }
+    }
+
+    public static synchronized AuditWriteAheadLog getInstance() {
+        if (instance == null) {
+            instance = new AuditWriteAheadLog(
+                    Paths.get(System.getProperty("rbac.audit.wal.dir", "data/audit-wal")),
+                    Long.getLong("rbac.audit.wal.segmentBytes", 8L * 1024 * 1024),
+                    Integer.getInteger("rbac.audit.wal.queueCapacity", 10_000),
+                    Long.getLong("rbac.audit.wal.drainIntervalMillis", 500),
+                    Long.getLong("rbac.audit.wal.appendTimeoutMillis", 5_000));
+            AuditWriteAheadLog wal = instance;
+            Runtime.getRuntime().addShutdownHook(new Thread(wal::close, "audit-wal-shutdown"));
+        }
+        return instance;
+    }
+
+    /**
+     * Start the writer and drainer threads, replaying into the database
+     * through {@code writer}. Calling it again only replaces the writer, so
+     * a repository built on a new connection takes over from the old one.
+     */
+    public synchronized void start(BatchWriter writer) {
+        this.batchWriter = writer;
+        if (writerThread != null || !running) {
+            return;
+        }
+        writerThread = new Thread(this::writeLoop, "audit-wal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        drainerThread = new Thread(this::drainLoop, "audit-wal-drainer");
+        drainerThread.setDaemon(true);
+        drainerThread.start();
+    }
+
+    /**
+     * Queue a record for the log. Blocks while the queue is full, for
+     * instance because the disk is failing, for up to the append timeout.
+     *
+     * @return false if the log is closed or stayed full, and the record was
+     *         not accepted
+     */
+    public boolean append(AuditLog log) {
+        if (!running) {
+            return false;
+        }
+        appended.incrementAndGet();
+        try {
+            if (queue.offer(log, appendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appended.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * Wait up to {@code timeoutMillis} for every record appended so far to
+     * reach the database, so a reader sees the events it just caused.
+     * Returns at once when nothing is pending, and without waiting when the
+     * drainer is not running or is backing off from a failing database.
+     *
+     * @return false if records appended so far are still pending
+     */
+    public boolean awaitSettled(long timeoutMillis) {
+        long target = appended.get();
+        if (settled.get() >= target) {
+            return true;
+        }
+        if (drainerThread == null || !running || failing) {
+            return false;
+        }
+        return awaitProgress(() -> settled.get() >= target, timeoutMillis);
+    }
+
+    /**
+     * Wait up to {@code timeoutMillis} until no record is queued at all,
+     * including records left by a previous run.
+     *
+     * @return false if the wait timed out
+     */
+    public boolean awaitDrained(long timeoutMillis) {
+        return awaitProgress(() -> !recovering && appended.get() == settled.get(), timeoutMillis);
+    }
+
+    private boolean awaitProgress(BooleanSupplier done, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (progress) {
+            while (!done.getAsBoolean()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    progress.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            if (writerThread != null) {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (drainerThread != null) {
+            drainerThread.interrupt();
+            try {
+                // a replay still in flight must not run against the next owner of the directory
+                drainerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (segmentLock) {
+            try {
+                activeChannel.close();
+            } catch (IOException e) {
+                logger.error("Failed to close audit write-ahead log", e);
+            }
+        }
+    }
+
+    // ---- writer ----
+
+    private void writeLoop() {
+        List<AuditLog> batch = new ArrayList<>(WRITE_BATCH);
+        // Polled rather than interrupted on close: an interrupt during force()
+        // would close the channel under the writer.
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, WRITE_BATCH - 1);
+                writeDurably(batch);
+                written.release();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Write {@code batch}, retrying with back-off until it is on disk. The
+     * records stay queued in memory meanwhile, so a full queue holds back
+     * {@link #append} instead of losing anything.
+     */
+    private void writeDurably(List<AuditLog> batch) throws InterruptedException {
+        long backoff = drainIntervalMillis;
+        while (true) {
+            try {
+                writeBatch(batch);
+                return;
+            } catch (IOException e) {
+                if (!running) {
+                    logger.error("Lost {} audit records: write-ahead log closed while its writes were failing",
+                            batch.size(), e);
+                    return;
+                }
+                logger.error("Audit write-ahead log write failed, retrying {} records in {} ms",
+                        batch.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                rollSegment();
+            }
+        }
+    }
+
+    /**
+     * Cut the active segment back to its last durable size and continue in a
+     * new one, so a retried batch never follows a torn record.
+     */
+    private void rollSegment() {
+        synchronized (segmentLock) {
+            try {
+                activeChannel.truncate(durableSize);
+                activeChannel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close audit segment {}: {}", activeSegment, e.getMessage());
+            }
+            try {
+                openSegment(activeSegment + 1);
+            } catch (IOException e) {
+                logger.warn("Failed to open audit segment {}: {}", activeSegment + 1, e.getMessage());
+            }
+        }
+    }
+
+    private void writeBatch(List<AuditLog> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 256);
+        for (AuditLog log : batch) {
+            byte[] payload = encode(log);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        }
+        synchronized (segmentLock) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                activeChannel.write(buffer);
+            }
+            // one fsync for the whole batch
+            activeChannel.force(false);
+            durableSize = activeChannel.position();
+            if (durableSize >= segmentBytes) {
+                // the batch is durable; a failed rollover is left to the next write
+                try {
+                    activeChannel.close();
+                    openSegment(activeSegment + 1);
+                } catch (IOException e) {
+                    logger.warn("Failed to roll audit segment {}: {}", activeSegment, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        activeChannel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSegment = number;
+        durableSize = activeChannel.size();
+    }
+
+    // ---- drainer ----
+
+    private void drainLoop() {
+        long backoff = drainIntervalMillis;
+        while (running) {
+            try {
+                drainOnce();
+                backoff = drainIntervalMillis;
+            } catch (SQLException e) {
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                logger.warn("Audit database still unavailable, retrying replay in {} ms: {}", backoff, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                logger.error("Failed to replay audit write-ahead log, retrying in {} ms", backoff, e);
+            }
+            failing = backoff > drainIntervalMillis;
+            try {
+                if (backoff > drainIntervalMillis) {
+                    // the database is failing: new records must not cut the back-off short
+                    Thread.sleep(backoff);
+                } else if (written.tryAcquire(backoff, TimeUnit.MILLISECONDS)) {
+                    written.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void drainOnce() throws IOException, SQLException {
+        for (long number : listSegments()) {
+            if (number != replaySegment) {
+                replaySegment = number;
+                replayOffset = 0;
+            }
+            long limit;
+            boolean sealed;
+            synchronized (segmentLock) {
+                sealed = number != activeSegment;
+                limit = sealed ? Files.size(segmentPath(number)) : durableSize;
+            }
+            replay(number, limit);
+            if (!sealed) {
+                break;
+            }
+            Files.deleteIfExists(segmentPath(number));
+        }
+        if (recovering && listSegments().stream().allMatch(n -> n >= firstSegmentOfRun)) {
+            recovering = false;
+            logger.info("Audit records left by the previous run have been replayed");
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Replay the current segment from {@link #replayOffset} up to
+     * {@code limit}, advancing the offset after every committed batch so a
+     * failure part-way through does not repeat finished work.
+     */
+    private void replay(long number, long limit) throws IOException, SQLException {
+        if (replayOffset >= limit) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.allocate(Math.toIntExact(limit - replayOffset));
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+            while (data.hasRemaining() && channel.read(data, replayOffset + data.position()) >= 0) {
+                // keep reading until the durable limit
+            }
+        }
+        data.flip();
+        long base = replayOffset;
+        List<AuditLog> batch = new ArrayList<>(REPLAY_BATCH);
+        int skipped = 0;
+        while (data.remaining() >= RECORD_HEADER) {
+            int start = data.position();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                // torn write from a crash: nothing after it was acknowledged as durable
+                logger.error("Truncated audit record in segment {} at offset {}", number, base + start);
+                data.position(data.limit());
+                break;
+            }
+            byte[] payload = new byte[length];
+            data.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                logger.error("Skipping corrupt audit record in segment {} at offset {}", number, base + start);
+                skipped++;
+            } else {
+                batch.add(decode(payload));
+            }
+            if (batch.size() == REPLAY_BATCH) {
+                commit(number, batch, skipped, base + data.position());
+                skipped = 0;
+            }
+        }
+        commit(number, batch, skipped, base + data.limit());
+    }
+
+    /**
+     * Write {@code batch} and move the replay position to {@code offset};
+     * records skipped as corrupt since the last commit are settled with it.
+     */
+    private void commit(long segment, List<AuditLog> batch, int skipped, long offset) throws SQLException {
+        if (!batch.isEmpty()) {
+            batchWriter.write(batch);
+        }
+        if (segment >= firstSegmentOfRun) {
+            settle(batch.size() + skipped);
+        }
+        batch.clear();
+        replayOffset = offset;
+    }
+
+    private void settle(int records) {
+        if (records > 0) {
+            settled.addAndGet(records);
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    // ---- record encoding ----
+
+    private static byte[] encode(AuditLog log) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(log.getId());
+        out.writeLong(log.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+        out.writeLong(log.getUserId() != null ? log.getUserId() : -1L);
+        out.writeBoolean(log.isSuccess());
+        writeString(out, log.getUsername());
+        writeString(out, log.getAction());
+        writeString(out, log.getResourceType());
+        writeString(out, log.getResourceId());
+        writeString(out, log.getDetail());
+        writeString(out, log.getErrorMessage());
+        writeString(out, log.getIpAddress());
+        out.writeLong(log.getTenantId() != null ? log.getTenantId() : TenantContext.DEFAULT_TENANT_ID);
+        return bytes.toByteArray();
+    }
+
+    private static AuditLog decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        AuditLog log = new AuditLog();
+        log.setId(in.getLong());
+        long millis = in.getLong();
+        log.setCreatedAt(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC));
+        long userId = in.getLong();
+        log.setUserId(userId >= 0 ? userId : null);
+        log.setSuccess(in.get() != 0);
+        log.setUsername(readString(in));
+        log.setAction(readString(in));
+        log.setResourceType(readString(in));
+        log.setResourceId(readString(in));
+        log.setDetail(readString(in));
+        log.setErrorMessage(readString(in));
+        log.setIpAddress(readString(in));
+        // Records spilled before tenants existed end here and belong to the default tenant.
+        log.setTenantId(in.remaining() >= Long.BYTES ? in.getLong() : TenantContext.DEFAULT_TENANT_ID);
+        return log;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -1,16 +1,29 @@
 package com.study.repository;
 
+import com.study.context.TenantContext;
 import com.study.exception.DataAccessException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
 
 /**
  * Base repository with transaction support
  */
 public abstract class BaseRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+    /**
+     * Keeps only {@code user_roles ur} rows in effect; bind with
+     * {@link #bindActiveAt}. The time comes from the application clock, the
+     * same one the expiry scheduler runs on.
+     */
+    protected static final String ACTIVE_ASSIGNMENT =
+            "(ur.valid_from IS NULL OR ur.valid_from <= ?) AND (ur.valid_until IS NULL OR ur.valid_until > ?)";
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected final Logger auditLogger = LoggerFactory.getLogger("com.study.audit");
     protected final DatabaseConnection dbConnection;
@@ -20,7 +33,9 @@ public abstract class BaseRepository {
     }
     
     /**
-     * Execute operation within a transaction
+     * Execute operation within a transaction. Any failure rolls it back and
+     * is rethrown as a {@link DataAccessException} carrying the cause's
+     * message, e.g. that of a {@link com.study.exception.ValidationException}.
      */
     public <T> T executeInTransaction(TransactionCallback<T> callback) {
         Connection conn = null;
@@ -40,7 +55,10 @@ public abstract class BaseRepository {
                     logger.error("Failed to rollback transaction", rollbackEx);
                 }
             }
-            throw new DataAccessException("Transaction failed", e);
+            if (e instanceof DataAccessException dataAccess) {
+                throw dataAccess;
+            }
+            throw new DataAccessException("Transaction failed: " + e.getMessage(), e);
         } finally {
             if (conn != null) {
                 try {
@@ -53,6 +71,50 @@ public abstract class BaseRepository {
         }
     }
     
+    /**
+     * Make a forward-only statement stream rows instead of buffering the whole
+     * result. MySQL Connector/J streams row by row with {@link Integer#MIN_VALUE};
+     * other drivers take a regular fetch size.
+     */
+    protected void enableStreaming(Connection conn, PreparedStatement pstmt) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        if (product != null && product.toLowerCase(Locale.ROOT).contains("mysql")) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            pstmt.setFetchSize(STREAM_FETCH_SIZE);
+        }
+    }
+
+    /**
+     * Tenant that qualifies every query of this call; see {@link TenantContext}.
+     */
+    protected static long tenantId() {
+        return TenantContext.current();
+    }
+
+    /**
+     * Access index of the current tenant; repositories update it after each
+     * committed change.
+     */
+    protected static ResourceAccessIndex accessIndex() {
+        return ResourceAccessIndex.current();
+    }
+
+    protected static GroupMembershipIndex groupIndex() {
+        return GroupMembershipIndex.current();
+    }
+
+    /**
+     * Bind both parameters of {@link #ACTIVE_ASSIGNMENT} starting at
+     * {@code index}; returns the next free index.
+     */
+    protected static int bindActiveAt(PreparedStatement pstmt, int index, LocalDateTime now) throws SQLException {
+        Timestamp at = Timestamp.valueOf(now);
+        pstmt.setTimestamp(index, at);
+        pstmt.setTimestamp(index + 1, at);
+        return index + 2;
+    }
+
     @FunctionalInterface
     public interface TransactionCallback<T> {
         T doInTransaction(Connection conn) throws Exception;
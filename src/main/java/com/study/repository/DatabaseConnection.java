@@ -1,22 +1,32 @@
 package com.study.repository;
 
 import com.study.config.PermissionCodes;
+import com.study.context.TenantContext;
 import com.study.domain.Permission;
 import com.study.domain.Role;
+import com.study.domain.Tenant;
 import com.study.domain.User;
 import com.study.security.PasswordEncoder;
-import com.study.security.Sha256PasswordEncoder;
+import com.study.security.Pbkdf2PasswordEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Database connection manager using MySQL
+ * Database connection manager using MySQL.
+ * Writes and transactions always use the primary ({@code rbac.db.url}); read-only
+ * repository calls go through {@link #getReadConnection()}, which is routed to
+ * the replicas listed in {@code rbac.db.replica.urls} when any are configured.
  */
 public class DatabaseConnection {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConnection.class);
@@ -26,16 +36,44 @@ public class DatabaseConnection {
             + "&serverTimezone=Asia/Shanghai";
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = "123456";
+    public static final String DEFAULT_TENANT_CODE = "default";
+    private static final long DEFAULT_STICKY_MILLIS = 2000;
+    private static final long DEFAULT_HEALTH_CHECK_MILLIS = 5000;
     
     private static DatabaseConnection instance;
     private final String dbUrl;
+    private final ReplicaRouter replicaRouter;
+    private final long stickyNanos;
+    /**
+     * Last time the current thread touched the primary. One CLI session runs on
+     * one thread, so this is the session's read-your-writes marker.
+     */
+    private final ThreadLocal<Long> lastPrimaryAccess = new ThreadLocal<>();
     
-    private final PasswordEncoder passwordEncoder = new Sha256PasswordEncoder();
 
     private DatabaseConnection() {
         this.dbUrl = System.getProperty("rbac.db.url", DEFAULT_DB_URL);
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.getLong("rbac.db.replica.stickyMillis", DEFAULT_STICKY_MILLIS));
+        this.replicaRouter = createReplicaRouter();
         initializeSchema();
     }
+
+    private static ReplicaRouter createReplicaRouter() {
+        String urls = System.getProperty("rbac.db.replica.urls", "");
+        List<String> replicaUrls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        if (replicaUrls.isEmpty()) {
+            return null;
+        }
+        ReplicaRouter.Strategy strategy = ReplicaRouter.Strategy.parse(
+                System.getProperty("rbac.db.replica.strategy"));
+        logger.info("Read replicas enabled: {} ({})", replicaUrls.size(), strategy);
+        return new ReplicaRouter(replicaUrls, strategy, DB_USER, DB_PASSWORD,
+                Long.getLong("rbac.db.replica.healthCheckMillis", DEFAULT_HEALTH_CHECK_MILLIS));
+    }
     
     public static synchronized DatabaseConnection getInstance() {
         if (instance == null) {
@@ -45,12 +83,43 @@ public class DatabaseConnection {
     }
 
     public static synchronized void reset() {
+        if (instance != null && instance.replicaRouter != null) {
+            instance.replicaRouter.close();
+        }
         instance = null;
     }
     
+    /**
+     * Connection to the primary. Use for writes, transactions and reads that
+     * must see the latest committed state.
+     */
     public Connection getConnection() throws SQLException {
+        if (replicaRouter != null) {
+            lastPrimaryAccess.set(System.nanoTime());
+        }
         return DriverManager.getConnection(dbUrl, DB_USER, DB_PASSWORD);
     }
+
+    /**
+     * Connection for a read-only call. Served by a replica unless none is
+     * healthy or the calling thread used the primary within the sticky window,
+     * so a session always reads its own writes.
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicaRouter == null || withinStickyWindow()) {
+            return DriverManager.getConnection(dbUrl, DB_USER, DB_PASSWORD);
+        }
+        Connection replica = replicaRouter.getConnection();
+        if (replica != null) {
+            return replica;
+        }
+        return DriverManager.getConnection(dbUrl, DB_USER, DB_PASSWORD);
+    }
+
+    private boolean withinStickyWindow() {
+        Long last = lastPrimaryAccess.get();
+        return last != null && System.nanoTime() - last < stickyNanos;
+    }
     
     private void initializeSchema() {
         try (Connection conn = getConnection();
@@ -66,54 +135,90 @@ public class DatabaseConnection {
     }
     
     private void createTables(Statement stmt) throws SQLException {
+        // Tenants; every other table is partitioned by tenant_id and databases
+        // created before tenants existed belong to the default one
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS tenants (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                code VARCHAR(50) UNIQUE NOT NULL,
+                name VARCHAR(100) NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+        """);
+        stmt.executeUpdate("INSERT IGNORE INTO tenants (id, code, name) VALUES ("
+                + TenantContext.DEFAULT_TENANT_ID + ", '" + DEFAULT_TENANT_CODE + "', 'Default tenant')");
+
         // Users table
         stmt.execute("""
             CREATE TABLE IF NOT EXISTS users (
                 id BIGINT AUTO_INCREMENT PRIMARY KEY,
-                username VARCHAR(50) UNIQUE NOT NULL,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
+                username VARCHAR(50) NOT NULL,
                 password_hash VARCHAR(255) NOT NULL,
                 salt VARCHAR(255) NOT NULL,
                 enabled BOOLEAN DEFAULT TRUE,
                 email VARCHAR(100),
                 phone VARCHAR(20),
                 real_name VARCHAR(100),
+                locked_until DATETIME NULL,
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                UNIQUE KEY uq_users_tenant_username (tenant_id, username)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
         """);
+        ensureColumn(stmt, "users", "locked_until", "DATETIME NULL AFTER real_name");
+        partitionByTenant(stmt, "users", "uq_users_tenant_username", "username");
         
         // Roles table
         stmt.execute("""
             CREATE TABLE IF NOT EXISTS roles (
                 id BIGINT AUTO_INCREMENT PRIMARY KEY,
-                code VARCHAR(50) UNIQUE NOT NULL,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
+                code VARCHAR(50) NOT NULL,
                 name VARCHAR(100) NOT NULL,
                 description VARCHAR(255),
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                UNIQUE KEY uq_roles_tenant_code (tenant_id, code)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
         """);
+        partitionByTenant(stmt, "roles", "uq_roles_tenant_code", "code");
         
         // Resources table
         stmt.execute("""
             CREATE TABLE IF NOT EXISTS resources (
                 id BIGINT AUTO_INCREMENT PRIMARY KEY,
-                code VARCHAR(50) UNIQUE NOT NULL,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
+                code VARCHAR(50) NOT NULL,
                 name VARCHAR(100) NOT NULL,
                 type VARCHAR(50) NOT NULL,
                 url VARCHAR(255),
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                parent_id BIGINT NULL,
+                path VARCHAR(760) CHARACTER SET ascii NOT NULL DEFAULT '',
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                UNIQUE KEY uq_resources_tenant_code (tenant_id, code),
+                KEY idx_resources_parent (parent_id),
+                KEY idx_resources_path (path)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
         """);
+        partitionByTenant(stmt, "resources", "uq_resources_tenant_code", "code");
+        ensureColumn(stmt, "resources", "parent_id", "BIGINT NULL AFTER url");
+        ensureColumn(stmt, "resources", "path", "VARCHAR(760) CHARACTER SET ascii NOT NULL DEFAULT '' AFTER parent_id");
+        ensureIndex(stmt, "resources", "idx_resources_parent", "parent_id");
+        ensureIndex(stmt, "resources", "idx_resources_path", "path");
+        // Resources created before the hierarchy are roots.
+        stmt.executeUpdate("UPDATE resources SET path = CONCAT('/', id, '/') WHERE path = ''");
         
         // Permissions table
         stmt.execute("""
             CREATE TABLE IF NOT EXISTS permissions (
                 id BIGINT AUTO_INCREMENT PRIMARY KEY,
-                code VARCHAR(50) UNIQUE NOT NULL,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
+                code VARCHAR(50) NOT NULL,
                 name VARCHAR(100) NOT NULL,
                 description VARCHAR(255),
                 resource_id BIGINT,
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                UNIQUE KEY uq_permissions_tenant_code (tenant_id, code),
                 FOREIGN KEY (resource_id) REFERENCES resources(id)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
         """);
@@ -123,13 +228,58 @@ public class DatabaseConnection {
             CREATE TABLE IF NOT EXISTS user_roles (
                 user_id BIGINT NOT NULL,
                 role_id BIGINT NOT NULL,
+                valid_from DATETIME NULL,
+                valid_until DATETIME NULL,
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                 PRIMARY KEY (user_id, role_id),
+                KEY idx_user_roles_valid_until (valid_until),
                 FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
                 FOREIGN KEY (role_id) REFERENCES roles(id) ON DELETE CASCADE
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
         """);
+        ensureColumn(stmt, "user_roles", "valid_from", "DATETIME NULL AFTER role_id");
+        ensureColumn(stmt, "user_roles", "valid_until", "DATETIME NULL AFTER valid_from");
+        ensureIndex(stmt, "user_roles", "idx_user_roles_valid_until", "valid_until");
         
+        // Groups (org units); roles held by a group apply to members of it and of its subgroups
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS user_groups (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
+                code VARCHAR(50) NOT NULL,
+                name VARCHAR(100) NOT NULL,
+                description VARCHAR(255),
+                parent_id BIGINT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                UNIQUE KEY uq_user_groups_tenant_code (tenant_id, code),
+                KEY idx_user_groups_parent (parent_id)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+        """);
+        partitionByTenant(stmt, "user_groups", "uq_user_groups_tenant_code", "code");
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS group_members (
+                group_id BIGINT NOT NULL,
+                user_id BIGINT NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (group_id, user_id),
+                KEY idx_group_members_user (user_id),
+                FOREIGN KEY (group_id) REFERENCES user_groups(id) ON DELETE CASCADE,
+                FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+        """);
+
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS group_roles (
+                group_id BIGINT NOT NULL,
+                role_id BIGINT NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (group_id, role_id),
+                FOREIGN KEY (group_id) REFERENCES user_groups(id) ON DELETE CASCADE,
+                FOREIGN KEY (role_id) REFERENCES roles(id) ON DELETE CASCADE
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+        """);
+
         // Role-Permission mapping
         stmt.execute("""
             CREATE TABLE IF NOT EXISTS role_permissions (
@@ -152,15 +302,34 @@ public class DatabaseConnection {
                 scope_key VARCHAR(100) NOT NULL DEFAULT '__GLOBAL__',
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                 FOREIGN KEY (role_id) REFERENCES roles(id) ON DELETE CASCADE,
-                FOREIGN KEY (permission_code) REFERENCES permissions(code) ON DELETE CASCADE,
                 UNIQUE KEY uq_role_permission_scope (role_id, permission_code, resource_type, scope_key)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
         """);
+        // Permission codes are only unique per tenant now, so they can no longer
+        // be a foreign key; PermissionRepository.delete removes the scopes itself.
+        dropForeignKey(stmt, "role_permission_scopes", "permissions");
+        partitionByTenant(stmt, "permissions", "uq_permissions_tenant_code", "code");
+
+        // Separation-of-duties constraints: no user may hold both permission
+        // codes; stored with permission_a < permission_b
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS sod_constraints (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
+                permission_a VARCHAR(50) NOT NULL,
+                permission_b VARCHAR(50) NOT NULL,
+                description VARCHAR(255),
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                UNIQUE KEY uq_sod_tenant_pair (tenant_id, permission_a, permission_b)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+        """);
         
-        // Audit logs
+        // Audit logs: created_at is part of the key so the table can be
+        // range-partitioned by month (see AuditPartitionManager)
         stmt.execute("""
             CREATE TABLE IF NOT EXISTS audit_logs (
-                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                id BIGINT AUTO_INCREMENT,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
                 user_id BIGINT,
                 username VARCHAR(50),
                 action VARCHAR(100) NOT NULL,
@@ -170,39 +339,186 @@ public class DatabaseConnection {
                 success BOOLEAN NOT NULL,
                 error_message TEXT,
                 ip_address VARCHAR(50),
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (id, created_at),
+                KEY idx_audit_created (created_at),
+                KEY idx_audit_tenant_created (tenant_id, created_at),
+                KEY idx_audit_user_created (user_id, created_at),
+                KEY idx_audit_action_created (action, created_at)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
         """);
+        ensureColumn(stmt, "audit_logs", "tenant_id", "BIGINT NOT NULL DEFAULT 1 AFTER id");
+        ensureIndex(stmt, "audit_logs", "idx_audit_tenant_created", "tenant_id, created_at");
+
+        // Audit rollups: event counts per tenant and minute/hour/day bucket (granularity M/H/D)
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS audit_rollups (
+                granularity CHAR(1) NOT NULL,
+                tenant_id BIGINT NOT NULL DEFAULT 1,
+                bucket_start DATETIME NOT NULL,
+                action VARCHAR(100) NOT NULL,
+                success BOOLEAN NOT NULL,
+                resource_type VARCHAR(50) NOT NULL DEFAULT '',
+                username VARCHAR(50) NOT NULL DEFAULT '',
+                event_count BIGINT NOT NULL,
+                PRIMARY KEY (granularity, tenant_id, action, bucket_start, success, resource_type, username),
+                KEY idx_rollup_bucket (granularity, bucket_start)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+        """);
+        if (ensureColumn(stmt, "audit_rollups", "tenant_id", "BIGINT NOT NULL DEFAULT 1 AFTER granularity")) {
+            stmt.execute("ALTER TABLE audit_rollups DROP PRIMARY KEY, ADD PRIMARY KEY "
+                    + "(granularity, tenant_id, action, bucket_start, success, resource_type, username)");
+        }
     }
     
     /**
-     * Initialize default roles/permissions/admin user.
+     * Add a column that newer versions put in CREATE TABLE to a table created
+     * by an older version.
+     *
+     * @return true if the column was added
+     */
+    private boolean ensureColumn(Statement stmt, String table, String column, String definition)
+            throws SQLException {
+        try (ResultSet rs = stmt.getConnection().getMetaData()
+                .getColumns(stmt.getConnection().getCatalog(), null, table, column)) {
+            if (rs.next()) {
+                return false;
+            }
+        }
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        logger.info("Added column {}.{}", table, column);
+        return true;
+    }
+
+    /**
+     * Add an index that newer versions put in CREATE TABLE to a table created
+     * by an older version.
+     */
+    private void ensureIndex(Statement stmt, String table, String index, String columns) throws SQLException {
+        if (hasIndex(stmt, table, index)) {
+            return;
+        }
+        stmt.execute("ALTER TABLE " + table + " ADD INDEX " + index + " (" + columns + ")");
+        logger.info("Added index {}.{}", table, index);
+    }
+
+    /**
+     * Give a table from before tenants its {@code tenant_id} column and swap
+     * the global unique key on {@code column} (which MySQL named after the
+     * column) for the tenant-leading {@code uniqueKey}.
+     */
+    private void partitionByTenant(Statement stmt, String table, String uniqueKey, String column)
+            throws SQLException {
+        ensureColumn(stmt, table, "tenant_id", "BIGINT NOT NULL DEFAULT 1 AFTER id");
+        if (!hasIndex(stmt, table, uniqueKey)) {
+            stmt.execute("ALTER TABLE " + table + " ADD UNIQUE KEY " + uniqueKey + " (tenant_id, " + column + ")");
+            logger.info("Added index {}.{}", table, uniqueKey);
+        }
+        if (hasIndex(stmt, table, column)) {
+            stmt.execute("ALTER TABLE " + table + " DROP INDEX " + column);
+            logger.info("Dropped global unique key {}.{}", table, column);
+        }
+    }
+
+    private boolean hasIndex(Statement stmt, String table, String index) throws SQLException {
+        try (ResultSet rs = stmt.getConnection().getMetaData()
+                .getIndexInfo(stmt.getConnection().getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop the foreign keys from {@code table} to {@code referencedTable},
+     * if any.
+     */
+    private void dropForeignKey(Statement stmt, String table, String referencedTable) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (ResultSet rs = stmt.getConnection().getMetaData()
+                .getImportedKeys(stmt.getConnection().getCatalog(), null, table)) {
+            while (rs.next()) {
+                String name = rs.getString("FK_NAME");
+                if (referencedTable.equalsIgnoreCase(rs.getString("PKTABLE_NAME")) && !names.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        for (String name : names) {
+            stmt.execute("ALTER TABLE " + table + " DROP FOREIGN KEY " + name);
+            logger.info("Dropped foreign key {}.{}", table, name);
+        }
+    }
+    
+    /**
+     * Initialize default roles/permissions/admin user of the default tenant
+     * and add new default permissions to the other tenants.
      * Idempotent: safe to call multiple times.
      */
     public void initializeDefaults() {
+        TenantContext.runAs(TenantContext.DEFAULT_TENANT_ID, () -> initializeTenant("admin123"));
+        for (Tenant tenant : new TenantRepository(this).findAll()) {
+            if (tenant.getId() != TenantContext.DEFAULT_TENANT_ID) {
+                TenantContext.runAs(tenant.getId(), () ->
+                        upgradeDefaults(new RoleRepository(this), new PermissionRepository(this)));
+            }
+        }
+    }
+
+    /**
+     * Initialize default roles/permissions and an {@code admin} user with
+     * {@code adminPassword} in the current tenant, or add permissions
+     * introduced since it was initialized.
+     *
+     * @return true if the tenant was initialized by this call
+     */
+    public boolean initializeTenant(String adminPassword) {
         UserRepository userRepository = new UserRepository(this);
         RoleRepository roleRepository = new RoleRepository(this);
         PermissionRepository permissionRepository = new PermissionRepository(this);
+        long tenantId = TenantContext.current();
 
         Optional<User> adminOpt = userRepository.findByUsername("admin");
         if (adminOpt.isPresent()) {
-            logger.info("System already initialized");
-            return;
+            upgradeDefaults(roleRepository, permissionRepository);
+            logger.info("Tenant {} already initialized", tenantId);
+            return false;
         }
 
-        logger.info("Initializing system defaults...");
+        logger.info("Initializing defaults of tenant {}...", tenantId);
         createDefaultPermissions(permissionRepository);
         Role adminRole = ensureRole(roleRepository, "ADMIN", "Administrator", "Full system access");
         Role userRole = ensureRole(roleRepository, "USER", "Regular User", "Basic user access");
 
         assignAllPermissionsToRole(permissionRepository, adminRole.getId());
         assignBasicPermissionsToRole(permissionRepository, userRole.getId());
-        createAdminUser(userRepository, roleRepository, adminRole.getId());
+        createAdminUser(userRepository, roleRepository, adminRole.getId(), adminPassword);
 
-        logger.info("Default data initialized. Admin: admin / admin123");
+        logger.info("Default data of tenant {} initialized. Admin: admin", tenantId);
+        return true;
+    }
+
+    /**
+     * Permissions added by newer versions are created and granted to ADMIN on
+     * databases initialized before they existed.
+     */
+    private void upgradeDefaults(RoleRepository roleRepository, PermissionRepository permissionRepository) {
+        List<Permission> created = createDefaultPermissions(permissionRepository);
+        if (created.isEmpty()) {
+            return;
+        }
+        roleRepository.findByCode("ADMIN").ifPresent(adminRole -> {
+            for (Permission permission : created) {
+                permissionRepository.assignPermissionToRole(adminRole.getId(), permission.getId());
+            }
+        });
+        logger.info("Added new default permissions: {}", created.stream().map(Permission::getCode).toList());
     }
 
-    private void createDefaultPermissions(PermissionRepository permissionRepository) {
+    private List<Permission> createDefaultPermissions(PermissionRepository permissionRepository) {
         String[] permissionCodes = {
                 PermissionCodes.USER_CREATE, PermissionCodes.USER_UPDATE,
                 PermissionCodes.USER_DELETE, PermissionCodes.USER_VIEW,
@@ -216,19 +532,27 @@ public class DatabaseConnection {
                 PermissionCodes.RESOURCE_CREATE, PermissionCodes.RESOURCE_UPDATE,
                 PermissionCodes.RESOURCE_DELETE, PermissionCodes.RESOURCE_VIEW,
                 PermissionCodes.RESOURCE_LIST, PermissionCodes.RESOURCE_GRANT,
-                PermissionCodes.AUDIT_VIEW, PermissionCodes.AUDIT_VIEW_ALL
+                PermissionCodes.AUDIT_VIEW, PermissionCodes.AUDIT_VIEW_ALL,
+                PermissionCodes.AUDIT_MANAGE,
+                PermissionCodes.GROUP_CREATE, PermissionCodes.GROUP_UPDATE,
+                PermissionCodes.GROUP_DELETE, PermissionCodes.GROUP_VIEW,
+                PermissionCodes.GROUP_ASSIGN,
+                PermissionCodes.TENANT_MANAGE,
+                PermissionCodes.SOD_MANAGE
         };
 
+        List<Permission> created = new ArrayList<>();
         for (String code : permissionCodes) {
             if (permissionRepository.findByCode(code).isEmpty()) {
                 Permission permission = new Permission();
                 permission.setCode(code);
                 permission.setName(code.replace("_", " "));
                 permission.setDescription("Permission for " + code);
-                permissionRepository.save(permission);
+                created.add(permissionRepository.save(permission));
                 logger.debug("Created permission: {}", code);
             }
         }
+        return created;
     }
 
     private Role ensureRole(RoleRepository roleRepository, String code, String name, String description) {
@@ -261,7 +585,8 @@ public class DatabaseConnection {
                 PermissionCodes.ROLE_VIEW, PermissionCodes.PERMISSION_VIEW,
                 PermissionCodes.AUDIT_VIEW,
                 PermissionCodes.RESOURCE_VIEW,
-                PermissionCodes.RESOURCE_LIST
+                PermissionCodes.RESOURCE_LIST,
+                PermissionCodes.GROUP_VIEW
         };
 
         for (String code : basicCodes) {
@@ -274,9 +599,11 @@ public class DatabaseConnection {
         }
     }
 
-    private void createAdminUser(UserRepository userRepository, RoleRepository roleRepository, Long adminRoleId) {
+    private void createAdminUser(UserRepository userRepository, RoleRepository roleRepository, Long adminRoleId,
+                                 String password) {
+        PasswordEncoder passwordEncoder = Pbkdf2PasswordEncoder.getInstance();
         String salt = passwordEncoder.generateSalt();
-        String passwordHash = passwordEncoder.encode("admin123", salt);
+        String passwordHash = passwordEncoder.encode(password, salt);
 
         User admin = new User();
         admin.setUsername("admin");
@@ -0,0 +1,377 @@
+package com.study.repository;
+
+import com.study.context.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory flattened group membership: each user to their direct groups,
+ * each group to its parent and roles, and, computed on demand, each group to
+ * the roles held by it or any enclosing group.
+ * <p>
+ * A user's group roles are the union of the flattened roles of their direct
+ * groups, so moving a user between departments is one membership change.
+ * The index is loaded from the registered {@link GroupRepository} on first
+ * use and then kept current by the repositories after each committed change
+ * to groups, memberships, group roles, users and roles. Writers are rare and
+ * serialized on the index; readers never lock. Membership and role lists are
+ * sorted {@code long[]} replaced on change.
+ * <p>
+ * There is one index per tenant; at most
+ * {@code rbac.tenant.cache.maxTenants} are resident and an evicted tenant is
+ * loaded again on its next use.
+ */
+public class GroupMembershipIndex {
+    private static final Logger logger = LoggerFactory.getLogger(GroupMembershipIndex.class);
+    private static final long NO_PARENT = 0;
+    private static final long[] NONE = new long[0];
+
+    private static final TenantCache<GroupMembershipIndex> TENANTS = new TenantCache<>("Group membership index",
+            Integer.getInteger("rbac.tenant.cache.maxTenants", 64), GroupMembershipIndex::new);
+
+    private static volatile GroupRepository repository;
+
+    private final long tenantId;
+    private volatile State state;
+
+    private static final class State {
+        /** Group to parent id, {@link #NO_PARENT} for top-level groups. */
+        final ConcurrentHashMap<Long, Long> parents = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, long[]> groupRoles = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, long[]> userGroups = new ConcurrentHashMap<>();
+        /** Roles of a group and its ancestors; replaced whenever the tree or a group's roles change. */
+        volatile ConcurrentHashMap<Long, long[]> flattened = new ConcurrentHashMap<>();
+        /** Users holding a role through any group; replaced on every change. */
+        volatile ConcurrentHashMap<Long, long[]> roleMembers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Receives the rows read by {@link GroupRepository#loadMembershipIndex}.
+     */
+    interface Loader {
+        void group(long groupId, Long parentId);
+
+        void role(long groupId, long roleId);
+
+        void member(long groupId, long userId);
+    }
+
+    private GroupMembershipIndex(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public static GroupMembershipIndex forTenant(long tenantId) {
+        return TENANTS.get(tenantId);
+    }
+
+    /**
+     * Index of the tenant bound to the calling thread.
+     */
+    public static GroupMembershipIndex current() {
+        return forTenant(TenantContext.current());
+    }
+
+    /**
+     * Load each tenant's index from {@code repository} on its first use.
+     * Called by the facade once the repository is built; a later call, e.g.
+     * after {@link DatabaseConnection#reset()}, replaces the source for
+     * indexes loaded from then on.
+     */
+    public static synchronized void register(GroupRepository repository) {
+        GroupMembershipIndex.repository = repository;
+    }
+
+    /**
+     * Roles {@code userId} holds through groups, ascending. Empty if no
+     * group repository has been registered.
+     */
+    public long[] rolesOf(long userId) {
+        State current = loaded();
+        if (current == null) {
+            return NONE;
+        }
+        long[] groups = current.userGroups.get(userId);
+        if (groups == null) {
+            return NONE;
+        }
+        if (groups.length == 1) {
+            return flattened(current, groups[0]);
+        }
+        long[] union = NONE;
+        for (long groupId : groups) {
+            union = union(union, flattened(current, groupId));
+        }
+        return union;
+    }
+
+    /**
+     * Whether {@code userId} holds {@code roleId} through a group.
+     */
+    public boolean hasRole(long userId, long roleId) {
+        return Arrays.binarySearch(rolesOf(userId), roleId) >= 0;
+    }
+
+    /**
+     * Users who hold {@code roleId} through a group, ascending. The first
+     * call per role scans every group member; the result is kept until the
+     * next change.
+     */
+    public long[] membersWithRole(long roleId) {
+        State current = loaded();
+        if (current == null) {
+            return NONE;
+        }
+        ConcurrentHashMap<Long, long[]> cache = current.roleMembers;
+        long[] members = cache.get(roleId);
+        if (members == null) {
+            members = current.userGroups.keySet().stream()
+                    .filter(userId -> hasRole(userId, roleId))
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .toArray();
+            cache.put(roleId, members);
+        }
+        return members;
+    }
+
+    /**
+     * Roles a member of {@code groupId} holds through it: the group's own
+     * and those of its ancestors, ascending.
+     */
+    public long[] rolesOfGroup(long groupId) {
+        State current = loaded();
+        return current != null ? flattened(current, groupId) : NONE;
+    }
+
+    /**
+     * Direct members of {@code groupId} and of every group below it,
+     * ascending.
+     */
+    public long[] membersOfSubtree(long groupId) {
+        State current = loaded();
+        if (current == null) {
+            return NONE;
+        }
+        return current.userGroups.entrySet().stream()
+                .filter(entry -> Arrays.stream(entry.getValue()).anyMatch(id -> isWithin(current, id, groupId)))
+                .mapToLong(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+    }
+
+    public synchronized void onGroupSaved(long groupId, Long parentId) {
+        if (state != null) {
+            state.parents.put(groupId, parentId != null ? parentId : NO_PARENT);
+        }
+    }
+
+    public synchronized void onGroupMoved(long groupId, Long parentId) {
+        if (state != null) {
+            state.parents.put(groupId, parentId != null ? parentId : NO_PARENT);
+            state.flattened = new ConcurrentHashMap<>();
+            state.roleMembers = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * The group is gone and its children now hang off its former parent.
+     */
+    public synchronized void onGroupDeleted(long groupId) {
+        if (state == null) {
+            return;
+        }
+        Long parentId = state.parents.remove(groupId);
+        long newParent = parentId != null ? parentId : NO_PARENT;
+        state.parents.replaceAll((id, parent) -> parent == groupId ? newParent : parent);
+        state.groupRoles.remove(groupId);
+        state.userGroups.replaceAll((userId, groups) -> without(groups, groupId));
+        state.userGroups.values().removeIf(groups -> groups.length == 0);
+        state.flattened = new ConcurrentHashMap<>();
+        state.roleMembers = new ConcurrentHashMap<>();
+    }
+
+    public synchronized void onMemberAdded(long groupId, long userId) {
+        if (state != null) {
+            state.userGroups.compute(userId, (id, groups) -> with(groups != null ? groups : NONE, groupId));
+            state.roleMembers = new ConcurrentHashMap<>();
+        }
+    }
+
+    public synchronized void onMemberRemoved(long groupId, long userId) {
+        if (state != null) {
+            state.userGroups.computeIfPresent(userId, (id, groups) -> {
+                long[] remaining = without(groups, groupId);
+                return remaining.length == 0 ? null : remaining;
+            });
+            state.roleMembers = new ConcurrentHashMap<>();
+        }
+    }
+
+    public synchronized void onGroupRoleAdded(long groupId, long roleId) {
+        if (state != null) {
+            state.groupRoles.compute(groupId, (id, roles) -> with(roles != null ? roles : NONE, roleId));
+            state.flattened = new ConcurrentHashMap<>();
+            state.roleMembers = new ConcurrentHashMap<>();
+        }
+    }
+
+    public synchronized void onGroupRoleRemoved(long groupId, long roleId) {
+        if (state != null) {
+            state.groupRoles.computeIfPresent(groupId, (id, roles) -> {
+                long[] remaining = without(roles, roleId);
+                return remaining.length == 0 ? null : remaining;
+            });
+            state.flattened = new ConcurrentHashMap<>();
+            state.roleMembers = new ConcurrentHashMap<>();
+        }
+    }
+
+    public synchronized void onUserDeleted(long userId) {
+        if (state != null) {
+            state.userGroups.remove(userId);
+            state.roleMembers = new ConcurrentHashMap<>();
+        }
+    }
+
+    public synchronized void onRoleDeleted(long roleId) {
+        if (state != null) {
+            state.groupRoles.replaceAll((groupId, roles) -> without(roles, roleId));
+            state.groupRoles.values().removeIf(roles -> roles.length == 0);
+            state.flattened = new ConcurrentHashMap<>();
+            state.roleMembers = new ConcurrentHashMap<>();
+        }
+    }
+
+    private State loaded() {
+        State current = state;
+        GroupRepository source = repository;
+        if (current != null || source == null) {
+            return current;
+        }
+        synchronized (this) {
+            if (state == null) {
+                long startedAt = System.nanoTime();
+                state = TenantContext.callAs(tenantId, () -> load(source));
+                logger.info("Group membership index of tenant {} loaded {} groups, {} members in {} ms", tenantId,
+                        state.parents.size(), state.userGroups.size(), (System.nanoTime() - startedAt) / 1_000_000);
+            }
+            return state;
+        }
+    }
+
+    private static State load(GroupRepository repository) {
+        State loaded = new State();
+        Map<Long, List<Long>> roles = new HashMap<>();
+        Map<Long, List<Long>> members = new HashMap<>();
+        repository.loadMembershipIndex(new Loader() {
+            @Override
+            public void group(long groupId, Long parentId) {
+                loaded.parents.put(groupId, parentId != null ? parentId : NO_PARENT);
+            }
+
+            @Override
+            public void role(long groupId, long roleId) {
+                roles.computeIfAbsent(groupId, id -> new ArrayList<>()).add(roleId);
+            }
+
+            @Override
+            public void member(long groupId, long userId) {
+                members.computeIfAbsent(userId, id -> new ArrayList<>()).add(groupId);
+            }
+        });
+        roles.forEach((groupId, ids) -> loaded.groupRoles.put(groupId, sorted(ids)));
+        members.forEach((userId, ids) -> loaded.userGroups.put(userId, sorted(ids)));
+        return loaded;
+    }
+
+    private static long[] flattened(State state, long groupId) {
+        ConcurrentHashMap<Long, long[]> cache = state.flattened;
+        long[] roles = cache.get(groupId);
+        if (roles == null) {
+            roles = NONE;
+            Set<Long> seen = new HashSet<>();
+            // The seen set only guards against a cycle written behind the repository's back.
+            for (long id = groupId; id != NO_PARENT && seen.add(id); id = state.parents.getOrDefault(id, NO_PARENT)) {
+                roles = union(roles, state.groupRoles.getOrDefault(id, NONE));
+            }
+            cache.put(groupId, roles);
+        }
+        return roles;
+    }
+
+    private static boolean isWithin(State state, long groupId, long ancestorId) {
+        Set<Long> seen = new HashSet<>();
+        for (long id = groupId; id != NO_PARENT && seen.add(id); id = state.parents.getOrDefault(id, NO_PARENT)) {
+            if (id == ancestorId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] sorted(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+
+    private static long[] with(long[] values, long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return values;
+        }
+        int at = -index - 1;
+        long[] copy = new long[values.length + 1];
+        System.arraycopy(values, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(values, at, copy, at + 1, values.length - at);
+        return copy;
+    }
+
+    private static long[] without(long[] values, long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return values;
+        }
+        long[] copy = new long[values.length - 1];
+        System.arraycopy(values, 0, copy, 0, index);
+        System.arraycopy(values, index + 1, copy, index, values.length - index - 1);
+        return copy;
+    }
+
+    /**
+     * Sorted union of two ascending arrays.
+     */
+    static long[] union(long[] a, long[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        long[] out = new long[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length || j < b.length) {
+            long next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            out[count++] = next;
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+}
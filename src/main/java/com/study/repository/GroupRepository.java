@@ -0,0 +1,476 @@
+package com.study.repository;
+
+import com.study.domain.Group;
+import com.study.domain.Role;
+import com.study.exception.DataAccessException;
+import com.study.exception.ValidationException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for user groups, their members and the roles they hold.
+ */
+public class GroupRepository extends BaseRepository {
+    /** Column order read by index in {@link #mapGroup}. */
+    private static final String COLUMNS = "id, code, name, description, parent_id, created_at";
+    private static final String JOINED_COLUMNS = "g.id, g.code, g.name, g.description, g.parent_id, g.created_at";
+    /** Far deeper than any org chart; stops the ancestor walk on corrupted data. */
+    private static final int MAX_DEPTH = 64;
+
+
+    public GroupRepository(DatabaseConnection dbConnection) {
+        super(dbConnection);
+    }
+
+    public Group save(Group group) {
+        try (Connection conn = dbConnection.getConnection()) {
+            Group saved = save(conn, group);
+            groupIndex().onGroupSaved(saved.getId(), saved.getParentId());
+            return saved;
+        } catch (SQLException e) {
+            logger.error("Failed to save group", e);
+            throw new DataAccessException("Failed to save group", e);
+        }
+    }
+
+    public Group save(Connection conn, Group group) {
+        if (group.getParentId() != null && findById(conn, group.getParentId(), false).isEmpty()) {
+            throw new ValidationException("Parent group not found: " + group.getParentId());
+        }
+        String sql = "INSERT INTO user_groups (tenant_id, code, name, description, parent_id) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, group.getCode());
+            pstmt.setString(3, group.getName());
+            pstmt.setString(4, group.getDescription());
+            pstmt.setObject(5, group.getParentId(), Types.BIGINT);
+            pstmt.executeUpdate();
+
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    group.setId(keys.getLong(1));
+                }
+            }
+            return group;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new ValidationException("Group code already exists: " + group.getCode());
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to save group", e);
+        }
+    }
+
+    public void update(Group group) {
+        String sql = "UPDATE user_groups SET name = ?, description = ? WHERE id = ? AND tenant_id = ?";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, group.getName());
+            pstmt.setString(2, group.getDescription());
+            pstmt.setLong(3, group.getId());
+            pstmt.setLong(4, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("Group not found: " + group.getId());
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to update group", e);
+            throw new DataAccessException("Failed to update group", e);
+        }
+    }
+
+    /**
+     * Put the group under {@code newParentId}, or at the top level if null.
+     * Refuses to move a group under itself or one of its subgroups. Like
+     * every write that hands roles to users, it is one separation-of-duties
+     * change: {@code check} runs first on the same connection and vetoes by
+     * throwing.
+     */
+    public void move(Long groupId, Long newParentId, TransactionCallback<?> check) {
+        SodConflictIndex.current().changeGrants(this, conn -> {
+            check.doInTransaction(conn);
+            move(conn, groupId, newParentId);
+            return null;
+        });
+        groupIndex().onGroupMoved(groupId, newParentId);
+    }
+
+    /**
+     * Call inside a transaction. The group and the new parent's ancestors
+     * are locked, so two moves cannot form a cycle between them.
+     */
+    public void move(Connection conn, Long groupId, Long newParentId) {
+        findById(conn, groupId, true).orElseThrow(() -> new ValidationException("Group not found: " + groupId));
+        Long ancestor = newParentId;
+        for (int depth = 0; ancestor != null; depth++) {
+            if (ancestor.equals(groupId)) {
+                throw new ValidationException("A group cannot be moved under itself or one of its subgroups");
+            }
+            if (depth == MAX_DEPTH) {
+                throw new ValidationException("Group hierarchy is deeper than " + MAX_DEPTH + " levels");
+            }
+            Long current = ancestor;
+            ancestor = findById(conn, current, true)
+                    .orElseThrow(() -> new ValidationException("Group not found: " + current))
+                    .getParentId();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE user_groups SET parent_id = ? WHERE id = ?")) {
+            pstmt.setObject(1, newParentId, Types.BIGINT);
+            pstmt.setLong(2, groupId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to move group", e);
+        }
+    }
+
+    public void delete(Long groupId) {
+        executeInTransaction(conn -> {
+            delete(conn, groupId);
+            return null;
+        });
+        groupIndex().onGroupDeleted(groupId);
+    }
+
+    /**
+     * Delete the group; its subgroups move up to its parent. Call inside a
+     * transaction.
+     */
+    public void delete(Connection conn, Long groupId) {
+        Group group = findById(conn, groupId, true)
+                .orElseThrow(() -> new ValidationException("Group not found: " + groupId));
+        try (PreparedStatement reparent = conn.prepareStatement(
+                     "UPDATE user_groups SET parent_id = ? WHERE parent_id = ?");
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM user_groups WHERE id = ?")) {
+            reparent.setObject(1, group.getParentId(), Types.BIGINT);
+            reparent.setLong(2, groupId);
+            reparent.executeUpdate();
+            pstmt.setLong(1, groupId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to delete group", e);
+        }
+    }
+
+    public Optional<Group> findById(Long id) {
+        try (Connection conn = dbConnection.getReadConnection()) {
+            return findById(conn, id, false);
+        } catch (SQLException e) {
+            logger.error("Failed to find group by id", e);
+            throw new DataAccessException("Failed to find group", e);
+        }
+    }
+
+    public Optional<Group> findByCode(String code) {
+        String sql = "SELECT " + COLUMNS + " FROM user_groups WHERE tenant_id = ? AND code = ?";
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, code);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(mapGroup(rs));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.error("Failed to find group by code", e);
+            throw new DataAccessException("Failed to find group", e);
+        }
+    }
+
+    public List<Group> findAll() {
+        String sql = "SELECT " + COLUMNS + " FROM user_groups WHERE tenant_id = ? ORDER BY code";
+        List<Group> groups = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                groups.add(mapGroup(rs));
+            }
+            return groups;
+        } catch (SQLException e) {
+            logger.error("Failed to list groups", e);
+            throw new DataAccessException("Failed to list groups", e);
+        }
+    }
+
+    /**
+     * Groups the user is a direct member of.
+     */
+    public List<Group> findByUserId(Long userId) {
+        String sql = """
+            SELECT %s FROM user_groups g
+            INNER JOIN group_members gm ON g.id = gm.group_id
+            WHERE gm.user_id = ? AND g.tenant_id = ?
+            ORDER BY g.code
+        """.formatted(JOINED_COLUMNS);
+        List<Group> groups = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, userId);
+            pstmt.setLong(2, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                groups.add(mapGroup(rs));
+            }
+            return groups;
+        } catch (SQLException e) {
+            logger.error("Failed to find groups for user", e);
+            throw new DataAccessException("Failed to find groups", e);
+        }
+    }
+
+    public List<String> findMemberUsernames(Long groupId) {
+        String sql = """
+            SELECT u.username FROM users u
+            INNER JOIN group_members gm ON u.id = gm.user_id
+            WHERE gm.group_id = ? AND u.tenant_id = ?
+            ORDER BY u.username
+        """;
+        List<String> usernames = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, groupId);
+            pstmt.setLong(2, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                usernames.add(rs.getString(1));
+            }
+            return usernames;
+        } catch (SQLException e) {
+            logger.error("Failed to find group members", e);
+            throw new DataAccessException("Failed to find group members", e);
+        }
+    }
+
+    /**
+     * Roles assigned to the group itself, not inherited ones.
+     */
+    public List<Role> findRoles(Long groupId) {
+        String sql = """
+            SELECT r.id, r.code, r.name, r.description, r.created_at FROM roles r
+            INNER JOIN group_roles gr ON r.id = gr.role_id
+            WHERE gr.group_id = ? AND r.tenant_id = ?
+            ORDER BY r.code
+        """;
+        List<Role> roles = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, groupId);
+            pstmt.setLong(2, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                roles.add(new Role(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        rs.getTimestamp(5).toLocalDateTime()));
+            }
+            return roles;
+        } catch (SQLException e) {
+            logger.error("Failed to find group roles", e);
+            throw new DataAccessException("Failed to find group roles", e);
+        }
+    }
+
+    /**
+     * Add a member in one separation-of-duties change, see
+     * {@link #move(Long, Long, TransactionCallback)}.
+     */
+    public void addMember(Long groupId, Long userId, TransactionCallback<?> check) {
+        SodConflictIndex.current().changeGrants(this, conn -> {
+            check.doInTransaction(conn);
+            addMember(conn, groupId, userId);
+            return null;
+        });
+        groupIndex().onMemberAdded(groupId, userId);
+    }
+
+    /**
+     * Add a user to a group; both must belong to the current tenant.
+     */
+    public void addMember(Connection conn, Long groupId, Long userId) {
+        String sql = """
+            INSERT INTO group_members (group_id, user_id)
+            SELECT g.id, u.id FROM user_groups g JOIN users u ON u.tenant_id = g.tenant_id
+            WHERE g.id = ? AND u.id = ? AND g.tenant_id = ?
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, groupId);
+            pstmt.setLong(2, userId);
+            pstmt.setLong(3, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("Group or user not found");
+            }
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new ValidationException("User is already a member of this group");
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to add group member", e);
+        }
+    }
+
+    public void removeMember(Long groupId, Long userId) {
+        try (Connection conn = dbConnection.getConnection()) {
+            removeMember(conn, groupId, userId);
+            groupIndex().onMemberRemoved(groupId, userId);
+        } catch (SQLException e) {
+            logger.error("Failed to remove group member", e);
+            throw new DataAccessException("Failed to remove group member", e);
+        }
+    }
+
+    public void removeMember(Connection conn, Long groupId, Long userId) {
+        String sql = """
+            DELETE FROM group_members WHERE group_id = ? AND user_id = ?
+            AND group_id IN (SELECT id FROM user_groups WHERE tenant_id = ?)
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, groupId);
+            pstmt.setLong(2, userId);
+            pstmt.setLong(3, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("User is not a member of this group");
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to remove group member", e);
+        }
+    }
+
+    /**
+     * Give a group a role in one separation-of-duties change, see
+     * {@link #move(Long, Long, TransactionCallback)}.
+     */
+    public void assignRole(Long groupId, Long roleId, TransactionCallback<?> check) {
+        SodConflictIndex.current().changeGrants(this, conn -> {
+            check.doInTransaction(conn);
+            assignRole(conn, groupId, roleId);
+            return null;
+        });
+        groupIndex().onGroupRoleAdded(groupId, roleId);
+    }
+
+    /**
+     * Give a group a role; both must belong to the current tenant.
+     */
+    public void assignRole(Connection conn, Long groupId, Long roleId) {
+        String sql = """
+            INSERT INTO group_roles (group_id, role_id)
+            SELECT g.id, r.id FROM user_groups g JOIN roles r ON r.tenant_id = g.tenant_id
+            WHERE g.id = ? AND r.id = ? AND g.tenant_id = ?
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, groupId);
+            pstmt.setLong(2, roleId);
+            pstmt.setLong(3, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("Group or role not found");
+            }
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new ValidationException("Group already has this role");
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to assign role to group", e);
+        }
+    }
+
+    public void removeRole(Long groupId, Long roleId) {
+        try (Connection conn = dbConnection.getConnection()) {
+            removeRole(conn, groupId, roleId);
+            groupIndex().onGroupRoleRemoved(groupId, roleId);
+        } catch (SQLException e) {
+            logger.error("Failed to remove role from group", e);
+            throw new DataAccessException("Failed to remove role from group", e);
+        }
+    }
+
+    public void removeRole(Connection conn, Long groupId, Long roleId) {
+        String sql = """
+            DELETE FROM group_roles WHERE group_id = ? AND role_id = ?
+            AND group_id IN (SELECT id FROM user_groups WHERE tenant_id = ?)
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, groupId);
+            pstmt.setLong(2, roleId);
+            pstmt.setLong(3, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("Group does not have this role");
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to remove role from group", e);
+        }
+    }
+
+    /**
+     * Read everything {@link GroupMembershipIndex} holds for the current
+     * tenant, in one snapshot.
+     */
+    void loadMembershipIndex(GroupMembershipIndex.Loader loader) {
+        long tenantId = tenantId();
+        try (Connection conn = dbConnection.getReadConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement groups = conn.prepareStatement(
+                         "SELECT id, parent_id FROM user_groups WHERE tenant_id = ?");
+                 PreparedStatement roles = conn.prepareStatement(
+                         "SELECT gr.group_id, gr.role_id FROM group_roles gr"
+                                 + " JOIN user_groups g ON g.id = gr.group_id WHERE g.tenant_id = ?");
+                 PreparedStatement members = conn.prepareStatement(
+                         "SELECT gm.group_id, gm.user_id FROM group_members gm"
+                                 + " JOIN user_groups g ON g.id = gm.group_id WHERE g.tenant_id = ?")) {
+                groups.setLong(1, tenantId);
+                try (ResultSet rs = groups.executeQuery()) {
+                    while (rs.next()) {
+                        long parentId = rs.getLong(2);
+                        loader.group(rs.getLong(1), rs.wasNull() ? null : parentId);
+                    }
+                }
+                roles.setLong(1, tenantId);
+                try (ResultSet rs = roles.executeQuery()) {
+                    while (rs.next()) {
+                        loader.role(rs.getLong(1), rs.getLong(2));
+                    }
+                }
+                members.setLong(1, tenantId);
+                try (ResultSet rs = members.executeQuery()) {
+                    while (rs.next()) {
+                        loader.member(rs.getLong(1), rs.getLong(2));
+                    }
+                }
+            } finally {
+                conn.commit();
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to load group membership index", e);
+            throw new DataAccessException("Failed to load group membership index", e);
+        }
+    }
+
+    private Optional<Group> findById(Connection conn, Long id, boolean forUpdate) {
+        String sql = "SELECT " + COLUMNS + " FROM user_groups WHERE id = ? AND tenant_id = ?" + (forUpdate ? " FOR UPDATE" : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(mapGroup(rs));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to find group", e);
+        }
+    }
+
+    private Group mapGroup(ResultSet rs) throws SQLException {
+        Group group = new Group();
+        group.setId(rs.getLong(1));
+        group.setCode(rs.getString(2));
+        group.setName(rs.getString(3));
+        group.setDescription(rs.getString(4));
+        long parentId = rs.getLong(5);
+        group.setParentId(rs.wasNull() ? null : parentId);
+        group.setCreatedAt(rs.getTimestamp(6).toLocalDateTime());
+        return group;
+    }
+}
@@ -2,20 +2,28 @@ package com.study.repository;
 
 import com.study.domain.Permission;
 import com.study.domain.ScopedPermission;
-import com.study.service.dto.ResourceRoleScope;
-import com.study.service.dto.ResourceUserScope;
 import com.study.exception.DataAccessException;
 import com.study.exception.ValidationException;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository for permission entity.
  */
 public class PermissionRepository extends BaseRepository {
+    /** Column order read by index in {@link #mapResultSetToPermission}. */
+    private static final String COLUMNS = "id, code, name, description, resource_id, created_at";
+    private static final String JOINED_COLUMNS = "p.id, p.code, p.name, p.description, p.resource_id, p.created_at";
+    private static final int IN_CHUNK = 500;
+
 
     public PermissionRepository(DatabaseConnection dbConnection) {
         super(dbConnection);
@@ -31,15 +39,16 @@ public class PermissionRepository extends BaseRepository {
     }
 
     public Permission save(Connection conn, Permission permission) {
-        String sql = "INSERT INTO permissions (code, name, description, resource_id) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO permissions (tenant_id, code, name, description, resource_id) VALUES (?, ?, ?, ?, ?)";
         try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, permission.getCode());
-            pstmt.setString(2, permission.getName());
-            pstmt.setString(3, permission.getDescription());
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, permission.getCode());
+            pstmt.setString(3, permission.getName());
+            pstmt.setString(4, permission.getDescription());
             if (permission.getResourceId() != null) {
-                pstmt.setLong(4, permission.getResourceId());
+                pstmt.setLong(5, permission.getResourceId());
             } else {
-                pstmt.setNull(4, Types.BIGINT);
+                pstmt.setNull(5, Types.BIGINT);
             }
             pstmt.executeUpdate();
 
@@ -66,7 +75,7 @@ public class PermissionRepository extends BaseRepository {
     }
 
     public void update(Connection conn, Permission permission) {
-        String sql = "UPDATE permissions SET name = ?, description = ?, resource_id = ? WHERE code = ?";
+        String sql = "UPDATE permissions SET name = ?, description = ?, resource_id = ? WHERE tenant_id = ? AND code = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, permission.getName());
             pstmt.setString(2, permission.getDescription());
@@ -75,7 +84,8 @@ public class PermissionRepository extends BaseRepository {
             } else {
                 pstmt.setNull(3, Types.BIGINT);
             }
-            pstmt.setString(4, permission.getCode());
+            pstmt.setLong(4, tenantId());
+            pstmt.setString(5, permission.getCode());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Permission not found: " + permission.getCode());
             }
@@ -85,18 +95,37 @@ public class PermissionRepository extends BaseRepository {
     }
 
     public void delete(Long permissionId) {
+        Optional<Permission> permission = findById(permissionId);
         try (Connection conn = dbConnection.getConnection()) {
             delete(conn, permissionId);
+            permission.ifPresent(p -> accessIndex().onPermissionDeleted(p.getCode()));
+            SodConflictIndex.current().invalidate();
         } catch (SQLException e) {
             logger.error("Failed to delete permission", e);
             throw new DataAccessException("Failed to delete permission", e);
         }
     }
 
+    /**
+     * Delete a permission together with this tenant's scoped grants of its
+     * code; other tenants may use the same code.
+     */
     public void delete(Connection conn, Long permissionId) {
-        String sql = "DELETE FROM permissions WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        String scopes = """
+            DELETE s FROM role_permission_scopes s
+            JOIN roles r ON r.id = s.role_id
+            JOIN permissions p ON p.code = s.permission_code AND p.tenant_id = r.tenant_id
+            WHERE p.id = ? AND p.tenant_id = ?
+        """;
+        String sql = "DELETE FROM permissions WHERE id = ? AND tenant_id = ?";
+        try (PreparedStatement scoped = conn.prepareStatement(scopes);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            scoped.setLong(1, permissionId);
+            scoped.setLong(2, tenantId());
+            scoped.executeUpdate();
+
             pstmt.setLong(1, permissionId);
+            pstmt.setLong(2, tenantId());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Permission not found: " + permissionId);
             }
@@ -106,11 +135,12 @@ public class PermissionRepository extends BaseRepository {
     }
 
     public Optional<Permission> findById(Long id) {
-        String sql = "SELECT * FROM permissions WHERE id = ?";
-        try (Connection conn = dbConnection.getConnection();
+        String sql = "SELECT " + COLUMNS + " FROM permissions WHERE id = ? AND tenant_id = ?";
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapResultSetToPermission(rs));
@@ -123,11 +153,12 @@ public class PermissionRepository extends BaseRepository {
     }
 
     public Optional<Permission> findByCode(String code) {
-        String sql = "SELECT * FROM permissions WHERE code = ?";
-        try (Connection conn = dbConnection.getConnection();
+        String sql = "SELECT " + COLUMNS + " FROM permissions WHERE tenant_id = ? AND code = ?";
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, code);
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, code);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapResultSetToPermission(rs));
@@ -140,12 +171,13 @@ public class PermissionRepository extends BaseRepository {
     }
 
     public List<Permission> findAll() {
-        String sql = "SELECT * FROM permissions ORDER BY created_at DESC";
+        String sql = "SELECT " + COLUMNS + " FROM permissions WHERE tenant_id = ? ORDER BY created_at DESC";
         List<Permission> permissions = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            pstmt.setLong(1, tenantId());
+            ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 permissions.add(mapResultSetToPermission(rs));
             }
@@ -158,15 +190,16 @@ public class PermissionRepository extends BaseRepository {
 
     public List<Permission> findByRoleId(Long roleId) {
         String sql = """
-            SELECT p.* FROM permissions p
+            SELECT %s FROM permissions p
             INNER JOIN role_permissions rp ON p.id = rp.permission_id
-            WHERE rp.role_id = ?
-        """;
+            WHERE rp.role_id = ? AND p.tenant_id = ?
+        """.formatted(JOINED_COLUMNS);
         List<Permission> permissions = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, roleId);
+            pstmt.setLong(2, tenantId());
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 permissions.add(mapResultSetToPermission(rs));
@@ -178,18 +211,24 @@ public class PermissionRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Permissions of every role the user holds, directly or through a group.
+     */
     public List<Permission> findByUserId(Long userId) {
+        long[] groupRoles = groupIndex().rolesOf(userId);
         String sql = """
-            SELECT DISTINCT p.* FROM permissions p
+            SELECT DISTINCT %s FROM permissions p
             INNER JOIN role_permissions rp ON p.id = rp.permission_id
-            INNER JOIN user_roles ur ON rp.role_id = ur.role_id
-            WHERE ur.user_id = ?
-        """;
+            WHERE p.tenant_id = ?
+              AND (rp.role_id IN (SELECT ur.role_id FROM user_roles ur WHERE ur.user_id = ? AND %s)%s)
+        """.formatted(JOINED_COLUMNS, ACTIVE_ASSIGNMENT, orRoleIn("rp.role_id", groupRoles));
         List<Permission> permissions = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setLong(1, userId);
+            pstmt.setLong(1, tenantId());
+            pstmt.setLong(2, userId);
+            bindRoleIds(pstmt, bindActiveAt(pstmt, 3, LocalDateTime.now()), groupRoles);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 permissions.add(mapResultSetToPermission(rs));
@@ -204,18 +243,29 @@ public class PermissionRepository extends BaseRepository {
     public void assignPermissionToRole(Long roleId, Long permissionId) {
         try (Connection conn = dbConnection.getConnection()) {
             assignPermissionToRole(conn, roleId, permissionId);
+            SodConflictIndex.current().invalidate();
         } catch (SQLException e) {
             logger.error("Failed to assign permission to role", e);
             throw new DataAccessException("Failed to assign permission", e);
         }
     }
 
+    /**
+     * Grant a permission to a role; both must belong to the current tenant.
+     */
     public void assignPermissionToRole(Connection conn, Long roleId, Long permissionId) {
-        String sql = "INSERT INTO role_permissions (role_id, permission_id) VALUES (?, ?)";
+        String sql = """
+            INSERT INTO role_permissions (role_id, permission_id)
+            SELECT r.id, p.id FROM roles r JOIN permissions p ON p.tenant_id = r.tenant_id
+            WHERE r.id = ? AND p.id = ? AND r.tenant_id = ?
+        """;
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, roleId);
             pstmt.setLong(2, permissionId);
-            pstmt.executeUpdate();
+            pstmt.setLong(3, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("Role or permission not found");
+            }
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new ValidationException("Role already has this permission");
         } catch (SQLException e) {
@@ -226,6 +276,7 @@ public class PermissionRepository extends BaseRepository {
     public void removePermissionFromRole(Long roleId, Long permissionId) {
         try (Connection conn = dbConnection.getConnection()) {
             removePermissionFromRole(conn, roleId, permissionId);
+            SodConflictIndex.current().invalidate();
         } catch (SQLException e) {
             logger.error("Failed to remove permission from role", e);
             throw new DataAccessException("Failed to remove permission", e);
@@ -233,10 +284,14 @@ public class PermissionRepository extends BaseRepository {
     }
 
     public void removePermissionFromRole(Connection conn, Long roleId, Long permissionId) {
-        String sql = "DELETE FROM role_permissions WHERE role_id = ? AND permission_id = ?";
+        String sql = """
+            DELETE FROM role_permissions WHERE role_id = ? AND permission_id = ?
+            AND role_id IN (SELECT id FROM roles WHERE tenant_id = ?)
+        """;
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, roleId);
             pstmt.setLong(2, permissionId);
+            pstmt.setLong(3, tenantId());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Role does not have this permission");
             }
@@ -248,38 +303,63 @@ public class PermissionRepository extends BaseRepository {
     public void assignScopedPermission(Long roleId, String permissionCode, String resourceType, String resourceId) {
         try (Connection conn = dbConnection.getConnection()) {
             assignScopedPermission(conn, roleId, permissionCode, resourceType, resourceId);
+            accessIndex().onScopeAdded(roleId, permissionCode, resourceType, resourceId);
         } catch (SQLException e) {
             logger.error("Failed to assign scoped permission", e);
             throw new DataAccessException("Failed to assign scoped permission", e);
         }
     }
 
+    /**
+     * Grant a scoped permission in one separation-of-duties change, first
+     * clearing the role's scopes of the type when {@code replaceSpecific}.
+     * {@code check} runs first on the same connection and vetoes by
+     * throwing. The access index is told once the change is committed.
+     */
+    public void assignScopedPermission(Long roleId, String permissionCode, String resourceType, String resourceId,
+                                       boolean replaceSpecific, TransactionCallback<?> check) {
+        SodConflictIndex.current().changeGrants(this, conn -> {
+            check.doInTransaction(conn);
+            if (replaceSpecific) {
+                clearScopedPermissions(conn, roleId, permissionCode, resourceType);
+            }
+            assignScopedPermission(conn, roleId, permissionCode, resourceType, resourceId);
+            return null;
+        });
+        if (replaceSpecific) {
+            accessIndex().onScopesCleared(roleId, permissionCode, resourceType);
+        }
+        accessIndex().onScopeAdded(roleId, permissionCode, resourceType, resourceId);
+    }
+
     public void assignScopedPermission(Connection conn, Long roleId, String permissionCode,
                                        String resourceType, String resourceId) {
+        // The code is only unique per tenant, so the join stands in for a foreign key.
         String sql = """
             INSERT INTO role_permission_scopes (role_id, permission_code, resource_type, resource_id, scope_key)
-            VALUES (?, ?, ?, ?, ?)
+            SELECT r.id, p.code, ?, ?, ? FROM roles r JOIN permissions p ON p.tenant_id = r.tenant_id
+            WHERE r.id = ? AND p.code = ? AND r.tenant_id = ?
         """;
         String scopeKey = (resourceId != null && !resourceId.isBlank()) ? resourceId : "__GLOBAL__";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, roleId);
-            pstmt.setString(2, permissionCode);
-            pstmt.setString(3, resourceType);
+            pstmt.setString(1, resourceType);
             if (resourceId != null && !resourceId.isBlank()) {
-                pstmt.setString(4, resourceId);
+                pstmt.setString(2, resourceId);
             } else {
-                pstmt.setNull(4, Types.VARCHAR);
+                pstmt.setNull(2, Types.VARCHAR);
+            }
+            pstmt.setString(3, scopeKey);
+            pstmt.setLong(4, roleId);
+            pstmt.setString(5, permissionCode);
+            pstmt.setLong(6, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("Role or permission not found for scoped permission");
             }
-            pstmt.setString(5, scopeKey);
-            pstmt.executeUpdate();
         } catch (SQLIntegrityConstraintViolationException e) {
             int errorCode = e.getErrorCode();
             if (errorCode == 1062) { // duplicate key
                 throw new ValidationException("Scoped permission already exists for this role");
             }
-            if (errorCode == 1452) { // foreign key constraint fails
-                throw new ValidationException("Role or permission not found for scoped permission");
-            }
             throw new DataAccessException("Failed to assign scoped permission", e);
         } catch (SQLException e) {
             throw new DataAccessException("Failed to assign scoped permission", e);
@@ -289,6 +369,8 @@ public class PermissionRepository extends BaseRepository {
     public void removeScopedPermission(Long roleId, String permissionCode, String resourceType, String resourceId) {
         try (Connection conn = dbConnection.getConnection()) {
             removeScopedPermission(conn, roleId, permissionCode, resourceType, resourceId);
+            accessIndex().onScopeRemoved(roleId, permissionCode, resourceType, resourceId);
+            SodConflictIndex.current().invalidate();
         } catch (SQLException e) {
             logger.error("Failed to remove scoped permission", e);
             throw new DataAccessException("Failed to remove scoped permission", e);
@@ -300,6 +382,7 @@ public class PermissionRepository extends BaseRepository {
         String sql = """
             DELETE FROM role_permission_scopes
             WHERE role_id = ? AND permission_code = ? AND resource_type = ? AND scope_key = ?
+            AND role_id IN (SELECT id FROM roles WHERE tenant_id = ?)
         """;
         String scopeKey = (resourceId != null && !resourceId.isBlank()) ? resourceId : "__GLOBAL__";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -307,6 +390,7 @@ public class PermissionRepository extends BaseRepository {
             pstmt.setString(2, permissionCode);
             pstmt.setString(3, resourceType);
             pstmt.setString(4, scopeKey);
+            pstmt.setLong(5, tenantId());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Scoped permission not found for role");
             }
@@ -315,18 +399,25 @@ public class PermissionRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Scoped grants of every role the user holds, directly or through a group.
+     */
     public List<ScopedPermission> findScopedPermissionsByUserId(Long userId) {
+        long[] groupRoles = groupIndex().rolesOf(userId);
         String sql = """
             SELECT rps.role_id, rps.permission_code, rps.resource_type, rps.resource_id
             FROM role_permission_scopes rps
-            INNER JOIN user_roles ur ON ur.role_id = rps.role_id
-            WHERE ur.user_id = ?
-        """;
+            JOIN roles r ON r.id = rps.role_id
+            WHERE r.tenant_id = ?
+              AND (rps.role_id IN (SELECT ur.role_id FROM user_roles ur WHERE ur.user_id = ? AND %s)%s)
+        """.formatted(ACTIVE_ASSIGNMENT, orRoleIn("rps.role_id", groupRoles));
         List<ScopedPermission> scopedPermissions = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setLong(1, userId);
+            pstmt.setLong(1, tenantId());
+            pstmt.setLong(2, userId);
+            bindRoleIds(pstmt, bindActiveAt(pstmt, 3, LocalDateTime.now()), groupRoles);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 scopedPermissions.add(mapScopedPermission(rs));
@@ -342,13 +433,15 @@ public class PermissionRepository extends BaseRepository {
         String sql = """
             SELECT rps.role_id, rps.permission_code, rps.resource_type, rps.resource_id
             FROM role_permission_scopes rps
-            WHERE rps.role_id = ?
+            JOIN roles r ON r.id = rps.role_id
+            WHERE rps.role_id = ? AND r.tenant_id = ?
         """;
         List<ScopedPermission> scopedPermissions = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, roleId);
+            pstmt.setLong(2, tenantId());
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 scopedPermissions.add(mapScopedPermission(rs));
@@ -361,106 +454,210 @@ public class PermissionRepository extends BaseRepository {
     }
 
     /**
-     * Find roles that have scoped permissions for a specific resource
+     * {@code " OR column IN (?, ...)"} for the given role ids, or nothing if
+     * there are none.
      */
-    public List<ResourceRoleScope> findRoleScopesByResource(Long resourceId) {
-        String sql = """
-            SELECT r.code AS role_code,
-                   s.permission_code,
-                   s.resource_id AS scope_key
-            FROM role_permission_scopes s
-            JOIN roles r ON s.role_id = r.id
-            WHERE s.resource_type = 'RESOURCE'
-              AND s.resource_id = ?
-        """;
-        List<ResourceRoleScope> roleScopes = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, String.valueOf(resourceId));
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                ResourceRoleScope scope = new ResourceRoleScope();
-                scope.setRoleCode(rs.getString("role_code"));
-                scope.setPermissionCode(rs.getString("permission_code"));
-                scope.setScopeKey(rs.getString("scope_key"));
-                roleScopes.add(scope);
+    private static String orRoleIn(String column, long[] roleIds) {
+        if (roleIds.length == 0) {
+            return "";
+        }
+        return " OR " + column + " IN (" + "?, ".repeat(roleIds.length - 1) + "?)";
+    }
+
+    private static void bindRoleIds(PreparedStatement pstmt, int index, long[] roleIds) throws SQLException {
+        for (long roleId : roleIds) {
+            pstmt.setLong(index++, roleId);
+        }
+    }
+
+    /**
+     * Read everything {@link ResourceAccessIndex} holds for the current
+     * tenant, in one snapshot.
+     */
+    void loadAccessIndex(ResourceAccessIndex.Loader loader) {
+        long tenantId = tenantId();
+        try (Connection conn = dbConnection.getReadConnection()) {
+            // One transaction, so InnoDB serves all four reads from the same snapshot.
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement roles = conn.prepareStatement(
+                         "SELECT id, code FROM roles WHERE tenant_id = ?");
+                 PreparedStatement users = conn.prepareStatement(
+                         "SELECT id, username FROM users WHERE tenant_id = ?");
+                 PreparedStatement members = conn.prepareStatement(
+                         "SELECT ur.user_id, ur.role_id FROM user_roles ur JOIN roles r ON r.id = ur.role_id"
+                                 + " WHERE r.tenant_id = ? AND " + ACTIVE_ASSIGNMENT);
+                 PreparedStatement scopes = conn.prepareStatement(
+                         "SELECT s.role_id, s.permission_code, s.resource_type, s.resource_id"
+                                 + " FROM role_permission_scopes s JOIN roles r ON r.id = s.role_id"
+                                 + " WHERE r.tenant_id = ?")) {
+                roles.setLong(1, tenantId);
+                try (ResultSet rs = roles.executeQuery()) {
+                    while (rs.next()) {
+                        loader.role(rs.getLong(1), rs.getString(2));
+                    }
+                }
+                users.setLong(1, tenantId);
+                try (ResultSet rs = users.executeQuery()) {
+                    while (rs.next()) {
+                        loader.user(rs.getLong(1), rs.getString(2));
+                    }
+                }
+                members.setLong(1, tenantId);
+                bindActiveAt(members, 2, LocalDateTime.now());
+                try (ResultSet rs = members.executeQuery()) {
+                    while (rs.next()) {
+                        loader.member(rs.getLong(1), rs.getLong(2));
+                    }
+                }
+                scopes.setLong(1, tenantId);
+                try (ResultSet rs = scopes.executeQuery()) {
+                    while (rs.next()) {
+                        loader.scope(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                    }
+                }
+            } finally {
+                conn.commit();
+                conn.setAutoCommit(autoCommit);
             }
-            return roleScopes;
         } catch (SQLException e) {
-            logger.error("Failed to find role scopes by resource", e);
-            throw new DataAccessException("Failed to find role scopes by resource", e);
+            logger.error("Failed to load resource access index", e);
+            throw new DataAccessException("Failed to load resource access index", e);
         }
     }
 
     /**
-     * Find users that have scoped permissions for a specific resource
+     * The part of {@link #loadAccessIndex} a lookup on {@code types}
+     * (lowercase) needs: their scopes, the roles holding them and those
+     * roles' direct members with usernames.
      */
-    public List<ResourceUserScope> findUserScopesByResource(Long resourceId) {
-        String sql = """
-            SELECT DISTINCT u.username AS username,
-                   r.code AS role_code,
-                   s.permission_code
-            FROM role_permission_scopes s
-            JOIN roles r ON s.role_id = r.id
-            JOIN user_roles ur ON ur.role_id = r.id
-            JOIN users u ON ur.user_id = u.id
-            WHERE s.resource_type = 'RESOURCE'
-              AND s.resource_id = ?
-        """;
-        List<ResourceUserScope> userScopes = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, String.valueOf(resourceId));
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                ResourceUserScope scope = new ResourceUserScope();
-                scope.setUsername(rs.getString("username"));
-                scope.setRoleCode(rs.getString("role_code"));
-                scope.setPermissionCode(rs.getString("permission_code"));
-                userScopes.add(scope);
+    void loadAccessRows(Set<String> types, ResourceAccessIndex.Loader loader) {
+        if (types.isEmpty()) {
+            return;
+        }
+        String scoped = "SELECT s.role_id FROM role_permission_scopes s JOIN roles r ON r.id = s.role_id"
+                + " WHERE r.tenant_id = ? AND LOWER(s.resource_type) IN (" + "?, ".repeat(types.size() - 1) + "?)";
+        long tenantId = tenantId();
+        try (Connection conn = dbConnection.getReadConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement scopes = conn.prepareStatement(
+                         "SELECT s.role_id, r.code, s.permission_code, s.resource_type, s.resource_id"
+                                 + " FROM role_permission_scopes s JOIN roles r ON r.id = s.role_id"
+                                 + " WHERE r.tenant_id = ? AND LOWER(s.resource_type) IN ("
+                                 + "?, ".repeat(types.size() - 1) + "?)");
+                 PreparedStatement members = conn.prepareStatement(
+                         "SELECT DISTINCT ur.user_id, ur.role_id, u.username FROM user_roles ur"
+                                 + " JOIN users u ON u.id = ur.user_id"
+                                 + " WHERE ur.role_id IN (" + scoped + ") AND " + ACTIVE_ASSIGNMENT)) {
+                int index = bindTypes(scopes, tenantId, types);
+                try (ResultSet rs = scopes.executeQuery()) {
+                    while (rs.next()) {
+                        loader.role(rs.getLong(1), rs.getString(2));
+                        loader.scope(rs.getLong(1), rs.getString(3), rs.getString(4), rs.getString(5));
+                    }
+                }
+                index = bindTypes(members, tenantId, types);
+                bindActiveAt(members, index, LocalDateTime.now());
+                try (ResultSet rs = members.executeQuery()) {
+                    while (rs.next()) {
+                        loader.user(rs.getLong(1), rs.getString(3));
+                        loader.member(rs.getLong(1), rs.getLong(2));
+                    }
+                }
+            } finally {
+                conn.commit();
+                conn.setAutoCommit(autoCommit);
             }
-            return userScopes;
         } catch (SQLException e) {
-            logger.error("Failed to find user scopes by resource", e);
-            throw new DataAccessException("Failed to find user scopes by resource", e);
+            logger.error("Failed to find access to resource types {}", types, e);
+            throw new DataAccessException("Failed to find resource access", e);
+        }
+    }
+
+    private static int bindTypes(PreparedStatement pstmt, long tenantId, Set<String> types) throws SQLException {
+        int index = 1;
+        pstmt.setLong(index++, tenantId);
+        for (String type : types) {
+            pstmt.setString(index++, type);
+        }
+        return index;
+    }
+
+    /**
+     * Usernames of the given users of the current tenant, by id.
+     */
+    Map<Long, String> findUsernames(Collection<Long> userIds) {
+        Map<Long, String> usernames = new HashMap<>();
+        List<Long> ids = new ArrayList<>(userIds);
+        try (Connection conn = dbConnection.getReadConnection()) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK, ids.size()));
+                String sql = "SELECT id, username FROM users WHERE tenant_id = ? AND id IN ("
+                        + "?, ".repeat(chunk.size() - 1) + "?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, tenantId());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 2, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            usernames.put(rs.getLong(1), rs.getString(2));
+                        }
+                    }
+                }
+            }
+            return usernames;
+        } catch (SQLException e) {
+            logger.error("Failed to find usernames", e);
+            throw new DataAccessException("Failed to find usernames", e);
         }
     }
 
     private Permission mapResultSetToPermission(ResultSet rs) throws SQLException {
         Permission permission = new Permission();
-        permission.setId(rs.getLong("id"));
-        permission.setCode(rs.getString("code"));
-        permission.setName(rs.getString("name"));
-        permission.setDescription(rs.getString("description"));
-        long resourceId = rs.getLong("resource_id");
+        permission.setId(rs.getLong(1));
+        permission.setCode(rs.getString(2));
+        permission.setName(rs.getString(3));
+        permission.setDescription(rs.getString(4));
+        long resourceId = rs.getLong(5);
         if (!rs.wasNull()) {
             permission.setResourceId(resourceId);
         }
-        permission.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        permission.setCreatedAt(rs.getTimestamp(6).toLocalDateTime());
         return permission;
     }
 
     private ScopedPermission mapScopedPermission(ResultSet rs) throws SQLException {
         ScopedPermission scopedPermission = new ScopedPermission();
-        scopedPermission.setRoleId(rs.getLong("role_id"));
-        scopedPermission.setPermissionCode(rs.getString("permission_code"));
-        scopedPermission.setResourceType(rs.getString("resource_type"));
-        scopedPermission.setResourceId(rs.getString("resource_id"));
+        scopedPermission.setRoleId(rs.getLong(1));
+        scopedPermission.setPermissionCode(rs.getString(2));
+        scopedPermission.setResourceType(rs.getString(3));
+        scopedPermission.setResourceId(rs.getString(4));
         return scopedPermission;
     }
 
     public void clearScopedPermissions(Long roleId, String permissionCode, String resourceType) {
+        try (Connection conn = dbConnection.getConnection()) {
+            clearScopedPermissions(conn, roleId, permissionCode, resourceType);
+            accessIndex().onScopesCleared(roleId, permissionCode, resourceType);
+            SodConflictIndex.current().invalidate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to clear scoped permissions", e);
+        }
+    }
+
+    public void clearScopedPermissions(Connection conn, Long roleId, String permissionCode, String resourceType) {
         String sql = """
             DELETE FROM role_permission_scopes
             WHERE role_id = ? AND permission_code = ? AND resource_type = ?
+            AND role_id IN (SELECT id FROM roles WHERE tenant_id = ?)
         """;
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, roleId);
             pstmt.setString(2, permissionCode);
             pstmt.setString(3, resourceType);
+            pstmt.setLong(4, tenantId());
             pstmt.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException("Failed to clear scoped permissions", e);
@@ -0,0 +1,146 @@
+package com.study.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Audit ids carrying one search term.
+ * <p>
+ * New ids collect in a small tail; every {@value #BLOCK_SIZE} ids the tail is
+ * sorted and sealed into a block of delta-encoded varints, which costs one or
+ * two bytes per id for terms written steadily over time. Each block keeps
+ * its id range so range reads and pruning can skip it without decoding.
+ * Ids normally arrive in increasing order, but replayed or backfilled
+ * records may not, so blocks are allowed to overlap.
+ */
+final class PostingList {
+    static final int BLOCK_SIZE = 128;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private final long[] tail = new long[BLOCK_SIZE];
+    private int tailSize;
+    private int size;
+
+    synchronized void add(long id) {
+        tail[tailSize++] = id;
+        size++;
+        if (tailSize == BLOCK_SIZE) {
+            Arrays.sort(tail);
+            blocks.add(Block.encode(tail, tailSize));
+            tailSize = 0;
+        }
+    }
+
+    /**
+     * Number of ids added, counting duplicates. Used to order intersections.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Sorted, distinct ids with {@code minId <= id <= maxId}.
+     */
+    synchronized long[] collect(long minId, long maxId) {
+        long[] out = new long[Math.min(size, 1024)];
+        int count = 0;
+        for (Block block : blocks) {
+            if (block.max < minId || block.min > maxId) {
+                continue;
+            }
+            if (out.length - count < block.count) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, count + block.count));
+            }
+            count = block.decodeInto(out, count, minId, maxId);
+        }
+        for (int i = 0; i < tailSize; i++) {
+            long id = tail[i];
+            if (id >= minId && id <= maxId) {
+                if (count == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2 + 1);
+                }
+                out[count++] = id;
+            }
+        }
+        return sortDistinct(out, count);
+    }
+
+    /**
+     * Drop sealed blocks that only hold ids below {@code minId}.
+     *
+     * @return true if the list is now empty
+     */
+    synchronized boolean pruneBelow(long minId) {
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Block block = blocks.get(i);
+            if (block.max < minId) {
+                blocks.remove(i);
+                size -= block.count;
+            }
+        }
+        return size == 0;
+    }
+
+    static long[] sortDistinct(long[] ids, int count) {
+        boolean sorted = true;
+        for (int i = 1; i < count && sorted; i++) {
+            sorted = ids[i - 1] < ids[i];
+        }
+        if (sorted) {
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        }
+        Arrays.sort(ids, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    private record Block(long min, long max, int count, byte[] data) {
+
+        static Block encode(long[] sorted, int count) {
+            byte[] buffer = new byte[count * 10];
+            int position = 0;
+            long previous = sorted[0];
+            for (int i = 1; i < count; i++) {
+                long delta = sorted[i] - previous;
+                previous = sorted[i];
+                while ((delta & ~0x7FL) != 0) {
+                    buffer[position++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                buffer[position++] = (byte) delta;
+            }
+            return new Block(sorted[0], sorted[count - 1], count, Arrays.copyOf(buffer, position));
+        }
+
+        int decodeInto(long[] out, int offset, long minId, long maxId) {
+            long value = min;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    long delta = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = data[position++];
+                        delta |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    value += delta;
+                }
+                if (value > maxId) {
+                    break;
+                }
+                if (value >= minId) {
+                    out[offset++] = value;
+                }
+            }
+            return offset;
+        }
+    }
+}
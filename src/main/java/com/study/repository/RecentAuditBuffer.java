@@ -0,0 +1,168 @@
+package com.study.repository;
+
+import com.study.context.TenantContext;
+import com.study.domain.AuditLog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Newest audit events recorded by this process, kept in lock-free rings:
+ * one per tenant and one per user.
+ * <p>
+ * A ring can only stand in for {@code ORDER BY created_at DESC LIMIT n}
+ * when it has seen at least {@code n} events and the process has been up
+ * for the warm-up period (other nodes writing to the same table are not
+ * seen here). Otherwise callers get {@code null} and go to the database.
+ * At most {@code maxUsers} user rings are kept; the least recently used one
+ * is dropped for a new user, whose older events then come from the database.
+ * <p>
+ * Entries are copies with the detail and error message cut to the
+ * {@value AuditLogRepository#TEXT_PREVIEW_LENGTH} characters the list
+ * queries return; the full record stays in {@code audit_logs}.
+ */
+public class RecentAuditBuffer {
+    private final int capacity;
+    private final int maxTenants;
+    private final int perUserCapacity;
+    private final long warmupNanos;
+    private final long startedAt = System.nanoTime();
+    private final ConcurrentHashMap<Long, Ring> byTenant = new ConcurrentHashMap<>();
+    /** Access-ordered, guarded by itself. */
+    private final LinkedHashMap<Long, Ring> byUser;
+
+    public RecentAuditBuffer() {
+        this(Integer.getInteger("rbac.audit.recent.capacity", 1024),
+                Integer.getInteger("rbac.tenant.cache.maxTenants", 64),
+                Integer.getInteger("rbac.audit.recent.perUserCapacity", 64),
+                Integer.getInteger("rbac.audit.recent.maxUsers", 10_000),
+                Long.getLong("rbac.audit.recent.warmupSeconds", 60));
+    }
+
+    public RecentAuditBuffer(int capacity, int maxTenants, int perUserCapacity, int maxUsers, long warmupSeconds) {
+        this.capacity = capacity;
+        this.maxTenants = maxTenants;
+        this.perUserCapacity = perUserCapacity;
+        this.byUser = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Ring> eldest) {
+                return size() > Math.max(1, maxUsers);
+            }
+        };
+        this.warmupNanos = warmupSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * Keep a preview of an event that has been saved.
+     */
+    public void record(AuditLog saved) {
+        AuditLog log = preview(saved);
+        long tenantId = log.getTenantId() != null ? log.getTenantId() : TenantContext.DEFAULT_TENANT_ID;
+        Ring tenantRing = byTenant.get(tenantId);
+        if (tenantRing == null && byTenant.size() < maxTenants) {
+            tenantRing = byTenant.computeIfAbsent(tenantId, id -> new Ring(capacity));
+        }
+        if (tenantRing != null) {
+            // Tenants beyond the cap are served from the database.
+            tenantRing.add(log);
+        }
+        Long userId = log.getUserId();
+        if (userId == null) {
+            return;
+        }
+        Ring ring;
+        synchronized (byUser) {
+            ring = byUser.computeIfAbsent(userId, id -> new Ring(perUserCapacity));
+        }
+        ring.add(log);
+    }
+
+    /**
+     * Newest {@code limit} events of all users of a tenant, or null if the
+     * buffer cannot answer exactly.
+     */
+    public List<AuditLog> latest(long tenantId, int limit) {
+        Ring ring = byTenant.get(tenantId);
+        return ring != null && warmedUp() ? ring.latest(limit) : null;
+    }
+
+    /**
+     * Newest {@code limit} events of one user, or null if the buffer cannot
+     * answer exactly.
+     */
+    public List<AuditLog> latestForUser(Long userId, int limit) {
+        Ring ring;
+        synchronized (byUser) {
+            ring = byUser.get(userId);
+        }
+        return ring != null && warmedUp() ? ring.latest(limit) : null;
+    }
+
+    private static AuditLog preview(AuditLog log) {
+        AuditLog copy = new AuditLog(log.getUserId(), log.getUsername(), log.getAction(), log.getResourceType(),
+                log.getResourceId(), log.getDetail(), log.isSuccess(), log.getErrorMessage());
+        copy.setId(log.getId());
+        copy.setTenantId(log.getTenantId());
+        copy.setIpAddress(log.getIpAddress());
+        copy.setCreatedAt(log.getCreatedAt());
+        copy.setDetail(truncate(log.getDetail()));
+        copy.setErrorMessage(truncate(log.getErrorMessage()));
+        return copy;
+    }
+
+    private static String truncate(String text) {
+        return text != null && text.length() > AuditLogRepository.TEXT_PREVIEW_LENGTH
+                ? text.substring(0, AuditLogRepository.TEXT_PREVIEW_LENGTH)
+                : text;
+    }
+
+    private boolean warmedUp() {
+        return System.nanoTime() - startedAt >= warmupNanos;
+    }
+
+    /**
+     * Fixed-size ring. Writers claim a sequence number and publish an
+     * entry tagged with it; a reader that finds a slot holding another
+     * sequence (not yet published, or already overwritten) gives up.
+     */
+    private static final class Ring {
+        private final AtomicReferenceArray<Entry> slots;
+        private final int mask;
+        private final AtomicLong next = new AtomicLong();
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        void add(AuditLog log) {
+            long sequence = next.getAndIncrement();
+            slots.set((int) (sequence & mask), new Entry(sequence, log));
+        }
+
+        List<AuditLog> latest(int limit) {
+            long end = next.get();
+            if (limit <= 0 || limit > slots.length() || end < limit) {
+                return null;
+            }
+            List<AuditLog> logs = new ArrayList<>(limit);
+            for (long sequence = end - 1; sequence >= end - limit; sequence--) {
+                Entry entry = slots.get((int) (sequence & mask));
+                if (entry == null || entry.sequence != sequence) {
+                    return null;
+                }
+                logs.add(entry.log);
+            }
+            return logs;
+        }
+    }
+
+    private record Entry(long sequence, AuditLog log) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.study.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks a healthy read replica for read-only repository calls.
+ * Replicas are probed in the background; an unhealthy replica is skipped
+ * until a probe succeeds again.
+ */
+public class ReplicaRouter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_CONNECTIONS;
+
+        static Strategy parse(String value) {
+            if (value == null || value.isBlank()) {
+                return ROUND_ROBIN;
+            }
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final String user;
+    private final String password;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRouter(List<String> urls, Strategy strategy, String user, String password,
+                         long healthCheckIntervalMillis) {
+        this.replicas = new ArrayList<>();
+        for (String url : urls) {
+            replicas.add(new Replica(url));
+        }
+        this.strategy = strategy;
+        this.user = user;
+        this.password = password;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-health-check");
+            t.setDaemon(true);
+            return t;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0,
+                healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open a read-only connection on a healthy replica.
+     *
+     * @return connection, or null when no replica is usable
+     */
+    public Connection getConnection() {
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = select();
+            if (replica == null) {
+                return null;
+            }
+            try {
+                Connection conn = DriverManager.getConnection(replica.url, user, password);
+                conn.setReadOnly(true);
+                return track(replica, conn);
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+        return null;
+    }
+
+    public int healthyCount() {
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy.get()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Replica select() {
+        if (strategy == Strategy.LEAST_CONNECTIONS) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.healthy.get() && (best == null || replica.active.get() < best.active.get())) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(cursor.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy.get()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection conn = DriverManager.getConnection(replica.url, user, password)) {
+                if (conn.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    if (replica.healthy.compareAndSet(false, true)) {
+                        logger.info("Replica is healthy: {}", replica.url);
+                    }
+                } else {
+                    markDown(replica, null);
+                }
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    private void markDown(Replica replica, SQLException cause) {
+        if (replica.healthy.compareAndSet(true, false)) {
+            logger.warn("Replica marked unhealthy: {} ({})", replica.url,
+                    cause != null ? cause.getMessage() : "validation failed");
+        }
+    }
+
+    /**
+     * Wrap the connection so closing it releases the replica's active count.
+     */
+    private Connection track(Replica replica, Connection conn) {
+        replica.active.incrementAndGet();
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        replica.active.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+    }
+
+    private static final class Replica {
+        private final String url;
+        // optimistic until the first probe says otherwise
+        private final AtomicBoolean healthy = new AtomicBoolean(true);
+        private final AtomicInteger active = new AtomicInteger();
+
+        private Replica(String url) {
+            this.url = url;
+        }
+    }
+}
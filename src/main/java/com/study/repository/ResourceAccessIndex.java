@@ -0,0 +1,499 @@
+package com.study.repository;
+
+import com.study.common.util.ResourceIdTrie;
+import com.study.context.TenantContext;
+import com.study.domain.Resource;
+import com.study.service.dto.ResourceRoleScope;
+import com.study.service.dto.ResourceUserScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-memory reverse index answering "who can access this resource?":
+ * (resource type, resource id) to the roles holding a scoped grant on it,
+ * and each role to its members.
+ * <p>
+ * Type-wide grants, exact ids and wildcard patterns are all covered; global
+ * (unscoped) role permissions are not listed. A role's users are its direct
+ * members plus those holding it through a group, from the
+ * {@link GroupMembershipIndex}. The index is loaded once in
+ * the background and then kept current by the repositories after each
+ * committed change to scopes, roles, user roles and users. Until the load
+ * finishes {@link #isReady()} is false and callers use
+ * {@link #lookupUncached}, which applies the same rules to rows read for
+ * just the resource types asked about.
+ * <p>
+ * Writers are rare and serialized on the index; readers never lock. Role
+ * members are sorted {@code long[]} replaced on change, so a page of users
+ * is found without walking the ones before it.
+ * <p>
+ * There is one index per tenant, built on the tenant's first lookup. At most
+ * {@code rbac.tenant.cache.maxTenants} are resident, and a tenant with more
+ * than {@code rbac.tenant.cache.maxAccessRows} rows to load is not indexed
+ * and always served uncached.
+ */
+public class ResourceAccessIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ResourceAccessIndex.class);
+    private static final String GLOBAL_SCOPE_KEY = "__GLOBAL__";
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    private static final int MAX_ROWS = Integer.getInteger("rbac.tenant.cache.maxAccessRows", 200_000);
+    private static final TenantCache<ResourceAccessIndex> TENANTS = new TenantCache<>("Resource access index",
+            Integer.getInteger("rbac.tenant.cache.maxTenants", 64), ResourceAccessIndex::new);
+
+    private static volatile PermissionRepository repository;
+
+    private final long tenantId;
+    private final AtomicBoolean bootstrapStarted = new AtomicBoolean();
+    /** Bumped by every change, so a load that overlapped one is retried. */
+    private final AtomicLong changes = new AtomicLong();
+    private volatile State state;
+
+    /** One scoped grant; {@code resourceId} is null for the whole type. */
+    record Grant(long roleId, String permissionCode, String resourceId) {
+    }
+
+    /** Grants on one resource type. Fields hold immutable values replaced under the index lock. */
+    private static final class TypeGrants {
+        volatile Set<Grant> wholeType = Set.of();
+        final ConcurrentHashMap<String, Set<Grant>> byId = new ConcurrentHashMap<>();
+        volatile List<Grant> patterns = List.of();
+    }
+
+    private static final class State {
+        final ConcurrentHashMap<String, TypeGrants> types = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, String> roleCodes = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, long[]> members = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, String> usernames = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Receives the rows read by {@link PermissionRepository#loadAccessIndex}
+     * and {@link PermissionRepository#loadAccessRows}.
+     */
+    interface Loader {
+        void role(long roleId, String roleCode);
+
+        void user(long userId, String username);
+
+        void member(long userId, long roleId);
+
+        void scope(long roleId, String permissionCode, String resourceType, String resourceId);
+    }
+
+    /**
+     * A page of the users who can access a resource, plus every role grant.
+     */
+    public record AccessPage(List<ResourceRoleScope> roleScopes, List<ResourceUserScope> userScopes, long totalUsers) {
+    }
+
+    private ResourceAccessIndex(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public static ResourceAccessIndex forTenant(long tenantId) {
+        return TENANTS.get(tenantId);
+    }
+
+    /**
+     * Index of the tenant bound to the calling thread.
+     */
+    public static ResourceAccessIndex current() {
+        return forTenant(TenantContext.current());
+    }
+
+    /**
+     * Load each tenant's index from {@code repository} in the background on
+     * its first lookup. Only the first call does anything.
+     */
+    public static synchronized void register(PermissionRepository repository) {
+        if (ResourceAccessIndex.repository == null) {
+            ResourceAccessIndex.repository = repository;
+        }
+    }
+
+    /**
+     * Whether lookups are answered from memory; starts loading the index
+     * the first time it is asked.
+     */
+    public boolean isReady() {
+        if (state != null) {
+            return true;
+        }
+        bootstrap();
+        return false;
+    }
+
+    /**
+     * Load roles, members and scopes in the background. Only the first call
+     * does anything.
+     */
+    private void bootstrap() {
+        PermissionRepository source = repository;
+        if (source == null || !bootstrapStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> TenantContext.runAs(tenantId, () -> {
+            long startedAt = System.nanoTime();
+            try {
+                for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+                    long before = changes.get();
+                    State loaded = load(source::loadAccessIndex, MAX_ROWS);
+                    synchronized (this) {
+                        if (changes.get() == before) {
+                            state = loaded;
+                            logger.info("Resource access index of tenant {} loaded {} roles, {} types in {} ms",
+                                    tenantId, loaded.roleCodes.size(), loaded.types.size(),
+                                    (System.nanoTime() - startedAt) / 1_000_000);
+                            return;
+                        }
+                    }
+                }
+                logger.warn("Resource access index of tenant {} not loaded: grants kept changing, "
+                        + "access views will use SQL", tenantId);
+            } catch (RuntimeException e) {
+                logger.warn("Resource access index of tenant {} not loaded, access views will use SQL: {}",
+                        tenantId, e.getMessage());
+            }
+        }), "resource-access-bootstrap-" + tenantId);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static State load(Consumer<Loader> source, int maxRows) {
+        State loaded = new State();
+        Map<Long, List<Long>> members = new HashMap<>();
+        source.accept(new Loader() {
+            private int rows;
+
+            @Override
+            public void role(long roleId, String roleCode) {
+                count();
+                loaded.roleCodes.put(roleId, roleCode);
+            }
+
+            @Override
+            public void user(long userId, String username) {
+                count();
+                loaded.usernames.put(userId, username);
+            }
+
+            @Override
+            public void member(long userId, long roleId) {
+                count();
+                members.computeIfAbsent(roleId, id -> new ArrayList<>()).add(userId);
+            }
+
+            @Override
+            public void scope(long roleId, String permissionCode, String resourceType, String resourceId) {
+                count();
+                addGrant(loaded, roleId, permissionCode, resourceType, resourceId);
+            }
+
+            private void count() {
+                if (++rows > maxRows) {
+                    throw new IllegalStateException("more than " + maxRows + " rows");
+                }
+            }
+        });
+        members.forEach((roleId, userIds) -> loaded.members.put(roleId,
+                userIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray()));
+        return loaded;
+    }
+
+    /**
+     * Who can access the first resource of {@code chain}; the rest are its
+     * ancestors, whose grants are inherited. Users are listed per grant,
+     * ordered by role code and permission, and paged over that list.
+     * Returns null if the index is not loaded.
+     */
+    public AccessPage lookup(List<Resource> chain, int offset, int limit) {
+        State current = state;
+        if (current == null) {
+            bootstrap();
+            return null;
+        }
+        return lookup(current, GroupMembershipIndex.forTenant(tenantId), chain, offset, limit);
+    }
+
+    /**
+     * {@link #lookup} without the index, for the tenant bound to the calling
+     * thread: reads the grants on the chain's resource types, their roles
+     * and those roles' users from {@code repository}.
+     */
+    public static AccessPage lookupUncached(PermissionRepository repository, List<Resource> chain,
+                                            int offset, int limit) {
+        Set<String> types = new HashSet<>();
+        for (Resource resource : chain) {
+            types.add(lower(resource.getType()));
+        }
+        State rows = load(loader -> repository.loadAccessRows(types, loader), Integer.MAX_VALUE);
+        GroupMembershipIndex groups = GroupMembershipIndex.current();
+        Set<Long> unnamed = new HashSet<>();
+        for (Long roleId : rows.roleCodes.keySet()) {
+            for (long userId : groups.membersWithRole(roleId)) {
+                if (!rows.usernames.containsKey(userId)) {
+                    unnamed.add(userId);
+                }
+            }
+        }
+        if (!unnamed.isEmpty()) {
+            rows.usernames.putAll(repository.findUsernames(unnamed));
+        }
+        return lookup(rows, groups, chain, offset, limit);
+    }
+
+    private static AccessPage lookup(State current, GroupMembershipIndex groups, List<Resource> chain,
+                                     int offset, int limit) {
+        // One grant per (role, permission); the nearest scope wins.
+        Map<String, ResourceRoleScope> byRolePermission = new LinkedHashMap<>();
+        Map<String, Long> roleIds = new HashMap<>();
+        for (int level = 0; level < chain.size(); level++) {
+            Resource resource = chain.get(level);
+            TypeGrants grants = current.types.get(lower(resource.getType()));
+            if (grants == null) {
+                continue;
+            }
+            String id = resource.getId().toString();
+            String inherited = level == 0 ? "" : " (from " + resource.getType() + "/" + id + ")";
+            List<Grant> matched = new ArrayList<>(grants.wholeType);
+            matched.addAll(grants.byId.getOrDefault(lower(id), Set.of()));
+            for (Grant grant : grants.patterns) {
+                if (ResourceIdTrie.matches(grant.resourceId, id)) {
+                    matched.add(grant);
+                }
+            }
+            for (Grant grant : matched) {
+                String roleCode = current.roleCodes.get(grant.roleId);
+                if (roleCode == null) {
+                    continue;
+                }
+                String key = grant.roleId + ":" + grant.permissionCode;
+                if (!byRolePermission.containsKey(key)) {
+                    ResourceRoleScope scope = new ResourceRoleScope();
+                    scope.setRoleCode(roleCode);
+                    scope.setPermissionCode(grant.permissionCode);
+                    scope.setScopeKey((grant.resourceId != null ? grant.resourceId : GLOBAL_SCOPE_KEY) + inherited);
+                    byRolePermission.put(key, scope);
+                    roleIds.put(key, grant.roleId);
+                }
+            }
+        }
+        List<Map.Entry<String, ResourceRoleScope>> ordered = new ArrayList<>(byRolePermission.entrySet());
+        ordered.sort(Comparator.comparing((Map.Entry<String, ResourceRoleScope> e) -> e.getValue().getRoleCode())
+                .thenComparing(e -> e.getValue().getPermissionCode()));
+
+        List<ResourceRoleScope> roleScopes = new ArrayList<>(ordered.size());
+        List<ResourceUserScope> userScopes = new ArrayList<>(Math.min(limit, 256));
+        long total = 0;
+        long skip = Math.max(0, offset);
+        for (Map.Entry<String, ResourceRoleScope> entry : ordered) {
+            ResourceRoleScope scope = entry.getValue();
+            roleScopes.add(scope);
+            long roleId = roleIds.get(entry.getKey());
+            long[] userIds = GroupMembershipIndex.union(current.members.getOrDefault(roleId, new long[0]),
+                    groups.membersWithRole(roleId));
+            total += userIds.length;
+            if (skip >= userIds.length) {
+                skip -= userIds.length;
+                continue;
+            }
+            for (int i = (int) skip; i < userIds.length && userScopes.size() < limit; i++) {
+                ResourceUserScope user = new ResourceUserScope();
+                user.setUsername(current.usernames.getOrDefault(userIds[i], "#" + userIds[i]));
+                user.setRoleCode(scope.getRoleCode());
+                user.setPermissionCode(scope.getPermissionCode());
+                userScopes.add(user);
+            }
+            skip = 0;
+        }
+        return new AccessPage(roleScopes, userScopes, total);
+    }
+
+    public synchronized void onScopeAdded(long roleId, String permissionCode, String resourceType, String resourceId) {
+        changes.incrementAndGet();
+        if (state != null) {
+            addGrant(state, roleId, permissionCode, resourceType, resourceId);
+        }
+    }
+
+    public synchronized void onScopeRemoved(long roleId, String permissionCode, String resourceType, String resourceId) {
+        changes.incrementAndGet();
+        if (state != null) {
+            Grant grant = new Grant(roleId, permissionCode, blankToNull(resourceId));
+            removeGrants(state, lower(resourceType), g -> sameGrant(g, grant));
+        }
+    }
+
+    /**
+     * Every scope of the role for this permission and type, including the
+     * type-wide one.
+     */
+    public synchronized void onScopesCleared(long roleId, String permissionCode, String resourceType) {
+        changes.incrementAndGet();
+        if (state != null) {
+            removeGrants(state, lower(resourceType), g -> g.roleId == roleId && g.permissionCode.equals(permissionCode));
+        }
+    }
+
+    public synchronized void onPermissionDeleted(String permissionCode) {
+        changes.incrementAndGet();
+        if (state != null) {
+            for (String type : state.types.keySet()) {
+                removeGrants(state, type, g -> g.permissionCode.equals(permissionCode));
+            }
+        }
+    }
+
+    public synchronized void onRoleSaved(long roleId, String roleCode) {
+        changes.incrementAndGet();
+        if (state != null) {
+            state.roleCodes.put(roleId, roleCode);
+        }
+    }
+
+    public synchronized void onRoleDeleted(long roleId) {
+        changes.incrementAndGet();
+        if (state != null) {
+            state.roleCodes.remove(roleId);
+            state.members.remove(roleId);
+            for (String type : state.types.keySet()) {
+                removeGrants(state, type, g -> g.roleId == roleId);
+            }
+        }
+    }
+
+    public synchronized void onUserSaved(long userId, String username) {
+        changes.incrementAndGet();
+        if (state != null) {
+            state.usernames.put(userId, username);
+        }
+    }
+
+    public synchronized void onUserDeleted(long userId) {
+        changes.incrementAndGet();
+        if (state != null) {
+            state.usernames.remove(userId);
+            for (Long roleId : state.members.keySet()) {
+                removeMember(state, roleId, userId);
+            }
+        }
+    }
+
+    public synchronized void onUserRoleAdded(long userId, long roleId) {
+        changes.incrementAndGet();
+        if (state != null) {
+            addMember(state, roleId, userId);
+        }
+    }
+
+    public synchronized void onUserRoleRemoved(long userId, long roleId) {
+        changes.incrementAndGet();
+        if (state != null) {
+            removeMember(state, roleId, userId);
+        }
+    }
+
+    private static void addGrant(State state, long roleId, String permissionCode, String resourceType,
+                                 String resourceId) {
+        Grant grant = new Grant(roleId, permissionCode, blankToNull(resourceId));
+        TypeGrants grants = state.types.computeIfAbsent(lower(resourceType), t -> new TypeGrants());
+        if (grant.resourceId == null) {
+            grants.wholeType = with(grants.wholeType, grant);
+        } else if (ResourceIdTrie.isPattern(grant.resourceId)) {
+            List<Grant> patterns = new ArrayList<>(grants.patterns);
+            patterns.add(grant);
+            grants.patterns = List.copyOf(patterns);
+        } else {
+            grants.byId.compute(lower(grant.resourceId), (id, set) -> with(set != null ? set : Set.of(), grant));
+        }
+    }
+
+    private static void removeGrants(State state, String type, Predicate<Grant> filter) {
+        TypeGrants grants = state.types.get(type);
+        if (grants == null) {
+            return;
+        }
+        grants.wholeType = without(grants.wholeType, filter);
+        grants.patterns = grants.patterns.stream().filter(filter.negate()).toList();
+        for (String id : grants.byId.keySet()) {
+            grants.byId.computeIfPresent(id, (k, set) -> {
+                Set<Grant> kept = without(set, filter);
+                return kept.isEmpty() ? null : kept;
+            });
+        }
+    }
+
+    private static boolean sameGrant(Grant a, Grant b) {
+        return a.roleId == b.roleId && a.permissionCode.equals(b.permissionCode)
+                && (a.resourceId == null ? b.resourceId == null
+                : b.resourceId != null && a.resourceId.equalsIgnoreCase(b.resourceId));
+    }
+
+    private static Set<Grant> with(Set<Grant> set, Grant grant) {
+        Set<Grant> copy = new HashSet<>(set);
+        copy.add(grant);
+        return Set.copyOf(copy);
+    }
+
+    private static Set<Grant> without(Set<Grant> set, Predicate<Grant> filter) {
+        Set<Grant> copy = new HashSet<>(set);
+        copy.removeIf(filter);
+        return Set.copyOf(copy);
+    }
+
+    private static void addMember(State state, long roleId, long userId) {
+        state.members.compute(roleId, (id, users) -> {
+            if (users == null) {
+                return new long[]{userId};
+            }
+            int index = Arrays.binarySearch(users, userId);
+            if (index >= 0) {
+                return users;
+            }
+            int at = -index - 1;
+            long[] copy = new long[users.length + 1];
+            System.arraycopy(users, 0, copy, 0, at);
+            copy[at] = userId;
+            System.arraycopy(users, at, copy, at + 1, users.length - at);
+            return copy;
+        });
+    }
+
+    private static void removeMember(State state, long roleId, long userId) {
+        state.members.computeIfPresent(roleId, (id, users) -> {
+            int index = Arrays.binarySearch(users, userId);
+            if (index < 0) {
+                return users;
+            }
+            long[] copy = new long[users.length - 1];
+            System.arraycopy(users, 0, copy, 0, index);
+            System.arraycopy(users, index + 1, copy, index, users.length - index - 1);
+            return copy;
+        });
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static String lower(String value) {
+        return Objects.requireNonNullElse(value, "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -6,31 +6,77 @@ import com.study.exception.ValidationException;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Resources form a forest through {@code parent_id}. Each row also stores
+ * its materialized {@code path} of ids from the root ({@code /1/5/12/}), kept
+ * in step on create, move and delete, so ancestors are read from the row
+ * itself and a subtree is one index range scan on {@code path LIKE '/1/5/%'}.
+ * Ids are global, so a path never crosses tenants; every query is still
+ * qualified by the current tenant.
+ * <p>
+ * Permission checks read {@link Location}s from a per-tenant LRU cache,
+ * dropped on local writes and expiring after
+ * {@code rbac.resource.cache.ttlSeconds} so other nodes' moves are seen.
+ */
 public class ResourceRepository extends BaseRepository {
+    /** Column order read by index in {@link #mapResource}. */
+    private static final String COLUMNS = "id, code, name, type, url, created_at, parent_id, path";
+    /** Width of resources.path. */
+    private static final int MAX_PATH_LENGTH = 760;
+    private static final int SUBTREE_CHUNK = 500;
+    private static final int LOCATION_CACHE_SIZE = Integer.getInteger("rbac.resource.cache.size", 10_000);
+    private static final long LOCATION_TTL_NANOS =
+            Long.getLong("rbac.resource.cache.ttlSeconds", 60) * 1_000_000_000L;
+    private static final TenantCache<Map<Long, CachedLocation>> LOCATIONS = new TenantCache<>(
+            "Resource location cache", Integer.getInteger("rbac.tenant.cache.maxTenants", 64),
+            tenantId -> newLocationCache());
+
+    /**
+     * Type and ancestor ids (nearest first) of a resource.
+     */
+    public record Location(long id, String type, List<Long> ancestorIds) {
+    }
+
+    private record CachedLocation(Location location, long loadedAt) {
+    }
 
     public ResourceRepository(DatabaseConnection dbConnection) {
         super(dbConnection);
     }
 
     public Resource save(Resource resource) {
-        try (Connection conn = dbConnection.getConnection()) {
-            return save(conn, resource);
-        } catch (SQLException e) {
-            logger.error("Failed to save resource", e);
-            throw new DataAccessException("Failed to save resource", e);
-        }
+        return executeInTransaction(conn -> save(conn, resource));
     }
 
+    /**
+     * Insert the resource under {@code resource.getParentId()} (a root if
+     * null). The path needs the generated id, so it is set by a second
+     * statement; call inside a transaction.
+     */
     public Resource save(Connection conn, Resource resource) {
-        String sql = "INSERT INTO resources (code, name, type, url) VALUES (?, ?, ?, ?)";
+        String parentPath = "/";
+        if (resource.getParentId() != null) {
+            parentPath = findById(conn, resource.getParentId(), true)
+                    .orElseThrow(() -> new ValidationException("Parent resource not found: " + resource.getParentId()))
+                    .getPath();
+        }
+        String sql = "INSERT INTO resources (tenant_id, code, name, type, url, parent_id, path) VALUES (?, ?, ?, ?, ?, ?, '')";
         try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, resource.getCode());
-            pstmt.setString(2, resource.getName());
-            pstmt.setString(3, resource.getType());
-            pstmt.setString(4, resource.getUrl());
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, resource.getCode());
+            pstmt.setString(3, resource.getName());
+            pstmt.setString(4, resource.getType());
+            pstmt.setString(5, resource.getUrl());
+            pstmt.setObject(6, resource.getParentId(), Types.BIGINT);
             pstmt.executeUpdate();
 
             try (ResultSet keys = pstmt.getGeneratedKeys()) {
@@ -38,6 +84,14 @@ public class ResourceRepository extends BaseRepository {
                     resource.setId(keys.getLong(1));
                 }
             }
+            String path = parentPath + resource.getId() + "/";
+            checkPathLength(path.length());
+            try (PreparedStatement update = conn.prepareStatement("UPDATE resources SET path = ? WHERE id = ?")) {
+                update.setString(1, path);
+                update.setLong(2, resource.getId());
+                update.executeUpdate();
+            }
+            resource.setPath(path);
             return resource;
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new ValidationException("Resource code already exists: " + resource.getCode());
@@ -49,6 +103,7 @@ public class ResourceRepository extends BaseRepository {
     public void update(Resource resource) {
         try (Connection conn = dbConnection.getConnection()) {
             update(conn, resource);
+            LOCATIONS.get(tenantId()).remove(resource.getId());
         } catch (SQLException e) {
             logger.error("Failed to update resource", e);
             throw new DataAccessException("Failed to update resource", e);
@@ -56,12 +111,13 @@ public class ResourceRepository extends BaseRepository {
     }
 
     public void update(Connection conn, Resource resource) {
-        String sql = "UPDATE resources SET name = ?, type = ?, url = ? WHERE id = ?";
+        String sql = "UPDATE resources SET name = ?, type = ?, url = ? WHERE id = ? AND tenant_id = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, resource.getName());
             pstmt.setString(2, resource.getType());
             pstmt.setString(3, resource.getUrl());
             pstmt.setLong(4, resource.getId());
+            pstmt.setLong(5, tenantId());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Resource not found: " + resource.getId());
             }
@@ -71,17 +127,36 @@ public class ResourceRepository extends BaseRepository {
     }
 
     public void delete(Long resourceId) {
-        try (Connection conn = dbConnection.getConnection()) {
+        executeInTransaction(conn -> {
             delete(conn, resourceId);
-        } catch (SQLException e) {
-            logger.error("Failed to delete resource", e);
-            throw new DataAccessException("Failed to delete resource", e);
-        }
+            return null;
+        });
+        // Descendants were re-pathed as well.
+        LOCATIONS.get(tenantId()).clear();
     }
 
+    /**
+     * Delete the resource; its children move up to its parent. Call inside a
+     * transaction.
+     */
     public void delete(Connection conn, Long resourceId) {
-        String sql = "DELETE FROM resources WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        Resource node = findById(conn, resourceId, true)
+                .orElseThrow(() -> new ValidationException("Resource not found: " + resourceId));
+        String oldPath = node.getPath();
+        String parentPath = oldPath.substring(0, oldPath.length() - (resourceId + "/").length());
+        try (PreparedStatement reparent = conn.prepareStatement(
+                     "UPDATE resources SET parent_id = ? WHERE parent_id = ?");
+             PreparedStatement repath = conn.prepareStatement(
+                     "UPDATE resources SET path = CONCAT(?, SUBSTRING(path, ?)) WHERE path LIKE ? AND id <> ?");
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM resources WHERE id = ?")) {
+            reparent.setObject(1, node.getParentId(), Types.BIGINT);
+            reparent.setLong(2, resourceId);
+            reparent.executeUpdate();
+            repath.setString(1, parentPath);
+            repath.setInt(2, oldPath.length() + 1);
+            repath.setString(3, oldPath + "%");
+            repath.setLong(4, resourceId);
+            repath.executeUpdate();
             pstmt.setLong(1, resourceId);
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Resource not found: " + resourceId);
@@ -91,11 +166,64 @@ public class ResourceRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Move a resource and its subtree under {@code newParentId}, or make it a
+     * root if null. Every descendant path is rewritten by one statement.
+     */
+    public Resource move(Long resourceId, Long newParentId) {
+        Resource moved = executeInTransaction(conn -> move(conn, resourceId, newParentId));
+        LOCATIONS.get(tenantId()).clear();
+        return moved;
+    }
+
+    public Resource move(Connection conn, Long resourceId, Long newParentId) {
+        Resource node = findById(conn, resourceId, true)
+                .orElseThrow(() -> new ValidationException("Resource not found: " + resourceId));
+        String newPrefix = "/";
+        if (newParentId != null) {
+            Resource parent = findById(conn, newParentId, true)
+                    .orElseThrow(() -> new ValidationException("Parent resource not found: " + newParentId));
+            if (parent.getPath().startsWith(node.getPath())) {
+                throw new ValidationException("Cannot move a resource under itself or one of its descendants");
+            }
+            newPrefix = parent.getPath();
+        }
+        String oldPath = node.getPath();
+        String newPath = newPrefix + resourceId + "/";
+        if (newPath.equals(oldPath)) {
+            return node;
+        }
+        try (PreparedStatement longest = conn.prepareStatement(
+                     "SELECT MAX(LENGTH(path)) FROM resources WHERE path LIKE ?");
+             PreparedStatement reparent = conn.prepareStatement("UPDATE resources SET parent_id = ? WHERE id = ?");
+             PreparedStatement repath = conn.prepareStatement(
+                     "UPDATE resources SET path = CONCAT(?, SUBSTRING(path, ?)) WHERE path LIKE ?")) {
+            longest.setString(1, oldPath + "%");
+            try (ResultSet rs = longest.executeQuery()) {
+                rs.next();
+                checkPathLength(rs.getInt(1) - oldPath.length() + newPath.length());
+            }
+            reparent.setObject(1, newParentId, Types.BIGINT);
+            reparent.setLong(2, resourceId);
+            reparent.executeUpdate();
+            repath.setString(1, newPath);
+            repath.setInt(2, oldPath.length() + 1);
+            repath.setString(3, oldPath + "%");
+            repath.executeUpdate();
+            node.setParentId(newParentId);
+            node.setPath(newPath);
+            return node;
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to move resource", e);
+        }
+    }
+
     public Optional<Resource> findById(Long id) {
-        String sql = "SELECT * FROM resources WHERE id = ?";
-        try (Connection conn = dbConnection.getConnection();
+        String sql = "SELECT " + COLUMNS + " FROM resources WHERE id = ? AND tenant_id = ?";
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapResource(rs));
@@ -108,10 +236,11 @@ public class ResourceRepository extends BaseRepository {
     }
 
     public Optional<Resource> findByCode(String code) {
-        String sql = "SELECT * FROM resources WHERE code = ?";
-        try (Connection conn = dbConnection.getConnection();
+        String sql = "SELECT " + COLUMNS + " FROM resources WHERE tenant_id = ? AND code = ?";
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, code);
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, code);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapResource(rs));
@@ -124,11 +253,12 @@ public class ResourceRepository extends BaseRepository {
     }
 
     public List<Resource> findAll() {
-        String sql = "SELECT * FROM resources ORDER BY created_at DESC";
+        String sql = "SELECT " + COLUMNS + " FROM resources WHERE tenant_id = ? ORDER BY created_at DESC";
         List<Resource> resources = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, tenantId());
+            ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 resources.add(mapResource(rs));
             }
@@ -146,12 +276,13 @@ public class ResourceRepository extends BaseRepository {
         String inClause = ids.stream()
                 .map(id -> "?")
                 .collect(java.util.stream.Collectors.joining(","));
-        String sql = "SELECT * FROM resources WHERE id IN (" + inClause + ")";
+        String sql = "SELECT " + COLUMNS + " FROM resources WHERE tenant_id = ? AND id IN (" + inClause + ")";
         
         List<Resource> resources = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            int i = 1;
+            pstmt.setLong(1, tenantId());
+            int i = 2;
             for (Long id : ids) {
                 pstmt.setLong(i++, id);
             }
@@ -166,6 +297,42 @@ public class ResourceRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Locations of the given resources of the current tenant, from the cache
+     * where possible and otherwise read in one query. Unknown ids are left
+     * out.
+     */
+    public Map<Long, Location> findLocations(Collection<Long> ids) {
+        Map<Long, CachedLocation> cache = LOCATIONS.get(tenantId());
+        Map<Long, Location> found = new HashMap<>();
+        java.util.Set<Long> missing = new HashSet<>();
+        long now = System.nanoTime();
+        for (Long id : ids) {
+            CachedLocation cached = cache.get(id);
+            if (cached != null && now - cached.loadedAt() < LOCATION_TTL_NANOS) {
+                found.put(id, cached.location());
+            } else {
+                missing.add(id);
+            }
+        }
+        for (Resource resource : findByIds(missing)) {
+            Location location = new Location(resource.getId(), resource.getType(),
+                    List.copyOf(resource.getAncestorIds()));
+            cache.put(resource.getId(), new CachedLocation(location, now));
+            found.put(resource.getId(), location);
+        }
+        return found;
+    }
+
+    private static Map<Long, CachedLocation> newLocationCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedLocation> eldest) {
+                return size() > LOCATION_CACHE_SIZE;
+            }
+        });
+    }
+
     public List<Resource> findByTypes(java.util.Set<String> types) {
         if (types == null || types.isEmpty()) {
             return new ArrayList<>();
@@ -173,12 +340,13 @@ public class ResourceRepository extends BaseRepository {
         String inClause = types.stream()
                 .map(t -> "?")
                 .collect(java.util.stream.Collectors.joining(","));
-        String sql = "SELECT * FROM resources WHERE LOWER(type) IN (" + inClause + ")";
+        String sql = "SELECT " + COLUMNS + " FROM resources WHERE tenant_id = ? AND LOWER(type) IN (" + inClause + ")";
 
         List<Resource> resources = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            int i = 1;
+            pstmt.setLong(1, tenantId());
+            int i = 2;
             for (String type : types) {
                 pstmt.setString(i++, type.toLowerCase());
             }
@@ -193,14 +361,80 @@ public class ResourceRepository extends BaseRepository {
         }
     }
 
+    /**
+     * The given resources and all their descendants. Each root is one range
+     * on the path index; roots inside another root's subtree are skipped.
+     */
+    public List<Resource> findSubtrees(Collection<Resource> roots) {
+        List<String> prefixes = roots.stream()
+                .map(Resource::getPath)
+                .filter(path -> path != null && !path.isEmpty())
+                .sorted()
+                .toList();
+        List<String> disjoint = new ArrayList<>();
+        for (String prefix : prefixes) {
+            if (disjoint.isEmpty() || !prefix.startsWith(disjoint.get(disjoint.size() - 1))) {
+                disjoint.add(prefix);
+            }
+        }
+        List<Resource> resources = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection()) {
+            for (int start = 0; start < disjoint.size(); start += SUBTREE_CHUNK) {
+                List<String> chunk = disjoint.subList(start, Math.min(disjoint.size(), start + SUBTREE_CHUNK));
+                String where = chunk.stream()
+                        .map(p -> "path LIKE ?")
+                        .collect(java.util.stream.Collectors.joining(" OR "));
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT " + COLUMNS + " FROM resources WHERE tenant_id = ? AND (" + where + ")")) {
+                    pstmt.setLong(1, tenantId());
+                    int i = 2;
+                    for (String prefix : chunk) {
+                        pstmt.setString(i++, prefix + "%");
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            resources.add(mapResource(rs));
+                        }
+                    }
+                }
+            }
+            return resources;
+        } catch (SQLException e) {
+            logger.error("Failed to find resource subtrees", e);
+            throw new DataAccessException("Failed to find resource subtrees", e);
+        }
+    }
+
+    private Optional<Resource> findById(Connection conn, Long id, boolean forUpdate) {
+        String sql = "SELECT " + COLUMNS + " FROM resources WHERE id = ? AND tenant_id = ?" + (forUpdate ? " FOR UPDATE" : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapResource(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to find resource", e);
+        }
+    }
+
+    private static void checkPathLength(int length) {
+        if (length > MAX_PATH_LENGTH) {
+            throw new ValidationException("Resource hierarchy is too deep");
+        }
+    }
+
     private Resource mapResource(ResultSet rs) throws SQLException {
         Resource resource = new Resource();
-        resource.setId(rs.getLong("id"));
-        resource.setCode(rs.getString("code"));
-        resource.setName(rs.getString("name"));
-        resource.setType(rs.getString("type"));
-        resource.setUrl(rs.getString("url"));
-        resource.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        resource.setId(rs.getLong(1));
+        resource.setCode(rs.getString(2));
+        resource.setName(rs.getString(3));
+        resource.setType(rs.getString(4));
+        resource.setUrl(rs.getString(5));
+        resource.setCreatedAt(rs.getTimestamp(6).toLocalDateTime());
+        long parentId = rs.getLong(7);
+        resource.setParentId(rs.wasNull() ? null : parentId);
+        resource.setPath(rs.getString(8));
         return resource;
     }
 }
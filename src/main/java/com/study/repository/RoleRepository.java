@@ -5,14 +5,31 @@ import com.study.exception.DataAccessException;
 import com.study.exception.ValidationException;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Repository for role entity.
  */
 public class RoleRepository extends BaseRepository {
+    /** Column order read by index in {@link #mapResultSetToRole}. */
+    private static final String COLUMNS = "id, code, name, description, created_at";
+    private static final String JOINED_COLUMNS = "r.id, r.code, r.name, r.description, r.created_at";
+
+
+    /**
+     * When a user-role assignment is in effect; null bounds are open.
+     */
+    public record Assignment(long tenantId, long userId, long roleId, LocalDateTime validFrom,
+                             LocalDateTime validUntil) {
+
+        public boolean isActiveAt(LocalDateTime time) {
+            return (validFrom == null || !validFrom.isAfter(time)) && (validUntil == null || validUntil.isAfter(time));
+        }
+    }
 
     public RoleRepository(DatabaseConnection dbConnection) {
         super(dbConnection);
@@ -20,7 +37,9 @@ public class RoleRepository extends BaseRepository {
 
     public Role save(Role role) {
         try (Connection conn = dbConnection.getConnection()) {
-            return save(conn, role);
+            Role saved = save(conn, role);
+            accessIndex().onRoleSaved(saved.getId(), saved.getCode());
+            return saved;
         } catch (SQLException e) {
             logger.error("Failed to save role", e);
             throw new DataAccessException("Failed to save role", e);
@@ -28,12 +47,13 @@ public class RoleRepository extends BaseRepository {
     }
 
     public Role save(Connection conn, Role role) {
-        String sql = "INSERT INTO roles (code, name, description) VALUES (?, ?, ?)";
+        String sql = "INSERT INTO roles (tenant_id, code, name, description) VALUES (?, ?, ?, ?)";
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, role.getCode());
-            pstmt.setString(2, role.getName());
-            pstmt.setString(3, role.getDescription());
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, role.getCode());
+            pstmt.setString(3, role.getName());
+            pstmt.setString(4, role.getDescription());
             pstmt.executeUpdate();
 
             try (ResultSet keys = pstmt.getGeneratedKeys()) {
@@ -59,11 +79,12 @@ public class RoleRepository extends BaseRepository {
     }
 
     public void update(Connection conn, Role role) {
-        String sql = "UPDATE roles SET name = ?, description = ? WHERE id = ?";
+        String sql = "UPDATE roles SET name = ?, description = ? WHERE id = ? AND tenant_id = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, role.getName());
             pstmt.setString(2, role.getDescription());
             pstmt.setLong(3, role.getId());
+            pstmt.setLong(4, tenantId());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Role not found: " + role.getId());
             }
@@ -75,6 +96,8 @@ public class RoleRepository extends BaseRepository {
     public void delete(Long roleId) {
         try (Connection conn = dbConnection.getConnection()) {
             delete(conn, roleId);
+            accessIndex().onRoleDeleted(roleId);
+            groupIndex().onRoleDeleted(roleId);
         } catch (SQLException e) {
             logger.error("Failed to delete role", e);
             throw new DataAccessException("Failed to delete role", e);
@@ -82,9 +105,10 @@ public class RoleRepository extends BaseRepository {
     }
 
     public void delete(Connection conn, Long roleId) {
-        String sql = "DELETE FROM roles WHERE id = ?";
+        String sql = "DELETE FROM roles WHERE id = ? AND tenant_id = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, roleId);
+            pstmt.setLong(2, tenantId());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("Role not found: " + roleId);
             }
@@ -94,11 +118,12 @@ public class RoleRepository extends BaseRepository {
     }
 
     public Optional<Role> findById(Long id) {
-        String sql = "SELECT * FROM roles WHERE id = ?";
-        try (Connection conn = dbConnection.getConnection();
+        String sql = "SELECT " + COLUMNS + " FROM roles WHERE id = ? AND tenant_id = ?";
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapResultSetToRole(rs));
@@ -111,11 +136,12 @@ public class RoleRepository extends BaseRepository {
     }
 
     public Optional<Role> findByCode(String code) {
-        String sql = "SELECT * FROM roles WHERE code = ?";
-        try (Connection conn = dbConnection.getConnection();
+        String sql = "SELECT " + COLUMNS + " FROM roles WHERE tenant_id = ? AND code = ?";
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, code);
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, code);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(mapResultSetToRole(rs));
@@ -128,12 +154,13 @@ public class RoleRepository extends BaseRepository {
     }
 
     public List<Role> findAll() {
-        String sql = "SELECT * FROM roles ORDER BY created_at DESC";
+        String sql = "SELECT " + COLUMNS + " FROM roles WHERE tenant_id = ? ORDER BY created_at DESC";
         List<Role> roles = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            pstmt.setLong(1, tenantId());
+            ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 roles.add(mapResultSetToRole(rs));
             }
@@ -144,17 +171,47 @@ public class RoleRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Roles of the current tenant with the given ids, in one query.
+     */
+    public List<Role> findByIds(long[] ids) {
+        List<Role> roles = new ArrayList<>();
+        if (ids.length == 0) {
+            return roles;
+        }
+        String sql = "SELECT " + COLUMNS + " FROM roles WHERE tenant_id = ? AND id IN ("
+                + "?, ".repeat(ids.length - 1) + "?)";
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, tenantId());
+            for (int i = 0; i < ids.length; i++) {
+                pstmt.setLong(i + 2, ids[i]);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                roles.add(mapResultSetToRole(rs));
+            }
+            return roles;
+        } catch (SQLException e) {
+            logger.error("Failed to find roles by ids", e);
+            throw new DataAccessException("Failed to find roles", e);
+        }
+    }
+
     public List<Role> findByUserId(Long userId) {
         String sql = """
-            SELECT r.* FROM roles r
+            SELECT %s FROM roles r
             INNER JOIN user_roles ur ON r.id = ur.role_id
-            WHERE ur.user_id = ?
-        """;
+            WHERE ur.user_id = ? AND r.tenant_id = ? AND %s
+        """.formatted(JOINED_COLUMNS, ACTIVE_ASSIGNMENT);
         List<Role> roles = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, userId);
+            pstmt.setLong(2, tenantId());
+            bindActiveAt(pstmt, 3, LocalDateTime.now());
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 roles.add(mapResultSetToRole(rs));
@@ -167,20 +224,56 @@ public class RoleRepository extends BaseRepository {
     }
 
     public void assignRoleToUser(Long userId, Long roleId) {
+        assignRoleToUser(userId, roleId, null, null);
+    }
+
+    public void assignRoleToUser(Connection conn, Long userId, Long roleId) {
+        assignRoleToUser(conn, userId, roleId, null, null);
+    }
+
+    /**
+     * Assign a role for a period; either bound may be null.
+     */
+    public void assignRoleToUser(Long userId, Long roleId, LocalDateTime validFrom, LocalDateTime validUntil) {
         try (Connection conn = dbConnection.getConnection()) {
-            assignRoleToUser(conn, userId, roleId);
+            assignRoleToUser(conn, userId, roleId, validFrom, validUntil);
+            if (new Assignment(tenantId(), userId, roleId, validFrom, validUntil).isActiveAt(LocalDateTime.now())) {
+                accessIndex().onUserRoleAdded(userId, roleId);
+            }
         } catch (SQLException e) {
             logger.error("Failed to assign role to user", e);
             throw new DataAccessException("Failed to assign role", e);
         }
     }
 
-    public void assignRoleToUser(Connection conn, Long userId, Long roleId) {
-        String sql = "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, userId);
-            pstmt.setLong(2, roleId);
-            pstmt.executeUpdate();
+    /**
+     * Assign a role for a period. An expired assignment of the same role
+     * that has not been cleaned up yet is replaced. User and role must both
+     * belong to the current tenant.
+     */
+    public void assignRoleToUser(Connection conn, Long userId, Long roleId,
+                                 LocalDateTime validFrom, LocalDateTime validUntil) {
+        String purge = "DELETE FROM user_roles WHERE user_id = ? AND role_id = ? AND valid_until <= ?";
+        String sql = """
+            INSERT INTO user_roles (user_id, role_id, valid_from, valid_until)
+            SELECT u.id, r.id, ?, ? FROM users u JOIN roles r ON r.tenant_id = u.tenant_id
+            WHERE u.id = ? AND r.id = ? AND u.tenant_id = ?
+        """;
+        try (PreparedStatement expired = conn.prepareStatement(purge);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            expired.setLong(1, userId);
+            expired.setLong(2, roleId);
+            expired.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            expired.executeUpdate();
+
+            pstmt.setTimestamp(1, validFrom != null ? Timestamp.valueOf(validFrom) : null);
+            pstmt.setTimestamp(2, validUntil != null ? Timestamp.valueOf(validUntil) : null);
+            pstmt.setLong(3, userId);
+            pstmt.setLong(4, roleId);
+            pstmt.setLong(5, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("User or role not found");
+            }
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new ValidationException("User already has this role");
         } catch (SQLException e) {
@@ -188,9 +281,88 @@ public class RoleRepository extends BaseRepository {
         }
     }
 
+    /**
+     * The assignment of {@code roleId} to {@code userId} in whichever tenant
+     * the user belongs to; used by the expiry scheduler, which serves all
+     * tenants.
+     */
+    public Optional<Assignment> findAssignment(long userId, long roleId) {
+        String sql = """
+            SELECT u.tenant_id, ur.valid_from, ur.valid_until FROM user_roles ur
+            JOIN users u ON u.id = ur.user_id
+            WHERE ur.user_id = ? AND ur.role_id = ?
+        """;
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, userId);
+            pstmt.setLong(2, roleId);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(new Assignment(rs.getLong(1), userId, roleId,
+                        toLocal(rs.getTimestamp(2)), toLocal(rs.getTimestamp(3))));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.error("Failed to find role assignment", e);
+            throw new DataAccessException("Failed to find role assignment", e);
+        }
+    }
+
+    /**
+     * Hand every assignment of any tenant that starts or ends after
+     * {@code now} to {@code consumer}.
+     */
+    public int findPendingAssignments(LocalDateTime now, Consumer<Assignment> consumer) {
+        String sql = """
+            SELECT u.tenant_id, ur.user_id, ur.role_id, ur.valid_from, ur.valid_until FROM user_roles ur
+            JOIN users u ON u.id = ur.user_id
+            WHERE ur.valid_from > ? OR ur.valid_until > ?
+        """;
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            Timestamp at = Timestamp.valueOf(now);
+            pstmt.setTimestamp(1, at);
+            pstmt.setTimestamp(2, at);
+            ResultSet rs = pstmt.executeQuery();
+            int count = 0;
+            while (rs.next()) {
+                consumer.accept(new Assignment(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                        toLocal(rs.getTimestamp(4)), toLocal(rs.getTimestamp(5))));
+                count++;
+            }
+            return count;
+        } catch (SQLException e) {
+            logger.error("Failed to load pending role assignments", e);
+            throw new DataAccessException("Failed to load pending role assignments", e);
+        }
+    }
+
+    /**
+     * Delete at most {@code limit} assignments of any tenant that ended at
+     * or before {@code cutoff}.
+     *
+     * @return rows deleted
+     */
+    public int deleteExpiredAssignments(LocalDateTime cutoff, int limit) {
+        String sql = "DELETE FROM user_roles WHERE valid_until <= ? LIMIT ?";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            pstmt.setInt(2, limit);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to delete expired role assignments", e);
+            throw new DataAccessException("Failed to delete expired role assignments", e);
+        }
+    }
+
     public void removeRoleFromUser(Long userId, Long roleId) {
         try (Connection conn = dbConnection.getConnection()) {
             removeRoleFromUser(conn, userId, roleId);
+            accessIndex().onUserRoleRemoved(userId, roleId);
         } catch (SQLException e) {
             logger.error("Failed to remove role from user", e);
             throw new DataAccessException("Failed to remove role", e);
@@ -198,10 +370,14 @@ public class RoleRepository extends BaseRepository {
     }
 
     public void removeRoleFromUser(Connection conn, Long userId, Long roleId) {
-        String sql = "DELETE FROM user_roles WHERE user_id = ? AND role_id = ?";
+        String sql = """
+            DELETE FROM user_roles WHERE user_id = ? AND role_id = ?
+            AND role_id IN (SELECT id FROM roles WHERE tenant_id = ?)
+        """;
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, userId);
             pstmt.setLong(2, roleId);
+            pstmt.setLong(3, tenantId());
             if (pstmt.executeUpdate() == 0) {
                 throw new ValidationException("User does not have this role");
             }
@@ -210,13 +386,122 @@ public class RoleRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Hand every grant of the tenant's roles to {@code handler}; global
+     * grants have a null resource type and id, a null id alone means every
+     * resource of the type.
+     *
+     * @return grants read
+     */
+    public long streamGrants(GrantHandler handler) {
+        String globalSql = """
+            SELECT rp.role_id, p.code FROM role_permissions rp
+            JOIN permissions p ON p.id = rp.permission_id
+            WHERE p.tenant_id = ?
+        """;
+        String scopedSql = """
+            SELECT s.role_id, s.permission_code, s.resource_type, s.resource_id FROM role_permission_scopes s
+            JOIN roles r ON r.id = s.role_id
+            WHERE r.tenant_id = ?
+        """;
+        long rows = 0;
+        try (Connection conn = dbConnection.getReadConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(globalSql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                enableStreaming(conn, pstmt);
+                pstmt.setLong(1, tenantId());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.grant(rs.getLong(1), rs.getString(2), null, null);
+                        rows++;
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(scopedSql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                enableStreaming(conn, pstmt);
+                pstmt.setLong(1, tenantId());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.grant(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                        rows++;
+                    }
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            logger.error("Failed to stream role grants", e);
+            throw new DataAccessException("Failed to stream role grants", e);
+        }
+    }
+
+    /**
+     * Hand the tenant's users with ids in {@code [fromUserId, toUserId)} to
+     * {@code handler} in id order, once per role assignment active at
+     * {@code now} in role id order, or once with a null role if they have
+     * none.
+     *
+     * @return rows read
+     */
+    public long streamAssignmentsByUser(long fromUserId, long toUserId, LocalDateTime now,
+                                        UserAssignmentHandler handler) {
+        String sql = """
+            SELECT u.id, u.username, ur.role_id, ur.valid_until FROM users u
+            LEFT JOIN user_roles ur ON ur.user_id = u.id AND %s
+            WHERE u.tenant_id = ? AND u.id >= ? AND u.id < ?
+            ORDER BY u.id, ur.role_id
+        """.formatted(ACTIVE_ASSIGNMENT);
+        long rows = 0;
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            enableStreaming(conn, pstmt);
+            int index = bindActiveAt(pstmt, 1, now);
+            pstmt.setLong(index++, tenantId());
+            pstmt.setLong(index++, fromUserId);
+            pstmt.setLong(index, toUserId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long roleId = rs.getLong(3);
+                    handler.assignment(rs.getLong(1), rs.getString(2), rs.wasNull() ? null : roleId,
+                            toLocal(rs.getTimestamp(4)));
+                    rows++;
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            logger.error("Failed to stream role assignments", e);
+            throw new DataAccessException("Failed to stream role assignments", e);
+        }
+    }
+
     private Role mapResultSetToRole(ResultSet rs) throws SQLException {
         Role role = new Role();
-        role.setId(rs.getLong("id"));
-        role.setCode(rs.getString("code"));
-        role.setName(rs.getString("name"));
-        role.setDescription(rs.getString("description"));
-        role.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        role.setId(rs.getLong(1));
+        role.setCode(rs.getString(2));
+        role.setName(rs.getString(3));
+        role.setDescription(rs.getString(4));
+        role.setCreatedAt(rs.getTimestamp(5).toLocalDateTime());
         return role;
     }
+
+    private static LocalDateTime toLocal(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * Receives the grants read by {@link #streamGrants}.
+     */
+    @FunctionalInterface
+    public interface GrantHandler {
+        void grant(long roleId, String permissionCode, String resourceType, String resourceId);
+    }
+
+    /**
+     * Receives the rows read by {@link #streamAssignmentsByUser}.
+     */
+    @FunctionalInterface
+    public interface UserAssignmentHandler {
+        void assignment(long userId, String username, Long roleId, LocalDateTime validUntil);
+    }
 }
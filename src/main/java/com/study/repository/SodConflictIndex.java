@@ -0,0 +1,366 @@
+package com.study.repository;
+
+import com.study.context.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Separation-of-duties constraints compiled to bitsets.
+ * <p>
+ * Each permission named by a constraint gets a bit. Every role maps to the
+ * bits of the constrained permissions it grants, and every bit to the bits
+ * it conflicts with, so the conflict matrix is one {@code long[]} row per
+ * bit. A user's bits are the OR of their roles' bits and they violate a
+ * constraint iff some held bit's row intersects them: a check costs one OR
+ * per role plus one AND per held bit, whatever the number of permissions.
+ * <p>
+ * The index only covers constrained permissions and is small, so it is not
+ * updated in place: any change to constraints or role grants drops it and
+ * the next check loads it again. There is one index per tenant; at most
+ * {@code rbac.tenant.cache.maxTenants} are resident. With no repository
+ * registered there are no constraints and every check passes.
+ * <p>
+ * Checks run on the connection of the write they guard, with the tenant
+ * locked until it commits, so two assignments that only conflict together
+ * cannot both pass.
+ */
+public class SodConflictIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SodConflictIndex.class);
+    private static final long[] NONE = new long[0];
+
+    private static final TenantCache<SodConflictIndex> TENANTS = new TenantCache<>("Separation of duties index",
+            Integer.getInteger("rbac.tenant.cache.maxTenants", 64), SodConflictIndex::new);
+
+    private static volatile SodConstraintRepository repository;
+
+    private final long tenantId;
+    /** Bumped by every invalidation, so a load that raced with a change is not kept. */
+    private final AtomicLong version = new AtomicLong();
+    /** Grant changes in flight; no load is kept while there are any. */
+    private int pending;
+    private volatile Matrix matrix;
+
+    /**
+     * Two permissions a user would hold together; {@code userId} is null
+     * when a single role would grant both.
+     */
+    public record Conflict(Long userId, String permissionA, String permissionB) {
+    }
+
+    private static final class Matrix {
+        final Map<String, Integer> bits = new HashMap<>();
+        final List<String> codes = new ArrayList<>();
+        final Map<Long, long[]> roleBits = new HashMap<>();
+        long[][] conflicts;
+        int words;
+    }
+
+    /**
+     * Receives the rows read by {@link SodConstraintRepository#loadConflictIndex}.
+     */
+    interface Loader {
+        void constraint(String permissionA, String permissionB);
+
+        void grant(long roleId, String permissionCode);
+    }
+
+    private SodConflictIndex(long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public static SodConflictIndex forTenant(long tenantId) {
+        return TENANTS.get(tenantId);
+    }
+
+    /**
+     * Index of the tenant bound to the calling thread.
+     */
+    public static SodConflictIndex current() {
+        return forTenant(TenantContext.current());
+    }
+
+    /**
+     * Load each tenant's index from {@code repository} on its first use,
+     * replacing any earlier registration.
+     */
+    public static synchronized void register(SodConstraintRepository repository) {
+        SodConflictIndex.repository = repository;
+    }
+
+    /**
+     * The conflict that assigning {@code roleId} to {@code userId} would
+     * create, or null if there is none. Reads on {@code conn}, the
+     * transaction that will insert the assignment, and locks the tenant
+     * until it ends.
+     */
+    public Conflict checkRoleAssignment(Connection conn, long userId, long roleId) {
+        return checkRoleAssignments(conn, () -> new long[]{userId}, () -> new long[]{roleId});
+    }
+
+    /**
+     * {@link #checkRoleAssignment} for a change that gives several users
+     * several roles at once, such as a group membership, group role or
+     * group move: the first conflict any of the users would have on also
+     * holding all of the roles. Both are asked for once the tenant is
+     * locked, so they reflect every change committed before; the users'
+     * direct roles are read in one batch.
+     */
+    public Conflict checkRoleAssignments(Connection conn, Supplier<long[]> users, Supplier<long[]> roles) {
+        SodConstraintRepository source = lock(conn);
+        Matrix current = source != null ? loaded() : null;
+        if (current == null || current.codes.isEmpty()) {
+            return null;
+        }
+        long[] userIds = users.get();
+        long[] added = bitsOf(current, roles.get());
+        if (userIds.length == 0 || nextBit(added, 0) < 0) {
+            // None of the roles grants a constrained permission.
+            return null;
+        }
+        Map<Long, long[]> direct = source.findDirectRoleIds(conn, userIds);
+        for (long userId : userIds) {
+            long[] held = bitsOf(current, rolesOf(userId, direct.getOrDefault(userId, NONE)));
+            or(held, added);
+            Conflict conflict = firstConflict(current, userId, held);
+            if (conflict != null) {
+                return conflict;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The conflict that granting {@code permissionCode} to {@code roleId},
+     * globally or on any resource, would create for the role itself or any
+     * user holding it directly or through a group, or null if there is
+     * none. Run it inside {@link #changeGrants}, on the transaction that
+     * will insert the grant.
+     */
+    public Conflict checkPermissionGrant(Connection conn, long roleId, String permissionCode) {
+        SodConstraintRepository source = lock(conn);
+        Matrix current = source != null ? loaded() : null;
+        Integer bit = current != null ? current.bits.get(permissionCode) : null;
+        if (bit == null) {
+            return null;
+        }
+        long[] role = Arrays.copyOf(current.roleBits.getOrDefault(roleId, NONE), current.words);
+        role[bit >>> 6] |= 1L << bit;
+        Conflict conflict = firstConflict(current, null, role);
+        if (conflict != null) {
+            return conflict;
+        }
+        Map<Long, long[]> holders = source.findRolesOfHolders(conn, roleId);
+        long[] members = Arrays.stream(GroupMembershipIndex.forTenant(tenantId).membersWithRole(roleId))
+                .filter(userId -> !holders.containsKey(userId))
+                .toArray();
+        if (members.length > 0) {
+            Map<Long, long[]> memberRoles = source.findDirectRoleIds(conn, members);
+            for (long userId : members) {
+                holders.put(userId, memberRoles.getOrDefault(userId, NONE));
+            }
+        }
+        for (Map.Entry<Long, long[]> holder : holders.entrySet()) {
+            long[] held = bitsOf(current, rolesOf(holder.getKey(), holder.getValue()));
+            or(held, role);
+            conflict = firstConflict(current, holder.getKey(), held);
+            if (conflict != null) {
+                return conflict;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every constraint violated by a user with these direct roles plus
+     * their group roles. Only reads memory, so it may run on any thread.
+     */
+    public List<Conflict> conflictsOf(long userId, long[] directRoleIds) {
+        Matrix current = loaded();
+        if (current == null || current.codes.isEmpty()) {
+            return List.of();
+        }
+        long[] held = bitsOf(current, rolesOf(userId, directRoleIds));
+        List<Conflict> conflicts = new ArrayList<>();
+        for (int bit = nextBit(held, 0); bit >= 0; bit = nextBit(held, bit + 1)) {
+            long[] row = current.conflicts[bit];
+            // Each pair once: only partners above this bit.
+            for (int other = nextBit(row, bit + 1); other >= 0; other = nextBit(row, other + 1)) {
+                if ((held[other >>> 6] & (1L << other)) != 0) {
+                    conflicts.add(conflict(current, userId, bit, other));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Whether any constraint exists; loads the index.
+     */
+    public boolean hasConstraints() {
+        Matrix current = loaded();
+        return current != null && !current.codes.isEmpty();
+    }
+
+    /**
+     * Drop the index after a committed change to constraints or role
+     * grants; the next check loads it again.
+     */
+    public synchronized void invalidate() {
+        version.incrementAndGet();
+        matrix = null;
+    }
+
+    /**
+     * Run a change to role grants in one transaction of {@code repository}.
+     * Until it has ended no load is kept, so a check waiting on the tenant
+     * lock reads the grants as committed rather than a copy from before.
+     */
+    public <T> T changeGrants(BaseRepository repository, BaseRepository.TransactionCallback<T> change) {
+        synchronized (this) {
+            pending++;
+            invalidate();
+        }
+        try {
+            return repository.executeInTransaction(change);
+        } finally {
+            synchronized (this) {
+                pending--;
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * Lock the tenant on {@code conn} if it has constraints at all; returns
+     * the repository to read from, or null when there is nothing to check.
+     */
+    private SodConstraintRepository lock(Connection conn) {
+        SodConstraintRepository source = repository;
+        if (source == null || !hasConstraints()) {
+            return null;
+        }
+        source.lockTenant(conn);
+        return source;
+    }
+
+    private long[] rolesOf(long userId, long[] directRoleIds) {
+        return GroupMembershipIndex.union(directRoleIds, GroupMembershipIndex.forTenant(tenantId).rolesOf(userId));
+    }
+
+    private static long[] bitsOf(Matrix matrix, long[] roleIds) {
+        long[] bits = new long[matrix.words];
+        for (long roleId : roleIds) {
+            or(bits, matrix.roleBits.getOrDefault(roleId, NONE));
+        }
+        return bits;
+    }
+
+    private static void or(long[] target, long[] bits) {
+        for (int i = 0; i < bits.length; i++) {
+            target[i] |= bits[i];
+        }
+    }
+
+    private static Conflict firstConflict(Matrix matrix, Long userId, long[] held) {
+        for (int bit = nextBit(held, 0); bit >= 0; bit = nextBit(held, bit + 1)) {
+            long[] row = matrix.conflicts[bit];
+            for (int word = 0; word < row.length; word++) {
+                long both = row[word] & held[word];
+                if (both != 0) {
+                    return conflict(matrix, userId, bit, word * 64 + Long.numberOfTrailingZeros(both));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Conflict conflict(Matrix matrix, Long userId, int bit, int other) {
+        return new Conflict(userId, matrix.codes.get(Math.min(bit, other)), matrix.codes.get(Math.max(bit, other)));
+    }
+
+    /**
+     * Index of the first set bit at or after {@code from}, or -1.
+     */
+    private static int nextBit(long[] bits, int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+        long rest = bits[word] & (-1L << from);
+        while (true) {
+            if (rest != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(rest);
+            }
+            if (++word == bits.length) {
+                return -1;
+            }
+            rest = bits[word];
+        }
+    }
+
+    private Matrix loaded() {
+        Matrix current = matrix;
+        SodConstraintRepository source = repository;
+        if (current != null || source == null) {
+            return current;
+        }
+        long before = version.get();
+        long startedAt = System.nanoTime();
+        Matrix fresh = TenantContext.callAs(tenantId, () -> load(source));
+        synchronized (this) {
+            if (version.get() == before && pending == 0) {
+                matrix = fresh;
+                logger.info("Separation of duties index of tenant {} loaded {} permissions, {} roles in {} ms",
+                        tenantId, fresh.codes.size(), fresh.roleBits.size(), (System.nanoTime() - startedAt) / 1_000_000);
+            }
+        }
+        return fresh;
+    }
+
+    private static Matrix load(SodConstraintRepository repository) {
+        Matrix loaded = new Matrix();
+        List<int[]> pairs = new ArrayList<>();
+        Map<Long, List<Integer>> grants = new HashMap<>();
+        repository.loadConflictIndex(new Loader() {
+            @Override
+            public void constraint(String permissionA, String permissionB) {
+                pairs.add(new int[]{bit(permissionA), bit(permissionB)});
+            }
+
+            @Override
+            public void grant(long roleId, String permissionCode) {
+                grants.computeIfAbsent(roleId, id -> new ArrayList<>()).add(bit(permissionCode));
+            }
+
+            private int bit(String code) {
+                return loaded.bits.computeIfAbsent(code, c -> {
+                    loaded.codes.add(c);
+                    return loaded.codes.size() - 1;
+                });
+            }
+        });
+        loaded.words = Math.max(1, (loaded.codes.size() + 63) >>> 6);
+        loaded.conflicts = new long[loaded.codes.size()][loaded.words];
+        for (int[] pair : pairs) {
+            loaded.conflicts[pair[0]][pair[1] >>> 6] |= 1L << pair[1];
+            loaded.conflicts[pair[1]][pair[0] >>> 6] |= 1L << pair[0];
+        }
+        grants.forEach((roleId, bits) -> {
+            long[] row = new long[loaded.words];
+            for (int bit : bits) {
+                row[bit >>> 6] |= 1L << bit;
+            }
+            loaded.roleBits.put(roleId, row);
+        });
+        return loaded;
+    }
+}
@@ -0,0 +1,271 @@
+package com.study.repository;
+
+import com.study.domain.SodConstraint;
+import com.study.exception.DataAccessException;
+import com.study.exception.ValidationException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository for separation-of-duties constraints and the role data their
+ * checks need.
+ */
+public class SodConstraintRepository extends BaseRepository {
+    private static final String COLUMNS = "id, permission_a, permission_b, description, created_at";
+
+    /**
+     * Roles a user is assigned directly, ascending.
+     */
+    public record UserRoles(long userId, String username, long[] roleIds) {
+    }
+
+    /** Users per {@link #findDirectRoleIds(Connection, long[])} query. */
+    private static final int IN_CHUNK = 500;
+
+    public SodConstraintRepository(DatabaseConnection dbConnection) {
+        super(dbConnection);
+    }
+
+    public SodConstraint save(SodConstraint constraint) {
+        String sql = "INSERT INTO sod_constraints (tenant_id, permission_a, permission_b, description) VALUES (?, ?, ?, ?)";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, constraint.getPermissionA());
+            pstmt.setString(3, constraint.getPermissionB());
+            pstmt.setString(4, constraint.getDescription());
+            pstmt.executeUpdate();
+
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    constraint.setId(keys.getLong(1));
+                }
+            }
+            SodConflictIndex.current().invalidate();
+            return constraint;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new ValidationException("Constraint already exists: " + constraint.getPermissionA()
+                    + " / " + constraint.getPermissionB());
+        } catch (SQLException e) {
+            logger.error("Failed to save constraint", e);
+            throw new DataAccessException("Failed to save constraint", e);
+        }
+    }
+
+    public void delete(Long id) {
+        String sql = "DELETE FROM sod_constraints WHERE id = ? AND tenant_id = ?";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new ValidationException("Constraint not found: " + id);
+            }
+            SodConflictIndex.current().invalidate();
+        } catch (SQLException e) {
+            logger.error("Failed to delete constraint", e);
+            throw new DataAccessException("Failed to delete constraint", e);
+        }
+    }
+
+    public List<SodConstraint> findAll() {
+        String sql = "SELECT " + COLUMNS + " FROM sod_constraints WHERE tenant_id = ? ORDER BY permission_a, permission_b";
+        List<SodConstraint> constraints = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                SodConstraint constraint = new SodConstraint();
+                constraint.setId(rs.getLong(1));
+                constraint.setPermissionA(rs.getString(2));
+                constraint.setPermissionB(rs.getString(3));
+                constraint.setDescription(rs.getString(4));
+                constraint.setCreatedAt(rs.getTimestamp(5).toLocalDateTime());
+                constraints.add(constraint);
+            }
+            return constraints;
+        } catch (SQLException e) {
+            logger.error("Failed to list constraints", e);
+            throw new DataAccessException("Failed to list constraints", e);
+        }
+    }
+
+    /**
+     * Lock the tenant's row until {@code conn} commits, so that checked
+     * role assignments and grants of one tenant run one at a time.
+     */
+    public void lockTenant(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM tenants WHERE id = ? FOR UPDATE")) {
+            pstmt.setLong(1, tenantId());
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to lock tenant", e);
+        }
+    }
+
+    /**
+     * Roles assigned directly to each user, including time-bound ones not
+     * yet started: separation of duties holds for the whole assignment.
+     * Users without a role are left out.
+     */
+    public Map<Long, long[]> findDirectRoleIds(Connection conn, long[] userIds) {
+        Map<Long, List<Long>> roles = new HashMap<>();
+        for (int from = 0; from < userIds.length; from += IN_CHUNK) {
+            int to = Math.min(userIds.length, from + IN_CHUNK);
+            String sql = """
+                SELECT ur.user_id, ur.role_id FROM user_roles ur
+                JOIN roles r ON r.id = ur.role_id
+                WHERE r.tenant_id = ? AND ur.user_id IN (%s)
+                ORDER BY ur.user_id, ur.role_id
+            """.formatted("?, ".repeat(to - from - 1) + "?");
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, tenantId());
+                for (int i = from; i < to; i++) {
+                    pstmt.setLong(i - from + 2, userIds[i]);
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    roles.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getLong(2));
+                }
+            } catch (SQLException e) {
+                logger.error("Failed to find roles of users", e);
+                throw new DataAccessException("Failed to find roles of users", e);
+            }
+        }
+        return toArrays(roles);
+    }
+
+    /**
+     * Every user assigned {@code roleId} directly, with all their direct
+     * roles, in one query.
+     */
+    public Map<Long, long[]> findRolesOfHolders(Connection conn, long roleId) {
+        String sql = """
+            SELECT other.user_id, other.role_id FROM user_roles ur
+            JOIN roles r ON r.id = ur.role_id
+            JOIN user_roles other ON other.user_id = ur.user_id
+            WHERE ur.role_id = ? AND r.tenant_id = ?
+            ORDER BY other.user_id, other.role_id
+        """;
+        Map<Long, List<Long>> holders = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, roleId);
+            pstmt.setLong(2, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                holders.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to find role holders", e);
+            throw new DataAccessException("Failed to find role holders", e);
+        }
+        return toArrays(holders);
+    }
+
+    private static Map<Long, long[]> toArrays(Map<Long, List<Long>> roles) {
+        Map<Long, long[]> result = new HashMap<>();
+        roles.forEach((userId, ids) -> result.put(userId, ids.stream().mapToLong(Long::longValue).toArray()));
+        return result;
+    }
+
+    /**
+     * Every user of the tenant with their direct roles, streamed in one
+     * query; users without any direct role get an empty array.
+     */
+    public List<UserRoles> findAllUserRoles() {
+        String sql = """
+            SELECT u.id, u.username, ur.role_id FROM users u
+            LEFT JOIN user_roles ur ON ur.user_id = u.id
+            WHERE u.tenant_id = ?
+            ORDER BY u.id, ur.role_id
+        """;
+        List<UserRoles> users = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                     ResultSet.CONCUR_READ_ONLY)) {
+            enableStreaming(conn, pstmt);
+            pstmt.setLong(1, tenantId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long userId = -1;
+                String username = null;
+                List<Long> roleIds = new ArrayList<>();
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (id != userId) {
+                        if (username != null) {
+                            users.add(new UserRoles(userId, username, roleIds.stream().mapToLong(Long::longValue).toArray()));
+                        }
+                        userId = id;
+                        username = rs.getString(2);
+                        roleIds.clear();
+                    }
+                    long roleId = rs.getLong(3);
+                    if (!rs.wasNull()) {
+                        roleIds.add(roleId);
+                    }
+                }
+                if (username != null) {
+                    users.add(new UserRoles(userId, username, roleIds.stream().mapToLong(Long::longValue).toArray()));
+                }
+            }
+            return users;
+        } catch (SQLException e) {
+            logger.error("Failed to read user roles", e);
+            throw new DataAccessException("Failed to read user roles", e);
+        }
+    }
+
+    /**
+     * Read the constraints and, for the permissions they name only, which
+     * roles grant them, globally or on some resource. Reads the primary: a
+     * check right after a committed grant must see it.
+     */
+    void loadConflictIndex(SodConflictIndex.Loader loader) {
+        long tenantId = tenantId();
+        try (Connection conn = dbConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement constraints = conn.prepareStatement(
+                         "SELECT permission_a, permission_b FROM sod_constraints WHERE tenant_id = ?");
+                 PreparedStatement grants = conn.prepareStatement("""
+                     SELECT DISTINCT rp.role_id, p.code FROM role_permissions rp
+                     JOIN permissions p ON p.id = rp.permission_id
+                     JOIN sod_constraints c ON c.tenant_id = p.tenant_id
+                         AND (c.permission_a = p.code OR c.permission_b = p.code)
+                     WHERE p.tenant_id = ?
+                     UNION
+                     SELECT s.role_id, s.permission_code FROM role_permission_scopes s
+                     JOIN roles r ON r.id = s.role_id
+                     JOIN sod_constraints c ON c.tenant_id = r.tenant_id
+                         AND (c.permission_a = s.permission_code OR c.permission_b = s.permission_code)
+                     WHERE r.tenant_id = ?
+                 """)) {
+                constraints.setLong(1, tenantId);
+                try (ResultSet rs = constraints.executeQuery()) {
+                    while (rs.next()) {
+                        loader.constraint(rs.getString(1), rs.getString(2));
+                    }
+                }
+                grants.setLong(1, tenantId);
+                grants.setLong(2, tenantId);
+                try (ResultSet rs = grants.executeQuery()) {
+                    while (rs.next()) {
+                        loader.grant(rs.getLong(1), rs.getString(2));
+                    }
+                }
+            } finally {
+                conn.commit();
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to load separation of duties index", e);
+            throw new DataAccessException("Failed to load separation of duties index", e);
+        }
+    }
+}
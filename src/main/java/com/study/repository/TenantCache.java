@@ -0,0 +1,47 @@
+package com.study.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * One in-memory structure per tenant, with at most {@code maxTenants}
+ * resident. The least recently used tenant is dropped when another one is
+ * needed and rebuilt by {@code factory} the next time it is used, so memory
+ * stays bounded however many tenants share the process.
+ */
+class TenantCache<V> {
+    private static final Logger logger = LoggerFactory.getLogger(TenantCache.class);
+
+    private final String name;
+    private final int maxTenants;
+    private final LongFunction<V> factory;
+    private final LinkedHashMap<Long, V> resident = new LinkedHashMap<>(16, 0.75f, true);
+
+    TenantCache(String name, int maxTenants, LongFunction<V> factory) {
+        this.name = name;
+        this.maxTenants = Math.max(1, maxTenants);
+        this.factory = factory;
+    }
+
+    synchronized V get(long tenantId) {
+        V value = resident.get(tenantId);
+        if (value == null) {
+            if (resident.size() >= maxTenants) {
+                Map.Entry<Long, V> eldest = resident.entrySet().iterator().next();
+                resident.remove(eldest.getKey());
+                logger.info("{} of tenant {} evicted", name, eldest.getKey());
+            }
+            value = factory.apply(tenantId);
+            resident.put(tenantId, value);
+        }
+        return value;
+    }
+
+    synchronized int size() {
+        return resident.size();
+    }
+}
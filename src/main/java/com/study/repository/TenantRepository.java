@@ -0,0 +1,105 @@
+package com.study.repository;
+
+import com.study.domain.Tenant;
+import com.study.exception.DataAccessException;
+import com.study.exception.ValidationException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for tenants. The only repository whose queries are not
+ * qualified by the current tenant.
+ */
+public class TenantRepository extends BaseRepository {
+    private static final String COLUMNS = "id, code, name, created_at";
+
+    public TenantRepository(DatabaseConnection dbConnection) {
+        super(dbConnection);
+    }
+
+    public Tenant save(Tenant tenant) {
+        String sql = "INSERT INTO tenants (code, name) VALUES (?, ?)";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, tenant.getCode());
+            pstmt.setString(2, tenant.getName());
+            pstmt.executeUpdate();
+
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    tenant.setId(keys.getLong(1));
+                }
+            }
+            return tenant;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new ValidationException("Tenant code already exists: " + tenant.getCode());
+        } catch (SQLException e) {
+            logger.error("Failed to save tenant", e);
+            throw new DataAccessException("Failed to save tenant", e);
+        }
+    }
+
+    public Optional<Tenant> findById(long id) {
+        String sql = "SELECT " + COLUMNS + " FROM tenants WHERE id = ?";
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, id);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(mapResultSetToTenant(rs));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.error("Failed to find tenant by id", e);
+            throw new DataAccessException("Failed to find tenant", e);
+        }
+    }
+
+    public Optional<Tenant> findByCode(String code) {
+        String sql = "SELECT " + COLUMNS + " FROM tenants WHERE code = ?";
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, code);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(mapResultSetToTenant(rs));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            logger.error("Failed to find tenant by code", e);
+            throw new DataAccessException("Failed to find tenant", e);
+        }
+    }
+
+    public List<Tenant> findAll() {
+        String sql = "SELECT " + COLUMNS + " FROM tenants ORDER BY id";
+        List<Tenant> tenants = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                tenants.add(mapResultSetToTenant(rs));
+            }
+            return tenants;
+        } catch (SQLException e) {
+            logger.error("Failed to list tenants", e);
+            throw new DataAccessException("Failed to list tenants", e);
+        }
+    }
+
+    private Tenant mapResultSetToTenant(ResultSet rs) throws SQLException {
+        Tenant tenant = new Tenant();
+        tenant.setId(rs.getLong(1));
+        tenant.setCode(rs.getString(2));
+        tenant.setName(rs.getString(3));
+        tenant.setCreatedAt(rs.getTimestamp(4).toLocalDateTime());
+        return tenant;
+    }
+}
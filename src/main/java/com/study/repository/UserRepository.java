@@ -5,6 +5,7 @@ import com.study.exception.DataAccessException;
 import com.study.exception.ValidationException;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -13,6 +14,15 @@ import java.util.Optional;
  * Repository for User entity.
  */
 public class UserRepository extends BaseRepository {
+    /**
+     * Listing projection: everything except credential material.
+     * Column order is fixed so the mapper can read by index.
+     */
+    private static final String SUMMARY_COLUMNS =
+            "id, username, enabled, email, phone, real_name, created_at, updated_at, tenant_id";
+    /** Full projection used for authentication and updates; credentials and lock come last. */
+    private static final String DETAIL_COLUMNS = SUMMARY_COLUMNS + ", password_hash, salt, locked_until";
+
 
     public UserRepository(DatabaseConnection dbConnection) {
         super(dbConnection);
@@ -20,7 +30,9 @@ public class UserRepository extends BaseRepository {
 
     public User save(User user) {
         try (Connection conn = dbConnection.getConnection()) {
-            return save(conn, user);
+            User saved = save(conn, user);
+            accessIndex().onUserSaved(saved.getId(), saved.getUsername());
+            return saved;
         } catch (SQLException e) {
             logger.error("Failed to save user", e);
             throw new DataAccessException("Failed to save user", e);
@@ -29,18 +41,21 @@ public class UserRepository extends BaseRepository {
 
     public User save(Connection conn, User user) {
         String sql = """
-            INSERT INTO users (username, password_hash, salt, enabled, email, phone, real_name, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            INSERT INTO users (tenant_id, username, password_hash, salt, enabled, email, phone, real_name,
+                               created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
         """;
+        long tenantId = tenantId();
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, user.getUsername());
-            pstmt.setString(2, user.getPasswordHash());
-            pstmt.setString(3, user.getSalt());
-            pstmt.setBoolean(4, user.isEnabled());
-            pstmt.setString(5, user.getEmail());
-            pstmt.setString(6, user.getPhone());
-            pstmt.setString(7, user.getRealName());
+            pstmt.setLong(1, tenantId);
+            pstmt.setString(2, user.getUsername());
+            pstmt.setString(3, user.getPasswordHash());
+            pstmt.setString(4, user.getSalt());
+            pstmt.setBoolean(5, user.isEnabled());
+            pstmt.setString(6, user.getEmail());
+            pstmt.setString(7, user.getPhone());
+            pstmt.setString(8, user.getRealName());
 
             int affected = pstmt.executeUpdate();
             if (affected == 0) {
@@ -52,6 +67,7 @@ public class UserRepository extends BaseRepository {
                     user.setId(generatedKeys.getLong(1));
                 }
             }
+            user.setTenantId(tenantId);
             return user;
         } catch (SQLIntegrityConstraintViolationException e) {
             throw new ValidationException("Username already exists: " + user.getUsername());
@@ -61,16 +77,17 @@ public class UserRepository extends BaseRepository {
     }
 
     public Optional<User> findById(Long id) {
-        String sql = "SELECT * FROM users WHERE id = ?";
+        String sql = "SELECT " + DETAIL_COLUMNS + " FROM users WHERE id = ? AND tenant_id = ?";
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return Optional.of(mapResultSetToUser(rs));
+                return Optional.of(mapResultSetToUser(rs, true));
             }
             return Optional.empty();
         } catch (SQLException e) {
@@ -80,16 +97,17 @@ public class UserRepository extends BaseRepository {
     }
 
     public Optional<User> findByUsername(String username) {
-        String sql = "SELECT * FROM users WHERE username = ?";
+        String sql = "SELECT " + DETAIL_COLUMNS + " FROM users WHERE tenant_id = ? AND username = ?";
 
-        try (Connection conn = dbConnection.getConnection();
+        try (Connection conn = dbConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, username);
+            pstmt.setLong(1, tenantId());
+            pstmt.setString(2, username);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return Optional.of(mapResultSetToUser(rs));
+                return Optional.of(mapResultSetToUser(rs, true));
             }
             return Optional.empty();
         } catch (SQLException e) {
@@ -98,16 +116,20 @@ public class UserRepository extends BaseRepository {
         }
     }
 
+    /**
+     * List users without password hash and salt.
+     */
     public List<User> findAll() {
-        String sql = "SELECT * FROM users ORDER BY created_at DESC";
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM users WHERE tenant_id = ? ORDER BY created_at DESC";
         List<User> users = new ArrayList<>();
 
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            pstmt.setLong(1, tenantId());
+            ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                users.add(mapResultSetToUser(rs));
+                users.add(mapResultSetToUser(rs, false));
             }
             return users;
         } catch (SQLException e) {
@@ -116,6 +138,25 @@ public class UserRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Lowest and highest user id of the tenant, or null if it has no users.
+     */
+    public long[] findIdRange() {
+        String sql = "SELECT MIN(id), MAX(id) FROM users WHERE tenant_id = ?";
+        try (Connection conn = dbConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, tenantId());
+            ResultSet rs = pstmt.executeQuery();
+            rs.next(); // aggregates always return a row
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        } catch (SQLException e) {
+            logger.error("Failed to find user id range", e);
+            throw new DataAccessException("Failed to find user id range", e);
+        }
+    }
+
     public void update(User user) {
         try (Connection conn = dbConnection.getConnection()) {
             update(conn, user);
@@ -129,7 +170,7 @@ public class UserRepository extends BaseRepository {
         String sql = """
             UPDATE users SET username = ?, password_hash = ?, salt = ?,
             enabled = ?, email = ?, phone = ?, real_name = ?,
-            updated_at = CURRENT_TIMESTAMP WHERE id = ?
+            updated_at = CURRENT_TIMESTAMP WHERE id = ? AND tenant_id = ?
         """;
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -141,6 +182,7 @@ public class UserRepository extends BaseRepository {
             pstmt.setString(6, user.getPhone());
             pstmt.setString(7, user.getRealName());
             pstmt.setLong(8, user.getId());
+            pstmt.setLong(9, tenantId());
 
             int affected = pstmt.executeUpdate();
             if (affected == 0) {
@@ -151,9 +193,55 @@ public class UserRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Replace a password hash only if it is still {@code expectedHash}, so a
+     * concurrent password change is never overwritten.
+     *
+     * @return true if the row was updated
+     */
+    public boolean updatePasswordHash(Long id, String expectedHash, String passwordHash, String salt) {
+        String sql = """
+            UPDATE users SET password_hash = ?, salt = ?, updated_at = CURRENT_TIMESTAMP
+            WHERE id = ? AND tenant_id = ? AND password_hash = ?
+        """;
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, passwordHash);
+            pstmt.setString(2, salt);
+            pstmt.setLong(3, id);
+            pstmt.setLong(4, tenantId());
+            pstmt.setString(5, expectedHash);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            logger.error("Failed to update password hash", e);
+            throw new DataAccessException("Failed to update password hash", e);
+        }
+    }
+
+    /**
+     * Set or clear (null) the login lock of a user.
+     */
+    public void updateLockedUntil(Long id, LocalDateTime lockedUntil) {
+        String sql = "UPDATE users SET locked_until = ? WHERE id = ? AND tenant_id = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, lockedUntil != null ? Timestamp.valueOf(lockedUntil) : null);
+            pstmt.setLong(2, id);
+            pstmt.setLong(3, tenantId());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to update user lock", e);
+            throw new DataAccessException("Failed to update user lock", e);
+        }
+    }
+
     public void delete(Long id) {
         try (Connection conn = dbConnection.getConnection()) {
             delete(conn, id);
+            accessIndex().onUserDeleted(id);
+            groupIndex().onUserDeleted(id);
         } catch (SQLException e) {
             logger.error("Failed to delete user", e);
             throw new DataAccessException("Failed to delete user", e);
@@ -161,10 +249,11 @@ public class UserRepository extends BaseRepository {
     }
 
     public void delete(Connection conn, Long id) {
-        String sql = "DELETE FROM users WHERE id = ?";
+        String sql = "DELETE FROM users WHERE id = ? AND tenant_id = ?";
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
+            pstmt.setLong(2, tenantId());
             int affected = pstmt.executeUpdate();
             if (affected == 0) {
                 throw new ValidationException("User not found: " + id);
@@ -174,18 +263,23 @@ public class UserRepository extends BaseRepository {
         }
     }
 
-    private User mapResultSetToUser(ResultSet rs) throws SQLException {
+    private User mapResultSetToUser(ResultSet rs, boolean withCredentials) throws SQLException {
         User user = new User();
-        user.setId(rs.getLong("id"));
-        user.setUsername(rs.getString("username"));
-        user.setPasswordHash(rs.getString("password_hash"));
-        user.setSalt(rs.getString("salt"));
-        user.setEnabled(rs.getBoolean("enabled"));
-        user.setEmail(rs.getString("email"));
-        user.setPhone(rs.getString("phone"));
-        user.setRealName(rs.getString("real_name"));
-        user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-        user.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        user.setId(rs.getLong(1));
+        user.setUsername(rs.getString(2));
+        user.setEnabled(rs.getBoolean(3));
+        user.setEmail(rs.getString(4));
+        user.setPhone(rs.getString(5));
+        user.setRealName(rs.getString(6));
+        user.setCreatedAt(rs.getTimestamp(7).toLocalDateTime());
+        user.setUpdatedAt(rs.getTimestamp(8).toLocalDateTime());
+        user.setTenantId(rs.getLong(9));
+        if (withCredentials) {
+            user.setPasswordHash(rs.getString(10));
+            user.setSalt(rs.getString(11));
+            Timestamp lockedUntil = rs.getTimestamp(12);
+            user.setLockedUntil(lockedUntil != null ? lockedUntil.toLocalDateTime() : null);
+        }
         return user;
     }
 }
@@ -0,0 +1,15 @@
+package com.study.repository.archive;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter for archived audit records. Null fields match anything; the time
+ * range is {@code from <= created_at < to}.
+ */
+public record ArchiveQuery(Long userId, String action, String resourceType, String resourceId,
+                           LocalDateTime from, LocalDateTime to) {
+
+    public static ArchiveQuery all() {
+        return new ArchiveQuery(null, null, null, null, null, null);
+    }
+}
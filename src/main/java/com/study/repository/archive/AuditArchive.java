@@ -0,0 +1,105 @@
+package com.study.repository.archive;
+
+import com.study.domain.AuditLog;
+import com.study.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Directory of monthly columnar audit archives, one
+ * {@code audit_logs-YYYY-MM.rbca} file per month moved out of MySQL.
+ */
+public class AuditArchive {
+    private static final Logger logger = LoggerFactory.getLogger(AuditArchive.class);
+    private static final String PREFIX = "audit_logs-";
+    private static final String SUFFIX = ".rbca";
+
+    private final Path directory;
+
+    public AuditArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Archive directory from {@code rbac.audit.archive.dir}.
+     */
+    public static AuditArchive fromSystemProperties() {
+        return new AuditArchive(Paths.get(System.getProperty("rbac.audit.archive.dir", "archive/audit")));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path fileFor(YearMonth month) {
+        return directory.resolve(PREFIX + month + SUFFIX);
+    }
+
+    /**
+     * Archived months, oldest first.
+     */
+    public List<YearMonth> months() {
+        return new ArrayList<>(files().keySet());
+    }
+
+    /**
+     * Matching archived records, newest first. Months outside the query's
+     * time range are not opened at all.
+     */
+    public List<AuditLog> query(ArchiveQuery query, int limit) {
+        List<AuditLog> results = new ArrayList<>();
+        List<Map.Entry<YearMonth, Path>> newestFirst = new ArrayList<>(files().entrySet());
+        newestFirst.sort(Map.Entry.<YearMonth, Path>comparingByKey(Comparator.reverseOrder()));
+
+        for (Map.Entry<YearMonth, Path> entry : newestFirst) {
+            if (results.size() >= limit) {
+                break;
+            }
+            YearMonth month = entry.getKey();
+            if ((query.from() != null && !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(query.from()))
+                    || (query.to() != null && !month.atDay(1).atStartOfDay().isBefore(query.to()))) {
+                continue;
+            }
+            try (AuditArchiveReader reader = AuditArchiveReader.open(entry.getValue())) {
+                reader.query(query, limit, results);
+                logger.debug("Archive {}: read {} of {} blocks", month, reader.blocksRead(), reader.blockCount());
+            } catch (IOException e) {
+                throw new DataAccessException("Failed to read audit archive " + entry.getValue(), e);
+            }
+        }
+        return results;
+    }
+
+    private Map<YearMonth, Path> files() {
+        Map<YearMonth, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    files.put(YearMonth.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+                } catch (DateTimeParseException e) {
+                    logger.warn("Ignoring unexpected file in audit archive: {}", file);
+                }
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Failed to list audit archive " + directory, e);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,307 @@
+package com.study.repository.archive;
+
+import com.study.domain.AuditLog;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads one file written by {@link AuditArchiveWriter}.
+ * <p>
+ * Only the footer is loaded on open. A query first resolves its action and
+ * resource type to dictionary codes (a value missing from the dictionary
+ * means the file cannot match), then inflates just the blocks whose time
+ * range, user id range and code sets can contain a match.
+ */
+public final class AuditArchiveReader implements AutoCloseable {
+    private static final int TRAILER_SIZE = 16;
+
+    private final FileChannel channel;
+    private final String[] usernames;
+    private final String[] actions;
+    private final String[] resourceTypes;
+    private final Map<String, Integer> actionCodes;
+    private final Map<String, Integer> resourceTypeCodes;
+    private final Block[] blocks;
+    private final long rowCount;
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[0];
+    private byte[] raw = new byte[0];
+    private int blocksRead;
+
+    private AuditArchiveReader(FileChannel channel, ColumnReader footer) {
+        this.channel = channel;
+        this.usernames = readDictionary(footer);
+        this.actions = readDictionary(footer);
+        this.resourceTypes = readDictionary(footer);
+        this.actionCodes = index(actions);
+        this.resourceTypeCodes = index(resourceTypes);
+        this.rowCount = footer.readVarLong();
+        this.blocks = new Block[footer.readVarInt()];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new Block(
+                    footer.readVarLong(), footer.readVarInt(), footer.readVarInt(), footer.readVarInt(),
+                    footer.readSignedVarLong(), footer.readSignedVarLong(),
+                    footer.readVarLong(), footer.readVarLong(),
+                    readCodes(footer), readCodes(footer), readCodes(footer));
+        }
+    }
+
+    public static AuditArchiveReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 5 + TRAILER_SIZE) {
+                throw new IOException("Not an audit archive: " + file);
+            }
+            ByteBuffer header = readFully(channel, 0, 5);
+            ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            int footerLength = trailer.getInt();
+            if (header.getInt() != AuditArchiveWriter.MAGIC || trailer.getInt() != AuditArchiveWriter.MAGIC) {
+                throw new IOException("Not an audit archive: " + file);
+            }
+            if (header.get() != AuditArchiveWriter.VERSION) {
+                throw new IOException("Unsupported audit archive version: " + file);
+            }
+            byte[] footer = new byte[footerLength];
+            readFully(channel, footerOffset, footerLength).get(footer);
+            return new AuditArchiveReader(channel, new ColumnReader(footer, 0, footerLength));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public int blockCount() {
+        return blocks.length;
+    }
+
+    /**
+     * Blocks inflated by queries on this reader so far.
+     */
+    public int blocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * Append matches to {@code into}, newest first, until it holds
+     * {@code limit} records.
+     */
+    public void query(ArchiveQuery query, int limit, List<AuditLog> into) throws IOException {
+        int actionCode = resolve(query.action(), actionCodes);
+        int resourceTypeCode = resolve(query.resourceType(), resourceTypeCodes);
+        if (actionCode < 0 || resourceTypeCode < 0) {
+            return;
+        }
+        long from = query.from() != null ? AuditArchiveWriter.toEpochMillis(query.from()) : Long.MIN_VALUE;
+        long to = query.to() != null ? AuditArchiveWriter.toEpochMillis(query.to()) : Long.MAX_VALUE;
+        long storedUserId = query.userId() != null ? query.userId() + 1 : 0;
+
+        for (int b = blocks.length - 1; b >= 0 && into.size() < limit; b--) {
+            Block block = blocks[b];
+            if (block.maxTime < from || block.minTime >= to
+                    || (storedUserId != 0 && (storedUserId < block.minUserId || storedUserId > block.maxUserId))
+                    || (actionCode > 0 && Arrays.binarySearch(block.actionCodes, actionCode) < 0)
+                    || (resourceTypeCode > 0 && Arrays.binarySearch(block.resourceTypeCodes, resourceTypeCode) < 0)) {
+                continue;
+            }
+            scanBlock(block, query, actionCode, resourceTypeCode, storedUserId, from, to, limit, into);
+        }
+    }
+
+    private void scanBlock(Block block, ArchiveQuery query, int actionCode, int resourceTypeCode,
+                           long storedUserId, long from, long to, int limit, List<AuditLog> into)
+            throws IOException {
+        ColumnReader payload = inflate(block);
+        int rows = block.rows;
+        long[] ids = readDeltas(payload.section(), rows);
+        long[] times = readDeltas(payload.section(), rows);
+        long[] userIds = readLongs(payload.section(), rows);
+        int[] usernameColumn = readInts(payload.section(), rows);
+        int[] actionColumn = readInts(payload.section(), rows);
+        int[] resourceTypeColumn = readInts(payload.section(), rows);
+        String[] resourceIds = readStrings(payload.section(), rows);
+        int bitmapLength = payload.readVarInt();
+        byte[] success = new byte[bitmapLength];
+        for (int i = 0; i < bitmapLength; i++) {
+            success[i] = (byte) payload.readByte();
+        }
+        ColumnReader details = payload.section();
+        ColumnReader errors = payload.section();
+        ColumnReader ipAddresses = payload.section();
+
+        // Text columns are decoded only if some row survives the cheap filters.
+        boolean[] match = new boolean[rows];
+        boolean any = false;
+        for (int row = 0; row < rows; row++) {
+            match[row] = times[row] >= from && times[row] < to
+                    && (storedUserId == 0 || userIds[row] == storedUserId)
+                    && (actionCode == 0 || actionColumn[row] == actionCode)
+                    && (resourceTypeCode == 0 || resourceTypeColumn[row] == resourceTypeCode)
+                    && (query.resourceId() == null || query.resourceId().equals(resourceIds[row]));
+            any |= match[row];
+        }
+        if (!any) {
+            return;
+        }
+        String[] detailColumn = readStrings(details, rows);
+        String[] errorColumn = readStrings(errors, rows);
+        String[] ipColumn = readStrings(ipAddresses, rows);
+
+        for (int row = rows - 1; row >= 0 && into.size() < limit; row--) {
+            if (!match[row]) {
+                continue;
+            }
+            AuditLog log = new AuditLog();
+            log.setId(ids[row]);
+            log.setUserId(userIds[row] == 0 ? null : userIds[row] - 1);
+            log.setUsername(lookup(usernames, usernameColumn[row]));
+            log.setAction(lookup(actions, actionColumn[row]));
+            log.setResourceType(lookup(resourceTypes, resourceTypeColumn[row]));
+            log.setResourceId(resourceIds[row]);
+            log.setSuccess((success[row >>> 3] & (1 << (row & 7))) != 0);
+            log.setDetail(detailColumn[row]);
+            log.setErrorMessage(errorColumn[row]);
+            log.setIpAddress(ipColumn[row]);
+            log.setCreatedAt(LocalDateTime.ofEpochSecond(Math.floorDiv(times[row], 1000),
+                    Math.floorMod(times[row], 1000) * 1_000_000, ZoneOffset.UTC));
+            into.add(log);
+        }
+    }
+
+    private ColumnReader inflate(Block block) throws IOException {
+        if (compressed.length < block.compressedLength) {
+            compressed = new byte[block.compressedLength];
+        }
+        if (raw.length < block.rawLength) {
+            raw = new byte[block.rawLength];
+        }
+        readFully(channel, block.offset, block.compressedLength).get(compressed, 0, block.compressedLength);
+        inflater.reset();
+        inflater.setInput(compressed, 0, block.compressedLength);
+        try {
+            int length = 0;
+            while (length < block.rawLength && !inflater.finished()) {
+                length += inflater.inflate(raw, length, block.rawLength - length);
+            }
+            if (length != block.rawLength) {
+                throw new IOException("Corrupt audit archive block at offset " + block.offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt audit archive block at offset " + block.offset, e);
+        }
+        blocksRead++;
+        return new ColumnReader(raw, 0, block.rawLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    private static int resolve(String value, Map<String, Integer> codes) {
+        if (value == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    private static String lookup(String[] dictionary, int code) {
+        return code == 0 ? null : dictionary[code - 1];
+    }
+
+    private static long[] readDeltas(ColumnReader column, int rows) {
+        long[] values = new long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += column.readSignedVarLong();
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static long[] readLongs(ColumnReader column, int rows) {
+        long[] values = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = column.readVarLong();
+        }
+        return values;
+    }
+
+    private static int[] readInts(ColumnReader column, int rows) {
+        int[] values = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = column.readVarInt();
+        }
+        return values;
+    }
+
+    private static String[] readStrings(ColumnReader column, int rows) {
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = column.readString();
+        }
+        return values;
+    }
+
+    private static String[] readDictionary(ColumnReader footer) {
+        String[] values = new String[footer.readVarInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = footer.readString();
+        }
+        return values;
+    }
+
+    private static Map<String, Integer> index(String[] dictionary) {
+        Map<String, Integer> codes = new HashMap<>(dictionary.length * 2);
+        for (int i = 0; i < dictionary.length; i++) {
+            codes.put(dictionary[i], i + 1);
+        }
+        return codes;
+    }
+
+    private static int[] readCodes(ColumnReader footer) {
+        int[] codes = new int[footer.readVarInt()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = footer.readVarInt();
+        }
+        return codes;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of audit archive");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Footer entry for one block. Code arrays are sorted ascending.
+     */
+    private record Block(long offset, int compressedLength, int rawLength, int rows,
+                         long minTime, long maxTime, long minUserId, long maxUserId,
+                         int[] usernameCodes, int[] actionCodes, int[] resourceTypeCodes) {
+    }
+}
@@ -0,0 +1,276 @@
+package com.study.repository.archive;
+
+import com.study.domain.AuditLog;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes audit records to the columnar archive format read by
+ * {@link AuditArchiveReader}.
+ * <p>
+ * Rows are grouped into blocks of {@value #BLOCK_ROWS}. Inside a block every
+ * column is stored on its own: ids and timestamps as deltas, {@code username},
+ * {@code action} and {@code resource_type} as codes into file-wide
+ * dictionaries, {@code success} as a bitmap. Each block is deflated
+ * separately. The footer holds the dictionaries plus per-block time range,
+ * user id range and the dictionary codes present, which lets the reader skip
+ * blocks without inflating them.
+ * <p>
+ * Records should be appended in {@code created_at} order.
+ */
+public final class AuditArchiveWriter implements AutoCloseable {
+    static final int MAGIC = 0x52424341; // "RBCA"
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+
+    private final OutputStream out;
+    private long position;
+
+    private final Dictionary usernames = new Dictionary();
+    private final Dictionary actions = new Dictionary();
+    private final Dictionary resourceTypes = new Dictionary();
+    private final List<BlockInfo> blocks = new ArrayList<>();
+
+    private final ColumnBuffer ids = new ColumnBuffer(BLOCK_ROWS * 2);
+    private final ColumnBuffer times = new ColumnBuffer(BLOCK_ROWS * 2);
+    private final ColumnBuffer userIds = new ColumnBuffer(BLOCK_ROWS * 2);
+    private final ColumnBuffer usernameCodes = new ColumnBuffer(BLOCK_ROWS);
+    private final ColumnBuffer actionCodes = new ColumnBuffer(BLOCK_ROWS);
+    private final ColumnBuffer resourceTypeCodes = new ColumnBuffer(BLOCK_ROWS);
+    private final ColumnBuffer resourceIds = new ColumnBuffer(BLOCK_ROWS * 4);
+    private final ColumnBuffer details = new ColumnBuffer(BLOCK_ROWS * 32);
+    private final ColumnBuffer errors = new ColumnBuffer(BLOCK_ROWS * 4);
+    private final ColumnBuffer ipAddresses = new ColumnBuffer(BLOCK_ROWS * 4);
+    private final byte[] successBits = new byte[(BLOCK_ROWS + 7) / 8];
+    private final ColumnBuffer payload = new ColumnBuffer(BLOCK_ROWS * 64);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[BLOCK_ROWS * 16];
+
+    private BlockInfo current = new BlockInfo();
+    private long previousId;
+    private long previousTime;
+    private long totalRows;
+
+    public AuditArchiveWriter(Path file) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        writeInt(MAGIC);
+        writeRaw(new byte[]{VERSION}, 1);
+    }
+
+    public void append(AuditLog log) throws IOException {
+        int row = current.rows;
+        long id = log.getId() != null ? log.getId() : 0L;
+        long time = toEpochMillis(log.getCreatedAt());
+
+        ids.writeSignedVarLong(id - previousId);
+        times.writeSignedVarLong(time - previousTime);
+        previousId = id;
+        previousTime = time;
+
+        Long userId = log.getUserId();
+        userIds.writeVarLong(userId == null ? 0 : userId + 1);
+        usernameCodes.writeVarLong(usernames.encode(log.getUsername(), current.usernameCodes));
+        actionCodes.writeVarLong(actions.encode(log.getAction(), current.actionCodes));
+        resourceTypeCodes.writeVarLong(resourceTypes.encode(log.getResourceType(), current.resourceTypeCodes));
+        resourceIds.writeString(log.getResourceId());
+        details.writeString(log.getDetail());
+        errors.writeString(log.getErrorMessage());
+        ipAddresses.writeString(log.getIpAddress());
+        if (log.isSuccess()) {
+            successBits[row >>> 3] |= (byte) (1 << (row & 7));
+        }
+
+        current.include(time, userId);
+        totalRows++;
+        if (current.rows == BLOCK_ROWS) {
+            flushBlock();
+        }
+    }
+
+    public long rowCount() {
+        return totalRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (current.rows > 0) {
+                flushBlock();
+            }
+            writeFooter();
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private void flushBlock() throws IOException {
+        payload.clear();
+        payload.writeSection(ids);
+        payload.writeSection(times);
+        payload.writeSection(userIds);
+        payload.writeSection(usernameCodes);
+        payload.writeSection(actionCodes);
+        payload.writeSection(resourceTypeCodes);
+        payload.writeSection(resourceIds);
+        payload.writeVarLong((current.rows + 7) / 8);
+        payload.writeBytes(successBits, 0, (current.rows + 7) / 8);
+        payload.writeSection(details);
+        payload.writeSection(errors);
+        payload.writeSection(ipAddresses);
+
+        deflater.reset();
+        deflater.setInput(payload.array(), 0, payload.size());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        current.offset = position;
+        current.compressedLength = length;
+        current.rawLength = payload.size();
+        writeRaw(compressed, length);
+        blocks.add(current);
+
+        current = new BlockInfo();
+        previousId = 0;
+        previousTime = 0;
+        ids.clear();
+        times.clear();
+        userIds.clear();
+        usernameCodes.clear();
+        actionCodes.clear();
+        resourceTypeCodes.clear();
+        resourceIds.clear();
+        details.clear();
+        errors.clear();
+        ipAddresses.clear();
+        Arrays.fill(successBits, (byte) 0);
+    }
+
+    private void writeFooter() throws IOException {
+        ColumnBuffer footer = new ColumnBuffer(1024 + blocks.size() * 64);
+        usernames.writeTo(footer);
+        actions.writeTo(footer);
+        resourceTypes.writeTo(footer);
+        footer.writeVarLong(totalRows);
+        footer.writeVarLong(blocks.size());
+        for (BlockInfo block : blocks) {
+            footer.writeVarLong(block.offset);
+            footer.writeVarLong(block.compressedLength);
+            footer.writeVarLong(block.rawLength);
+            footer.writeVarLong(block.rows);
+            footer.writeSignedVarLong(block.minTime);
+            footer.writeSignedVarLong(block.maxTime);
+            footer.writeVarLong(block.minUserId);
+            footer.writeVarLong(block.maxUserId);
+            writeCodes(footer, block.usernameCodes);
+            writeCodes(footer, block.actionCodes);
+            writeCodes(footer, block.resourceTypeCodes);
+        }
+        long footerOffset = position;
+        writeRaw(footer.array(), footer.size());
+        writeLong(footerOffset);
+        writeInt(footer.size());
+        writeInt(MAGIC);
+    }
+
+    private static void writeCodes(ColumnBuffer footer, BitSet codes) {
+        footer.writeVarLong(codes.cardinality());
+        for (int code = codes.nextSetBit(0); code >= 0; code = codes.nextSetBit(code + 1)) {
+            footer.writeVarLong(code);
+        }
+    }
+
+    private void writeRaw(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        position += length;
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeRaw(new byte[]{
+                (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value}, 4);
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /**
+     * File-wide string dictionary. Code 0 is null; values start at 1.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value, BitSet seen) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                values.add(value);
+                code = values.size();
+                codes.put(value, code);
+            }
+            seen.set(code);
+            return code;
+        }
+
+        void writeTo(ColumnBuffer footer) {
+            footer.writeVarLong(values.size());
+            for (String value : values) {
+                footer.writeString(value);
+            }
+        }
+    }
+
+    private static final class BlockInfo {
+        private long offset;
+        private int compressedLength;
+        private int rawLength;
+        private int rows;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+        // user ids stored +1 so that 0 can mean "no user in this block"
+        private long minUserId;
+        private long maxUserId;
+        private final BitSet usernameCodes = new BitSet();
+        private final BitSet actionCodes = new BitSet();
+        private final BitSet resourceTypeCodes = new BitSet();
+
+        void include(long time, Long userId) {
+            rows++;
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            if (userId != null) {
+                long stored = userId + 1;
+                minUserId = minUserId == 0 ? stored : Math.min(minUserId, stored);
+                maxUserId = Math.max(maxUserId, stored);
+            }
+        }
+    }
+}
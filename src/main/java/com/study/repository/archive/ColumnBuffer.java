@@ -0,0 +1,79 @@
+package com.study.repository.archive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the variable-length encodings used by archive
+ * columns: unsigned LEB128 varints, zig-zag signed deltas and
+ * length-prefixed UTF-8 strings (length 0 marks null).
+ */
+final class ColumnBuffer {
+    private byte[] bytes;
+    private int size;
+
+    ColumnBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length + 1L);
+        writeBytes(utf8, 0, utf8.length);
+    }
+
+    void writeBytes(byte[] source, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+
+    /**
+     * Append another buffer prefixed with its length, so a reader can find
+     * where each column ends.
+     */
+    void writeSection(ColumnBuffer section) {
+        writeVarLong(section.size);
+        writeBytes(section.bytes, 0, section.size);
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
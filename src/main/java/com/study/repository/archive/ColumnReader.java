@@ -0,0 +1,73 @@
+package com.study.repository.archive;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor over bytes written by {@link ColumnBuffer}.
+ */
+final class ColumnReader {
+    private final byte[] bytes;
+    private int position;
+    private final int limit;
+
+    ColumnReader(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    int readByte() {
+        checkAvailable(1);
+        return bytes[position++] & 0xFF;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in audit archive");
+    }
+
+    int readVarInt() {
+        return Math.toIntExact(readVarLong());
+    }
+
+    long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        checkAvailable(length);
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Read a length-prefixed section and return a reader limited to it.
+     */
+    ColumnReader section() {
+        int length = readVarInt();
+        checkAvailable(length);
+        ColumnReader section = new ColumnReader(bytes, position, length);
+        position += length;
+        return section;
+    }
+
+    private void checkAvailable(int count) {
+        if (position + count > limit) {
+            throw new IllegalStateException("Truncated audit archive block");
+        }
+    }
+}
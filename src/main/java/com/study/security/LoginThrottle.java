@@ -0,0 +1,228 @@
+package com.study.security;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory login throttling, checked before a login touches the database.
+ * <p>
+ * Every attempt takes a token from a bucket for the username and one for
+ * the caller address. Buckets are a single CAS-updated {@code long}, held in
+ * a concurrent map per key type. Each map holds at most
+ * {@code rbac.login.throttle.maxKeys} buckets: idle buckets (full again, not
+ * locked and without live failures) are swept out, and keys beyond the cap
+ * share one overflow bucket for their tokens.
+ * <p>
+ * Consecutive failures per username are counted here too, always in the
+ * name's own bucket, and forgotten {@code rbac.login.lockout.windowMinutes}
+ * after the last one. Reaching {@code rbac.login.lockout.threshold} locks the
+ * name for {@code rbac.login.lockout.minutes}; only that crossing is reported
+ * to the caller, so the lock is written to the database once.
+ */
+public class LoginThrottle {
+    /** Bucket state: milliseconds since {@link #epochMillis} in the high bits, milli-tokens in the low 24. */
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final int SWEEP_INTERVAL = 4096;
+
+    public enum Decision {
+        ALLOWED, USER_THROTTLED, ADDRESS_THROTTLED, LOCKED
+    }
+
+    private static LoginThrottle instance;
+
+    private final BucketMap users;
+    private final BucketMap addresses;
+    private final int lockoutThreshold;
+    private final long lockoutMillis;
+    private final long failureWindowMillis;
+    private final long epochMillis = System.currentTimeMillis();
+
+    public LoginThrottle(int userCapacity, double userPerSecond, int addressCapacity, double addressPerSecond,
+                         int maxKeys, int lockoutThreshold, long lockoutMillis, long failureWindowMillis) {
+        this.users = new BucketMap(userCapacity, userPerSecond, maxKeys);
+        this.addresses = new BucketMap(addressCapacity, addressPerSecond, maxKeys);
+        this.lockoutThreshold = lockoutThreshold;
+        this.lockoutMillis = lockoutMillis;
+        this.failureWindowMillis = failureWindowMillis;
+    }
+
+    public static synchronized LoginThrottle getInstance() {
+        if (instance == null) {
+            instance = new LoginThrottle(
+                    Integer.getInteger("rbac.login.throttle.userBurst", 10),
+                    Double.parseDouble(System.getProperty("rbac.login.throttle.userPerSecond", "0.2")),
+                    Integer.getInteger("rbac.login.throttle.addressBurst", 30),
+                    Double.parseDouble(System.getProperty("rbac.login.throttle.addressPerSecond", "1")),
+                    Integer.getInteger("rbac.login.throttle.maxKeys", 100_000),
+                    Integer.getInteger("rbac.login.lockout.threshold", 10),
+                    Long.getLong("rbac.login.lockout.minutes", 15) * 60_000,
+                    Long.getLong("rbac.login.lockout.windowMinutes", 15) * 60_000);
+        }
+        return instance;
+    }
+
+    /**
+     * Take a token for this attempt. Nothing is taken from the address
+     * bucket when the username is already locked or out of tokens.
+     */
+    public Decision tryAcquire(String username, String address) {
+        long now = System.currentTimeMillis();
+        Bucket user = users.get(key(username), now);
+        if (user.lockedUntil > now) {
+            return Decision.LOCKED;
+        }
+        if (!user.tryTake(now - epochMillis, users)) {
+            return Decision.USER_THROTTLED;
+        }
+        if (address != null && !addresses.get(address, now).tryTake(now - epochMillis, addresses)) {
+            return Decision.ADDRESS_THROTTLED;
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * Count a failed attempt.
+     *
+     * @return lock expiry in epoch millis if this failure crossed the lockout
+     *         threshold, otherwise 0
+     */
+    public long recordFailure(String username) {
+        long now = System.currentTimeMillis();
+        Bucket user = users.getOwn(key(username), now);
+        if (user.failuresUntil <= now) {
+            user.failures.set(0);
+        }
+        user.failuresUntil = now + failureWindowMillis;
+        if (user.failures.incrementAndGet() != lockoutThreshold) {
+            return 0;
+        }
+        user.failures.set(0);
+        user.lockedUntil = now + lockoutMillis;
+        return user.lockedUntil;
+    }
+
+    public void recordSuccess(String username) {
+        Bucket user = users.peek(key(username));
+        if (user != null) {
+            user.failures.set(0);
+        }
+    }
+
+    /**
+     * Remember a lock found in the database so further attempts are refused
+     * without a lookup.
+     */
+    public void lock(String username, long untilMillis) {
+        Bucket user = users.getOwn(key(username), System.currentTimeMillis());
+        user.lockedUntil = Math.max(user.lockedUntil, untilMillis);
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private final class BucketMap {
+        private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+        private final Bucket overflow;
+        private final long capacityMilli;
+        /** Milli-tokens regained per millisecond. */
+        private final double refillPerMilli;
+        private final int maxKeys;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final ReentrantLock sweepLock = new ReentrantLock();
+
+        BucketMap(int capacity, double perSecond, int maxKeys) {
+            this.capacityMilli = Math.min(TOKEN_MASK, capacity * 1000L);
+            this.refillPerMilli = perSecond;
+            this.maxKeys = maxKeys;
+            this.overflow = new Bucket(capacityMilli);
+        }
+
+        Bucket peek(String key) {
+            return buckets.get(key);
+        }
+
+        Bucket get(String key, long now) {
+            if ((calls.incrementAndGet() & (SWEEP_INTERVAL - 1)) == 0) {
+                sweep(now);
+            }
+            Bucket bucket = buckets.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (buckets.size() >= maxKeys) {
+                sweep(now);
+                if (buckets.size() >= maxKeys) {
+                    return overflow;
+                }
+            }
+            return buckets.computeIfAbsent(key, k -> new Bucket(capacityMilli));
+        }
+
+        /**
+         * Like {@link #get} but never the overflow bucket, for state that
+         * must not be shared between keys. May exceed the cap until the
+         * next sweep.
+         */
+        Bucket getOwn(String key, long now) {
+            Bucket bucket = get(key, now);
+            return bucket != overflow ? bucket : buckets.computeIfAbsent(key, k -> new Bucket(capacityMilli));
+        }
+
+        /**
+         * Drop buckets that have refilled completely, are not locked and have
+         * no failures left to count; a new bucket would behave the same.
+         * Skipped if a sweep is running.
+         */
+        private void sweep(long now) {
+            if (!sweepLock.tryLock()) {
+                return;
+            }
+            try {
+                long elapsedNow = now - epochMillis;
+                long idleMillis = (long) Math.ceil(capacityMilli / refillPerMilli);
+                buckets.values().removeIf(bucket -> bucket.lockedUntil <= now
+                        && (bucket.failuresUntil <= now || bucket.failures.get() == 0)
+                        && elapsedNow - (bucket.state.get() >>> TOKEN_BITS) > idleMillis);
+            } finally {
+                sweepLock.unlock();
+            }
+        }
+    }
+
+    private static final class Bucket {
+        final AtomicLong state;
+        final AtomicInteger failures = new AtomicInteger();
+        /** When {@link #failures} lapses: one failure window after the last failure. */
+        volatile long failuresUntil;
+        volatile long lockedUntil;
+
+        Bucket(long capacityMilli) {
+            this.state = new AtomicLong(capacityMilli);
+        }
+
+        boolean tryTake(long elapsedMillis, BucketMap map) {
+            while (true) {
+                long current = state.get();
+                long last = current >>> TOKEN_BITS;
+                long tokens = current & TOKEN_MASK;
+                long regained = (long) ((elapsedMillis - last) * map.refillPerMilli);
+                if (regained > 0) {
+                    // Only move the clock when something was regained, or slow rates never refill.
+                    tokens = Math.min(map.capacityMilli, tokens + regained);
+                    last = elapsedMillis;
+                }
+                if (tokens < 1000) {
+                    return false;
+                }
+                if (state.compareAndSet(current, (last << TOKEN_BITS) | (tokens - 1000))) {
+                    return true;
+                }
+            }
+        }
+    }
+}
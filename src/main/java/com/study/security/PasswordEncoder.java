@@ -26,4 +26,14 @@ public interface PasswordEncoder {
      * @return true if match
      */
     boolean matches(String rawPassword, String encodedPassword, String salt);
+
+    /**
+     * Whether a hash that just matched should be re-encoded with the current
+     * algorithm or cost
+     * @param encodedPassword encoded password
+     * @return true if it is outdated
+     */
+    default boolean needsUpgrade(String encodedPassword) {
+        return false;
+    }
 }
@@ -0,0 +1,116 @@
+package com.study.security;
+
+import com.study.exception.RbacException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Small bounded pool that runs password hashing.
+ * <p>
+ * Hashing is deliberately slow, so it gets its own
+ * {@code rbac.password.hashThreads} threads and a queue of
+ * {@code rbac.password.hashQueue} waiting tasks. When both are full the call
+ * is refused immediately instead of piling up, which keeps a burst of logins
+ * from taking every core.
+ */
+public class PasswordHashingExecutor {
+    private static PasswordHashingExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+
+    /**
+     * Totals since startup.
+     */
+    public record Stats(long completed, long rejected, long wallNanos, long cpuNanos) {
+        public double averageWallMillis() {
+            return completed == 0 ? 0 : wallNanos / 1_000_000.0 / completed;
+        }
+
+        public double averageCpuMillis() {
+            return completed == 0 ? 0 : cpuNanos / 1_000_000.0 / completed;
+        }
+    }
+
+    public PasswordHashingExecutor(int threads, int queueCapacity, long timeoutMillis) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static synchronized PasswordHashingExecutor getInstance() {
+        if (instance == null) {
+            instance = new PasswordHashingExecutor(
+                    Integer.getInteger("rbac.password.hashThreads",
+                            Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                    Integer.getInteger("rbac.password.hashQueue", 64),
+                    Long.getLong("rbac.password.hashTimeoutMillis", 5000));
+        }
+        return instance;
+    }
+
+    /**
+     * Run {@code task} on the pool and wait for it.
+     *
+     * @throws RbacException if the pool is saturated or the task times out
+     */
+    public <T> T call(Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                long cpuStart = threadBean.getCurrentThreadCpuTime();
+                try {
+                    return task.get();
+                } finally {
+                    cpuNanos.add(threadBean.getCurrentThreadCpuTime() - cpuStart);
+                    wallNanos.add(System.nanoTime() - startedAt);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RbacException("Too many concurrent password checks, please try again");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RbacException("Password check timed out, please try again");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RbacException("Interrupted while checking password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RbacException("Password check failed", e.getCause());
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(completed.sum(), rejected.sum(), wallNanos.sum(), cpuNanos.sum());
+    }
+}
@@ -0,0 +1,141 @@
+package com.study.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * PBKDF2-HMAC-SHA256 password encoder.
+ * <p>
+ * Hashes are stored as {@code pbkdf2$<iterations>$<base64 hash>} so the cost
+ * can change without invalidating existing hashes. The shared instance
+ * calibrates its iteration count at startup so one hash takes about
+ * {@code rbac.password.targetMillis} on this machine, bounded by
+ * {@code rbac.password.minIterations} and {@code rbac.password.maxIterations}.
+ * Hashes from {@link Sha256PasswordEncoder} are still accepted and reported
+ * by {@link #needsUpgrade}.
+ */
+public class Pbkdf2PasswordEncoder implements PasswordEncoder {
+    private static final Logger logger = LoggerFactory.getLogger(Pbkdf2PasswordEncoder.class);
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int HASH_BITS = 256;
+    private static final int CALIBRATION_ITERATIONS = 20_000;
+    private static final ThreadLocal<SecretKeyFactory> FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    });
+
+    private static Pbkdf2PasswordEncoder instance;
+
+    private final int iterations;
+    private final Sha256PasswordEncoder legacy = new Sha256PasswordEncoder();
+
+    public Pbkdf2PasswordEncoder(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public static synchronized Pbkdf2PasswordEncoder getInstance() {
+        if (instance == null) {
+            instance = new Pbkdf2PasswordEncoder(calibrate(
+                    Long.getLong("rbac.password.targetMillis", 100),
+                    Integer.getInteger("rbac.password.minIterations", 100_000),
+                    Integer.getInteger("rbac.password.maxIterations", 10_000_000)));
+        }
+        return instance;
+    }
+
+    /**
+     * Iteration count for which one hash takes about {@code targetMillis},
+     * measured as the best of several short runs and rounded to a thousand.
+     */
+    public static int calibrate(long targetMillis, int minIterations, int maxIterations) {
+        byte[] salt = new byte[16];
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 8; run++) {
+            long startedAt = System.nanoTime();
+            hash("calibration", salt, CALIBRATION_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - startedAt);
+        }
+        double nanosPerIteration = (double) best / CALIBRATION_ITERATIONS;
+        long wanted = Math.round(targetMillis * 1_000_000 / nanosPerIteration / 1000) * 1000;
+        int iterations = (int) Math.max(minIterations, Math.min(maxIterations, wanted));
+        logger.info("PBKDF2 calibrated to {} iterations (~{} ms per hash, target {} ms)",
+                iterations, Math.round(iterations * nanosPerIteration / 1_000_000), targetMillis);
+        return iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String encode(String rawPassword, String salt) {
+        byte[] hash = hash(rawPassword, salt.getBytes(StandardCharsets.UTF_8), iterations);
+        return PREFIX + iterations + "$" + Base64.getEncoder().encodeToString(hash);
+    }
+
+    @Override
+    public String generateSalt() {
+        return legacy.generateSalt();
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String encodedPassword, String salt) {
+        if (!encodedPassword.startsWith(PREFIX)) {
+            return legacy.matches(rawPassword, encodedPassword, salt);
+        }
+        int separator = encodedPassword.indexOf('$', PREFIX.length());
+        if (separator < 0) {
+            return false;
+        }
+        int storedIterations;
+        byte[] expected;
+        try {
+            storedIterations = Integer.parseInt(encodedPassword.substring(PREFIX.length(), separator));
+            expected = Base64.getDecoder().decode(encodedPassword.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        byte[] actual = hash(rawPassword, salt.getBytes(StandardCharsets.UTF_8), storedIterations);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * True for legacy SHA-256 hashes and for PBKDF2 hashes with fewer
+     * iterations than this encoder uses.
+     */
+    @Override
+    public boolean needsUpgrade(String encodedPassword) {
+        if (!encodedPassword.startsWith(PREFIX)) {
+            return true;
+        }
+        int separator = encodedPassword.indexOf('$', PREFIX.length());
+        try {
+            return separator < 0
+                    || Integer.parseInt(encodedPassword.substring(PREFIX.length(), separator)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] hash(String rawPassword, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(rawPassword.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 hashing failed", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -7,22 +7,25 @@ import java.security.SecureRandom;
 import java.util.Base64;
 
 /**
- * SHA-256 based password encoder with salt
+ * SHA-256 based password encoder with salt. Only kept to verify hashes
+ * written before {@link Pbkdf2PasswordEncoder}.
  */
 public class Sha256PasswordEncoder implements PasswordEncoder {
     private static final SecureRandom RANDOM = new SecureRandom();
     private static final int SALT_LENGTH = 16;
-
-    @Override
-    public String encode(String rawPassword, String salt) {
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            String saltedPassword = rawPassword + salt;
-            byte[] hash = digest.digest(saltedPassword.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hash);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not available", e);
         }
+    });
+
+    @Override
+    public String encode(String rawPassword, String salt) {
+        String saltedPassword = rawPassword + salt;
+        byte[] hash = DIGEST.get().digest(saltedPassword.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
     }
 
     @Override
@@ -34,7 +37,7 @@ public class Sha256PasswordEncoder implements PasswordEncoder {
 
     @Override
     public boolean matches(String rawPassword, String encodedPassword, String salt) {
-        String hashedInput = encode(rawPassword, salt);
-        return hashedInput.equals(encodedPassword);
+        byte[] hashedInput = encode(rawPassword, salt).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(hashedInput, encodedPassword.getBytes(StandardCharsets.US_ASCII));
     }
 }
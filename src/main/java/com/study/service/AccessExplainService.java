@@ -0,0 +1,228 @@
+package com.study.service;
+
+import com.study.config.PermissionCodes;
+import com.study.context.AccessTrace;
+import com.study.context.AccessTrace.Outcome;
+import com.study.context.SessionContext;
+import com.study.context.TenantContext;
+import com.study.domain.Permission;
+import com.study.domain.Resource;
+import com.study.domain.Role;
+import com.study.domain.ScopedPermission;
+import com.study.domain.User;
+import com.study.exception.PermissionDeniedException;
+import com.study.exception.ValidationException;
+import com.study.repository.AuditLogRepository;
+import com.study.repository.GroupMembershipIndex;
+import com.study.repository.PermissionRepository;
+import com.study.repository.ResourceRepository;
+import com.study.repository.RoleRepository;
+import com.study.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Explains why a user is or is not allowed a permission on a resource.
+ * <p>
+ * Evaluates the stored grants (not a session cache) and attributes each
+ * match to the role it came from: account state, roles, global grants,
+ * scoped grants, then grants on the resource's ancestors. Each stage is
+ * timed. Explaining another user needs {@code PERMISSION_VIEW}; anyone may
+ * explain their own access.
+ */
+public class AccessExplainService extends BaseService {
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final ResourceRepository resourceRepository;
+
+    public AccessExplainService(SessionContext sessionContext,
+                                UserRepository userRepository,
+                                RoleRepository roleRepository,
+                                PermissionRepository permissionRepository,
+                                ResourceRepository resourceRepository,
+                                AuditLogRepository auditLogRepository) {
+        super(sessionContext, auditLogRepository);
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+        this.resourceRepository = resourceRepository;
+    }
+
+    /**
+     * @param username user to explain, or blank for the current user
+     */
+    public AccessTrace explainAccess(String username, String permissionCode, String resourceType, String resourceId) {
+        if (!sessionContext.isLoggedIn()) {
+            throw new PermissionDeniedException("Not logged in");
+        }
+        String target = username == null || username.isBlank()
+                ? sessionContext.getCurrentUser().getUsername()
+                : username.trim();
+        boolean self = target.equals(sessionContext.getCurrentUser().getUsername());
+
+        return executeWithTemplate(
+                self ? null : PermissionCodes.PERMISSION_VIEW,
+                "EXPLAIN_ACCESS",
+                resourceType,
+                resourceId,
+                () -> validateNotBlank(permissionCode, "Permission code"),
+                () -> explain(target, permissionCode.trim(), blankToNull(resourceType), blankToNull(resourceId))
+        );
+    }
+
+    private AccessTrace explain(String username, String permissionCode, String resourceType, String resourceId) {
+        AccessTrace trace = new AccessTrace(username, permissionCode, resourceType, resourceId);
+
+        long start = System.nanoTime();
+        if (permissionRepository.findByCode(permissionCode).isEmpty()) {
+            trace.stage("permission", Outcome.REJECTED, "unknown permission " + permissionCode, start);
+            return trace;
+        }
+        trace.stage("permission", Outcome.INFO, permissionCode + " exists", start);
+
+        start = System.nanoTime();
+        Optional<User> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+            throw new ValidationException("User not found: " + username);
+        }
+        if (!user.get().isEnabled()) {
+            trace.stage("account", Outcome.REJECTED, "account disabled", start);
+            return trace;
+        }
+        LocalDateTime lockedUntil = user.get().getLockedUntil();
+        if (lockedUntil != null && lockedUntil.isAfter(LocalDateTime.now())) {
+            trace.stage("account", Outcome.REJECTED, "account locked until " + lockedUntil, start);
+            return trace;
+        }
+        trace.stage("account", Outcome.INFO, "enabled", start);
+
+        start = System.nanoTime();
+        // Same role set as PermissionRepository.findByUserId: direct plus group roles.
+        List<Role> roles = new ArrayList<>(roleRepository.findByUserId(user.get().getId()));
+        Set<Long> direct = roles.stream().map(Role::getId).collect(Collectors.toSet());
+        long[] groupRoleIds = Arrays.stream(GroupMembershipIndex.forTenant(TenantContext.current())
+                .rolesOf(user.get().getId())).filter(id -> !direct.contains(id)).toArray();
+        List<Role> groupRoles = roleRepository.findByIds(groupRoleIds);
+        roles.addAll(groupRoles);
+        if (roles.isEmpty()) {
+            trace.stage("roles", Outcome.REJECTED, "user has no roles", start);
+            return trace;
+        }
+        trace.stage("roles", Outcome.INFO, roles.stream()
+                .map(role -> groupRoles.contains(role) ? role.getCode() + " (group)" : role.getCode())
+                .collect(Collectors.joining(", ")), start);
+
+        start = System.nanoTime();
+        List<String> granting = new ArrayList<>();
+        for (Role role : roles) {
+            for (Permission permission : permissionRepository.findByRoleId(role.getId())) {
+                if (permissionCode.equals(permission.getCode())) {
+                    granting.add(role.getCode());
+                }
+            }
+        }
+        if (!granting.isEmpty()) {
+            trace.stage("global", Outcome.MATCHED, "granted globally by role " + String.join(", ", granting), start);
+            return trace;
+        }
+        trace.stage("global", Outcome.REJECTED, "no role grants " + permissionCode + " globally", start);
+
+        start = System.nanoTime();
+        if (resourceType == null) {
+            trace.stage("scoped", Outcome.SKIPPED, "no resource given", start);
+            return trace;
+        }
+        Map<ScopedPermission, String> scoped = new LinkedHashMap<>();
+        for (Role role : roles) {
+            for (ScopedPermission scope : permissionRepository.findScopedPermissionsByRoleId(role.getId())) {
+                if (permissionCode.equals(scope.getPermissionCode())) {
+                    scoped.putIfAbsent(scope, role.getCode());
+                }
+            }
+        }
+        for (Map.Entry<ScopedPermission, String> entry : scoped.entrySet()) {
+            if (entry.getKey().matches(resourceType, resourceId)) {
+                trace.stage("scoped", Outcome.MATCHED,
+                        "role " + entry.getValue() + " grants on " + describe(entry.getKey()), start);
+                return trace;
+            }
+        }
+        List<String> considered = scoped.entrySet().stream()
+                .map(e -> e.getValue() + ":" + describe(e.getKey()))
+                .toList();
+        trace.stage("scoped", Outcome.REJECTED, considered.isEmpty()
+                ? "no role has scoped grants for " + permissionCode
+                : "considered " + summarize(considered), start);
+
+        start = System.nanoTime();
+        List<Resource> ancestors = ancestorsOf(resourceType, resourceId);
+        if (ancestors.isEmpty()) {
+            trace.stage("inherited", Outcome.SKIPPED, "resource has no ancestors", start);
+            return trace;
+        }
+        for (Resource ancestor : ancestors) {
+            for (Map.Entry<ScopedPermission, String> entry : scoped.entrySet()) {
+                if (entry.getKey().matches(ancestor.getType(), ancestor.getId().toString())) {
+                    trace.stage("inherited", Outcome.MATCHED, "role " + entry.getValue() + " grants on ancestor "
+                            + ancestor.getType() + "/" + ancestor.getId() + " via " + describe(entry.getKey()), start);
+                    return trace;
+                }
+            }
+        }
+        trace.stage("inherited", Outcome.REJECTED, "no grant on ancestors " + ancestors.stream()
+                .map(a -> a.getType() + "/" + a.getId()).collect(Collectors.joining(", ")), start);
+        return trace;
+    }
+
+    /**
+     * Ancestors of a stored resource, nearest first; empty if the id is not
+     * a resource of that type.
+     */
+    private List<Resource> ancestorsOf(String resourceType, String resourceId) {
+        if (resourceId == null) {
+            return List.of();
+        }
+        Optional<Resource> resource;
+        try {
+            resource = resourceRepository.findById(Long.parseLong(resourceId));
+        } catch (NumberFormatException e) {
+            return List.of();
+        }
+        if (resource.isEmpty() || !resourceType.equalsIgnoreCase(resource.get().getType())) {
+            return List.of();
+        }
+        List<Long> ids = resource.get().getAncestorIds();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Resource> byId = resourceRepository.findByIds(new HashSet<>(ids)).stream()
+                .collect(Collectors.toMap(Resource::getId, r -> r));
+        return ids.stream().map(byId::get).filter(r -> r != null).toList();
+    }
+
+    private static String describe(ScopedPermission scope) {
+        String id = scope.getResourceId() == null || scope.getResourceId().isBlank() ? "*all*" : scope.getResourceId();
+        return scope.getResourceType() + "/" + id;
+    }
+
+    private static String summarize(List<String> items) {
+        if (items.size() <= 5) {
+            return String.join(", ", items);
+        }
+        return String.join(", ", items.subList(0, 5)) + " and " + (items.size() - 5) + " more";
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
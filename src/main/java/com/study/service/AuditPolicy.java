@@ -0,0 +1,241 @@
+package com.study.service;
+
+import com.study.context.TenantContext;
+import com.study.domain.AuditLog;
+import com.study.exception.DataAccessException;
+import com.study.repository.AuditLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-action decision whether a successful operation is written to the audit
+ * trail.
+ * <p>
+ * Rules come from {@code rbac.audit.policy.file} (default
+ * {@code config/audit-policy.properties}, falling back to the bundled
+ * {@code audit-policy.properties}) and are re-read when the file changes.
+ * Only read-only actions ({@code LIST_*}, {@code VIEW_*}, {@code SEARCH_*})
+ * can be relaxed; any other action is always audited, and failures are
+ * always audited whatever the rule. Records skipped by sampling or
+ * aggregation are not counted in the audit rollups. Aggregated calls are
+ * counted per tenant, and each tenant's counts are flushed into its own
+ * audit trail.
+ * <p>
+ * {@link #shouldAuditSuccess} reads an immutable snapshot; an aggregated
+ * call only bumps a counter.
+ */
+public final class AuditPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(AuditPolicy.class);
+    private static final Logger auditLogger = LoggerFactory.getLogger("com.study.audit");
+    private static final String DEFAULT_KEY = "default";
+
+    public enum Mode {
+        ALWAYS, FAILURES_ONLY, SAMPLED, AGGREGATED
+    }
+
+    private static AuditPolicy instance;
+
+    private final Path file;
+    private final long reloadSeconds;
+    private final long aggregateSeconds;
+    /** Counters by tenant and action; they outlive reloads so a rule change never drops pending counts. */
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, LongAdder>> aggregates =
+            new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Rule.ALWAYS);
+    private volatile long loadedModified = Long.MIN_VALUE;
+    private ScheduledExecutorService scheduler;
+
+    public AuditPolicy(Path file, long reloadSeconds, long aggregateSeconds) {
+        this.file = file;
+        this.reloadSeconds = reloadSeconds;
+        this.aggregateSeconds = aggregateSeconds;
+        reload();
+    }
+
+    public static synchronized AuditPolicy getInstance() {
+        if (instance == null) {
+            instance = new AuditPolicy(
+                    Paths.get(System.getProperty("rbac.audit.policy.file", "config/audit-policy.properties")),
+                    Long.getLong("rbac.audit.policy.reloadSeconds", 10),
+                    Long.getLong("rbac.audit.policy.aggregateSeconds", 60));
+        }
+        return instance;
+    }
+
+    /**
+     * Start watching the file and flushing aggregated counts through
+     * {@code repository}; called once by the facade. Only the first call
+     * does anything.
+     */
+    public synchronized void start(AuditLogRepository repository) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "audit-policy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reload, reloadSeconds, reloadSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(() -> flush(repository), aggregateSeconds, aggregateSeconds,
+                TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(repository), "audit-policy-shutdown"));
+    }
+
+    /**
+     * Whether a successful {@code action} should be recorded now.
+     * Aggregated actions are counted here and reported by the next flush.
+     */
+    public boolean shouldAuditSuccess(String action) {
+        Snapshot current = snapshot;
+        Rule rule = current.rules.get(action);
+        if (rule == null) {
+            if (!isReadOnly(action)) {
+                return true;
+            }
+            rule = current.defaultRule;
+        }
+        switch (rule.mode) {
+            case FAILURES_ONLY:
+                return false;
+            case SAMPLED:
+                return ThreadLocalRandom.current().nextDouble() < rule.rate;
+            case AGGREGATED:
+                aggregates.computeIfAbsent(TenantContext.current(), AuditPolicy::newCounters)
+                        .computeIfAbsent(action, AuditPolicy::newCounter)
+                        .increment();
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    static boolean isReadOnly(String action) {
+        return action.startsWith("LIST_") || action.startsWith("VIEW_") || action.startsWith("SEARCH_");
+    }
+
+    /**
+     * Re-read the rules if the file changed since the last load. A file
+     * that fails to parse keeps the previous rules.
+     */
+    void reload() {
+        try {
+            long modified = Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : -1;
+            if (modified == loadedModified) {
+                return;
+            }
+            Properties properties = new Properties();
+            if (modified >= 0) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    properties.load(in);
+                }
+            } else {
+                try (InputStream in = AuditPolicy.class.getClassLoader()
+                        .getResourceAsStream("audit-policy.properties")) {
+                    if (in != null) {
+                        properties.load(in);
+                    }
+                }
+            }
+            snapshot = parse(properties);
+            loadedModified = modified;
+            logger.info("Loaded audit policy from {}: {} rules", modified >= 0 ? file : "classpath",
+                    snapshot.rules.size());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Audit policy {} not loaded, keeping previous rules: {}", file, e.getMessage());
+        }
+    }
+
+    private Snapshot parse(Properties properties) {
+        Rule defaultRule = Rule.ALWAYS;
+        Map<String, Rule> rules = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String action = key.trim().toUpperCase(Locale.ROOT);
+            if (DEFAULT_KEY.equalsIgnoreCase(action)) {
+                defaultRule = parseRule(DEFAULT_KEY, properties.getProperty(key));
+            } else if (!isReadOnly(action)) {
+                logger.warn("Ignoring audit policy for {}: only read-only actions can be relaxed", action);
+            } else {
+                rules.put(action, parseRule(action, properties.getProperty(key)));
+            }
+        }
+        return new Snapshot(rules, defaultRule);
+    }
+
+    /**
+     * {@code ALWAYS}, {@code FAILURES_ONLY}, {@code SAMPLED:<rate 0..1>} or
+     * {@code AGGREGATED}.
+     */
+    private Rule parseRule(String action, String value) {
+        String[] parts = value.trim().split(":", 2);
+        Mode mode = Mode.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+        double rate = 1.0;
+        if (mode == Mode.SAMPLED) {
+            if (parts.length < 2) {
+                throw new IllegalArgumentException(action + ": SAMPLED needs a rate, e.g. SAMPLED:0.1");
+            }
+            rate = Double.parseDouble(parts[1].trim());
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException(action + ": sample rate must be between 0 and 1");
+            }
+        }
+        return new Rule(mode, rate);
+    }
+
+    /**
+     * Write one record per tenant and aggregated action that was called
+     * since the last flush, as that tenant.
+     */
+    void flush(AuditLogRepository repository) {
+        aggregates.forEach((tenantId, counters) -> TenantContext.runAs(tenantId, () -> {
+            for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+                long count = entry.getValue().sumThenReset();
+                if (count == 0) {
+                    continue;
+                }
+                String detail = "Aggregated " + count + " successful calls in the last " + aggregateSeconds + "s";
+                AuditLog log = new AuditLog(null, "system", entry.getKey(), null, null, detail, true, null);
+                try {
+                    repository.save(log);
+                } catch (DataAccessException e) {
+                    // Keep the count for the next flush.
+                    entry.getValue().add(count);
+                    logger.warn("Aggregated audit count for {} not flushed: {}", entry.getKey(), e.getMessage());
+                    continue;
+                }
+                BaseService.writeAuditLine(auditLogger, log);
+            }
+        }));
+    }
+
+    private static ConcurrentHashMap<String, LongAdder> newCounters(Long tenantId) {
+        return new ConcurrentHashMap<>();
+    }
+
+    private static LongAdder newCounter(String action) {
+        return new LongAdder();
+    }
+
+    private record Rule(Mode mode, double rate) {
+        static final Rule ALWAYS = new Rule(Mode.ALWAYS, 1.0);
+    }
+
+    private record Snapshot(Map<String, Rule> rules, Rule defaultRule) {
+    }
+}
@@ -2,25 +2,49 @@ package com.study.service;
 
 import com.study.config.PermissionCodes;
 import com.study.context.SessionContext;
+import com.study.context.TenantContext;
 import com.study.domain.AuditLog;
+import com.study.exception.DataAccessException;
+import com.study.exception.ValidationException;
+import com.study.service.dto.AuditCountPoint;
+import com.study.service.export.AuditExporter;
 import com.study.repository.AuditLogRepository;
+import com.study.repository.AuditSearchQuery;
+import com.study.repository.AuditRollupRepository.Granularity;
+import com.study.repository.archive.ArchiveQuery;
+import com.study.repository.archive.AuditArchive;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Audit log query service
  */
 public class AuditService extends BaseService {
     private final AuditLogRepository auditLogRepository;
+    private final AuditArchive auditArchive;
     
     public AuditService(SessionContext sessionContext,
                        AuditLogRepository auditLogRepository) {
+        this(sessionContext, auditLogRepository, AuditArchive.fromSystemProperties());
+    }
+
+    public AuditService(SessionContext sessionContext,
+                       AuditLogRepository auditLogRepository,
+                       AuditArchive auditArchive) {
         super(sessionContext, auditLogRepository);
         this.auditLogRepository = auditLogRepository;
+        this.auditArchive = auditArchive;
     }
     
     /**
-     * View audit logs for current user
+     * View audit logs for current user. Served from the in-memory recent
+     * buffer when it can answer exactly.
      */
     public List<AuditLog> viewMyAuditLogs(int limit) {
         return executeWithTemplate(
@@ -35,7 +59,8 @@ public class AuditService extends BaseService {
             },
             () -> {
                 Long userId = sessionContext.getCurrentUser().getId();
-                return auditLogRepository.findByUserId(userId, limit);
+                List<AuditLog> recent = auditLogRepository.getRecentEvents().latestForUser(userId, limit);
+                return recent != null ? recent : auditLogRepository.findByUserId(userId, limit);
             }
         );
     }
@@ -55,7 +80,8 @@ public class AuditService extends BaseService {
     }
     
     /**
-     * View all audit logs (admin function)
+     * View all audit logs (admin function). Served from the in-memory
+     * recent buffer when it can answer exactly.
      */
     public List<AuditLog> viewAllAuditLogs(int limit) {
         return executeWithTemplate(
@@ -64,7 +90,10 @@ public class AuditService extends BaseService {
             "AuditLog",
             null,
             null,
-            () -> auditLogRepository.findAll(limit)
+            () -> {
+                List<AuditLog> recent = auditLogRepository.getRecentEvents().latest(TenantContext.current(), limit);
+                return recent != null ? recent : auditLogRepository.findAll(limit);
+            }
         );
     }
     
@@ -95,4 +124,144 @@ public class AuditService extends BaseService {
                 () -> auditLogRepository.findByResource(resourceType, resourceId, limit)
         );
     }
+
+    /**
+     * Open a single audit record with its full detail text.
+     */
+    public AuditLog viewAuditLogDetail(Long auditLogId) {
+        return executeWithTemplate(
+                PermissionCodes.AUDIT_VIEW_ALL,
+                "VIEW_AUDIT_DETAIL",
+                "AuditLog",
+                auditLogId != null ? auditLogId.toString() : null,
+                () -> validateNotNull(auditLogId, "Audit log ID"),
+                () -> auditLogRepository.findById(auditLogId)
+                        .orElseThrow(() -> new ValidationException("Audit log not found: " + auditLogId))
+        );
+    }
+
+    /**
+     * Search audit records on several fields at once, newest first. Every
+     * filter field is optional; all given ones must match.
+     */
+    public List<AuditLog> searchAuditLogs(AuditSearchQuery query, int limit) {
+        return executeWithTemplate(
+                PermissionCodes.AUDIT_VIEW_ALL,
+                "SEARCH_AUDIT",
+                "AuditLog",
+                null,
+                () -> {
+                    validateNotNull(query, "Search query");
+                    if (query.from() != null && query.to() != null && !query.from().isBefore(query.to())) {
+                        throw new ValidationException("Start time must be before end time");
+                    }
+                },
+                () -> auditLogRepository.search(query, limit)
+        );
+    }
+
+    /**
+     * Search audit records already moved out of the database by the
+     * retention job. Every filter field is optional.
+     */
+    public List<AuditLog> viewArchivedAuditLogs(ArchiveQuery query, int limit) {
+        return executeWithTemplate(
+                PermissionCodes.AUDIT_VIEW_ALL,
+                "VIEW_ARCHIVED_AUDIT",
+                "AuditLog",
+                null,
+                () -> {
+                    validateDefaultTenant("Archived audit search");
+                    validateNotNull(query, "Archive query");
+                    if (query.from() != null && query.to() != null && !query.from().isBefore(query.to())) {
+                        throw new ValidationException("Start time must be before end time");
+                    }
+                },
+                () -> auditArchive.query(query, limit)
+        );
+    }
+
+    /**
+     * Audit event counts per time bucket, read from the rollup table instead
+     * of scanning {@code audit_logs}. Null filters match everything.
+     */
+    public List<AuditCountPoint> viewAuditStats(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                                String action, Boolean success, String resourceType,
+                                                String username) {
+        return executeWithTemplate(
+                PermissionCodes.AUDIT_VIEW_ALL,
+                "VIEW_AUDIT_STATS",
+                "AuditLog",
+                action,
+                () -> {
+                    validateNotNull(granularity, "Granularity");
+                    validateNotNull(from, "Start time");
+                    validateNotNull(to, "End time");
+                    if (!from.isBefore(to)) {
+                        throw new ValidationException("Start time must be before end time");
+                    }
+                },
+                () -> auditLogRepository.getRollupRepository()
+                        .findSeries(granularity, from, to, action, success, resourceType, username)
+        );
+    }
+
+    /**
+     * Stream audit records in {@code from <= created_at < to} to a gzip
+     * NDJSON or CSV file. Null filters match everything.
+     */
+    public AuditExporter.Result exportAuditLogs(AuditExporter.Format format, Path target,
+                                                LocalDateTime from, LocalDateTime to,
+                                                Long userId, String action, String resourceType) {
+        return executeWithTemplate(
+                PermissionCodes.AUDIT_VIEW_ALL,
+                "EXPORT_AUDIT",
+                "AuditLog",
+                target != null ? target.toString() : null,
+                () -> {
+                    validateNotNull(format, "Format");
+                    validateNotNull(target, "Target file");
+                    validateNotNull(from, "Start time");
+                    validateNotNull(to, "End time");
+                    if (!from.isBefore(to)) {
+                        throw new ValidationException("Start time must be before end time");
+                    }
+                },
+                () -> {
+                    try {
+                        return new AuditExporter(auditLogRepository)
+                                .export(format, target, from, to, userId, action, resourceType);
+                    } catch (IOException e) {
+                        throw new DataAccessException("Failed to write audit export " + target, e);
+                    }
+                }
+        );
+    }
+
+    /**
+     * Run {@code backfill} over the rolled audit log files in {@code logDir}
+     * as an audited, permission-checked operation of the default tenant.
+     */
+    public <T> T backfillAuditLogs(Path logDir, Function<Path, T> backfill) {
+        return executeWithTemplate(
+                PermissionCodes.AUDIT_MANAGE,
+                "BACKFILL_AUDIT",
+                "AuditLog",
+                logDir != null ? logDir.toString() : null,
+                () -> {
+                    validateDefaultTenant("Audit backfill");
+                    validateNotNull(logDir, "Log directory");
+                    if (!Files.isDirectory(logDir)) {
+                        throw new ValidationException("Not a directory: " + logDir);
+                    }
+                },
+                () -> {
+                    try {
+                        return backfill.apply(logDir);
+                    } catch (UncheckedIOException e) {
+                        throw new DataAccessException("Failed to read audit log files in " + logDir, e.getCause());
+                    }
+                }
+        );
+    }
 }
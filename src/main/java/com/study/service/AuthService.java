@@ -2,19 +2,28 @@ package com.study.service;
 
 import com.study.config.PermissionCodes;
 import com.study.context.SessionContext;
+import com.study.context.SessionStore;
+import com.study.context.TenantContext;
 import com.study.domain.Permission;
 import com.study.domain.User;
 import com.study.exception.PermissionDeniedException;
+import com.study.exception.RbacException;
 import com.study.exception.ValidationException;
 import com.study.repository.AuditLogRepository;
 import com.study.repository.PermissionRepository;
 import com.study.repository.UserRepository;
+import com.study.security.LoginThrottle;
 import com.study.security.PasswordEncoder;
-import com.study.security.Sha256PasswordEncoder;
+import com.study.security.PasswordHashingExecutor;
+import com.study.security.Pbkdf2PasswordEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 /**
  * Authentication and Authorization Service
@@ -25,6 +34,11 @@ public class AuthService extends BaseService {
     private final UserRepository userRepository;
     private final PermissionRepository permissionRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final LoginThrottle loginThrottle = LoginThrottle.getInstance();
+    private final SessionStore sessionStore = SessionStore.getInstance();
+    /** Registered with the expiry scheduler while a user is logged in. */
+    private final LongConsumer rolesChangedListener = this::onRolesChanged;
     
     public AuthService(SessionContext sessionContext,
                       UserRepository userRepository,
@@ -33,13 +47,30 @@ public class AuthService extends BaseService {
         super(sessionContext, auditLogRepository);
         this.userRepository = userRepository;
         this.permissionRepository = permissionRepository;
-        this.passwordEncoder = new Sha256PasswordEncoder();
+        this.passwordEncoder = Pbkdf2PasswordEncoder.getInstance();
+        this.hashingExecutor = PasswordHashingExecutor.getInstance();
     }
     
     /**
-     * User login - loads user and caches permissions
+     * Log in to {@code tenantId} and bind this thread to it.
+     */
+    public User login(long tenantId, String username, String password) {
+        User user = TenantContext.callAs(tenantId, () -> login(username, password));
+        TenantContext.bind(tenantId);
+        return user;
+    }
+
+    /**
+     * User login - loads user and caches permissions. Attempts over the
+     * throttle limits are refused before any database access or audit
+     * write; repeated failures lock the username for a while. Logs in to
+     * the tenant this thread is bound to.
      */
     public User login(String username, String password) {
+        String throttleKey = TenantContext.current() + ":" + username;
+        if (username != null && !username.isBlank()) {
+            checkThrottle(throttleKey);
+        }
         return executeWithTemplate(
             null, // No permission required for login
             "LOGIN",
@@ -50,30 +81,181 @@ public class AuthService extends BaseService {
                 validateNotBlank(password, "Password");
             },
             () -> {
-                User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new ValidationException("User not found: " + username));
+                User user = userRepository.findByUsername(username).orElse(null);
+                if (user != null && user.getLockedUntil() != null
+                        && user.getLockedUntil().isAfter(LocalDateTime.now())) {
+                    loginThrottle.lock(throttleKey,
+                            user.getLockedUntil().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                    throw new ValidationException("Account locked until " + user.getLockedUntil());
+                }
+                if (user == null) {
+                    recordLoginFailure(throttleKey, username, null);
+                    throw new ValidationException("User not found: " + username);
+                }
                 
                 if (!user.isEnabled()) {
+                    recordLoginFailure(throttleKey, username, user);
                     throw new ValidationException("User account is disabled");
                 }
                 
-                if (!passwordEncoder.matches(password, user.getPasswordHash(), user.getSalt())) {
+                if (!hashingExecutor.call(() ->
+                        passwordEncoder.matches(password, user.getPasswordHash(), user.getSalt()))) {
+                    recordLoginFailure(throttleKey, username, user);
                     throw new ValidationException("Invalid password");
                 }
+                loginThrottle.recordSuccess(throttleKey);
+                if (passwordEncoder.needsUpgrade(user.getPasswordHash())) {
+                    upgradePasswordHash(user, password);
+                }
                 
-                // Load and cache permissions
-                List<Permission> permissions = permissionRepository.findByUserId(user.getId());
-                var scopedPermissions = permissionRepository.findScopedPermissionsByUserId(user.getId());
-                sessionContext.setCurrentUser(user);
-                sessionContext.setPermissions(permissions, scopedPermissions);
-                
-                logger.info("User logged in: {}, permissions loaded: {}", 
-                        username, permissions.size());
+                int permissionCount = startSession(user, sessionStore.create(user.getTenantId(), user.getId()).getToken());
+                logger.info("User logged in: {}, permissions loaded: {}", username, permissionCount);
 
                 return user;
             }
         );
     }
+
+    /**
+     * Continue a session by its token, e.g. after restarting the CLI.
+     */
+    public User resumeSession(String token) {
+        return executeWithTemplate(
+            null,
+            "RESUME_SESSION",
+            "User",
+            null,
+            () -> validateNotBlank(token, "Session token"),
+            () -> {
+                SessionStore.Session session = sessionStore.touch(token);
+                if (session == null) {
+                    throw new ValidationException("Session expired or unknown");
+                }
+                User user = TenantContext.callAs(session.getTenantId(), () -> userRepository.findById(session.getUserId()))
+                    .orElseThrow(() -> new ValidationException("User not found: " + session.getUserId()));
+                if (!user.isEnabled()) {
+                    sessionStore.invalidate(token);
+                    throw new ValidationException("User account is disabled");
+                }
+                TenantContext.bind(session.getTenantId());
+                int permissionCount = startSession(user, token);
+                logger.info("Session resumed: {}, permissions loaded: {}", user.getUsername(), permissionCount);
+                return user;
+            }
+        );
+    }
+
+    /**
+     * Whether the current login is still valid. Restarts the session's idle
+     * timer; an expired session is logged out here.
+     */
+    public boolean checkSession() {
+        if (!sessionContext.isLoggedIn()) {
+            return false;
+        }
+        String token = sessionContext.getSessionToken();
+        if (token == null || sessionStore.touch(token) != null) {
+            return true;
+        }
+        logger.info("Session expired for user: {}", sessionContext.getCurrentUser().getUsername());
+        endSession();
+        return false;
+    }
+
+    /**
+     * The store entry of the current login, or null.
+     */
+    public SessionStore.Session currentSession() {
+        String token = sessionContext.getSessionToken();
+        return token != null ? sessionStore.touch(token) : null;
+    }
+
+    public int activeSessionCount() {
+        return sessionStore.activeCount();
+    }
+
+    /**
+     * Load and cache permissions for {@code user} and bind the session token.
+     *
+     * @return number of permissions loaded
+     */
+    private int startSession(User user, String token) {
+        List<Permission> permissions = permissionRepository.findByUserId(user.getId());
+        var scopedPermissions = permissionRepository.findScopedPermissionsByUserId(user.getId());
+        sessionContext.setCurrentUser(user);
+        sessionContext.setPermissions(permissions, scopedPermissions);
+        sessionContext.setSessionToken(token);
+        RoleExpiryScheduler.getInstance().addListener(rolesChangedListener);
+        return permissions.size();
+    }
+
+    private void endSession() {
+        RoleExpiryScheduler.getInstance().removeListener(rolesChangedListener);
+        sessionContext.clear();
+        TenantContext.clear();
+    }
+
+    /**
+     * Stop listening for role changes, e.g. when the facade is closed. The
+     * session itself stays valid in the store.
+     */
+    public void close() {
+        RoleExpiryScheduler.getInstance().removeListener(rolesChangedListener);
+    }
+
+    /**
+     * @param key tenant id and username, so equal usernames in different
+     *            tenants are throttled apart
+     */
+    private void checkThrottle(String key) {
+        String address = sessionContext.getClientAddress();
+        LoginThrottle.Decision decision = loginThrottle.tryAcquire(key, address);
+        switch (decision) {
+            case LOCKED -> throw new RbacException("Account temporarily locked after repeated failed logins");
+            case USER_THROTTLED, ADDRESS_THROTTLED -> {
+                logger.warn("Login throttled ({}): user={}, address={}", decision, key, address);
+                throw new RbacException("Too many login attempts, please wait and try again");
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Count a failed login. The failure that reaches the lockout threshold
+     * persists the lock (for existing users) and is audited once.
+     */
+    private void recordLoginFailure(String throttleKey, String username, User user) {
+        long lockedUntilMillis = loginThrottle.recordFailure(throttleKey);
+        if (lockedUntilMillis == 0) {
+            return;
+        }
+        LocalDateTime lockedUntil = LocalDateTime.ofInstant(Instant.ofEpochMilli(lockedUntilMillis),
+                ZoneId.systemDefault());
+        if (user != null) {
+            userRepository.updateLockedUntil(user.getId(), lockedUntil);
+        }
+        logger.warn("Login locked for {} until {}", username, lockedUntil);
+        auditFailure("LOCK_ACCOUNT", "User", username, "Too many failed logins, locked until " + lockedUntil);
+    }
+    
+    /**
+     * Re-hash a password that matched an outdated hash. Failure only costs
+     * another attempt at the next login.
+     */
+    private void upgradePasswordHash(User user, String password) {
+        try {
+            String newSalt = passwordEncoder.generateSalt();
+            String newHash = hashingExecutor.call(() -> passwordEncoder.encode(password, newSalt));
+            if (userRepository.updatePasswordHash(user.getId(), user.getPasswordHash(), newHash, newSalt)) {
+                user.setPasswordHash(newHash);
+                user.setSalt(newSalt);
+                logger.info("Password hash upgraded for user: {}", user.getUsername());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to upgrade password hash for user {}: {}", user.getUsername(), e.getMessage());
+        }
+    }
     
     /**
      * Logout current user
@@ -83,7 +265,8 @@ public class AuthService extends BaseService {
             String username = sessionContext.getCurrentUser().getUsername();
             auditSuccess("LOGOUT", "User", username, null);
             logger.info("User logged out: {}", username);
-            sessionContext.clear();
+            sessionStore.invalidate(sessionContext.getSessionToken());
+            endSession();
         }
     }
     
@@ -110,13 +293,14 @@ public class AuthService extends BaseService {
                 User user = sessionContext.getCurrentUser();
                 
                 // Verify old password
-                if (!passwordEncoder.matches(oldPassword, user.getPasswordHash(), user.getSalt())) {
+                if (!hashingExecutor.call(() ->
+                        passwordEncoder.matches(oldPassword, user.getPasswordHash(), user.getSalt()))) {
                     throw new ValidationException("Old password is incorrect");
                 }
                 
                 // Update to new password
                 String newSalt = passwordEncoder.generateSalt();
-                String newHash = passwordEncoder.encode(newPassword, newSalt);
+                String newHash = hashingExecutor.call(() -> passwordEncoder.encode(newPassword, newSalt));
                 user.setPasswordHash(newHash);
                 user.setSalt(newSalt);
                 
@@ -139,6 +323,18 @@ public class AuthService extends BaseService {
                     sessionContext.getCurrentUser().getUsername(), permissions.size());
         }
     }
+
+    /**
+     * A time-bound role of {@code userId} started or ended; runs on the
+     * scheduler thread, which is safe because permissions are swapped as one
+     * snapshot.
+     */
+    private void onRolesChanged(long userId) {
+        User user = sessionContext.getCurrentUser();
+        if (user != null && user.getId() == userId) {
+            TenantContext.runAs(user.getTenantId(), this::refreshCurrentUserPermissions);
+        }
+    }
     
     /**
      * Check if current user has specific permission
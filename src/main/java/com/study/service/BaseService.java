@@ -1,23 +1,37 @@
 package com.study.service;
 
+import com.study.context.AccessTrace;
 import com.study.context.SessionContext;
+import com.study.context.TenantContext;
 import com.study.domain.AuditLog;
+import com.study.exception.DataAccessException;
 import com.study.exception.PermissionDeniedException;
 import com.study.exception.ValidationException;
 import com.study.repository.AuditLogRepository;
+import com.study.repository.SodConflictIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Supplier;
 
 /**
  * Base service with unified template: Authorization -> Validation -> Execution -> Audit
  */
 public abstract class BaseService {
+    /**
+     * Share of permission checks logged with a full {@link AccessTrace} to
+     * the {@code com.study.authz} logger; 0 (the default) skips all tracing.
+     */
+    private static final double TRACE_SAMPLE_RATE =
+            Double.parseDouble(System.getProperty("rbac.authz.trace.sampleRate", "0"));
+    private static final Logger traceLogger = LoggerFactory.getLogger("com.study.authz");
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected final Logger auditLogger = LoggerFactory.getLogger("com.study.audit");
     protected final SessionContext sessionContext;
     protected final AuditLogRepository auditLogRepository;
+    protected final AuditPolicy auditPolicy = AuditPolicy.getInstance();
     
     public BaseService(SessionContext sessionContext, AuditLogRepository auditLogRepository) {
         this.sessionContext = sessionContext;
@@ -58,7 +72,11 @@ public abstract class BaseService {
             logger.error("Failed to execute operation, action={}, resourceType={}, resourceId={}, error={}"
                     ,action, resourceType, resourceId, e.getMessage());
 
-            auditFailure(action, resourceType, resourceId, e.getMessage());
+            try {
+                auditFailure(action, resourceType, resourceId, e.getMessage());
+            } catch (DataAccessException auditError) {
+                e.addSuppressed(auditError);
+            }
             throw e;
         }
     }
@@ -97,7 +115,15 @@ public abstract class BaseService {
             throw new PermissionDeniedException(message);
         }
         
-        if (!sessionContext.hasPermission(permissionCode, resourceType, resourceId)) {
+        boolean granted;
+        if (TRACE_SAMPLE_RATE > 0 && ThreadLocalRandom.current().nextDouble() < TRACE_SAMPLE_RATE) {
+            AccessTrace trace = traceAccess(permissionCode, resourceType, resourceId);
+            granted = trace.isGranted();
+            traceLogger.info("{} {}", action, trace);
+        } else {
+            granted = hasPermission(permissionCode, resourceType, resourceId);
+        }
+        if (!granted) {
             String message = String.format("Permission denied: %s (required: %s)", 
                     action, permissionCode);
             logger.warn("User {} attempted unauthorized action: {}", 
@@ -106,6 +132,25 @@ public abstract class BaseService {
         }
     }
     
+    /**
+     * Permission test behind {@link #checkPermission}; services whose
+     * resources inherit grants extend it.
+     */
+    protected boolean hasPermission(String permissionCode, String resourceType, String resourceId) {
+        return sessionContext.hasPermission(permissionCode, resourceType, resourceId);
+    }
+    
+    /**
+     * {@link #hasPermission} with every stage recorded. Overrides must make
+     * the same decision.
+     */
+    protected AccessTrace traceAccess(String permissionCode, String resourceType, String resourceId) {
+        AccessTrace trace = new AccessTrace(sessionContext.getCurrentUser().getUsername(),
+                permissionCode, resourceType, resourceId);
+        sessionContext.getPermissionSnapshot().explain(permissionCode, resourceType, resourceId, trace);
+        return trace;
+    }
+    
     /**
      * Validate not null
      */
@@ -123,11 +168,37 @@ public abstract class BaseService {
             throw new ValidationException(fieldName + " cannot be blank");
         }
     }
+
+    /**
+     * Reject an assignment that would break a separation-of-duties
+     * constraint; {@code conflict} is null if it would not.
+     */
+    protected void validateNoConflict(SodConflictIndex.Conflict conflict) {
+        if (conflict != null) {
+            throw new ValidationException("Separation of duties violated: "
+                    + (conflict.userId() != null ? "user " + conflict.userId() : "the role")
+                    + " would hold both " + conflict.permissionA() + " and " + conflict.permissionB());
+        }
+    }
+
+    /**
+     * Data shared by all tenants (tenants themselves and audit archives) is
+     * only reachable from the default tenant, which operates the deployment.
+     */
+    protected void validateDefaultTenant(String operation) {
+        if (TenantContext.current() != TenantContext.DEFAULT_TENANT_ID) {
+            throw new PermissionDeniedException(operation + " is only available in the default tenant");
+        }
+    }
     
     /**
-     * Audit successful operation
+     * Audit successful operation, unless the {@link AuditPolicy} skips or
+     * aggregates this action
      */
     protected void auditSuccess(String action, String resourceType, String resourceId, String detail) {
+        if (!auditPolicy.shouldAuditSuccess(action)) {
+            return;
+        }
         String username = sessionContext.isLoggedIn() ? sessionContext.getCurrentUser().getUsername() : "anonymous";
         Long userId = sessionContext.isLoggedIn() ? sessionContext.getCurrentUser().getId() : null;
         
@@ -141,11 +212,12 @@ public abstract class BaseService {
                 true,
                 null
         );
+        log.setIpAddress(sessionContext.getClientAddress());
         auditLogRepository.save(log);
+        auditLogRepository.getRecentEvents().record(log);
         
         // 审计日志：结构化输出到独立文件
-        auditLogger.info("ACTION={} | RESOURCE_TYPE={} | RESOURCE_ID={} | USER={} | USER_ID={} | RESULT=SUCCESS",
-                action, resourceType, resourceId != null ? resourceId : "N/A", username, userId);
+        writeAuditLine(auditLogger, log);
     }
     
     /**
@@ -165,10 +237,27 @@ public abstract class BaseService {
                 false,
                 errorMessage
         );
+        log.setIpAddress(sessionContext.getClientAddress());
         auditLogRepository.save(log);
+        auditLogRepository.getRecentEvents().record(log);
         
         // 审计日志：结构化输出到独立文件
-        auditLogger.warn("ACTION={} | RESOURCE_TYPE={} | RESOURCE_ID={} | USER={} | USER_ID={} | RESULT=FAILED | ERROR={}",
-                action, resourceType, resourceId != null ? resourceId : "N/A", username, userId, errorMessage);
+        writeAuditLine(auditLogger, log);
+    }
+
+    /**
+     * Write the structured line for a saved record. {@code ID} comes first so
+     * that {@code AuditLogBackfill} can restore the row under its own id.
+     */
+    static void writeAuditLine(Logger auditLogger, AuditLog log) {
+        String resourceId = log.getResourceId() != null ? log.getResourceId() : "N/A";
+        if (log.isSuccess()) {
+            auditLogger.info("ID={} | ACTION={} | RESOURCE_TYPE={} | RESOURCE_ID={} | USER={} | USER_ID={} | RESULT=SUCCESS",
+                    log.getId(), log.getAction(), log.getResourceType(), resourceId, log.getUsername(), log.getUserId());
+        } else {
+            auditLogger.warn("ID={} | ACTION={} | RESOURCE_TYPE={} | RESOURCE_ID={} | USER={} | USER_ID={} | RESULT=FAILED | ERROR={}",
+                    log.getId(), log.getAction(), log.getResourceType(), resourceId, log.getUsername(), log.getUserId(),
+                    log.getErrorMessage());
+        }
     }
 }
@@ -0,0 +1,239 @@
+package com.study.service;
+
+import com.study.config.PermissionCodes;
+import com.study.context.SessionContext;
+import com.study.domain.Group;
+import com.study.domain.Role;
+import com.study.exception.ValidationException;
+import com.study.repository.AuditLogRepository;
+import com.study.repository.GroupMembershipIndex;
+import com.study.repository.GroupRepository;
+import com.study.repository.SodConflictIndex;
+
+import java.util.List;
+
+/**
+ * Group management service. Roles held by a group apply to its members and
+ * to the members of its subgroups, so writes that extend them are checked
+ * against separation-of-duties constraints like direct role assignments.
+ */
+public class GroupService extends BaseService {
+    private final GroupRepository groupRepository;
+
+    public GroupService(SessionContext sessionContext,
+                        GroupRepository groupRepository,
+                        AuditLogRepository auditLogRepository) {
+        super(sessionContext, auditLogRepository);
+        this.groupRepository = groupRepository;
+    }
+
+    /**
+     * Create a group, under {@code parentId} or at the top level if null.
+     */
+    public Group createGroup(String code, String name, String description, Long parentId) {
+        return executeWithTemplate(
+            PermissionCodes.GROUP_CREATE,
+            "CREATE_GROUP",
+            "Group",
+            code,
+            () -> {
+                validateNotBlank(code, "Group code");
+                validateNotBlank(name, "Group name");
+                if (code.length() < 2 || code.length() > 50) {
+                    throw new ValidationException("Group code must be between 2 and 50 characters");
+                }
+                if (parentId != null && groupRepository.findById(parentId).isEmpty()) {
+                    throw new ValidationException("Parent group not found: " + parentId);
+                }
+            },
+            () -> {
+                Group group = new Group();
+                group.setCode(code);
+                group.setName(name);
+                group.setDescription(description);
+                group.setParentId(parentId);
+                Group saved = groupRepository.save(group);
+                logger.info("Group created: {}", code);
+                return saved;
+            }
+        );
+    }
+
+    /**
+     * Move a group under another one, or to the top level if
+     * {@code parentId} is null.
+     */
+    public void moveGroup(Long groupId, Long parentId) {
+        executeWithTemplate(
+            PermissionCodes.GROUP_UPDATE,
+            "MOVE_GROUP",
+            "Group",
+            groupId != null ? groupId.toString() : null,
+            () -> validateNotNull(groupId, "Group ID"),
+            () -> {
+                groupRepository.move(groupId, parentId, conn -> {
+                    // Members below the group gain the roles of its new ancestors.
+                    validateNoConflict(SodConflictIndex.current().checkRoleAssignments(conn,
+                            () -> GroupMembershipIndex.current().membersOfSubtree(groupId),
+                            () -> parentId != null
+                                    ? GroupMembershipIndex.current().rolesOfGroup(parentId) : new long[0]));
+                    return null;
+                });
+                logger.info("Group {} moved under {}", groupId, parentId != null ? parentId : "top level");
+            }
+        );
+    }
+
+    /**
+     * Delete a group; its subgroups move up to its parent.
+     */
+    public void deleteGroup(Long groupId) {
+        executeWithTemplate(
+            PermissionCodes.GROUP_DELETE,
+            "DELETE_GROUP",
+            "Group",
+            groupId != null ? groupId.toString() : null,
+            () -> validateNotNull(groupId, "Group ID"),
+            () -> groupRepository.delete(groupId)
+        );
+    }
+
+    public List<Group> listGroups() {
+        return executeWithTemplate(
+            PermissionCodes.GROUP_VIEW,
+            "LIST_GROUPS",
+            "Group",
+            null,
+            null,
+            groupRepository::findAll
+        );
+    }
+
+    public Group getGroupByCode(String code) {
+        return executeWithTemplate(
+            PermissionCodes.GROUP_VIEW,
+            "VIEW_GROUP",
+            "Group",
+            code,
+            () -> validateNotBlank(code, "Group code"),
+            () -> groupRepository.findByCode(code)
+                .orElseThrow(() -> new ValidationException("Group not found: " + code))
+        );
+    }
+
+    public List<String> getMemberUsernames(Long groupId) {
+        return executeWithTemplate(
+            PermissionCodes.GROUP_VIEW,
+            "VIEW_GROUP_MEMBERS",
+            "Group",
+            String.valueOf(groupId),
+            () -> validateNotNull(groupId, "Group ID"),
+            () -> groupRepository.findMemberUsernames(groupId)
+        );
+    }
+
+    public List<Role> getGroupRoles(Long groupId) {
+        return executeWithTemplate(
+            PermissionCodes.GROUP_VIEW,
+            "VIEW_GROUP_ROLES",
+            "Group",
+            String.valueOf(groupId),
+            () -> validateNotNull(groupId, "Group ID"),
+            () -> groupRepository.findRoles(groupId)
+        );
+    }
+
+    /**
+     * Groups the user is a direct member of.
+     */
+    public List<Group> getGroupsByUserId(Long userId) {
+        return executeWithTemplate(
+            PermissionCodes.GROUP_VIEW,
+            "VIEW_USER_GROUPS",
+            "GroupMember",
+            String.valueOf(userId),
+            () -> validateNotNull(userId, "User ID"),
+            () -> groupRepository.findByUserId(userId)
+        );
+    }
+
+    public void addMember(Long groupId, Long userId) {
+        executeWithTemplate(
+            PermissionCodes.GROUP_ASSIGN,
+            "ADD_GROUP_MEMBER",
+            "GroupMember",
+            groupId + "-" + userId,
+            () -> {
+                validateNotNull(groupId, "Group ID");
+                validateNotNull(userId, "User ID");
+            },
+            () -> {
+                groupRepository.addMember(groupId, userId, conn -> {
+                    validateNoConflict(SodConflictIndex.current().checkRoleAssignments(conn,
+                            () -> new long[]{userId}, () -> GroupMembershipIndex.current().rolesOfGroup(groupId)));
+                    return null;
+                });
+                logger.info("User {} added to group {}", userId, groupId);
+            }
+        );
+    }
+
+    public void removeMember(Long groupId, Long userId) {
+        executeWithTemplate(
+            PermissionCodes.GROUP_ASSIGN,
+            "REMOVE_GROUP_MEMBER",
+            "GroupMember",
+            groupId + "-" + userId,
+            () -> {
+                validateNotNull(groupId, "Group ID");
+                validateNotNull(userId, "User ID");
+            },
+            () -> {
+                groupRepository.removeMember(groupId, userId);
+                logger.info("User {} removed from group {}", userId, groupId);
+            }
+        );
+    }
+
+    /**
+     * Give a role to a group. Needs {@code ROLE_ASSIGN}, the same as giving
+     * it to a user.
+     */
+    public void assignRole(Long groupId, Long roleId) {
+        executeWithTemplate(
+            PermissionCodes.ROLE_ASSIGN,
+            "ASSIGN_GROUP_ROLE",
+            "GroupRole",
+            groupId + "-" + roleId,
+            () -> {
+                validateNotNull(groupId, "Group ID");
+                validateNotNull(roleId, "Role ID");
+            },
+            () -> {
+                groupRepository.assignRole(groupId, roleId, conn -> {
+                    validateNoConflict(SodConflictIndex.current().checkRoleAssignments(conn,
+                            () -> GroupMembershipIndex.current().membersOfSubtree(groupId), () -> new long[]{roleId}));
+                    return null;
+                });
+                logger.info("Role {} assigned to group {}", roleId, groupId);
+            }
+        );
+    }
+
+    public void removeRole(Long groupId, Long roleId) {
+        executeWithTemplate(
+            PermissionCodes.ROLE_ASSIGN,
+            "REMOVE_GROUP_ROLE",
+            "GroupRole",
+            groupId + "-" + roleId,
+            () -> {
+                validateNotNull(groupId, "Group ID");
+                validateNotNull(roleId, "Role ID");
+            },
+            () -> {
+                groupRepository.removeRole(groupId, roleId);
+                logger.info("Role {} removed from group {}", roleId, groupId);
+            }
+        );
+    }
+}
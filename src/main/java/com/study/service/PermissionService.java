@@ -1,5 +1,6 @@
 package com.study.service;
 
+import com.study.common.util.ResourceIdTrie;
 import com.study.config.PermissionCodes;
 import com.study.context.SessionContext;
 import com.study.domain.Permission;
@@ -7,6 +8,7 @@ import com.study.domain.ScopedPermission;
 import com.study.exception.ValidationException;
 import com.study.repository.AuditLogRepository;
 import com.study.repository.PermissionRepository;
+import com.study.repository.SodConflictIndex;
 
 import java.util.Locale;
 import java.util.List;
@@ -15,6 +17,9 @@ import java.util.List;
  * Permission management service
  */
 public class PermissionService extends BaseService {
+    /** Width of role_permission_scopes.resource_id. */
+    private static final int MAX_RESOURCE_ID_LENGTH = 100;
+
     private final PermissionRepository permissionRepository;
     
     public PermissionService(SessionContext sessionContext,
@@ -145,7 +150,8 @@ public class PermissionService extends BaseService {
     }
     
     /**
-     * Assign permission to role
+     * Assign permission to role, unless a holder of the role would then
+     * violate a separation-of-duties constraint
      */
     public void assignPermissionToRole(Long roleId, Long permissionId) {
         executeWithTemplate(
@@ -158,7 +164,15 @@ public class PermissionService extends BaseService {
                 validateNotNull(permissionId, "Permission ID");
             },
             () -> {
-                permissionRepository.assignPermissionToRole(roleId, permissionId);
+                String code = permissionRepository.findById(permissionId).map(Permission::getCode).orElse(null);
+                SodConflictIndex sod = SodConflictIndex.current();
+                sod.changeGrants(permissionRepository, conn -> {
+                    if (code != null) {
+                        validateNoConflict(sod.checkPermissionGrant(conn, roleId, code));
+                    }
+                    permissionRepository.assignPermissionToRole(conn, roleId, permissionId);
+                    return null;
+                });
                 logger.info("Permission {} assigned to role {}", permissionId, roleId);
             }
         );
@@ -213,7 +227,8 @@ public class PermissionService extends BaseService {
     }
 
     /**
-     * Assign a scoped permission to a role.
+     * Assign a scoped permission to a role, unless a holder of the role would
+     * then violate a separation-of-duties constraint
      */
     public void assignScopedPermissionToRole(Long roleId, String permissionCode, String resourceType, String resourceId) {
         executeWithTemplate(
@@ -225,6 +240,7 @@ public class PermissionService extends BaseService {
                     validateNotNull(roleId, "Role ID");
                     validateNotBlank(permissionCode, "Permission code");
                     validateNotBlank(resourceType, "Resource type");
+                    validateResourceId(resourceId);
                 },
                 () -> {
                     if (permissionRepository.findByCode(permissionCode).isEmpty()) {
@@ -232,7 +248,7 @@ public class PermissionService extends BaseService {
                     }
 
                     String normalizedType = resourceType.trim().toUpperCase(Locale.ROOT);
-                    String normalizedResourceId = resourceId == null ? null : resourceId.trim();
+                    String normalizedResourceId = normalizeResourceId(resourceId);
                     List<ScopedPermission> existing = permissionRepository.findScopedPermissionsByRoleId(roleId);
                     boolean hasGlobal = existing.stream()
                             .anyMatch(s -> permissionCode.equals(s.getPermissionCode())
@@ -244,18 +260,20 @@ public class PermissionService extends BaseService {
                                     && s.getResourceId() != null && !s.getResourceId().isBlank());
 
                     boolean incomingGlobal = normalizedResourceId == null || normalizedResourceId.isBlank();
-                    if (incomingGlobal) {
-                        if (hasGlobal) {
-                            throw new ValidationException("Already has global scope for this permission/resourceType");
-                        }
-                        if (hasSpecific) {
-                            permissionRepository.clearScopedPermissions(roleId, permissionCode, normalizedType);
-                        }
-                    } else if (hasGlobal) {
+                    if (incomingGlobal && hasGlobal) {
+                        throw new ValidationException("Already has global scope for this permission/resourceType");
+                    }
+                    if (!incomingGlobal && hasGlobal) {
                         throw new ValidationException("Global scope already exists; remove it before adding specific scope");
                     }
+                    boolean replaceSpecific = incomingGlobal && hasSpecific;
 
-                    permissionRepository.assignScopedPermission(roleId, permissionCode, normalizedType, normalizedResourceId);
+                    permissionRepository.assignScopedPermission(roleId, permissionCode, normalizedType,
+                            normalizedResourceId, replaceSpecific, conn -> {
+                                validateNoConflict(SodConflictIndex.current()
+                                        .checkPermissionGrant(conn, roleId, permissionCode));
+                                return null;
+                            });
                 }
         );
     }
@@ -274,10 +292,39 @@ public class PermissionService extends BaseService {
                     validateNotBlank(permissionCode, "Permission code");
                     validateNotBlank(resourceType, "Resource type");
                 },
-                () -> permissionRepository.removeScopedPermission(roleId, permissionCode, resourceType, resourceId)
+                () -> permissionRepository.removeScopedPermission(roleId, permissionCode, resourceType,
+                        normalizeResourceId(resourceId))
         );
     }
 
+    /**
+     * A scoped resource id is an exact id or a pattern with {@code *} (any
+     * run) and {@code ?} (one character). A lone {@code *} is refused: leave
+     * the id empty to grant every resource of the type.
+     */
+    private static void validateResourceId(String resourceId) {
+        if (resourceId == null || resourceId.isBlank()) {
+            return;
+        }
+        String normalized = ResourceIdTrie.normalize(resourceId);
+        if (normalized.length() > MAX_RESOURCE_ID_LENGTH) {
+            throw new ValidationException("Resource id must be at most " + MAX_RESOURCE_ID_LENGTH + " characters");
+        }
+        if (normalized.equals(String.valueOf(ResourceIdTrie.ANY_RUN))) {
+            throw new ValidationException("Use an empty resource id to grant all resources of the type");
+        }
+        if (ResourceIdTrie.countAnyRuns(normalized) > ResourceIdTrie.MAX_ANY_RUNS) {
+            throw new ValidationException("Resource id may contain at most " + ResourceIdTrie.MAX_ANY_RUNS + " '*'");
+        }
+    }
+
+    private static String normalizeResourceId(String resourceId) {
+        if (resourceId == null) {
+            return null;
+        }
+        return ResourceIdTrie.isPattern(resourceId) ? ResourceIdTrie.normalize(resourceId) : resourceId.trim();
+    }
+
     public List<ScopedPermission> getScopedPermissionsByRole(Long roleId) {
         return executeWithTemplate(
                 PermissionCodes.PERMISSION_VIEW,
@@ -1,6 +1,7 @@
 package com.study.service;
 
 import com.study.config.PermissionCodes;
+import com.study.context.AccessTrace;
 import com.study.context.SessionContext;
 import com.study.domain.Resource;
 import com.study.domain.ScopedPermission;
@@ -8,18 +9,24 @@ import com.study.domain.User;
 import com.study.exception.ValidationException;
 import com.study.repository.AuditLogRepository;
 import com.study.repository.PermissionRepository;
+import com.study.repository.ResourceAccessIndex;
 import com.study.repository.ResourceRepository;
 import com.study.service.dto.ResourceAccessView;
-import com.study.service.dto.ResourceRoleScope;
-import com.study.service.dto.ResourceUserScope;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * Service for managing resources.
+ * <p>
+ * Resources form a hierarchy: a scoped grant on a resource also covers
+ * everything below it.
  */
 public class ResourceService extends BaseService {
+    private static final boolean ACCESS_INDEX_ENABLED =
+            Boolean.parseBoolean(System.getProperty("rbac.access.index.enabled", "true"));
+    private static final int DEFAULT_ACCESS_PAGE_SIZE = 50;
+
     private final ResourceRepository resourceRepository;
     private final PermissionRepository permissionRepository;
 
@@ -30,11 +37,30 @@ public class ResourceService extends BaseService {
         super(sessionContext, auditLogRepository);
         this.resourceRepository = resourceRepository;
         this.permissionRepository = permissionRepository;
+        if (ACCESS_INDEX_ENABLED) {
+            ResourceAccessIndex.register(permissionRepository);
+        }
     }
 
     public Resource createResource(String code, String name, String type, String url) {
+        return createResource(code, name, type, url, null);
+    }
+
+    /**
+     * Create a resource under {@code parentId}, or a root if null. Under a
+     * parent, a create grant on the parent or one of its ancestors suffices.
+     */
+    public Resource createResource(String code, String name, String type, String url, Long parentId) {
+        String requiredPermission = PermissionCodes.RESOURCE_CREATE;
+        if (parentId != null) {
+            Resource parent = resourceRepository.findById(parentId)
+                    .orElseThrow(() -> new ValidationException("Parent resource not found: " + parentId));
+            if (hasPermission(PermissionCodes.RESOURCE_CREATE, parent.getType(), parentId.toString())) {
+                requiredPermission = null;
+            }
+        }
         return executeWithTemplate(
-                PermissionCodes.RESOURCE_CREATE,
+                requiredPermission,
                 "CREATE_RESOURCE",
                 type,
                 code,
@@ -49,6 +75,7 @@ public class ResourceService extends BaseService {
                     resource.setName(name);
                     resource.setType(type);
                     resource.setUrl(url);
+                    resource.setParentId(parentId);
                     return resourceRepository.save(resource);
                 }
         );
@@ -94,6 +121,31 @@ public class ResourceService extends BaseService {
         );
     }
 
+    /**
+     * Move a resource with its subtree under {@code newParentId}, or to the
+     * top level if null. Needs update on the resource and on the new parent.
+     */
+    public Resource moveResource(Long id, Long newParentId) {
+        validateNotNull(id, "Resource ID");
+        Resource target = resourceRepository.findById(id)
+                .orElseThrow(() -> new ValidationException("Resource not found: " + id));
+        if (newParentId != null) {
+            Resource parent = resourceRepository.findById(newParentId)
+                    .orElseThrow(() -> new ValidationException("Parent resource not found: " + newParentId));
+            checkPermission(PermissionCodes.RESOURCE_UPDATE, "MOVE_RESOURCE", parent.getType(),
+                    newParentId.toString());
+        }
+
+        return executeWithTemplate(
+                PermissionCodes.RESOURCE_UPDATE,
+                "MOVE_RESOURCE",
+                target.getType(),
+                id.toString(),
+                null,
+                () -> resourceRepository.move(id, newParentId)
+        );
+    }
+
     public List<Resource> listResources() {
         return executeWithTemplate(
                 PermissionCodes.RESOURCE_LIST,
@@ -121,6 +173,16 @@ public class ResourceService extends BaseService {
     }
 
     public ResourceAccessView getResourceAccess(Long id) {
+        return getResourceAccess(id, 0, DEFAULT_ACCESS_PAGE_SIZE);
+    }
+
+    /**
+     * Roles with a scoped grant on the resource (directly, type-wide, by
+     * pattern or on an ancestor) and one page of their users. Served from
+     * {@link ResourceAccessIndex}, or by the same rules from SQL until it
+     * has loaded.
+     */
+    public ResourceAccessView getResourceAccess(Long id, int offset, int limit) {
         validateNotNull(id, "Resource ID");
         Resource resource = resourceRepository.findById(id)
                 .orElseThrow(() -> new ValidationException("Resource not found: " + id));
@@ -130,18 +192,101 @@ public class ResourceService extends BaseService {
                 "VIEW_RESOURCE_ACCESS",
                 resource.getType(),
                 id.toString(),
-                null,
                 () -> {
-                    List<ResourceRoleScope> roleScopes = permissionRepository.findRoleScopesByResource(id);
-                    List<ResourceUserScope> userScopes = permissionRepository.findUserScopesByResource(id);
+                    if (offset < 0 || limit <= 0) {
+                        throw new ValidationException("Offset must be >= 0 and limit > 0");
+                    }
+                },
+                () -> {
                     ResourceAccessView view = new ResourceAccessView();
-                    view.setRoleScopes(roleScopes);
-                    view.setUserScopes(userScopes);
+                    view.setUserOffset(offset);
+                    List<Resource> chain = new ArrayList<>();
+                    chain.add(resource);
+                    if (!resource.getAncestorIds().isEmpty()) {
+                        Map<Long, Resource> ancestors = resourceRepository
+                                .findByIds(new HashSet<>(resource.getAncestorIds())).stream()
+                                .collect(Collectors.toMap(Resource::getId, r -> r));
+                        resource.getAncestorIds().stream()
+                                .map(ancestors::get)
+                                .filter(Objects::nonNull)
+                                .forEach(chain::add);
+                    }
+                    ResourceAccessIndex.AccessPage page = ACCESS_INDEX_ENABLED
+                            ? ResourceAccessIndex.current().lookup(chain, offset, limit)
+                            : null;
+                    if (page == null) {
+                        page = ResourceAccessIndex.lookupUncached(permissionRepository, chain, offset, limit);
+                    }
+                    view.setRoleScopes(page.roleScopes());
+                    view.setUserScopes(page.userScopes());
+                    view.setTotalUsers(page.totalUsers());
                     return view;
                 }
         );
     }
 
+    /**
+     * Direct grant first; failing that, a grant on any ancestor of the
+     * resource. Ancestors come from the stored path of the cached
+     * {@link ResourceRepository.Location}s, so a warm check reads nothing
+     * from the database.
+     */
+    @Override
+    protected boolean hasPermission(String permissionCode, String resourceType, String resourceId) {
+        return super.hasPermission(permissionCode, resourceType, resourceId)
+                || findGrantingAncestor(permissionCode, resourceType, resourceId) != null;
+    }
+
+    @Override
+    protected AccessTrace traceAccess(String permissionCode, String resourceType, String resourceId) {
+        AccessTrace trace = super.traceAccess(permissionCode, resourceType, resourceId);
+        if (!trace.isGranted() && permissionCode != null) {
+            long start = System.nanoTime();
+            ResourceRepository.Location ancestor = findGrantingAncestor(permissionCode, resourceType, resourceId);
+            if (ancestor != null) {
+                trace.stage("inherited", AccessTrace.Outcome.MATCHED,
+                        "grant on ancestor " + ancestor.type() + "/" + ancestor.id(), start);
+            } else {
+                trace.stage("inherited", AccessTrace.Outcome.REJECTED, "no grant on any ancestor", start);
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Nearest ancestor of the resource that the session holds
+     * {@code permissionCode} on, or null.
+     */
+    private ResourceRepository.Location findGrantingAncestor(String permissionCode, String resourceType,
+                                                             String resourceId) {
+        if (permissionCode == null || resourceType == null || resourceId == null) {
+            return null;
+        }
+        long id;
+        try {
+            id = Long.parseLong(resourceId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        ResourceRepository.Location resource = resourceRepository.findLocations(List.of(id)).get(id);
+        if (resource == null || !resourceType.equalsIgnoreCase(resource.type())) {
+            return null;
+        }
+        List<Long> ancestorIds = resource.ancestorIds();
+        if (ancestorIds.isEmpty()) {
+            return null;
+        }
+        Map<Long, ResourceRepository.Location> ancestors = resourceRepository.findLocations(ancestorIds);
+        for (Long ancestorId : ancestorIds) {
+            ResourceRepository.Location ancestor = ancestors.get(ancestorId);
+            if (ancestor != null
+                    && sessionContext.hasPermission(permissionCode, ancestor.type(), ancestorId.toString())) {
+                return ancestor;
+            }
+        }
+        return null;
+    }
+
     /**
      * List resources that current user has scoped permissions for.
      * No permission required - users can always see their own scoped resources.
@@ -171,8 +316,13 @@ public class ResourceService extends BaseService {
                 .map(String::toLowerCase)
                 .collect(Collectors.toSet());
 
+        List<ScopedPermission> patternScoped = resourceScoped.stream()
+                .filter(ScopedPermission::isPattern)
+                .filter(s -> !globalTypes.contains(s.getResourceType().toLowerCase()))
+                .toList();
+
         Map<Long, Set<String>> specificById = resourceScoped.stream()
-                .filter(s -> s.getResourceId() != null && !s.getResourceId().isBlank())
+                .filter(s -> s.getResourceId() != null && !s.getResourceId().isBlank() && !s.isPattern())
                 .map(s -> {
                     try {
                         return new AbstractMap.SimpleEntry<>(Long.parseLong(s.getResourceId()),
@@ -192,6 +342,17 @@ public class ResourceService extends BaseService {
         if (!globalTypes.isEmpty()) {
             results.addAll(resourceRepository.findByTypes(globalTypes));
         }
+        if (!patternScoped.isEmpty()) {
+            Set<String> patternTypes = patternScoped.stream()
+                    .map(s -> s.getResourceType().toLowerCase())
+                    .collect(Collectors.toSet());
+            results.addAll(
+                    resourceRepository.findByTypes(patternTypes).stream()
+                            .filter(r -> patternScoped.stream()
+                                    .anyMatch(s -> s.matches(r.getType(), r.getId().toString())))
+                            .toList()
+            );
+        }
         if (!specificById.isEmpty()) {
             List<Resource> fetched = resourceRepository.findByIds(specificById.keySet());
             results.addAll(
@@ -205,6 +366,8 @@ public class ResourceService extends BaseService {
         if (results.isEmpty()) {
             return Collections.emptyList();
         }
+        // Grants cover subtrees
+        results = resourceRepository.findSubtrees(results);
         // Deduplicate by id
         return results.stream()
                 .collect(Collectors.toMap(Resource::getId, r -> r, (a, b) -> a))
@@ -0,0 +1,206 @@
+package com.study.service;
+
+import com.study.common.util.TimingWheel;
+import com.study.domain.AuditLog;
+import com.study.exception.DataAccessException;
+import com.study.repository.AuditLogRepository;
+import com.study.repository.ResourceAccessIndex;
+import com.study.repository.RoleRepository;
+import com.study.repository.RoleRepository.Assignment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Starts and ends time-bound role assignments on time.
+ * <p>
+ * Every pending {@code valid_from} and {@code valid_until} is a timer on one
+ * {@link TimingWheel} advanced each second by a single daemon thread; nothing
+ * polls {@code user_roles}. When a timer fires the assignment is read again
+ * (timers cannot be cancelled, so it may have been removed or changed), the
+ * access index is updated and listeners are told which user changed, so a
+ * live session reloads its permissions at once. Ended rows are deleted in
+ * batches of {@code rbac.roles.cleanupBatch} after the tick that ended them,
+ * and once at startup for rows that ended while the application was down.
+ * One scheduler serves every tenant; each timer carries its tenant.
+ */
+public class RoleExpiryScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RoleExpiryScheduler.class);
+    private static final Logger AUDIT_LOGGER = LoggerFactory.getLogger("com.study.audit");
+    private static final long TICK_MILLIS = 1000;
+
+    private static RoleExpiryScheduler instance;
+
+    private final TimingWheel<Transition> wheel = new TimingWheel<>(TICK_MILLIS, System.currentTimeMillis());
+    private final CopyOnWriteArrayList<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final int cleanupBatch;
+    private RoleRepository roleRepository;
+    private AuditLogRepository auditLogRepository;
+    private ScheduledExecutorService ticker;
+    /** Only touched by the ticker thread. */
+    private boolean cleanupPending;
+
+    public RoleExpiryScheduler(int cleanupBatch) {
+        this.cleanupBatch = cleanupBatch;
+    }
+
+    public static synchronized RoleExpiryScheduler getInstance() {
+        if (instance == null) {
+            instance = new RoleExpiryScheduler(Integer.getInteger("rbac.roles.cleanupBatch", 500));
+        }
+        return instance;
+    }
+
+    /**
+     * Load pending assignments and start the ticker. Only the first call
+     * does anything.
+     */
+    public synchronized void start(RoleRepository roleRepository, AuditLogRepository auditLogRepository) {
+        if (ticker != null) {
+            return;
+        }
+        this.roleRepository = roleRepository;
+        this.auditLogRepository = auditLogRepository;
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "role-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.execute(() -> {
+            try {
+                int pending = roleRepository.findPendingAssignments(LocalDateTime.now(), this::schedule);
+                logger.info("Scheduled {} time-bound role assignments", pending);
+            } catch (RuntimeException e) {
+                logger.warn("Pending role assignments not loaded: {}", e.getMessage());
+            }
+            cleanupPending = true;
+            tick();
+        });
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called with the id of a user whose roles just started or ended, on
+     * the scheduler thread.
+     */
+    public void addListener(LongConsumer listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(LongConsumer listener) {
+        listeners.remove(listener);
+    }
+
+    public void schedule(Assignment assignment) {
+        long now = System.currentTimeMillis();
+        if (assignment.validFrom() != null && toMillis(assignment.validFrom()) > now) {
+            wheel.schedule(new Transition(assignment.tenantId(), assignment.userId(), assignment.roleId(), true),
+                    toMillis(assignment.validFrom()));
+        }
+        if (assignment.validUntil() != null && toMillis(assignment.validUntil()) > now) {
+            wheel.schedule(new Transition(assignment.tenantId(), assignment.userId(), assignment.roleId(), false),
+                    toMillis(assignment.validUntil()));
+        }
+    }
+
+    public int pendingCount() {
+        return wheel.size();
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            wheel.advance(now, this::onDue);
+            if (cleanupPending) {
+                cleanupPending = false;
+                // Every assignment ending at or before the last processed tick has had its timer fired.
+                cleanup(LocalDateTime.ofInstant(Instant.ofEpochMilli(now - now % TICK_MILLIS), zone));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Role expiry tick failed", e);
+        }
+    }
+
+    private void onDue(Transition transition) {
+        LocalDateTime now = LocalDateTime.now();
+        Assignment current = roleRepository.findAssignment(transition.userId, transition.roleId).orElse(null);
+        ResourceAccessIndex accessIndex = ResourceAccessIndex.forTenant(transition.tenantId);
+        if (transition.start) {
+            if (current == null) {
+                return;
+            }
+            if (current.isActiveAt(now)) {
+                accessIndex.onUserRoleAdded(transition.userId, transition.roleId);
+                logger.info("Role {} of user {} took effect", transition.roleId, transition.userId);
+                notifyListeners(transition.userId);
+            } else {
+                schedule(current);
+            }
+            return;
+        }
+        if (current != null && current.isActiveAt(now)) {
+            // Extended or re-assigned since this timer was set.
+            schedule(current);
+            return;
+        }
+        accessIndex.onUserRoleRemoved(transition.userId, transition.roleId);
+        notifyListeners(transition.userId);
+        if (current != null && current.validUntil() != null && !current.validUntil().isAfter(now)) {
+            String detail = "Role " + transition.roleId + " of user " + transition.userId + " expired at "
+                    + current.validUntil();
+            AuditLog log = new AuditLog(null, "system", "EXPIRE_ROLE", "UserRole",
+                    transition.userId + "-" + transition.roleId, detail, true, null);
+            log.setTenantId(transition.tenantId);
+            try {
+                auditLogRepository.save(log);
+            } catch (DataAccessException e) {
+                // No caller to fail here; the audit file line below still records the expiry.
+                logger.error("Expiry of role {} of user {} not queued for the audit table",
+                        transition.roleId, transition.userId, e);
+            }
+            BaseService.writeAuditLine(AUDIT_LOGGER, log);
+            cleanupPending = true;
+        }
+    }
+
+    private void notifyListeners(long userId) {
+        for (LongConsumer listener : listeners) {
+            try {
+                listener.accept(userId);
+            } catch (RuntimeException e) {
+                logger.warn("Role change listener failed for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Delete assignments that ended at or before {@code cutoff}, in batches.
+     */
+    private void cleanup(LocalDateTime cutoff) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = roleRepository.deleteExpiredAssignments(cutoff, cleanupBatch);
+            total += deleted;
+        } while (deleted == cleanupBatch);
+        if (total > 0) {
+            logger.info("Deleted {} expired role assignments", total);
+        }
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private record Transition(long tenantId, long userId, long roleId, boolean start) {
+    }
+}
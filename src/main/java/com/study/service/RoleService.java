@@ -2,13 +2,18 @@ package com.study.service;
 
 import com.study.config.PermissionCodes;
 import com.study.context.SessionContext;
+import com.study.context.TenantContext;
 import com.study.domain.Permission;
 import com.study.domain.Role;
 import com.study.exception.ValidationException;
 import com.study.repository.AuditLogRepository;
 import com.study.repository.PermissionRepository;
+import com.study.repository.ResourceAccessIndex;
 import com.study.repository.RoleRepository;
+import com.study.repository.SodConflictIndex;
+import com.study.service.analysis.RoleMiner;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -17,6 +22,7 @@ import java.util.List;
 public class RoleService extends BaseService {
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
+    private final RoleExpiryScheduler expiryScheduler = RoleExpiryScheduler.getInstance();
     
     public RoleService(SessionContext sessionContext,
                       RoleRepository roleRepository,
@@ -25,6 +31,7 @@ public class RoleService extends BaseService {
         super(sessionContext, auditLogRepository);
         this.roleRepository = roleRepository;
         this.permissionRepository = permissionRepository;
+        expiryScheduler.start(roleRepository, auditLogRepository);
     }
     
     /**
@@ -126,6 +133,14 @@ public class RoleService extends BaseService {
      * Assign role to user
      */
     public void assignRoleToUser(Long userId, Long roleId) {
+        assignRoleToUser(userId, roleId, null, null);
+    }
+
+    /**
+     * Assign role to user from {@code validFrom} (null: now) until
+     * {@code validUntil} (null: permanent).
+     */
+    public void assignRoleToUser(Long userId, Long roleId, LocalDateTime validFrom, LocalDateTime validUntil) {
         executeWithTemplate(
             PermissionCodes.ROLE_ASSIGN,
             "ASSIGN_ROLE",
@@ -134,10 +149,34 @@ public class RoleService extends BaseService {
             () -> {
                 validateNotNull(userId, "User ID");
                 validateNotNull(roleId, "Role ID");
+                if (validUntil != null) {
+                    if (!validUntil.isAfter(LocalDateTime.now())) {
+                        throw new ValidationException("Valid until must be in the future");
+                    }
+                    if (validFrom != null && !validUntil.isAfter(validFrom)) {
+                        throw new ValidationException("Valid until must be after valid from");
+                    }
+                }
             },
             () -> {
-                roleRepository.assignRoleToUser(userId, roleId);
-                logger.info("Role {} assigned to user {}", roleId, userId);
+                // Checked on the inserting transaction, which holds the tenant lock until it commits.
+                roleRepository.executeInTransaction(conn -> {
+                    validateNoConflict(SodConflictIndex.current().checkRoleAssignment(conn, userId, roleId));
+                    roleRepository.assignRoleToUser(conn, userId, roleId, validFrom, validUntil);
+                    return null;
+                });
+                RoleRepository.Assignment assignment = new RoleRepository.Assignment(TenantContext.current(),
+                        userId, roleId, validFrom, validUntil);
+                if (assignment.isActiveAt(LocalDateTime.now())) {
+                    ResourceAccessIndex.current().onUserRoleAdded(userId, roleId);
+                }
+                expiryScheduler.schedule(assignment);
+                if (validFrom != null || validUntil != null) {
+                    logger.info("Role {} assigned to user {} from {} until {}", roleId, userId,
+                            validFrom != null ? validFrom : "now", validUntil != null ? validUntil : "permanent");
+                } else {
+                    logger.info("Role {} assigned to user {}", roleId, userId);
+                }
             }
         );
     }
@@ -189,4 +228,29 @@ public class RoleService extends BaseService {
             () -> permissionRepository.findByRoleId(roleId)
         );
     }
+    
+    /**
+     * Find groups of roles whose grants are at least {@code threshold}
+     * Jaccard-similar and could be merged. Read-only.
+     */
+    public RoleMiner.Result analyzeRoleSimilarity(double threshold) {
+        return executeWithTemplate(
+            PermissionCodes.ROLE_VIEW,
+            "ANALYZE_ROLES",
+            "Role",
+            String.valueOf(threshold),
+            () -> {
+                if (!(threshold > 0 && threshold <= 1)) {
+                    throw new ValidationException("Similarity threshold must be in (0, 1]");
+                }
+            },
+            () -> {
+                RoleMiner.Result result = new RoleMiner(roleRepository).analyze(threshold);
+                logger.info("Role analysis: {} roles, {} pairs compared, {} merge candidates in {} ms",
+                        result.roles(), result.comparedPairs(), result.candidates().size(),
+                        result.elapsedNanos() / 1_000_000);
+                return result;
+            }
+        );
+    }
 }
@@ -0,0 +1,129 @@
+package com.study.service;
+
+import com.study.config.PermissionCodes;
+import com.study.context.SessionContext;
+import com.study.domain.SodConstraint;
+import com.study.exception.ValidationException;
+import com.study.repository.AuditLogRepository;
+import com.study.repository.PermissionRepository;
+import com.study.repository.SodConflictIndex;
+import com.study.repository.SodConstraintRepository;
+import com.study.service.dto.SodViolation;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Separation-of-duties constraints. Role and permission assignments are
+ * checked against them by {@link RoleService} and {@link PermissionService};
+ * this service declares them and reports assignments that already break
+ * them.
+ */
+public class SodService extends BaseService {
+    private final SodConstraintRepository sodConstraintRepository;
+    private final PermissionRepository permissionRepository;
+
+    public SodService(SessionContext sessionContext,
+                      SodConstraintRepository sodConstraintRepository,
+                      PermissionRepository permissionRepository,
+                      AuditLogRepository auditLogRepository) {
+        super(sessionContext, auditLogRepository);
+        this.sodConstraintRepository = sodConstraintRepository;
+        this.permissionRepository = permissionRepository;
+    }
+
+    /**
+     * Forbid any user to hold both permissions. Existing violations are not
+     * rejected; {@link #findViolations} lists them.
+     */
+    public SodConstraint createConstraint(String permissionA, String permissionB, String description) {
+        return executeWithTemplate(
+            PermissionCodes.SOD_MANAGE,
+            "CREATE_SOD_CONSTRAINT",
+            "SodConstraint",
+            permissionA + "/" + permissionB,
+            () -> {
+                validateNotBlank(permissionA, "First permission");
+                validateNotBlank(permissionB, "Second permission");
+                if (permissionA.equals(permissionB)) {
+                    throw new ValidationException("A constraint needs two different permissions");
+                }
+                for (String code : List.of(permissionA, permissionB)) {
+                    if (permissionRepository.findByCode(code).isEmpty()) {
+                        throw new ValidationException("Permission not found: " + code);
+                    }
+                }
+            },
+            () -> {
+                SodConstraint constraint = new SodConstraint();
+                boolean ordered = permissionA.compareTo(permissionB) < 0;
+                constraint.setPermissionA(ordered ? permissionA : permissionB);
+                constraint.setPermissionB(ordered ? permissionB : permissionA);
+                constraint.setDescription(description);
+                SodConstraint saved = sodConstraintRepository.save(constraint);
+                logger.info("Separation of duties constraint created: {} / {}",
+                        saved.getPermissionA(), saved.getPermissionB());
+                return saved;
+            }
+        );
+    }
+
+    public List<SodConstraint> listConstraints() {
+        return executeWithTemplate(
+            PermissionCodes.SOD_MANAGE,
+            "LIST_SOD_CONSTRAINTS",
+            "SodConstraint",
+            null,
+            null,
+            sodConstraintRepository::findAll
+        );
+    }
+
+    public void deleteConstraint(Long constraintId) {
+        executeWithTemplate(
+            PermissionCodes.SOD_MANAGE,
+            "DELETE_SOD_CONSTRAINT",
+            "SodConstraint",
+            constraintId != null ? constraintId.toString() : null,
+            () -> validateNotNull(constraintId, "Constraint ID"),
+            () -> {
+                sodConstraintRepository.delete(constraintId);
+                logger.info("Separation of duties constraint deleted: {}", constraintId);
+            }
+        );
+    }
+
+    /**
+     * Every user who holds both permissions of a constraint, through direct
+     * or group roles. All users are read in one query and checked in
+     * parallel against the in-memory conflict index.
+     */
+    public List<SodViolation> findViolations() {
+        return executeWithTemplate(
+            PermissionCodes.AUDIT_VIEW_ALL,
+            "SOD_REPORT",
+            "SodConstraint",
+            null,
+            null,
+            () -> {
+                SodConflictIndex index = SodConflictIndex.current();
+                if (!index.hasConstraints()) {
+                    return List.<SodViolation>of();
+                }
+                long startedAt = System.nanoTime();
+                List<SodConstraintRepository.UserRoles> users = sodConstraintRepository.findAllUserRoles();
+                List<SodViolation> violations = users.parallelStream()
+                    .flatMap(user -> index.conflictsOf(user.userId(), user.roleIds()).stream()
+                        .map(conflict -> new SodViolation(user.username(),
+                                conflict.permissionA(), conflict.permissionB())))
+                    .sorted(Comparator.comparing(SodViolation::getUsername)
+                        .thenComparing(SodViolation::getPermissionA)
+                        .thenComparing(SodViolation::getPermissionB))
+                    .toList();
+                logger.info("Separation of duties report: {} violations among {} users in {} ms",
+                        violations.size(), users.size(), (System.nanoTime() - startedAt) / 1_000_000);
+                return violations;
+            }
+        );
+    }
+}
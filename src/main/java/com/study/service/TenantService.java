@@ -0,0 +1,88 @@
+package com.study.service;
+
+import com.study.config.PermissionCodes;
+import com.study.context.SessionContext;
+import com.study.context.TenantContext;
+import com.study.domain.Tenant;
+import com.study.exception.ValidationException;
+import com.study.repository.AuditLogRepository;
+import com.study.repository.DatabaseConnection;
+import com.study.repository.TenantRepository;
+
+import java.util.List;
+
+/**
+ * Tenant management. Tenants are created and listed from the default
+ * tenant only; everything else a tenant holds is managed from inside it.
+ */
+public class TenantService extends BaseService {
+    private final TenantRepository tenantRepository;
+    private final DatabaseConnection dbConnection;
+
+    public TenantService(SessionContext sessionContext,
+                         TenantRepository tenantRepository,
+                         DatabaseConnection dbConnection,
+                         AuditLogRepository auditLogRepository) {
+        super(sessionContext, auditLogRepository);
+        this.tenantRepository = tenantRepository;
+        this.dbConnection = dbConnection;
+    }
+
+    /**
+     * Create a tenant with the default permissions, the ADMIN role and an
+     * {@code admin} user with {@code adminPassword}.
+     */
+    public Tenant createTenant(String code, String name, String adminPassword) {
+        return executeWithTemplate(
+            PermissionCodes.TENANT_MANAGE,
+            "CREATE_TENANT",
+            "Tenant",
+            code,
+            () -> {
+                validateDefaultTenant("Tenant management");
+                validateNotBlank(code, "Tenant code");
+                validateNotBlank(name, "Tenant name");
+                validateNotBlank(adminPassword, "Admin password");
+                if (code.length() < 2 || code.length() > 50) {
+                    throw new ValidationException("Tenant code must be between 2 and 50 characters");
+                }
+                if (adminPassword.length() < 6) {
+                    throw new ValidationException("Password must be at least 6 characters");
+                }
+            },
+            () -> {
+                Tenant tenant = new Tenant();
+                tenant.setCode(code);
+                tenant.setName(name);
+                Tenant saved = tenantRepository.save(tenant);
+                TenantContext.callAs(saved.getId(), () -> dbConnection.initializeTenant(adminPassword));
+                logger.info("Tenant created: {} (id {})", code, saved.getId());
+                return saved;
+            }
+        );
+    }
+
+    public List<Tenant> listTenants() {
+        return executeWithTemplate(
+            PermissionCodes.TENANT_MANAGE,
+            "LIST_TENANTS",
+            "Tenant",
+            null,
+            () -> validateDefaultTenant("Tenant management"),
+            tenantRepository::findAll
+        );
+    }
+
+    /**
+     * Id of the tenant with {@code code}, or the default tenant if blank.
+     * Needs no login: it runs before one.
+     */
+    public long resolveTenantId(String code) {
+        if (code == null || code.isBlank()) {
+            return TenantContext.DEFAULT_TENANT_ID;
+        }
+        return tenantRepository.findByCode(code.trim())
+                .map(Tenant::getId)
+                .orElseThrow(() -> new ValidationException("Tenant not found: " + code.trim()));
+    }
+}
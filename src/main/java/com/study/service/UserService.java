@@ -5,10 +5,12 @@ import com.study.context.SessionContext;
 import com.study.domain.User;
 import com.study.exception.ValidationException;
 import com.study.repository.AuditLogRepository;
+import com.study.repository.ResourceAccessIndex;
 import com.study.repository.RoleRepository;
 import com.study.repository.UserRepository;
 import com.study.security.PasswordEncoder;
-import com.study.security.Sha256PasswordEncoder;
+import com.study.security.PasswordHashingExecutor;
+import com.study.security.Pbkdf2PasswordEncoder;
 
 import java.util.List;
 
@@ -19,6 +21,7 @@ public class UserService extends BaseService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
     
     public UserService(SessionContext sessionContext,
                       UserRepository userRepository,
@@ -27,7 +30,8 @@ public class UserService extends BaseService {
         super(sessionContext, auditLogRepository);
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.passwordEncoder = new Sha256PasswordEncoder();
+        this.passwordEncoder = Pbkdf2PasswordEncoder.getInstance();
+        this.hashingExecutor = PasswordHashingExecutor.getInstance();
     }
     
     /**
@@ -68,7 +72,7 @@ public class UserService extends BaseService {
             () -> {
                 // Create user with hashed password
                 String salt = passwordEncoder.generateSalt();
-                String passwordHash = passwordEncoder.encode(password, salt);
+                String passwordHash = hashingExecutor.call(() -> passwordEncoder.encode(password, salt));
                 
                 User user = new User();
                 user.setUsername(username);
@@ -87,6 +91,12 @@ public class UserService extends BaseService {
                     }
                     return persisted;
                 });
+                // Committed now; the index is only told about committed rows.
+                ResourceAccessIndex accessIndex = ResourceAccessIndex.current();
+                accessIndex.onUserSaved(savedUser.getId(), savedUser.getUsername());
+                if (defaultRoleId != null) {
+                    accessIndex.onUserRoleAdded(savedUser.getId(), defaultRoleId);
+                }
                 
                 logger.info("User created: {}", username);
                 return savedUser;
@@ -201,7 +211,7 @@ public class UserService extends BaseService {
                     .orElseThrow(() -> new ValidationException("User not found: " + userId));
                 
                 String newSalt = passwordEncoder.generateSalt();
-                String newHash = passwordEncoder.encode(newPassword, newSalt);
+                String newHash = hashingExecutor.call(() -> passwordEncoder.encode(newPassword, newSalt));
                 user.setPasswordHash(newHash);
                 user.setSalt(newSalt);
                 
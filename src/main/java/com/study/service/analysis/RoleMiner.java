@@ -0,0 +1,338 @@
+package com.study.service.analysis;
+
+import com.study.domain.Role;
+import com.study.repository.RoleRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Finds roles that grant nearly the same permissions and proposes merging
+ * them.
+ * <p>
+ * Each role's grants, global and resource-scoped, become a sorted set of int
+ * ids. Roles with identical sets are grouped by hashing first. The distinct
+ * sets are then compared by Jaccard similarity on the common fork-join pool:
+ * all pairs that pass the size filter {@code |A| >= threshold * |B|} up to
+ * {@code rbac.mining.exactLimit} sets, and above that only pairs that share a
+ * MinHash LSH bucket. Every reported pair is verified exactly, so LSH may
+ * miss a pair but never invents one.
+ * <p>
+ * Groups are built greedily from the most similar pair down, and every
+ * member of a group is at least {@code threshold} similar to the group's
+ * keeper. Merging gives the keeper the union of the group's grants so
+ * nobody loses access; the rows removed are the merged roles' grants minus
+ * those the keeper gains.
+ */
+public class RoleMiner {
+    private static final int EXACT_LIMIT = Integer.getInteger("rbac.mining.exactLimit", 5_000);
+    private static final int HASHES = 128;
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Roles to fold into {@code keepRole}; {@code minSimilarity} is that of
+     * the least similar one.
+     */
+    public record Candidate(String keepRole, List<String> mergedRoles, double minSimilarity, long rowsRemoved) {
+    }
+
+    /**
+     * Outcome of an analysis. {@code approximate} is set when the candidate
+     * pairs came from LSH.
+     */
+    public record Result(int roles, int emptyRoles, long grants, long comparedPairs, long similarPairs,
+                         boolean approximate, List<Candidate> candidates, long elapsedNanos) {
+        public long rowsRemoved() {
+            return candidates.stream().mapToLong(Candidate::rowsRemoved).sum();
+        }
+    }
+
+    private record Pair(int a, int b, double similarity) {
+    }
+
+    /**
+     * Array key compared by content.
+     */
+    private record SetKey(int[] set) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SetKey other && Arrays.equals(set, other.set);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(set);
+        }
+    }
+
+    private final RoleRepository roleRepository;
+    private final int exactLimit;
+
+    public RoleMiner(RoleRepository roleRepository) {
+        this(roleRepository, EXACT_LIMIT);
+    }
+
+    /**
+     * Compare all pairs up to {@code exactLimit} distinct sets, LSH buckets
+     * above it.
+     */
+    RoleMiner(RoleRepository roleRepository, int exactLimit) {
+        this.roleRepository = roleRepository;
+        this.exactLimit = exactLimit;
+    }
+
+    public Result analyze(double threshold) {
+        long startedAt = System.nanoTime();
+        List<Role> roles = roleRepository.findAll();
+        Map<Long, Integer> indexOf = new HashMap<>();
+        for (int i = 0; i < roles.size(); i++) {
+            indexOf.put(roles.get(i).getId(), i);
+        }
+
+        // Grant strings to dense ids, and each role's ids in arrival order
+        Map<String, Integer> itemIds = new HashMap<>();
+        int[][] items = new int[roles.size()][];
+        int[] counts = new int[roles.size()];
+        long grants = roleRepository.streamGrants((roleId, code, resourceType, resourceId) -> {
+            Integer role = indexOf.get(roleId);
+            if (role == null) {
+                return; // created after the role list was read
+            }
+            String grant = resourceType == null ? code
+                    : code + '\0' + resourceType + '\0' + (resourceId != null ? resourceId : "*");
+            int item = itemIds.computeIfAbsent(grant, g -> itemIds.size());
+            int[] set = items[role];
+            if (set == null) {
+                set = items[role] = new int[8];
+            } else if (counts[role] == set.length) {
+                set = items[role] = Arrays.copyOf(set, set.length * 2);
+            }
+            set[counts[role]++] = item;
+        });
+
+        // One entry per distinct non-empty set, with the roles holding it
+        Map<SetKey, List<Integer>> holdersBySet = new HashMap<>();
+        int emptyRoles = 0;
+        for (int i = 0; i < roles.size(); i++) {
+            int[] set = items[i] == null ? EMPTY : Arrays.stream(items[i], 0, counts[i]).sorted().distinct().toArray();
+            if (set.length == 0) {
+                emptyRoles++;
+            } else {
+                holdersBySet.computeIfAbsent(new SetKey(set), k -> new ArrayList<>()).add(i);
+            }
+        }
+        List<Map.Entry<SetKey, List<Integer>>> distinct = new ArrayList<>(holdersBySet.entrySet());
+        distinct.sort(Comparator.comparingInt(e -> e.getKey().set().length));
+        int[][] sets = distinct.stream().map(e -> e.getKey().set()).toArray(int[][]::new);
+
+        LongAdder compared = new LongAdder();
+        boolean approximate = sets.length > exactLimit;
+        List<Pair> pairs = approximate
+                ? lshPairs(sets, threshold, compared)
+                : allPairs(sets, threshold, compared);
+
+        List<Candidate> candidates = group(roles, distinct, sets, pairs);
+        return new Result(roles.size(), emptyRoles, grants, compared.sum(), pairs.size(), approximate,
+                candidates, System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Every pair of {@code sets}, which are ordered by size, that passes the
+     * size filter.
+     */
+    private static List<Pair> allPairs(int[][] sets, double threshold, LongAdder compared) {
+        return IntStream.range(0, sets.length).parallel().boxed().flatMap(i -> {
+            List<Pair> found = new ArrayList<>();
+            for (int j = i + 1; j < sets.length && sets[i].length >= threshold * sets[j].length; j++) {
+                compared.increment();
+                double similarity = jaccard(sets[i], sets[j]);
+                if (similarity >= threshold) {
+                    found.add(new Pair(i, j, similarity));
+                }
+            }
+            return found.stream();
+        }).toList();
+    }
+
+    /**
+     * Pairs of {@code sets} that agree on all MinHash values of at least one
+     * band, verified exactly.
+     */
+    private static List<Pair> lshPairs(int[][] sets, double threshold, LongAdder compared) {
+        int n = sets.length;
+        long[] seeds = new SplittableRandom(HASHES).longs(HASHES).toArray();
+        int[][] signatures = new int[n][];
+        IntStream.range(0, n).parallel().forEach(i -> signatures[i] = signature(sets[i], seeds));
+
+        int rows = rowsPerBand(threshold);
+        long[] keys = IntStream.range(0, HASHES / rows).parallel().boxed().flatMapToLong(band -> {
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                long hash = band;
+                for (int r = band * rows; r < (band + 1) * rows; r++) {
+                    hash = hash * 31 + signatures[i][r];
+                }
+                buckets.computeIfAbsent(mix(hash), h -> new ArrayList<>()).add(i);
+            }
+            LongStream.Builder found = LongStream.builder();
+            for (List<Integer> bucket : buckets.values()) {
+                for (int x = 0; x < bucket.size(); x++) {
+                    for (int y = x + 1; y < bucket.size(); y++) {
+                        found.add((long) bucket.get(x) * n + bucket.get(y));
+                    }
+                }
+            }
+            return found.build();
+        }).distinct().toArray();
+
+        return Arrays.stream(keys).parallel().mapToObj(key -> {
+            int a = (int) (key / n);
+            int b = (int) (key % n);
+            if (sets[a].length < threshold * sets[b].length) {
+                return null;
+            }
+            compared.increment();
+            double similarity = jaccard(sets[a], sets[b]);
+            return similarity >= threshold ? new Pair(a, b, similarity) : null;
+        }).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Rows per LSH band. A pair of similarity s shares a bucket with
+     * probability 1 - (1 - s^r)^(HASHES / r); the curve's midpoint
+     * (r / HASHES)^(1 / r) is kept at least 0.1 under the threshold so that
+     * similar pairs are rarely missed.
+     */
+    private static int rowsPerBand(double threshold) {
+        int rows = 1;
+        while (rows * 2 <= HASHES && Math.pow(rows * 2.0 / HASHES, 1.0 / (rows * 2)) <= threshold - 0.1) {
+            rows *= 2;
+        }
+        return rows;
+    }
+
+    private static int[] signature(int[] set, long[] seeds) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int item : set) {
+            for (int k = 0; k < HASHES; k++) {
+                int hash = (int) (mix(item ^ seeds[k]) >>> 33);
+                if (hash < signature[k]) {
+                    signature[k] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Murmur3's 64-bit finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static double jaccard(int[] a, int[] b) {
+        int common = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    private static List<Candidate> group(List<Role> roles, List<Map.Entry<SetKey, List<Integer>>> distinct,
+                                         int[][] sets, List<Pair> pairs) {
+        int n = sets.length;
+        int[] keeperOf = new int[n];
+        Arrays.fill(keeperOf, -1);
+        double[] minSimilarity = new double[n];
+        Arrays.fill(minSimilarity, 1.0);
+        List<Pair> ordered = new ArrayList<>(pairs);
+        ordered.sort(Comparator.comparingDouble(Pair::similarity).reversed()
+                .thenComparingInt(Pair::a).thenComparingInt(Pair::b));
+        for (Pair pair : ordered) {
+            // b is the larger set, so it becomes the keeper of a new group
+            int keeper;
+            int member;
+            if (keeperOf[pair.a()] == -1 && (keeperOf[pair.b()] == -1 || keeperOf[pair.b()] == pair.b())) {
+                keeper = pair.b();
+                member = pair.a();
+            } else if (keeperOf[pair.b()] == -1 && keeperOf[pair.a()] == pair.a()) {
+                keeper = pair.a();
+                member = pair.b();
+            } else {
+                continue;
+            }
+            keeperOf[keeper] = keeper;
+            keeperOf[member] = keeper;
+            minSimilarity[keeper] = Math.min(minSimilarity[keeper], pair.similarity());
+        }
+
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            members.computeIfAbsent(keeperOf[i] == -1 ? i : keeperOf[i], k -> new ArrayList<>()).add(i);
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        members.forEach((keeper, group) -> {
+            List<Integer> holders = new ArrayList<>();
+            int[] union = EMPTY;
+            long merged = 0;
+            for (int set : group) {
+                holders.addAll(distinct.get(set).getValue());
+                union = union(union, sets[set]);
+                merged += (long) sets[set].length * distinct.get(set).getValue().size();
+            }
+            if (holders.size() < 2) {
+                return;
+            }
+            // Keep the oldest role holding the keeper set
+            Role keep = distinct.get(keeper).getValue().stream().map(roles::get)
+                    .min(Comparator.comparing(Role::getId)).orElseThrow();
+            List<String> mergedRoles = holders.stream().map(roles::get).filter(role -> role != keep)
+                    .map(Role::getCode).sorted().toList();
+            // Every role's rows go, the keeper then holds the union
+            candidates.add(new Candidate(keep.getCode(), mergedRoles, minSimilarity[keeper],
+                    merged - union.length));
+        });
+        candidates.sort(Comparator.comparingLong(Candidate::rowsRemoved).reversed()
+                .thenComparing(Candidate::keepRole));
+        return candidates;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                out[count++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                out[count++] = b[j++];
+            } else {
+                out[count++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+}
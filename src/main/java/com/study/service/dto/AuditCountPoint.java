@@ -0,0 +1,35 @@
+package com.study.service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for one bucket of an audit count time series.
+ */
+public class AuditCountPoint {
+    private LocalDateTime bucketStart;
+    private long count;
+
+    public AuditCountPoint() {
+    }
+
+    public AuditCountPoint(LocalDateTime bucketStart, long count) {
+        this.bucketStart = bucketStart;
+        this.count = count;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
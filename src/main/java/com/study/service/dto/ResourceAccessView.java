@@ -8,6 +8,9 @@ import java.util.List;
 public class ResourceAccessView {
     private List<ResourceRoleScope> roleScopes;
     private List<ResourceUserScope> userScopes;
+    /** Position of the first entry of {@code userScopes} among all users with access. */
+    private int userOffset;
+    private long totalUsers;
 
     public List<ResourceRoleScope> getRoleScopes() {
         return roleScopes;
@@ -24,4 +27,20 @@ public class ResourceAccessView {
     public void setUserScopes(List<ResourceUserScope> userScopes) {
         this.userScopes = userScopes;
     }
+
+    public int getUserOffset() {
+        return userOffset;
+    }
+
+    public void setUserOffset(int userOffset) {
+        this.userOffset = userOffset;
+    }
+
+    public long getTotalUsers() {
+        return totalUsers;
+    }
+
+    public void setTotalUsers(long totalUsers) {
+        this.totalUsers = totalUsers;
+    }
 }
@@ -0,0 +1,44 @@
+package com.study.service.dto;
+
+/**
+ * DTO for a user who holds both permissions of a separation-of-duties
+ * constraint.
+ */
+public class SodViolation {
+    private String username;
+    private String permissionA;
+    private String permissionB;
+
+    public SodViolation() {
+    }
+
+    public SodViolation(String username, String permissionA, String permissionB) {
+        this.username = username;
+        this.permissionA = permissionA;
+        this.permissionB = permissionB;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPermissionA() {
+        return permissionA;
+    }
+
+    public void setPermissionA(String permissionA) {
+        this.permissionA = permissionA;
+    }
+
+    public String getPermissionB() {
+        return permissionB;
+    }
+
+    public void setPermissionB(String permissionB) {
+        this.permissionB = permissionB;
+    }
+}
@@ -0,0 +1,319 @@
+package com.study.service.export;
+
+import com.study.context.TenantContext;
+import com.study.domain.Role;
+import com.study.repository.GroupMembershipIndex;
+import com.study.repository.RoleRepository;
+import com.study.repository.UserRepository;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the access-review matrix: one row per user, effective grant and
+ * granting role, as gzip-compressed NDJSON or CSV.
+ * <p>
+ * Role grants are read once and kept per role, sorted by permission,
+ * resource type and resource id. Users are split into id ranges that are
+ * written in parallel. Each range streams its users' active assignments in
+ * id order and, per user, merges the sorted grant lists of their direct and
+ * group roles, so rows come out ordered by permission and the user × grant
+ * product is never held. Each range is its own gzip member; the members are
+ * concatenated in order, which is still one valid gzip file.
+ */
+public class AccessReviewExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int RANGES_PER_THREAD = 4;
+    private static final String CSV_HEADER = "user_id,username,permission_code,resource_type,resource_id,"
+            + "role_code,source,valid_until\n";
+    private static final Comparator<Grant> GRANT_ORDER = Comparator.comparing(Grant::permissionCode)
+            .thenComparing(Grant::resourceType, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Grant::resourceId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * Outcome of an export.
+     */
+    public record Result(Path file, long users, long rows, long bytes, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? rows : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    /**
+     * Called from worker threads after each user id range.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onRangeDone(int rangesDone, int rangesTotal, long usersSoFar, long rowsSoFar, long elapsedNanos);
+    }
+
+    private record Grant(String permissionCode, String resourceType, String resourceId) {
+    }
+
+    private record RoleGrants(String roleCode, Grant[] grants) {
+    }
+
+    /**
+     * A role the user holds, with where it comes from.
+     */
+    private record Held(RoleGrants role, String source, LocalDateTime validUntil) {
+    }
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final int threads;
+
+    public AccessReviewExporter(UserRepository userRepository, RoleRepository roleRepository, int threads) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.threads = Math.max(1, threads);
+    }
+
+    public Result export(AuditExporter.Format format, Path target, ProgressListener listener) throws IOException {
+        long startedAt = System.nanoTime();
+        long tenantId = TenantContext.current();
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, RoleGrants> roles = loadGrants();
+        GroupMembershipIndex groups = GroupMembershipIndex.forTenant(tenantId);
+        long[] ids = userRepository.findIdRange();
+
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        List<long[]> ranges = ids == null ? List.of() : split(ids[0], ids[1] + 1, threads * RANGES_PER_THREAD);
+        List<Path> parts = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            parts.add(target.resolveSibling(target.getFileName() + ".part" + i + ".tmp"));
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        AtomicInteger done = new AtomicInteger();
+        AtomicLong users = new AtomicLong();
+        AtomicLong rows = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, ranges.size())), r -> {
+            Thread t = new Thread(r, "access-review");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                Path part = parts.get(i);
+                futures.add(pool.submit(() -> {
+                    long[] counts = TenantContext.callAs(tenantId,
+                            () -> writeRange(format, part, range[0], range[1], now, roles, groups));
+                    long usersSoFar = users.addAndGet(counts[0]);
+                    long rowsSoFar = rows.addAndGet(counts[1]);
+                    if (listener != null) {
+                        listener.onRangeDone(done.incrementAndGet(), ranges.size(), usersSoFar, rowsSoFar,
+                                System.nanoTime() - startedAt);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                if (format == AuditExporter.Format.CSV) {
+                    ByteArrayOutputStream header = new ByteArrayOutputStream();
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(header)) {
+                        gzip.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+                    }
+                    header.writeTo(out);
+                }
+                for (Path part : parts) {
+                    Files.copy(part, out);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Result(target, users.get(), rows.get(), Files.size(target), System.nanoTime() - startedAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Access review export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Access review export failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Every role of the tenant with its grants in {@link #GRANT_ORDER}.
+     */
+    private Map<Long, RoleGrants> loadGrants() {
+        Map<Long, List<Grant>> grants = new HashMap<>();
+        roleRepository.streamGrants((roleId, code, resourceType, resourceId) ->
+                grants.computeIfAbsent(roleId, id -> new ArrayList<>()).add(new Grant(code, resourceType, resourceId)));
+        Map<Long, RoleGrants> roles = new HashMap<>();
+        for (Role role : roleRepository.findAll()) {
+            Grant[] sorted = grants.getOrDefault(role.getId(), List.of()).toArray(new Grant[0]);
+            Arrays.sort(sorted, GRANT_ORDER);
+            roles.put(role.getId(), new RoleGrants(role.getCode(), sorted));
+        }
+        return roles;
+    }
+
+    /**
+     * {@code [from, to)} cut into at most {@code count} ranges of equal width.
+     */
+    private static List<long[]> split(long from, long to, int count) {
+        long step = Math.max(1, (to - from + count - 1) / count);
+        List<long[]> ranges = new ArrayList<>();
+        for (long start = from; start < to; start += step) {
+            ranges.add(new long[]{start, Math.min(to, start + step)});
+        }
+        return ranges;
+    }
+
+    /**
+     * Write the users in {@code [from, to)} to {@code part}.
+     *
+     * @return users and rows written
+     */
+    private long[] writeRange(AuditExporter.Format format, Path part, long from, long to, LocalDateTime now,
+                              Map<Long, RoleGrants> roles, GroupMembershipIndex groups) {
+        long[] counts = new long[2];
+        StringBuilder line = new StringBuilder(256);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(part), BUFFER_SIZE), StandardCharsets.UTF_8),
+                BUFFER_SIZE)) {
+            List<Held> held = new ArrayList<>();
+            long[] user = {-1};
+            String[] username = {null};
+            roleRepository.streamAssignmentsByUser(from, to, now, (userId, name, roleId, validUntil) -> {
+                if (userId != user[0]) {
+                    if (username[0] != null) {
+                        counts[1] += writeUser(writer, line, format, user[0], username[0], held, roles, groups);
+                        counts[0]++;
+                    }
+                    user[0] = userId;
+                    username[0] = name;
+                    held.clear();
+                }
+                RoleGrants role = roleId != null ? roles.get(roleId) : null;
+                if (role != null) {
+                    held.add(new Held(role, "DIRECT", validUntil));
+                }
+            });
+            if (username[0] != null) {
+                counts[1] += writeUser(writer, line, format, user[0], username[0], held, roles, groups);
+                counts[0]++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + part, e);
+        }
+        return counts;
+    }
+
+    /**
+     * Merge the sorted grant lists of the user's roles into rows.
+     *
+     * @return rows written
+     */
+    private static long writeUser(Writer writer, StringBuilder line, AuditExporter.Format format, long userId,
+                                  String username, List<Held> held, Map<Long, RoleGrants> roles,
+                                  GroupMembershipIndex groups) {
+        for (long roleId : groups.rolesOf(userId)) {
+            RoleGrants role = roles.get(roleId);
+            if (role != null) {
+                held.add(new Held(role, "GROUP", null));
+            }
+        }
+        int[] next = new int[held.size()];
+        long rows = 0;
+        try {
+            while (true) {
+                int min = -1;
+                for (int i = 0; i < next.length; i++) {
+                    Grant[] grants = held.get(i).role().grants();
+                    if (next[i] < grants.length && (min == -1
+                            || GRANT_ORDER.compare(grants[next[i]], held.get(min).role().grants()[next[min]]) < 0)) {
+                        min = i;
+                    }
+                }
+                if (min == -1) {
+                    return rows;
+                }
+                Held source = held.get(min);
+                Grant grant = source.role().grants()[next[min]++];
+                line.setLength(0);
+                if (format == AuditExporter.Format.CSV) {
+                    appendCsv(line, userId, username, grant, source);
+                } else {
+                    appendJson(line, userId, username, grant, source);
+                }
+                writer.append(line);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendCsv(StringBuilder out, long userId, String username, Grant grant, Held source) {
+        out.append(userId).append(',');
+        AuditExporter.csvField(out, username);
+        AuditExporter.csvField(out, grant.permissionCode());
+        AuditExporter.csvField(out, grant.resourceType());
+        AuditExporter.csvField(out, grant.resourceId());
+        AuditExporter.csvField(out, source.role().roleCode());
+        AuditExporter.csvField(out, source.source());
+        if (source.validUntil() != null) {
+            AuditExporter.appendTimestamp(out, source.validUntil());
+        }
+        out.append('\n');
+    }
+
+    private static void appendJson(StringBuilder out, long userId, String username, Grant grant, Held source) {
+        out.append("{\"user_id\":").append(userId);
+        AuditExporter.jsonField(out, "username", username);
+        AuditExporter.jsonField(out, "permission_code", grant.permissionCode());
+        AuditExporter.jsonField(out, "resource_type", grant.resourceType());
+        AuditExporter.jsonField(out, "resource_id", grant.resourceId());
+        AuditExporter.jsonField(out, "role_code", source.role().roleCode());
+        AuditExporter.jsonField(out, "source", source.source());
+        out.append(",\"valid_until\":");
+        if (source.validUntil() != null) {
+            out.append('"');
+            AuditExporter.appendTimestamp(out, source.validUntil());
+            out.append('"');
+        } else {
+            out.append("null");
+        }
+        out.append("}\n");
+    }
+}
@@ -0,0 +1,217 @@
+package com.study.service.export;
+
+import com.study.domain.AuditLog;
+import com.study.repository.AuditLogRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams {@code audit_logs} into a gzip-compressed NDJSON or CSV file.
+ * <p>
+ * Rows come from a forward-only cursor and go out through one reused
+ * {@link StringBuilder} and a buffered writer, so memory use does not depend
+ * on the number of rows. The file is written under a temporary name and
+ * moved into place when complete.
+ */
+public class AuditExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String CSV_HEADER = "id,user_id,username,action,resource_type,resource_id,"
+            + "detail,success,error_message,ip_address,created_at\n";
+
+    public enum Format {
+        NDJSON(".ndjson.gz"), CSV(".csv.gz");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Outcome of an export.
+     */
+    public record Result(Path file, long rows, long bytes, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? rows : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    private final AuditLogRepository auditLogRepository;
+
+    public AuditExporter(AuditLogRepository auditLogRepository) {
+        this.auditLogRepository = auditLogRepository;
+    }
+
+    public Result export(Format format, Path target, LocalDateTime from, LocalDateTime to,
+                         Long userId, String action, String resourceType) throws IOException {
+        long startedAt = System.nanoTime();
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        StringBuilder line = new StringBuilder(512);
+        long rows;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE), StandardCharsets.UTF_8),
+                BUFFER_SIZE)) {
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+            }
+            rows = auditLogRepository.streamByTimeRange(from, to, userId, action, resourceType, log -> {
+                line.setLength(0);
+                if (format == Format.CSV) {
+                    appendCsv(line, log);
+                } else {
+                    appendJson(line, log);
+                }
+                writer.append(line);
+            });
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Result(target, rows, Files.size(target), System.nanoTime() - startedAt);
+    }
+
+    static void appendJson(StringBuilder out, AuditLog log) {
+        out.append("{\"id\":").append(log.getId());
+        out.append(",\"user_id\":");
+        if (log.getUserId() != null) {
+            out.append(log.getUserId().longValue());
+        } else {
+            out.append("null");
+        }
+        jsonField(out, "username", log.getUsername());
+        jsonField(out, "action", log.getAction());
+        jsonField(out, "resource_type", log.getResourceType());
+        jsonField(out, "resource_id", log.getResourceId());
+        jsonField(out, "detail", log.getDetail());
+        out.append(",\"success\":").append(log.isSuccess());
+        jsonField(out, "error_message", log.getErrorMessage());
+        jsonField(out, "ip_address", log.getIpAddress());
+        out.append(",\"created_at\":\"");
+        appendTimestamp(out, log.getCreatedAt());
+        out.append("\"}\n");
+    }
+
+    static void appendCsv(StringBuilder out, AuditLog log) {
+        out.append(log.getId()).append(',');
+        if (log.getUserId() != null) {
+            out.append(log.getUserId().longValue());
+        }
+        out.append(',');
+        csvField(out, log.getUsername());
+        csvField(out, log.getAction());
+        csvField(out, log.getResourceType());
+        csvField(out, log.getResourceId());
+        csvField(out, log.getDetail());
+        out.append(log.isSuccess()).append(',');
+        csvField(out, log.getErrorMessage());
+        csvField(out, log.getIpAddress());
+        appendTimestamp(out, log.getCreatedAt());
+        out.append('\n');
+    }
+
+    static void jsonField(StringBuilder out, String name, String value) {
+        out.append(",\"").append(name).append("\":");
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * RFC 4180 field followed by a comma; null and empty both export as empty.
+     */
+    static void csvField(StringBuilder out, String value) {
+        if (value != null) {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                out.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        out.append('"');
+                    }
+                    out.append(c);
+                }
+                out.append('"');
+            } else {
+                out.append(value);
+            }
+        }
+        out.append(',');
+    }
+
+    /**
+     * {@code yyyy-MM-ddTHH:mm:ss.SSS} without going through a formatter.
+     */
+    static void appendTimestamp(StringBuilder out, LocalDateTime time) {
+        out.append(time.getYear()).append('-');
+        pad2(out, time.getMonthValue());
+        out.append('-');
+        pad2(out, time.getDayOfMonth());
+        out.append('T');
+        pad2(out, time.getHour());
+        out.append(':');
+        pad2(out, time.getMinute());
+        out.append(':');
+        pad2(out, time.getSecond());
+        out.append('.');
+        int millis = time.getNano() / 1_000_000;
+        if (millis < 100) {
+            out.append('0');
+        }
+        if (millis < 10) {
+            out.append('0');
+        }
+        out.append(millis);
+    }
+
+    private static void pad2(StringBuilder out, int value) {
+        if (value < 10) {
+            out.append('0');
+        }
+        out.append(value);
+    }
+}
@@ -0,0 +1,82 @@
+package com.study.common.util;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceIdTrieTest {
+
+    @Test
+    void matchesLiteralsPrefixesAndSingleCharacters() {
+        ResourceIdTrie trie = new ResourceIdTrie();
+        trie.add("proj-1");
+        trie.add("proj-pay-*");
+        trie.add("doc-?");
+
+        assertTrue(trie.matches("proj-1"));
+        assertFalse(trie.matches("proj-12"));
+        assertTrue(trie.matches("proj-pay-"));
+        assertTrue(trie.matches("proj-pay-2024"));
+        assertFalse(trie.matches("proj-pa"));
+        assertTrue(trie.matches("doc-7"));
+        assertFalse(trie.matches("doc-"));
+        assertFalse(trie.matches("doc-77"));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void matchesCaseInsensitively() {
+        ResourceIdTrie trie = new ResourceIdTrie();
+        trie.add("Proj-*-Main");
+
+        assertTrue(trie.matches("PROJ-42-main"));
+        assertTrue(ResourceIdTrie.matches("Proj-*-Main", "proj-42-MAIN"));
+    }
+
+    @Test
+    void interiorAnyRunBacktracks() {
+        ResourceIdTrie trie = new ResourceIdTrie();
+        trie.add("a*b*c");
+
+        assertTrue(trie.matches("abc"));
+        assertTrue(trie.matches("axxbyybzzc"));
+        assertFalse(trie.matches("axxbyyc1"));
+        assertFalse(trie.matches("acb"));
+    }
+
+    @Test
+    void repeatedAnyRunsAreCollapsed() {
+        assertEquals("a*b", ResourceIdTrie.normalize(" a***b "));
+        assertEquals(1, ResourceIdTrie.countAnyRuns(ResourceIdTrie.normalize("a**b")));
+
+        ResourceIdTrie trie = new ResourceIdTrie();
+        trie.add("a**b");
+        trie.add("a*b");
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void emptyTrieMatchesNothing() {
+        ResourceIdTrie trie = new ResourceIdTrie();
+
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.matches("anything"));
+        assertFalse(trie.matches(null));
+    }
+
+    @Test
+    void pathologicalPatternFailsInPolynomialTime() {
+        ResourceIdTrie trie = new ResourceIdTrie();
+        String pattern = "a*a*a*a*b";
+        assertEquals(ResourceIdTrie.MAX_ANY_RUNS, ResourceIdTrie.countAnyRuns(pattern));
+        trie.add(pattern);
+        String id = "a".repeat(2_000);
+
+        // Plain backtracking tries every split of the run among the four '*': C(2000, 4) paths.
+        assertFalse(assertTimeoutPreemptively(Duration.ofSeconds(5), () -> trie.matches(id)));
+        assertTrue(trie.matches(id + "b"));
+        assertFalse(ResourceIdTrie.matches(pattern, id));
+    }
+}
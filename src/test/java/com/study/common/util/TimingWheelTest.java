@@ -0,0 +1,75 @@
+package com.study.common.util;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+    private static final long START = 1_000_000;
+
+    @Test
+    void firesAtTheFirstTickAtOrAfterTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, START);
+        wheel.schedule("a", START + 25);
+        List<String> fired = new ArrayList<>();
+
+        wheel.advance(START + 20, fired::add);
+        assertTrue(fired.isEmpty());
+        assertEquals(1, wheel.size());
+
+        wheel.advance(START + 30, fired::add);
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, START);
+        wheel.schedule("late", START - 500);
+        List<String> fired = new ArrayList<>();
+
+        wheel.advance(START, fired::add);
+
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void distantDeadlinesCascadeThroughTheLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        // One per level and one beyond the last: 64^4 ticks.
+        long[] deadlines = {5, 64 + 3, 64 * 64 + 7, 64L * 64 * 64 + 11, 64L * 64 * 64 * 64 + 13};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        List<Long> fired = new ArrayList<>();
+        long[] firedAt = new long[deadlines.length];
+
+        for (int i = 0; i < deadlines.length; i++) {
+            long deadline = deadlines[i];
+            wheel.advance(deadline - 1, fired::add);
+            assertEquals(i, fired.size(), "fired early before " + deadline);
+            wheel.advance(deadline, fired::add);
+            assertEquals(i + 1, fired.size(), "not fired at " + deadline);
+            firedAt[i] = fired.get(i);
+        }
+        assertArrayEquals(deadlines, firedAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void itemsDueInTheSameTickAllFire() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(100, START);
+        for (int i = 0; i < 1000; i++) {
+            wheel.schedule(i, START + 1 + i % 100);
+        }
+        List<Integer> fired = new ArrayList<>();
+
+        wheel.advance(START + 100, fired::add);
+
+        assertEquals(1000, fired.size());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,68 @@
+package com.study.context;
+
+import com.study.exception.RbacException;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    @Test
+    void touchRefusesAnIdleSession() throws InterruptedException {
+        SessionStore store = new SessionStore(100, 60_000, 10);
+        SessionStore.Session session = store.create(1, 42);
+
+        assertSame(session, store.touch(session.getToken()));
+        Thread.sleep(150);
+
+        assertNull(store.touch(session.getToken()));
+        assertEquals(0, store.activeCount());
+        assertEquals(0, store.activeCount(1));
+    }
+
+    @Test
+    void useExtendsTheIdleDeadlineButNotTheAbsoluteOne() throws InterruptedException {
+        SessionStore store = new SessionStore(200, 500, 10);
+        SessionStore.Session session = store.create(1, 42);
+
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(100);
+            assertNotNull(store.touch(session.getToken()));
+        }
+        assertEquals(session.getCreatedAt() + 500, store.deadline(session));
+        Thread.sleep(Math.max(0, session.getCreatedAt() + 500 - System.currentTimeMillis()) + 20);
+
+        assertNull(store.touch(session.getToken()));
+    }
+
+    @Test
+    void expiryWheelReclaimsUntouchedSessions() throws InterruptedException {
+        SessionStore store = new SessionStore(100, 60_000, 10);
+        SessionStore.Session idle = store.create(1, 1);
+        store.create(2, 2);
+        store.start();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (store.activeCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(0, store.activeCount());
+        assertEquals(0, store.activeCount(1));
+        assertNull(store.touch(idle.getToken()));
+    }
+
+    @Test
+    void refusesSessionsBeyondTheTenantLimit() {
+        SessionStore store = new SessionStore(60_000, 60_000, 2);
+        SessionStore.Session first = store.create(1, 1);
+        store.create(1, 2);
+
+        assertThrows(RbacException.class, () -> store.create(1, 3));
+        assertNotNull(store.create(2, 3), "Other tenants keep their own limit");
+
+        store.invalidate(first.getToken());
+        assertNotNull(store.create(1, 3));
+        assertEquals(2, store.activeCount(1));
+    }
+}
@@ -0,0 +1,68 @@
+package com.study.job;
+
+import com.study.domain.AuditLog;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogBackfillTest {
+
+    private static AuditLog parse(String line) {
+        // Parsed from a reused buffer longer than the line, as the file scan does.
+        byte[] bytes = (line + "trailing garbage").getBytes(StandardCharsets.UTF_8);
+        return AuditLogBackfill.parseLine(bytes, line.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void parsesASuccessLineWithItsId() {
+        AuditLog log = parse("2026-03-04 05:06:07.089 - ID=123456 | ACTION=CREATE_ROLE | RESOURCE_TYPE=ROLE"
+                + " | RESOURCE_ID=42 | USER=alice | USER_ID=7 | RESULT=SUCCESS");
+
+        assertNotNull(log);
+        assertEquals(123456L, log.getId());
+        assertEquals(LocalDateTime.of(2026, 3, 4, 5, 6, 7, 89_000_000), log.getCreatedAt());
+        assertEquals("CREATE_ROLE", log.getAction());
+        assertEquals("ROLE", log.getResourceType());
+        assertEquals("42", log.getResourceId());
+        assertEquals("alice", log.getUsername());
+        assertEquals(7L, log.getUserId());
+        assertTrue(log.isSuccess());
+        assertNull(log.getErrorMessage());
+    }
+
+    @Test
+    void parsesAnOlderFailureLineWithNullMarkers() {
+        AuditLog log = parse("2026-03-04 05:06:07.089 - ACTION=LOGIN | RESOURCE_TYPE=null | RESOURCE_ID=N/A"
+                + " | USER=null | USER_ID=null | RESULT=FAILED | ERROR=Bad password | try again");
+
+        assertNotNull(log);
+        assertNull(log.getId(), "Lines written before ids were logged carry none");
+        assertNull(log.getResourceType());
+        assertNull(log.getResourceId());
+        assertNull(log.getUsername());
+        assertNull(log.getUserId());
+        assertFalse(log.isSuccess());
+        assertEquals("Bad password | try again", log.getErrorMessage(), "ERROR runs to the end of the line");
+    }
+
+    @Test
+    void rejectsLinesOfAnotherShape() {
+        assertNull(parse(""));
+        assertNull(parse("2026-03-04 05:06:07.089 - started"));
+        assertNull(parse("2026-13-04 05:06:07.089 - ACTION=LOGIN | RESULT=SUCCESS"), "No month 13");
+        assertNull(parse("2026-03-04T05:06:07.089 - ACTION=LOGIN | RESULT=SUCCESS"));
+        assertNull(parse("2026-03-04 05:06:07.089 - ACTION=LOGIN | USER=alice"), "RESULT is required");
+        assertNull(parse("2026-03-04 05:06:07.089 - RESULT=SUCCESS"), "ACTION is required");
+    }
+
+    @Test
+    void keepsAnUnparseableIdAsNull() {
+        AuditLog log = parse("2026-03-04 05:06:07.089 - ID=abc | ACTION=LOGIN | RESULT=SUCCESS");
+
+        assertNotNull(log);
+        assertNull(log.getId());
+    }
+}
@@ -0,0 +1,162 @@
+package com.study.repository;
+
+import com.study.domain.AuditLog;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditWriteAheadLogTest {
+    private static final int RECORD_HEADER = 8;
+
+    @TempDir
+    Path directory;
+
+    private final List<AuditLog> inserted = new CopyOnWriteArrayList<>();
+    private volatile boolean databaseDown;
+
+    private final AuditWriteAheadLog.BatchWriter database = batch -> {
+        if (databaseDown) {
+            throw new SQLException("database unavailable");
+        }
+        inserted.addAll(batch);
+    };
+
+    @Test
+    void recordsReachTheDatabaseOnceSettled() {
+        AuditWriteAheadLog wal = open();
+        wal.start(database);
+        try {
+            for (long id = 1; id <= 3; id++) {
+                assertTrue(wal.append(record(id)));
+            }
+
+            assertTrue(wal.awaitSettled(5_000));
+            assertEquals(List.of(1L, 2L, 3L), ids());
+            assertTrue(wal.awaitDrained(0));
+        } finally {
+            wal.close();
+        }
+    }
+
+    @Test
+    void recordsWaitForTheDatabaseToComeBack() {
+        databaseDown = true;
+        AuditWriteAheadLog wal = open();
+        wal.start(database);
+        try {
+            wal.append(record(1));
+
+            assertFalse(wal.awaitDrained(300));
+            assertFalse(wal.awaitSettled(10_000), "Readers do not wait while the database is failing");
+            databaseDown = false;
+
+            assertTrue(wal.awaitDrained(10_000));
+            assertEquals(List.of(1L), ids());
+        } finally {
+            wal.close();
+        }
+    }
+
+    @Test
+    void replaysSegmentsLeftByThePreviousRun() {
+        databaseDown = true;
+        AuditWriteAheadLog previous = open();
+        previous.start(database);
+        for (long id = 1; id <= 3; id++) {
+            previous.append(record(id));
+        }
+        previous.close();
+        databaseDown = false;
+
+        AuditWriteAheadLog wal = open();
+        assertFalse(wal.awaitDrained(0), "Unreplayed segments count as backlog before start");
+        wal.start(database);
+        try {
+            assertTrue(wal.awaitDrained(5_000));
+            assertEquals(List.of(1L, 2L, 3L), ids());
+        } finally {
+            wal.close();
+        }
+    }
+
+    @Test
+    void skipsACorruptRecordAndSettlesIt() throws Exception {
+        databaseDown = true;
+        AuditWriteAheadLog previous = open();
+        previous.start(database);
+        for (long id = 1; id <= 3; id++) {
+            previous.append(record(id));
+        }
+        previous.close();
+        corruptSecondRecord();
+        databaseDown = false;
+
+        AuditWriteAheadLog wal = open();
+        wal.start(database);
+        try {
+            assertTrue(wal.awaitDrained(5_000));
+            assertEquals(List.of(1L, 3L), ids());
+
+            // The skipped record must not hold back later ones.
+            wal.append(record(4));
+            assertTrue(wal.awaitSettled(5_000));
+            assertEquals(List.of(1L, 3L, 4L), ids());
+        } finally {
+            wal.close();
+        }
+    }
+
+    @Test
+    void appendWaitsForRoomInsteadOfDropping() {
+        // Not started: nothing takes records off the queue of two.
+        AuditWriteAheadLog wal = new AuditWriteAheadLog(directory, 1 << 20, 2, 20, 200);
+        try {
+            assertTrue(wal.append(record(1)));
+            assertTrue(wal.append(record(2)));
+
+            long started = System.nanoTime();
+            assertFalse(wal.append(record(3)));
+            assertTrue(System.nanoTime() - started >= 150_000_000L, "A full queue holds the caller back");
+            assertFalse(wal.awaitSettled(5_000), "No drainer to wait for");
+        } finally {
+            wal.close();
+        }
+    }
+
+    private AuditWriteAheadLog open() {
+        return new AuditWriteAheadLog(directory, 1 << 20, 100, 20, 1_000);
+    }
+
+    private void corruptSecondRecord() throws Exception {
+        Path segment;
+        try (var segments = Files.list(directory)) {
+            segment = segments.filter(path -> path.toFile().length() > 0)
+                    .findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int second = RECORD_HEADER + ByteBuffer.wrap(bytes).getInt();
+        // First byte of the second record's payload; its length and checksum stay intact.
+        bytes[second + RECORD_HEADER] ^= 0x55;
+        Files.write(segment, bytes);
+    }
+
+    private List<Long> ids() {
+        return inserted.stream().map(AuditLog::getId).toList();
+    }
+
+    private static AuditLog record(long id) {
+        AuditLog log = new AuditLog(7L, "alice", "ACTION_" + id, "Resource", String.valueOf(id), null, true, null);
+        log.setId(id);
+        log.setCreatedAt(LocalDateTime.now());
+        return log;
+    }
+}
@@ -0,0 +1,132 @@
+package com.study.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupMembershipIndexTest {
+    /** Each test loads a fresh tenant that no other test uses. */
+    private static final AtomicLong NEXT_TENANT = new AtomicLong(9_100);
+
+    private InMemoryGroups repository;
+    private GroupMembershipIndex index;
+
+    /**
+     * Engineering (1, role 100) holds Backend (2, role 200), which holds
+     * Payments (3, role 300); Sales (4, role 400) is top-level. User 10 is
+     * in Payments, 11 in Backend and Sales, 12 in Engineering.
+     */
+    private static final class InMemoryGroups extends GroupRepository {
+        final AtomicInteger loads = new AtomicInteger();
+
+        InMemoryGroups() {
+            super(null);
+        }
+
+        @Override
+        void loadMembershipIndex(GroupMembershipIndex.Loader loader) {
+            loads.incrementAndGet();
+            loader.group(1, null);
+            loader.group(2, 1L);
+            loader.group(3, 2L);
+            loader.group(4, null);
+            loader.role(1, 100);
+            loader.role(2, 200);
+            loader.role(3, 300);
+            loader.role(4, 400);
+            loader.member(3, 10);
+            loader.member(2, 11);
+            loader.member(4, 11);
+            loader.member(1, 12);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        repository = new InMemoryGroups();
+        GroupMembershipIndex.register(repository);
+        index = GroupMembershipIndex.forTenant(NEXT_TENANT.getAndIncrement());
+    }
+
+    @AfterEach
+    void cleanup() {
+        GroupMembershipIndex.register(null);
+    }
+
+    @Test
+    void membersHoldTheRolesOfEveryEnclosingGroup() {
+        assertArrayEquals(new long[]{100, 200, 300}, index.rolesOf(10));
+        assertArrayEquals(new long[]{100, 200, 400}, index.rolesOf(11));
+        assertArrayEquals(new long[]{100}, index.rolesOf(12));
+        assertArrayEquals(new long[0], index.rolesOf(99));
+        assertTrue(index.hasRole(10, 100));
+        assertFalse(index.hasRole(12, 200), "Roles do not flow down to enclosing groups' members");
+        assertEquals(1, repository.loads.get());
+    }
+
+    @Test
+    void listsTheUsersHoldingARoleThroughAnyGroup() {
+        assertArrayEquals(new long[]{10, 11, 12}, index.membersWithRole(100));
+        assertArrayEquals(new long[]{10, 11}, index.membersWithRole(200));
+        assertArrayEquals(new long[]{10}, index.membersWithRole(300));
+        assertArrayEquals(new long[0], index.membersWithRole(999));
+    }
+
+    @Test
+    void movingAGroupChangesWhatItsMembersInherit() {
+        // Changes only apply to a loaded index; an unloaded one reads them from the database.
+        index.rolesOf(10);
+
+        index.onGroupMoved(3, null);
+
+        assertArrayEquals(new long[]{300}, index.rolesOf(10));
+        assertArrayEquals(new long[]{11, 12}, index.membersWithRole(100));
+
+        index.onGroupMoved(3, 4L);
+
+        assertArrayEquals(new long[]{300, 400}, index.rolesOf(10));
+    }
+
+    @Test
+    void deletingAGroupHangsItsChildrenOffItsParent() {
+        index.rolesOf(10);
+
+        index.onGroupDeleted(2);
+
+        assertArrayEquals(new long[]{100, 300}, index.rolesOf(10));
+        assertArrayEquals(new long[]{400}, index.rolesOf(11));
+    }
+
+    @Test
+    void followsMembershipAndGroupRoleChanges() {
+        index.membersWithRole(500);
+
+        index.onGroupRoleAdded(1, 500);
+        index.onMemberAdded(4, 13);
+
+        assertArrayEquals(new long[]{100, 200, 300, 500}, index.rolesOf(10));
+        assertArrayEquals(new long[]{10, 11, 12}, index.membersWithRole(500));
+        assertArrayEquals(new long[]{400}, index.rolesOf(13));
+
+        index.onMemberRemoved(2, 11);
+        index.onGroupRoleRemoved(3, 300);
+        index.onRoleDeleted(100);
+
+        assertArrayEquals(new long[]{400}, index.rolesOf(11));
+        assertArrayEquals(new long[]{200, 500}, index.rolesOf(10));
+        assertArrayEquals(new long[]{10, 12}, index.membersWithRole(500));
+        assertEquals(1, repository.loads.get(), "Changes are applied in place");
+    }
+
+    @Test
+    void holdsNothingWithoutARepository() {
+        GroupMembershipIndex.register(null);
+        GroupMembershipIndex unloaded = GroupMembershipIndex.forTenant(NEXT_TENANT.getAndIncrement());
+
+        assertArrayEquals(new long[0], unloaded.rolesOf(10));
+        assertArrayEquals(new long[0], unloaded.membersWithRole(100));
+    }
+}
@@ -0,0 +1,67 @@
+package com.study.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    @Test
+    void sealedBlocksDecodeToTheIdsAdded() {
+        PostingList list = new PostingList();
+        // Deltas from 1 to past 2^35, so varints of one to six bytes.
+        long[] ids = LongStream.range(0, PostingList.BLOCK_SIZE * 3 + 5)
+                .map(i -> 1_000 + i * i * i * i).toArray();
+        for (long id : ids) {
+            list.add(id);
+        }
+
+        assertEquals(ids.length, list.size());
+        assertArrayEquals(ids, list.collect(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void collectsARangeInOrderWithoutDuplicates() {
+        PostingList list = new PostingList();
+        Random random = new Random(42);
+        long[] ids = new long[PostingList.BLOCK_SIZE * 4];
+        for (int i = 0; i < ids.length; i++) {
+            // Mostly increasing, as replayed and backfilled ids arrive.
+            ids[i] = i * 10L + random.nextInt(50);
+            list.add(ids[i]);
+        }
+        list.add(ids[7]);
+
+        long[] expected = Arrays.stream(ids).filter(id -> id >= 1_000 && id <= 3_000).sorted().distinct().toArray();
+        assertArrayEquals(expected, list.collect(1_000, 3_000));
+        assertEquals(ids.length + 1, list.size(), "Size counts duplicates");
+    }
+
+    @Test
+    void pruningDropsOnlyWholeBlocksBelowTheCutoff() {
+        PostingList list = new PostingList();
+        for (long id = 0; id < PostingList.BLOCK_SIZE * 2 + 1; id++) {
+            list.add(id);
+        }
+
+        assertFalse(list.pruneBelow(PostingList.BLOCK_SIZE + 1));
+        assertArrayEquals(LongStream.range(PostingList.BLOCK_SIZE, PostingList.BLOCK_SIZE * 2 + 1).toArray(),
+                list.collect(Long.MIN_VALUE, Long.MAX_VALUE), "A block is kept while any of its ids is in range");
+        assertEquals(PostingList.BLOCK_SIZE + 1, list.size());
+    }
+
+    @Test
+    void intersectsSortedLists() {
+        long[] small = {3, 9, 27, 81, 243, 729};
+        long[] large = LongStream.range(0, 100).map(i -> i * 3).toArray();
+
+        assertArrayEquals(new long[]{3, 9, 27, 81, 243}, AuditSearchIndex.intersect(small, large));
+        assertArrayEquals(new long[]{3, 9, 27, 81, 243}, AuditSearchIndex.intersect(large, small));
+        assertArrayEquals(new long[0], AuditSearchIndex.intersect(new long[]{1, 2}, large));
+        assertArrayEquals(new long[0], AuditSearchIndex.intersect(new long[0], large));
+    }
+}
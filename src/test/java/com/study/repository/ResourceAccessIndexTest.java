@@ -0,0 +1,133 @@
+package com.study.repository;
+
+import com.study.context.TenantContext;
+import com.study.domain.Resource;
+import com.study.service.dto.ResourceRoleScope;
+import com.study.service.dto.ResourceUserScope;
+import org.junit.jupiter.api.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceAccessIndexTest {
+    /** Not used by any other test, so no group index is loaded for it. */
+    private static final long TENANT = 9_002;
+
+    /**
+     * Roles 1 (READER: doc.read on every document), 2 (FOLDER_EDITOR:
+     * doc.write on folder 7 and on documents matching 8*) and 3 (OTHER:
+     * a grant on another type). READER has users 10-14, FOLDER_EDITOR
+     * users 20 and 21.
+     */
+    private static final class InMemoryScopes extends PermissionRepository {
+        Set<String> requestedTypes;
+
+        InMemoryScopes() {
+            super(null);
+        }
+
+        @Override
+        void loadAccessRows(Set<String> types, ResourceAccessIndex.Loader loader) {
+            requestedTypes = types;
+            if (types.contains("document")) {
+                loader.role(1, "READER");
+                loader.scope(1, "doc.read", "DOCUMENT", null);
+                loader.role(2, "FOLDER_EDITOR");
+                loader.scope(2, "doc.write", "DOCUMENT", "8*");
+                for (long userId = 14; userId >= 10; userId--) {
+                    loader.user(userId, "reader" + userId);
+                    loader.member(userId, 1);
+                }
+                loader.user(21, "editor21");
+                loader.member(21, 2);
+            }
+            if (types.contains("folder")) {
+                loader.role(2, "FOLDER_EDITOR");
+                loader.scope(2, "doc.write", "Folder", "7");
+                loader.user(20, "editor20");
+                loader.member(20, 2);
+            }
+            if (types.contains("report")) {
+                loader.role(3, "OTHER");
+                loader.scope(3, "report.read", "REPORT", null);
+            }
+        }
+
+        @Override
+        Map<Long, String> findUsernames(Collection<Long> userIds) {
+            return Map.of();
+        }
+    }
+
+    private static Resource resource(long id, String type) {
+        Resource resource = new Resource();
+        resource.setId(id);
+        resource.setType(type);
+        return resource;
+    }
+
+    private static ResourceAccessIndex.AccessPage lookup(List<Resource> chain, int offset, int limit) {
+        return TenantContext.callAs(TENANT,
+                () -> ResourceAccessIndex.lookupUncached(new InMemoryScopes(), chain, offset, limit));
+    }
+
+    @Test
+    void matchesTypeWidePatternAndInheritedGrants() {
+        ResourceAccessIndex.AccessPage page = lookup(List.of(resource(8, "document"), resource(7, "FOLDER")), 0, 100);
+
+        List<ResourceRoleScope> roles = page.roleScopes();
+        assertEquals(2, roles.size());
+        assertEquals("FOLDER_EDITOR", roles.get(0).getRoleCode());
+        assertEquals("8*", roles.get(0).getScopeKey(), "The grant on the resource itself wins over the folder's");
+        assertEquals("READER", roles.get(1).getRoleCode());
+        assertEquals("__GLOBAL__", roles.get(1).getScopeKey());
+        assertEquals(7, page.totalUsers());
+    }
+
+    @Test
+    void inheritedGrantsNameTheirAncestor() {
+        ResourceAccessIndex.AccessPage page = lookup(List.of(resource(9, "DOCUMENT"), resource(7, "FOLDER")), 0, 100);
+
+        ResourceRoleScope editor = page.roleScopes().get(0);
+        assertEquals("FOLDER_EDITOR", editor.getRoleCode());
+        assertEquals("7 (from FOLDER/7)", editor.getScopeKey());
+        assertEquals(List.of("editor20", "editor21", "reader10", "reader11", "reader12", "reader13", "reader14"),
+                page.userScopes().stream().map(ResourceUserScope::getUsername).toList());
+    }
+
+    @Test
+    void pagesOverUsersInRoleOrder() {
+        List<Resource> chain = List.of(resource(8, "DOCUMENT"), resource(7, "FOLDER"));
+
+        ResourceAccessIndex.AccessPage first = lookup(chain, 0, 3);
+        ResourceAccessIndex.AccessPage second = lookup(chain, 3, 3);
+        ResourceAccessIndex.AccessPage last = lookup(chain, 6, 3);
+
+        assertEquals(List.of("editor20", "editor21", "reader10"), usernames(first));
+        assertEquals(List.of("reader11", "reader12", "reader13"), usernames(second));
+        assertEquals(List.of("reader14"), usernames(last));
+        assertEquals(7, last.totalUsers());
+        assertEquals(2, last.roleScopes().size(), "Every page lists all roles");
+        assertEquals(List.of(), usernames(lookup(chain, 50, 3)));
+    }
+
+    @Test
+    void readsOnlyTheChainsTypes() {
+        InMemoryScopes scopes = new InMemoryScopes();
+
+        ResourceAccessIndex.AccessPage page = TenantContext.callAs(TENANT, () -> ResourceAccessIndex
+                .lookupUncached(scopes, List.of(resource(1, "Report")), 0, 10));
+
+        assertEquals(Set.of("report"), scopes.requestedTypes);
+        assertEquals("OTHER", page.roleScopes().get(0).getRoleCode());
+        assertEquals(0, page.totalUsers());
+    }
+
+    private static List<String> usernames(ResourceAccessIndex.AccessPage page) {
+        return page.userScopes().stream().map(ResourceUserScope::getUsername).toList();
+    }
+}
@@ -0,0 +1,196 @@
+package com.study.repository;
+
+import com.study.repository.SodConflictIndex.Conflict;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SodConflictIndexTest {
+    /** Not used by any other test, so the index starts empty. */
+    private static final long TENANT = 9_001;
+    private static final long PAYER = 1;
+    private static final long APPROVER = 2;
+    private static final long BOTH = 3;
+    private static final long PLAIN = 4;
+
+    private InMemoryConstraints repository;
+    private SodConflictIndex index;
+
+    /**
+     * Constraint PAY / APPROVE; role 1 grants PAY, role 2 APPROVE, role 3
+     * both and role 4 neither.
+     */
+    private static final class InMemoryConstraints extends SodConstraintRepository {
+        final Map<Long, long[]> userRoles = new HashMap<>();
+        final AtomicInteger loads = new AtomicInteger();
+        final AtomicInteger locks = new AtomicInteger();
+        boolean constrained = true;
+
+        InMemoryConstraints() {
+            super(null);
+        }
+
+        @Override
+        void loadConflictIndex(SodConflictIndex.Loader loader) {
+            loads.incrementAndGet();
+            if (!constrained) {
+                // Only grants of constrained permissions are read.
+                return;
+            }
+            loader.constraint("PAY", "APPROVE");
+            loader.grant(PAYER, "PAY");
+            loader.grant(APPROVER, "APPROVE");
+            loader.grant(BOTH, "PAY");
+            loader.grant(BOTH, "APPROVE");
+        }
+
+        @Override
+        public void lockTenant(Connection conn) {
+            locks.incrementAndGet();
+        }
+
+        @Override
+        public Map<Long, long[]> findDirectRoleIds(Connection conn, long[] userIds) {
+            Map<Long, long[]> found = new HashMap<>();
+            for (long userId : userIds) {
+                if (userRoles.containsKey(userId)) {
+                    found.put(userId, userRoles.get(userId));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public Map<Long, long[]> findRolesOfHolders(Connection conn, long roleId) {
+            Map<Long, long[]> holders = new HashMap<>();
+            userRoles.forEach((userId, roles) -> {
+                for (long role : roles) {
+                    if (role == roleId) {
+                        holders.put(userId, roles);
+                    }
+                }
+            });
+            return holders;
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        repository = new InMemoryConstraints();
+        SodConflictIndex.register(repository);
+        index = SodConflictIndex.forTenant(TENANT);
+        index.invalidate();
+    }
+
+    @AfterEach
+    void cleanup() {
+        SodConflictIndex.register(null);
+        index.invalidate();
+    }
+
+    @Test
+    void reportsUsersHoldingBothPermissions() {
+        assertTrue(index.hasConstraints());
+
+        assertEquals(List.of(), index.conflictsOf(10, new long[]{PAYER}));
+        assertEquals(List.of(), index.conflictsOf(10, new long[]{PAYER, PLAIN}));
+        assertEquals(List.of(new Conflict(10L, "PAY", "APPROVE")),
+                index.conflictsOf(10, new long[]{PAYER, APPROVER}));
+        assertEquals(List.of(new Conflict(11L, "PAY", "APPROVE")), index.conflictsOf(11, new long[]{BOTH}),
+                "Each violated pair is reported once");
+    }
+
+    @Test
+    void refusesARoleThatCompletesAPair() {
+        repository.userRoles.put(10L, new long[]{PAYER});
+
+        assertEquals(new Conflict(10L, "PAY", "APPROVE"), index.checkRoleAssignment(null, 10, APPROVER));
+        assertNull(index.checkRoleAssignment(null, 10, PLAIN));
+        assertNull(index.checkRoleAssignment(null, 12, APPROVER), "A user without roles may take either side");
+        assertEquals(3, repository.locks.get(), "Every check locks the tenant");
+    }
+
+    @Test
+    void refusesAGrantThatCompletesAPairForTheRoleOrAHolder() {
+        repository.userRoles.put(10L, new long[]{APPROVER, PLAIN});
+
+        assertEquals(new Conflict(null, "PAY", "APPROVE"), index.checkPermissionGrant(null, PAYER, "APPROVE"));
+        assertEquals(new Conflict(10L, "PAY", "APPROVE"), index.checkPermissionGrant(null, PLAIN, "PAY"));
+        assertNull(index.checkPermissionGrant(null, PLAIN, "APPROVE"));
+        assertNull(index.checkPermissionGrant(null, PLAIN, "UNCONSTRAINED"));
+    }
+
+    @Test
+    void checksEveryUserAGroupChangeReaches() {
+        repository.userRoles.put(10L, new long[]{PLAIN});
+        repository.userRoles.put(11L, new long[]{PAYER});
+
+        assertEquals(new Conflict(11L, "PAY", "APPROVE"),
+                index.checkRoleAssignments(null, () -> new long[]{10, 11, 12}, () -> new long[]{APPROVER}));
+        assertNull(index.checkRoleAssignments(null, () -> new long[]{10, 12}, () -> new long[]{APPROVER, PLAIN}));
+        assertNull(index.checkRoleAssignments(null, () -> new long[0], () -> new long[]{BOTH}),
+                "A group without members reaches nobody");
+    }
+
+    @Test
+    void checksPassWithoutConstraints() {
+        repository.constrained = false;
+        repository.userRoles.put(10L, new long[]{PAYER});
+
+        assertFalse(index.hasConstraints());
+        assertNull(index.checkRoleAssignment(null, 10, APPROVER));
+        assertNull(index.checkPermissionGrant(null, PAYER, "APPROVE"));
+        assertEquals(0, repository.locks.get(), "Nothing to serialize without constraints");
+    }
+
+    @Test
+    void reloadsOnlyAfterInvalidation() {
+        index.hasConstraints();
+        index.conflictsOf(10, new long[]{PAYER});
+        assertEquals(1, repository.loads.get());
+
+        index.invalidate();
+        index.hasConstraints();
+        assertEquals(2, repository.loads.get());
+    }
+
+    @Test
+    void keepsNoIndexWhileAGrantChangeIsInFlight() {
+        NoDatabaseRepository transactions = new NoDatabaseRepository();
+
+        index.changeGrants(transactions, conn -> {
+            index.hasConstraints();
+            index.hasConstraints();
+            return null;
+        });
+        assertEquals(2, repository.loads.get());
+
+        index.hasConstraints();
+        index.hasConstraints();
+        assertEquals(3, repository.loads.get());
+    }
+
+    /**
+     * Runs the callback without a database.
+     */
+    private static final class NoDatabaseRepository extends BaseRepository {
+        NoDatabaseRepository() {
+            super(null);
+        }
+
+        @Override
+        public <T> T executeInTransaction(TransactionCallback<T> callback) {
+            try {
+                return callback.doInTransaction(null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
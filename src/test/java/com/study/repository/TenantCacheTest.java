@@ -0,0 +1,70 @@
+package com.study.repository;
+
+import com.study.context.TenantContext;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantCacheTest {
+
+    /** A tenant's structure: records which tenant it was built for. */
+    private record Built(long tenantId, int generation) {
+    }
+
+    private final AtomicInteger builds = new AtomicInteger();
+    private final TenantCache<Built> cache = new TenantCache<>("Test index", 2,
+            tenantId -> new Built(tenantId, builds.incrementAndGet()));
+
+    @Test
+    void eachTenantGetsItsOwnStructure() {
+        Built first = cache.get(1);
+        Built second = cache.get(2);
+
+        assertEquals(1, first.tenantId());
+        assertEquals(2, second.tenantId());
+        assertSame(first, cache.get(1));
+        assertSame(second, cache.get(2));
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedTenant() {
+        Built first = cache.get(1);
+        cache.get(2);
+        cache.get(1);
+
+        cache.get(3);
+
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get(1), "Tenant 1 was used after tenant 2");
+        Built rebuilt = cache.get(2);
+        assertEquals(4, rebuilt.generation(), "An evicted tenant is built again, not shared");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void threadsSeeOnlyTheTenantTheyAreBoundTo() throws InterruptedException {
+        List<Long> seen = new ArrayList<>();
+        TenantContext.runAs(7, () -> {
+            seen.add(cache.get(TenantContext.current()).tenantId());
+            TenantContext.runAs(8, () -> seen.add(cache.get(TenantContext.current()).tenantId()));
+            seen.add(TenantContext.current());
+        });
+        Thread other = new Thread(() -> seen.add(TenantContext.current()));
+        TenantContext.bind(7);
+        try {
+            other.start();
+            other.join();
+        } finally {
+            TenantContext.clear();
+        }
+
+        assertEquals(List.of(7L, 8L, 7L, TenantContext.DEFAULT_TENANT_ID), seen,
+                "Bindings nest and do not leak to other threads");
+        assertEquals(TenantContext.DEFAULT_TENANT_ID, TenantContext.current());
+    }
+}
@@ -0,0 +1,113 @@
+package com.study.repository.archive;
+
+import com.study.domain.AuditLog;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditArchiveTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 0, 0, 0, 123_000_000);
+    /** Two full blocks and part of a third. */
+    private static final int ROWS = AuditArchiveWriter.BLOCK_ROWS * 2 + 10;
+
+    @TempDir
+    Path directory;
+
+    /** Row {@code i}: one second apart; every thousandth one is a failed EXPORT. */
+    private static AuditLog record(int i) {
+        boolean export = i % 1000 == 0;
+        AuditLog log = new AuditLog(i % 3 == 0 ? null : (long) i % 7, "user" + i % 7,
+                export ? "EXPORT" : "VIEW", i % 2 == 0 ? "Resource" : "Role", "r" + i,
+                i % 5 == 0 ? null : "detail " + i, !export, export ? "denied" : null);
+        log.setId(1_000L + i * 3L);
+        log.setIpAddress(i % 4 == 0 ? null : "10.0.0." + i % 256);
+        log.setCreatedAt(START.plusSeconds(i));
+        return log;
+    }
+
+    private Path write() throws IOException {
+        Path file = directory.resolve("2026-03.rbca");
+        try (AuditArchiveWriter writer = new AuditArchiveWriter(file)) {
+            for (int i = 0; i < ROWS; i++) {
+                writer.append(record(i));
+            }
+            assertEquals(ROWS, writer.rowCount());
+        }
+        return file;
+    }
+
+    @Test
+    void readsBackEveryColumnNewestFirst() throws IOException {
+        try (AuditArchiveReader reader = AuditArchiveReader.open(write())) {
+            assertEquals(ROWS, reader.rowCount());
+            assertEquals(3, reader.blockCount());
+
+            List<AuditLog> logs = new ArrayList<>();
+            reader.query(ArchiveQuery.all(), ROWS, logs);
+
+            assertEquals(ROWS, logs.size());
+            for (int n = 0; n < ROWS; n++) {
+                AuditLog expected = record(ROWS - 1 - n);
+                AuditLog actual = logs.get(n);
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getUserId(), actual.getUserId());
+                assertEquals(expected.getUsername(), actual.getUsername());
+                assertEquals(expected.getAction(), actual.getAction());
+                assertEquals(expected.getResourceType(), actual.getResourceType());
+                assertEquals(expected.getResourceId(), actual.getResourceId());
+                assertEquals(expected.getDetail(), actual.getDetail());
+                assertEquals(expected.isSuccess(), actual.isSuccess());
+                assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+                assertEquals(expected.getIpAddress(), actual.getIpAddress());
+                assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+            }
+        }
+    }
+
+    @Test
+    void skipsBlocksOutsideTheTimeRangeOrWithoutTheAction() throws IOException {
+        try (AuditArchiveReader reader = AuditArchiveReader.open(write())) {
+            List<AuditLog> logs = new ArrayList<>();
+            reader.query(new ArchiveQuery(null, "EXPORT", null, null,
+                    START.plusSeconds(AuditArchiveWriter.BLOCK_ROWS), null), 100, logs);
+
+            assertEquals(List.of(8_000, 7_000, 6_000, 5_000), rows(logs));
+            assertFalse(logs.get(0).isSuccess());
+            // The first block is too old and the last holds no EXPORT.
+            assertEquals(1, reader.blocksRead());
+        }
+    }
+
+    @Test
+    void stopsAtUnknownValuesWithoutReadingBlocks() throws IOException {
+        try (AuditArchiveReader reader = AuditArchiveReader.open(write())) {
+            List<AuditLog> logs = new ArrayList<>();
+            reader.query(new ArchiveQuery(null, "DELETE", null, null, null, null), 100, logs);
+
+            assertTrue(logs.isEmpty());
+            assertEquals(0, reader.blocksRead());
+        }
+    }
+
+    @Test
+    void stopsAtTheLimit() throws IOException {
+        try (AuditArchiveReader reader = AuditArchiveReader.open(write())) {
+            List<AuditLog> logs = new ArrayList<>();
+            reader.query(new ArchiveQuery(null, null, "Role", null, null, null), 5, logs);
+
+            assertEquals(List.of(ROWS - 1, ROWS - 3, ROWS - 5, ROWS - 7, ROWS - 9), rows(logs));
+            assertEquals(1, reader.blocksRead());
+        }
+    }
+
+    private static List<Integer> rows(List<AuditLog> logs) {
+        return logs.stream().map(log -> (int) ((log.getId() - 1_000) / 3)).toList();
+    }
+}
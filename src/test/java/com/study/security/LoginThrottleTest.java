@@ -0,0 +1,119 @@
+package com.study.security;
+
+import com.study.security.LoginThrottle.Decision;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+    /** Slow enough that no token comes back during a test. */
+    private static final double NO_REFILL = 0.001;
+
+    @Test
+    void throttlesAUsernameOnceItsBurstIsSpent() {
+        LoginThrottle throttle = new LoginThrottle(3, NO_REFILL, 100, NO_REFILL, 1000, 10, 60_000, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Decision.ALLOWED, throttle.tryAcquire("alice", "10.0.0.1"));
+        }
+
+        assertEquals(Decision.USER_THROTTLED, throttle.tryAcquire("alice", "10.0.0.2"));
+        assertEquals(Decision.USER_THROTTLED, throttle.tryAcquire("ALICE", "10.0.0.2"), "Usernames are case-insensitive");
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("bob", "10.0.0.1"));
+    }
+
+    @Test
+    void throttlesAnAddressAcrossUsernames() {
+        LoginThrottle throttle = new LoginThrottle(100, NO_REFILL, 2, NO_REFILL, 1000, 10, 60_000, 60_000);
+
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("u1", "10.0.0.9"));
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("u2", "10.0.0.9"));
+
+        assertEquals(Decision.ADDRESS_THROTTLED, throttle.tryAcquire("u3", "10.0.0.9"));
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("u3", "10.0.0.10"));
+    }
+
+    @Test
+    void refillsTokensOverTime() throws InterruptedException {
+        LoginThrottle throttle = new LoginThrottle(1, 20, 100, NO_REFILL, 1000, 10, 60_000, 60_000);
+
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("alice", null));
+        assertEquals(Decision.USER_THROTTLED, throttle.tryAcquire("alice", null));
+        Thread.sleep(100);
+
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("alice", null));
+    }
+
+    @Test
+    void reportsOnlyTheFailureThatCrossesTheLockoutThreshold() {
+        LoginThrottle throttle = new LoginThrottle(100, NO_REFILL, 100, NO_REFILL, 1000, 3, 60_000, 60_000);
+        long before = System.currentTimeMillis();
+
+        assertEquals(0, throttle.recordFailure("alice"));
+        assertEquals(0, throttle.recordFailure("alice"));
+        long lockedUntil = throttle.recordFailure("alice");
+
+        assertTrue(lockedUntil >= before + 60_000);
+        assertEquals(Decision.LOCKED, throttle.tryAcquire("alice", "10.0.0.1"));
+        assertEquals(0, throttle.recordFailure("alice"), "Counting starts again after the lock");
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        LoginThrottle throttle = new LoginThrottle(100, NO_REFILL, 100, NO_REFILL, 1000, 3, 60_000, 60_000);
+
+        throttle.recordFailure("alice");
+        throttle.recordFailure("alice");
+        throttle.recordSuccess("alice");
+
+        assertEquals(0, throttle.recordFailure("alice"));
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("alice", null));
+    }
+
+    @Test
+    void forgetsFailuresOnceTheirWindowPasses() throws InterruptedException {
+        LoginThrottle throttle = new LoginThrottle(100, NO_REFILL, 100, NO_REFILL, 1000, 3, 60_000, 50);
+
+        throttle.recordFailure("alice");
+        throttle.recordFailure("alice");
+        Thread.sleep(100);
+
+        assertEquals(0, throttle.recordFailure("alice"));
+        assertEquals(0, throttle.recordFailure("alice"));
+        assertTrue(throttle.recordFailure("alice") > 0);
+    }
+
+    @Test
+    void sweepKeepsFailuresThatHaveNotLapsed() throws InterruptedException {
+        // One key, refilled within a millisecond, so alice's bucket is idle at once.
+        LoginThrottle throttle = new LoginThrottle(1, 1000, 100, NO_REFILL, 1, 3, 60_000, 60_000);
+
+        throttle.recordFailure("alice");
+        throttle.recordFailure("alice");
+        Thread.sleep(20);
+        throttle.tryAcquire("bob", null);
+
+        assertTrue(throttle.recordFailure("alice") > 0, "The sweep must not reset alice's count");
+    }
+
+    @Test
+    void neverCountsFailuresOnTheOverflowBucket() {
+        LoginThrottle throttle = new LoginThrottle(100, NO_REFILL, 100, NO_REFILL, 1, 3, 60_000, 60_000);
+        throttle.tryAcquire("alice", null);
+
+        throttle.recordFailure("bob");
+        throttle.recordFailure("bob");
+
+        assertEquals(0, throttle.recordFailure("carol"), "carol is not charged with bob's failures");
+        assertEquals(Decision.ALLOWED, throttle.tryAcquire("carol", null));
+    }
+
+    @Test
+    void honoursLocksFoundInTheDatabase() {
+        LoginThrottle throttle = new LoginThrottle(100, NO_REFILL, 100, NO_REFILL, 1000, 3, 60_000, 60_000);
+
+        throttle.lock("carol", System.currentTimeMillis() + 60_000);
+
+        assertEquals(Decision.LOCKED, throttle.tryAcquire("Carol", null));
+    }
+}
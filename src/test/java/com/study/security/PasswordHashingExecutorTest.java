@@ -0,0 +1,86 @@
+package com.study.security;
+
+import com.study.exception.RbacException;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    @Test
+    void runsTasksAndCountsThem() {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(2, 4, 5_000);
+
+        assertEquals("hashed", executor.call(() -> "hashed"));
+        assertEquals("hashed", executor.call(() -> "hashed"));
+
+        PasswordHashingExecutor.Stats stats = executor.stats();
+        assertEquals(2, stats.completed());
+        assertEquals(0, stats.rejected());
+    }
+
+    @Test
+    void refusesCallsOnceThreadsAndQueueAreFull() throws InterruptedException {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, 5_000);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread busy = new Thread(() -> executor.call(() -> {
+            running.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        Thread queued = new Thread(() -> executor.call(() -> null));
+        busy.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        queued.start();
+        // Let the second call take the only queue slot.
+        Thread.sleep(200);
+
+        long startedAt = System.nanoTime();
+        RbacException refused = assertThrows(RbacException.class, () -> executor.call(() -> "never"));
+        assertTrue(System.nanoTime() - startedAt < 1_000_000_000L, "Refused without waiting");
+        assertTrue(refused.getMessage().contains("Too many"));
+
+        release.countDown();
+        busy.join();
+        queued.join();
+        assertEquals(1, executor.stats().rejected());
+        assertEquals(2, executor.stats().completed());
+    }
+
+    @Test
+    void givesUpOnASlowTaskAndFreesItsThread() {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, 100);
+
+        RbacException timedOut = assertThrows(RbacException.class, () -> executor.call(() -> {
+            awaitQuietly(new CountDownLatch(1));
+            return null;
+        }));
+
+        assertTrue(timedOut.getMessage().contains("timed out"));
+        assertEquals("next", executor.call(() -> "next"), "The timed-out task was interrupted");
+    }
+
+    @Test
+    void passesTaskFailuresThrough() {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, 5_000);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> executor.call(() -> {
+                    throw new IllegalStateException("PBKDF2 hashing failed");
+                }));
+        assertEquals("PBKDF2 hashing failed", failure.getMessage());
+    }
+
+    /** Wait until released or interrupted; interruption ends the wait like a cancelled hash. */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
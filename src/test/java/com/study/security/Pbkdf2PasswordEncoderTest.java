@@ -0,0 +1,57 @@
+package com.study.security;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Pbkdf2PasswordEncoderTest {
+    /** Low so the tests stay fast; real encoders calibrate to ~100 ms. */
+    private static final int ITERATIONS = 1_000;
+
+    private final Pbkdf2PasswordEncoder encoder = new Pbkdf2PasswordEncoder(ITERATIONS);
+
+    @Test
+    void storesTheIterationCountWithTheHash() {
+        String salt = encoder.generateSalt();
+        String encoded = encoder.encode("s3cret", salt);
+
+        assertTrue(encoded.startsWith("pbkdf2$1000$"));
+        assertTrue(encoder.matches("s3cret", encoded, salt));
+        assertFalse(encoder.matches("s3cret!", encoded, salt));
+        assertFalse(encoder.matches("s3cret", encoded, encoder.generateSalt()));
+        assertFalse(encoder.needsUpgrade(encoded));
+    }
+
+    @Test
+    void verifiesWithTheStoredIterationCount() {
+        String salt = encoder.generateSalt();
+        String encoded = new Pbkdf2PasswordEncoder(500).encode("s3cret", salt);
+
+        assertTrue(encoder.matches("s3cret", encoded, salt), "A hash stays valid after the cost changes");
+        assertTrue(encoder.needsUpgrade(encoded));
+        assertFalse(new Pbkdf2PasswordEncoder(500).needsUpgrade(encoder.encode("s3cret", salt)),
+                "A stronger hash is not downgraded");
+    }
+
+    @Test
+    void acceptsLegacySha256HashesAndAsksForAnUpgrade() {
+        Sha256PasswordEncoder legacy = new Sha256PasswordEncoder();
+        String salt = legacy.generateSalt();
+        String encoded = legacy.encode("s3cret", salt);
+
+        assertTrue(encoder.matches("s3cret", encoded, salt));
+        assertFalse(encoder.matches("wrong", encoded, salt));
+        assertTrue(encoder.needsUpgrade(encoded));
+    }
+
+    @Test
+    void rejectsMalformedHashes() {
+        String salt = encoder.generateSalt();
+
+        for (String encoded : new String[]{"pbkdf2$1000", "pbkdf2$many$AAAA", "pbkdf2$1000$not base64!"}) {
+            assertFalse(encoder.matches("s3cret", encoded, salt), encoded);
+        }
+        assertTrue(encoder.needsUpgrade("pbkdf2$1000"));
+        assertTrue(encoder.needsUpgrade("pbkdf2$many$AAAA"));
+    }
+}
@@ -41,13 +41,15 @@ class RbacIntegrationTest {
         permissionRepository = new PermissionRepository(dbConnection);
         resourceRepository = new ResourceRepository(dbConnection);
         auditLogRepository = new AuditLogRepository(dbConnection);
+        auditLogRepository.start();
 
         sessionContext = new SessionContext();
         authService = new AuthService(sessionContext, userRepository, permissionRepository, auditLogRepository);
         userService = new UserService(sessionContext, userRepository, roleRepository, auditLogRepository);
         roleService = new RoleService(sessionContext, roleRepository, permissionRepository, auditLogRepository);
         permissionService = new PermissionService(sessionContext, permissionRepository, auditLogRepository);
-        resourceService = new ResourceService(sessionContext, resourceRepository, auditLogRepository);
+        resourceService = new ResourceService(sessionContext, resourceRepository, permissionRepository,
+                auditLogRepository);
         auditService = new AuditService(sessionContext, auditLogRepository);
     }
 
@@ -0,0 +1,104 @@
+package com.study.service;
+
+import com.study.context.SessionContext;
+import com.study.domain.Resource;
+import com.study.domain.ScopedPermission;
+import com.study.repository.ResourceRepository;
+import com.study.repository.ResourceRepository.Location;
+import org.junit.jupiter.api.*;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceServiceTest {
+
+    /**
+     * Folder 1 holds folder 5, which holds document 12; document 20 is a
+     * root.
+     */
+    private static final class InMemoryResources extends ResourceRepository {
+        final Map<Long, Location> locations = Map.of(
+                1L, new Location(1, "FOLDER", List.of()),
+                5L, new Location(5, "FOLDER", List.of(1L)),
+                12L, new Location(12, "DOC", List.of(5L, 1L)),
+                20L, new Location(20, "DOC", List.of()));
+        int lookups;
+
+        InMemoryResources() {
+            super(null);
+        }
+
+        @Override
+        public Map<Long, Location> findLocations(Collection<Long> ids) {
+            lookups++;
+            Map<Long, Location> found = new HashMap<>();
+            for (Long id : ids) {
+                if (locations.containsKey(id)) {
+                    found.put(id, locations.get(id));
+                }
+            }
+            return found;
+        }
+    }
+
+    private final SessionContext session = new SessionContext();
+    private final InMemoryResources resources = new InMemoryResources();
+    private final ResourceService service = new ResourceService(session, resources, null, null);
+
+    private void grant(String permissionCode, String resourceType, String resourceId) {
+        session.setPermissions(List.of(),
+                List.of(new ScopedPermission(1L, permissionCode, resourceType, resourceId)));
+    }
+
+    @Test
+    void ancestorsAreReadFromThePathNearestFirst() {
+        Resource resource = new Resource();
+        assertEquals(List.of(), resource.getAncestorIds());
+
+        resource.setPath("/12/");
+        assertEquals(List.of(), resource.getAncestorIds());
+
+        resource.setPath("/1/5/12/");
+        assertEquals(List.of(5L, 1L), resource.getAncestorIds());
+    }
+
+    @Test
+    void aGrantOnAFolderCoversEverythingBelowIt() {
+        grant("doc.read", "FOLDER", "1");
+
+        assertTrue(service.hasPermission("doc.read", "FOLDER", "1"));
+        assertTrue(service.hasPermission("doc.read", "FOLDER", "5"));
+        assertTrue(service.hasPermission("doc.read", "DOC", "12"));
+        assertFalse(service.hasPermission("doc.read", "DOC", "20"), "Not below the folder");
+        assertFalse(service.hasPermission("doc.write", "DOC", "12"), "Only the granted permission is inherited");
+    }
+
+    @Test
+    void aGrantDoesNotReachUpwards() {
+        grant("doc.read", "FOLDER", "5");
+
+        assertTrue(service.hasPermission("doc.read", "DOC", "12"));
+        assertFalse(service.hasPermission("doc.read", "FOLDER", "1"));
+    }
+
+    @Test
+    void inheritanceNeedsTheResourcesOwnType() {
+        grant("doc.read", "FOLDER", "1");
+
+        assertFalse(service.hasPermission("doc.read", "FOLDER", "12"), "Resource 12 is a DOC");
+        assertFalse(service.hasPermission("doc.read", "DOC", "unknown"));
+        assertFalse(service.hasPermission("doc.read", "DOC", "404"));
+    }
+
+    @Test
+    void aDirectGrantNeedsNoHierarchyLookup() {
+        grant("doc.read", "DOC", "12");
+
+        assertTrue(service.hasPermission("doc.read", "DOC", "12"));
+        assertEquals(0, resources.lookups);
+    }
+}
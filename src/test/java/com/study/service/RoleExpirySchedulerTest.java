@@ -0,0 +1,133 @@
+package com.study.service;
+
+import com.study.domain.AuditLog;
+import com.study.repository.AuditLogRepository;
+import com.study.repository.RoleRepository;
+import com.study.repository.RoleRepository.Assignment;
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleExpirySchedulerTest {
+    private static final long TENANT = 1;
+
+    /** {@code user_roles} rows keyed by user id; one role per user is enough here. */
+    private static final class InMemoryAssignments extends RoleRepository {
+        final Map<Long, Assignment> rows = new ConcurrentHashMap<>();
+        final List<LocalDateTime> cleanups = new CopyOnWriteArrayList<>();
+
+        InMemoryAssignments() {
+            super(null);
+        }
+
+        @Override
+        public Optional<Assignment> findAssignment(long userId, long roleId) {
+            return Optional.ofNullable(rows.get(userId)).filter(row -> row.roleId() == roleId);
+        }
+
+        @Override
+        public int findPendingAssignments(LocalDateTime now, Consumer<Assignment> consumer) {
+            rows.values().forEach(consumer);
+            return rows.size();
+        }
+
+        @Override
+        public int deleteExpiredAssignments(LocalDateTime cutoff, int limit) {
+            cleanups.add(cutoff);
+            int before = rows.size();
+            rows.values().removeIf(row -> row.validUntil() != null && !row.validUntil().isAfter(cutoff));
+            return before - rows.size();
+        }
+    }
+
+    private static final class RecordingAudit extends AuditLogRepository {
+        final List<AuditLog> saved = new CopyOnWriteArrayList<>();
+
+        RecordingAudit() {
+            super(null);
+        }
+
+        @Override
+        public void save(AuditLog log) {
+            saved.add(log);
+        }
+    }
+
+    private final InMemoryAssignments assignments = new InMemoryAssignments();
+    private final RecordingAudit audit = new RecordingAudit();
+    private final RoleExpiryScheduler scheduler = new RoleExpiryScheduler(500);
+    private final BlockingQueue<Long> changedUsers = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void listen() {
+        scheduler.addListener(changedUsers::add);
+    }
+
+    private static Assignment assignment(long userId, LocalDateTime validFrom, LocalDateTime validUntil) {
+        return new Assignment(TENANT, userId, 10, validFrom, validUntil);
+    }
+
+    @Test
+    void schedulesOnlyTransitionsStillAhead() {
+        LocalDateTime now = LocalDateTime.now();
+
+        scheduler.schedule(assignment(1, now.plusHours(1), now.plusHours(2)));
+        scheduler.schedule(assignment(2, now.minusHours(1), null));
+        scheduler.schedule(assignment(3, null, now.minusSeconds(1)));
+
+        assertEquals(2, scheduler.pendingCount());
+    }
+
+    @Test
+    void endsAnAssignmentOnTimeAuditsAndDeletesIt() throws InterruptedException {
+        assignments.rows.put(1L, assignment(1, null, LocalDateTime.now().plusNanos(1_200_000_000L)));
+
+        scheduler.start(assignments, audit);
+
+        assertEquals(1L, changedUsers.poll(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!assignments.rows.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(assignments.rows.isEmpty(), "The ended row is deleted after its tick");
+        assertEquals(1, audit.saved.size());
+        assertEquals("EXPIRE_ROLE", audit.saved.get(0).getAction());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void startsAnAssignmentOnTime() throws InterruptedException {
+        assignments.rows.put(2L, assignment(2, LocalDateTime.now().plusNanos(1_200_000_000L), null));
+
+        scheduler.start(assignments, audit);
+
+        assertEquals(2L, changedUsers.poll(5, TimeUnit.SECONDS));
+        assertFalse(assignments.rows.isEmpty());
+        assertTrue(audit.saved.isEmpty(), "Only expiries are audited");
+    }
+
+    @Test
+    void reschedulesAnAssignmentExtendedSinceItsTimerWasSet() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        scheduler.schedule(assignment(3, null, now.plusNanos(1_200_000_000L)));
+        assignments.rows.put(3L, assignment(3, null, now.plusHours(1)));
+
+        scheduler.start(assignments, audit);
+
+        assertNull(changedUsers.poll(3, TimeUnit.SECONDS));
+        assertEquals(1, assignments.rows.size());
+        assertEquals(2, scheduler.pendingCount(), "The extension is loaded at start and re-armed when the old timer fires");
+        assertTrue(audit.saved.isEmpty());
+    }
+}
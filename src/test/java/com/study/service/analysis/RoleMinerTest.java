@@ -0,0 +1,110 @@
+package com.study.service.analysis;
+
+import com.study.domain.Role;
+import com.study.repository.RoleRepository;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleMinerTest {
+
+    /**
+     * Fixed roles and global grants, without a database.
+     */
+    private static final class InMemoryRoles extends RoleRepository {
+        private final List<Role> roles = new ArrayList<>();
+        private final List<Object[]> grants = new ArrayList<>();
+
+        InMemoryRoles() {
+            super(null);
+        }
+
+        void role(long id, String code, String... permissions) {
+            Role role = new Role();
+            role.setId(id);
+            role.setCode(code);
+            roles.add(role);
+            for (String permission : permissions) {
+                grants.add(new Object[]{id, permission});
+            }
+        }
+
+        @Override
+        public List<Role> findAll() {
+            return roles;
+        }
+
+        @Override
+        public long streamGrants(GrantHandler handler) {
+            for (Object[] grant : grants) {
+                handler.grant((Long) grant[0], (String) grant[1], null, null);
+            }
+            return grants.size();
+        }
+    }
+
+    private static String[] permissions(String prefix, int count) {
+        String[] codes = new String[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = prefix + i;
+        }
+        return codes;
+    }
+
+    private static InMemoryRoles sample() {
+        InMemoryRoles roles = new InMemoryRoles();
+        String[] ten = permissions("p", 10);
+        roles.role(1, "EDITOR", ten);
+        roles.role(2, "EDITOR_COPY", ten);
+        roles.role(3, "EDITOR_LITE", permissions("p", 9));
+        roles.role(4, "AUDITOR", "audit.view", "audit.export");
+        roles.role(5, "EMPTY");
+        return roles;
+    }
+
+    @Test
+    void exactAnalysisMergesIdenticalAndSimilarRoles() {
+        RoleMiner.Result result = new RoleMiner(sample(), 1_000).analyze(0.8);
+
+        assertFalse(result.approximate());
+        assertEquals(5, result.roles());
+        assertEquals(1, result.emptyRoles());
+        assertEquals(31, result.grants());
+        assertEquals(1, result.candidates().size());
+        RoleMiner.Candidate candidate = result.candidates().get(0);
+        assertEquals("EDITOR", candidate.keepRole(), "The oldest role holding the largest set is kept");
+        assertEquals(List.of("EDITOR_COPY", "EDITOR_LITE"), candidate.mergedRoles());
+        assertEquals(0.9, candidate.minSimilarity(), 1e-9);
+        // 10 + 10 + 9 rows become the keeper's 10.
+        assertEquals(19, candidate.rowsRemoved());
+    }
+
+    @Test
+    void lshAnalysisFindsTheSameCandidates() {
+        RoleMiner.Result exact = new RoleMiner(sample(), 1_000).analyze(0.8);
+        RoleMiner.Result lsh = new RoleMiner(sample(), 0).analyze(0.8);
+
+        assertTrue(lsh.approximate());
+        assertEquals(exact.candidates(), lsh.candidates());
+        assertEquals(exact.similarPairs(), lsh.similarPairs());
+    }
+
+    @Test
+    void lshNeverReportsAPairBelowTheThreshold() {
+        InMemoryRoles roles = new InMemoryRoles();
+        for (int i = 0; i < 50; i++) {
+            // HALF_i holds half of ROLE_i's grants: similarity 0.5.
+            roles.role(i + 1, "ROLE_" + i, permissions("r" + i + "-", 10));
+            roles.role(i + 100, "HALF_" + i, permissions("r" + i + "-", 5));
+        }
+
+        RoleMiner.Result result = new RoleMiner(roles, 0).analyze(0.9);
+
+        assertTrue(result.approximate());
+        assertEquals(0, result.similarPairs());
+        assertTrue(result.candidates().isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package com.study.service.export;
+
+import com.study.domain.Role;
+import com.study.repository.RoleRepository;
+import com.study.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessReviewExporterTest {
+    private static final LocalDateTime VALID_UNTIL = LocalDateTime.of(2030, 1, 2, 3, 4, 5);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Users 1 (alice: READER and, until {@link #VALID_UNTIL}, WRITER) and
+     * 2 (bob: no roles).
+     */
+    private static final class InMemoryUsers extends UserRepository {
+        InMemoryUsers() {
+            super(null);
+        }
+
+        @Override
+        public long[] findIdRange() {
+            return new long[]{1, 2};
+        }
+    }
+
+    private static final class InMemoryRoles extends RoleRepository {
+        InMemoryRoles() {
+            super(null);
+        }
+
+        @Override
+        public List<Role> findAll() {
+            return List.of(role(10, "READER"), role(11, "WRITER"));
+        }
+
+        @Override
+        public long streamGrants(GrantHandler handler) {
+            handler.grant(10, "doc.read", null, null);
+            handler.grant(10, "doc.archive", "DOC", "d,1");
+            handler.grant(11, "doc.write", "DOC", null);
+            return 3;
+        }
+
+        @Override
+        public long streamAssignmentsByUser(long fromUserId, long toUserId, LocalDateTime now,
+                                            UserAssignmentHandler handler) {
+            long rows = 0;
+            if (fromUserId <= 1 && 1 < toUserId) {
+                handler.assignment(1, "alice", 10L, null);
+                handler.assignment(1, "alice", 11L, VALID_UNTIL);
+                rows += 2;
+            }
+            if (fromUserId <= 2 && 2 < toUserId) {
+                handler.assignment(2, "bob", null, null);
+                rows++;
+            }
+            return rows;
+        }
+
+        private static Role role(long id, String code) {
+            Role role = new Role();
+            role.setId(id);
+            role.setCode(code);
+            return role;
+        }
+    }
+
+    @Test
+    void writesOneCsvRowPerUserAndGrantInPermissionOrder() throws IOException {
+        Path target = directory.resolve("review.csv.gz");
+
+        AccessReviewExporter.Result result = new AccessReviewExporter(new InMemoryUsers(), new InMemoryRoles(), 2)
+                .export(AuditExporter.Format.CSV, target, null);
+
+        assertEquals(2, result.users());
+        assertEquals(3, result.rows());
+        assertEquals(Files.size(target), result.bytes());
+        assertEquals(List.of(
+                "user_id,username,permission_code,resource_type,resource_id,role_code,source,valid_until",
+                "1,alice,doc.archive,DOC,\"d,1\",READER,DIRECT,",
+                "1,alice,doc.read,,,READER,DIRECT,",
+                "1,alice,doc.write,DOC,,WRITER,DIRECT,2030-01-02T03:04:05.000"), readGzip(target));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(target), files.toList(), "Part files are removed");
+        }
+    }
+
+    @Test
+    void writesNdjson() throws IOException {
+        Path target = directory.resolve("review.ndjson.gz");
+
+        new AccessReviewExporter(new InMemoryUsers(), new InMemoryRoles(), 1)
+                .export(AuditExporter.Format.NDJSON, target, null);
+
+        List<String> lines = readGzip(target);
+        assertEquals(3, lines.size());
+        assertEquals("{\"user_id\":1,\"username\":\"alice\",\"permission_code\":\"doc.write\","
+                + "\"resource_type\":\"DOC\",\"resource_id\":null,\"role_code\":\"WRITER\",\"source\":\"DIRECT\","
+                + "\"valid_until\":\"2030-01-02T03:04:05.000\"}", lines.get(2));
+    }
+
+    /**
+     * Every line of a gzip file; the exporter writes several members, which
+     * {@link GZIPInputStream} reads as one stream.
+     */
+    private static List<String> readGzip(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}